@@ -0,0 +1,45 @@
+package com.crunchydevops;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Base of the {@link PointStore}s whose columns are {@link ByteBuffer}s released on close.
+ * Closing sets a flag before the column fields are nulled, and readers take each column
+ * through {@link #ensureOpen(ByteBuffer)} once, so that a concurrent close fails a read
+ * with {@link IllegalStateException} rather than a {@link NullPointerException}.
+ */
+abstract class BufferPointStore implements PointStore {
+    private volatile boolean closed = false;
+
+    /**
+     * @return true once {@link #markClosed()} was called
+     */
+    final boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Marks the store closed; the columns may be released afterwards.
+     */
+    final void markClosed() {
+        closed = true;
+    }
+
+    final void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Point cloud is closed");
+        }
+    }
+
+    /**
+     * Checks a column read once from its field, so that a concurrent close
+     * cannot null it between the check and the access.
+     */
+    final ByteBuffer ensureOpen(ByteBuffer column) {
+        if (column == null) {
+            throw new IllegalStateException("Point cloud is closed");
+        }
+        ensureOpen();
+        return column;
+    }
+}
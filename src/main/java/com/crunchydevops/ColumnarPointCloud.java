@@ -0,0 +1,128 @@
+package com.crunchydevops;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * A read-only {@link PointCloud} memory-mapped from a compact columnar file.
+ * The file keeps the ids in ascending order next to the x, y and z columns, so opening it
+ * maps the columns as they are instead of parsing or rebuilding an index; a warm restart
+ * costs a few page faults rather than a DXF parse. Every block of consecutive points
+ * records its bounding box, which lets {@link #window} skip blocks that miss the query.
+ * <p>
+ * The update methods throw {@link UnsupportedOperationException}. Queries may run
+ * concurrently. A cloud holds up to {@value ColumnarPointStore#MAX_SIZE} points and
+ * should be closed to release its mappings.
+ */
+public final class ColumnarPointCloud extends PointCloud implements AutoCloseable {
+
+    private ColumnarPointCloud(ColumnarPointStore store) {
+        super(store);
+    }
+
+    /**
+     * Maps the columnar file written by {@link #write(PointCloud, Path)}.
+     *
+     * @param file The columnar file
+     * @throws IOException if the file cannot be mapped or is not a columnar point cloud file
+     */
+    public static ColumnarPointCloud open(Path file) throws IOException {
+        return new ColumnarPointCloud(ColumnarPointStore.open(file));
+    }
+
+    /**
+     * Writes the points of a cloud to a columnar file, replacing any existing file,
+     * with one bounding box per {@value ColumnarPointStore#DEFAULT_BLOCK_SIZE} points.
+     *
+     * @param cloud The cloud to write; it must not be updated meanwhile
+     * @param file The file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(PointCloud cloud, Path file) throws IOException {
+        write(cloud, file, ColumnarPointStore.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Writes the points of a cloud to a columnar file, replacing any existing file.
+     * The file is written under a temporary name and moved into place atomically, so clouds
+     * still mapping the old file keep reading it and a failed write leaves it untouched.
+     * Smaller blocks prune window queries more finely at the cost of more bounding boxes.
+     *
+     * @param cloud The cloud to write; it must not be updated meanwhile
+     * @param file The file to write
+     * @param blockSize The number of consecutive points sharing one bounding box
+     * @throws IllegalArgumentException if blockSize is not positive
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(PointCloud cloud, Path file, int blockSize) throws IOException {
+        ColumnarPointStore.write(cloud, file, blockSize);
+    }
+
+    /**
+     * @return The number of consecutive points sharing one bounding box
+     */
+    public int blockSize() {
+        return columnarStore().blockSize();
+    }
+
+    /**
+     * Finds the points inside an axis-aligned rectangle, boundary included.
+     * Pruning works best when ids follow the survey order, so that blocks are spatially compact.
+     *
+     * @return The IDs of the points found, in ascending order
+     * @throws IllegalStateException if the cloud is closed
+     */
+    public long[] window(double minX, double minY, double maxX, double maxY) {
+        LongStream.Builder ids = LongStream.builder();
+        window(minX, minY, maxX, maxY, ids);
+        return ids.build().toArray();
+    }
+
+    /**
+     * Passes the ID of each point inside an axis-aligned rectangle, boundary included,
+     * to the consumer in ascending order.
+     *
+     * @throws IllegalStateException if the cloud is closed
+     */
+    public void window(double minX, double minY, double maxX, double maxY, LongConsumer consumer) {
+        columnarStore().window(minX, minY, maxX, maxY, consumer);
+    }
+
+    /**
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean addPoint(long id, Point3D point) {
+        throw new UnsupportedOperationException("Columnar point clouds are read-only");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public long addAll(float[] x, float[] y, float[] z) {
+        throw new UnsupportedOperationException("Columnar point clouds are read-only");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean removePoint(long id) {
+        throw new UnsupportedOperationException("Columnar point clouds are read-only");
+    }
+
+    /**
+     * Releases the mappings. Lookups on a closed cloud throw {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        columnarStore().close();
+    }
+
+    private ColumnarPointStore columnarStore() {
+        return (ColumnarPointStore) store();
+    }
+}
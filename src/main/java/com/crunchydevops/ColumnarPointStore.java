@@ -0,0 +1,299 @@
+package com.crunchydevops;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Read-only {@link PointStore} over a memory-mapped columnar point cloud file.
+ * Points are stored in ascending id order, so the id column doubles as the id index
+ * and lookups are a binary search; nothing is copied or rebuilt on open.
+ * <p>
+ * A file holds a 64 byte header (magic, version, size, block size, max id) followed
+ * by the id, x, y and z columns and the bounds of every block of {@code blockSize}
+ * consecutive points as min x, min y, min z, max x, max y, max z, all little-endian.
+ * Each region is a separate buffer so that no single mapping exceeds 2 GB.
+ */
+final class ColumnarPointStore extends BufferPointStore {
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarPointStore.class);
+    private static final int MAGIC = 0x4C4F4350; // "PCOL" little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SIZE_OFFSET = 8;
+    private static final int BLOCK_SIZE_OFFSET = 12;
+    private static final int MAX_ID_OFFSET = 16;
+    private static final int BOUNDS_PER_BLOCK = 6;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    static final int DEFAULT_BLOCK_SIZE = 4096;
+    // The id column (8 bytes per point) must fit in one buffer
+    static final int MAX_SIZE = Integer.MAX_VALUE / 8;
+
+    private final int size;
+    private final int blockSize;
+    private final long maxId;
+    private ByteBuffer ids;
+    private ByteBuffer xs;
+    private ByteBuffer ys;
+    private ByteBuffer zs;
+    private ByteBuffer bounds;
+
+    private ColumnarPointStore(int size, int blockSize, long maxId) {
+        this.size = size;
+        this.blockSize = blockSize;
+        this.maxId = maxId;
+    }
+
+    /**
+     * Maps the columnar file read-only. The mappings stay valid after the channel is closed.
+     *
+     * @throws IOException if the file cannot be mapped or is not a columnar point cloud file
+     */
+    static ColumnarPointStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a columnar point cloud file: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            int fileSize = header.getInt(SIZE_OFFSET);
+            int fileBlockSize = header.getInt(BLOCK_SIZE_OFFSET);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                    || fileSize < 0 || fileSize > MAX_SIZE || fileBlockSize <= 0
+                    || channel.size() != fileLength(fileSize, fileBlockSize)) {
+                throw new IOException("Not a columnar point cloud file: " + file);
+            }
+            ColumnarPointStore store = new ColumnarPointStore(fileSize, fileBlockSize, header.getLong(MAX_ID_OFFSET));
+            long offset = HEADER_SIZE;
+            store.ids = region(channel, offset, 8L * fileSize);
+            offset += 8L * fileSize;
+            store.xs = region(channel, offset, 4L * fileSize);
+            offset += 4L * fileSize;
+            store.ys = region(channel, offset, 4L * fileSize);
+            offset += 4L * fileSize;
+            store.zs = region(channel, offset, 4L * fileSize);
+            offset += 4L * fileSize;
+            store.bounds = region(channel, offset, 4L * BOUNDS_PER_BLOCK * blockCount(fileSize, fileBlockSize));
+            logger.debug("Mapped columnar point cloud file {} with {} points", file, fileSize);
+            return store;
+        }
+    }
+
+    private static ByteBuffer region(FileChannel channel, long offset, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int blockCount(int size, int blockSize) {
+        return (int) ((size + (long) blockSize - 1) / blockSize);
+    }
+
+    private static long fileLength(int size, int blockSize) {
+        return HEADER_SIZE + 20L * size + 4L * BOUNDS_PER_BLOCK * blockCount(size, blockSize);
+    }
+
+    /**
+     * Writes the points of a cloud to a columnar file in ascending id order, atomically replacing any existing file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    static void write(PointCloud cloud, Path file, int blockSize) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        int size = cloud.size();
+        if (size > MAX_SIZE) {
+            throw new IllegalArgumentException("Columnar files cannot hold more than " + MAX_SIZE + " points");
+        }
+        long[] sortedIds = new long[size];
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedIds[i] = cloud.idAt(i);
+        }
+        Arrays.parallelSort(sortedIds);
+        for (int i = 0; i < size; i++) {
+            order[i] = cloud.indexOf(sortedIds[i]);
+        }
+
+        // Readers may have the existing file mapped, so it is replaced rather than rewritten in place
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            writeColumns(cloud, temporary, blockSize, sortedIds, order);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        logger.debug("Wrote {} points to columnar point cloud file {}", size, file);
+    }
+
+    private static void writeColumns(PointCloud cloud, Path file, int blockSize, long[] sortedIds, int[] order)
+            throws IOException {
+        int size = sortedIds.length;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(blockSize)
+                .putLong(Math.max(cloud.store().maxId(), size == 0 ? 0 : sortedIds[size - 1]));
+            buffer.position(HEADER_SIZE);
+            for (long id : sortedIds) {
+                drainIfFull(channel, buffer, 8);
+                buffer.putLong(id);
+            }
+            for (int column = 0; column < 3; column++) {
+                for (int index : order) {
+                    drainIfFull(channel, buffer, 4);
+                    buffer.putFloat(column == 0 ? cloud.xAt(index) : column == 1 ? cloud.yAt(index) : cloud.zAt(index));
+                }
+            }
+            for (int start = 0, end; start < size; start = end) {
+                end = start + Math.min(blockSize, size - start);
+                float[] box = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+                    Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+                for (int i = start; i < end; i++) {
+                    float x = cloud.xAt(order[i]);
+                    float y = cloud.yAt(order[i]);
+                    float z = cloud.zAt(order[i]);
+                    box[0] = Math.min(box[0], x);
+                    box[1] = Math.min(box[1], y);
+                    box[2] = Math.min(box[2], z);
+                    box[3] = Math.max(box[3], x);
+                    box[4] = Math.max(box[4], y);
+                    box[5] = Math.max(box[5], z);
+                }
+                for (float bound : box) {
+                    drainIfFull(channel, buffer, 4);
+                    buffer.putFloat(bound);
+                }
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    private static void drainIfFull(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() < needed) {
+            drain(channel, buffer);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public float x(int index) {
+        return ensureOpen(xs).getFloat(index << 2);
+    }
+
+    @Override
+    public float y(int index) {
+        return ensureOpen(ys).getFloat(index << 2);
+    }
+
+    @Override
+    public float z(int index) {
+        return ensureOpen(zs).getFloat(index << 2);
+    }
+
+    @Override
+    public long id(int index) {
+        return ensureOpen(ids).getLong(index << 3);
+    }
+
+    @Override
+    public int indexOf(long id) {
+        ByteBuffer ids = ensureOpen(this.ids);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long current = ids.getLong(mid << 3);
+            if (current < id) {
+                low = mid + 1;
+            } else if (current > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void append(long id, float x, float y, float z) {
+        throw new UnsupportedOperationException("Columnar point clouds are read-only");
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        throw new UnsupportedOperationException("Columnar point clouds are read-only");
+    }
+
+    @Override
+    public boolean remove(long id) {
+        throw new UnsupportedOperationException("Columnar point clouds are read-only");
+    }
+
+    @Override
+    public long maxId() {
+        return maxId;
+    }
+
+    /**
+     * @return The number of consecutive points sharing one set of block bounds
+     */
+    int blockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Passes the ids of the points inside the box, bounds included, in ascending id order.
+     * Blocks whose bounds miss the box are skipped without reading their points.
+     */
+    void window(double minX, double minY, double maxX, double maxY, LongConsumer consumer) {
+        ByteBuffer ids = ensureOpen(this.ids);
+        ByteBuffer xs = ensureOpen(this.xs);
+        ByteBuffer ys = ensureOpen(this.ys);
+        ByteBuffer bounds = ensureOpen(this.bounds);
+        int blocks = blockCount(size, blockSize);
+        for (int block = 0; block < blocks; block++) {
+            int base = block * BOUNDS_PER_BLOCK * 4;
+            if (bounds.getFloat(base) > maxX || bounds.getFloat(base + 4) > maxY
+                    || bounds.getFloat(base + 12) < minX || bounds.getFloat(base + 16) < minY) {
+                continue;
+            }
+            int end = (int) Math.min(size, (long) (block + 1) * blockSize);
+            for (int i = block * blockSize; i < end; i++) {
+                float x = xs.getFloat(i << 2);
+                float y = ys.getFloat(i << 2);
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    consumer.accept(ids.getLong(i << 3));
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases the mappings; the memory is returned once the buffers are no longer reachable.
+     */
+    void close() {
+        markClosed();
+        ids = xs = ys = zs = bounds = null;
+    }
+}
@@ -0,0 +1,202 @@
+package com.crunchydevops;
+
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * A {@link PointCloud} that can be filled and queried from many threads at once.
+ * <p>
+ * {@link #addPoint(long, Point3D)} is atomic with the same duplicate-id contract as the base class:
+ * of several threads adding the same id, exactly one succeeds. Appends of different ids run in
+ * parallel, contending only when their ids fall in the same stripe of the id index.
+ * Queries never block appends. They run as optimistic reads and are retried under a read lock only
+ * if a {@link #removePoint(long)} or {@link #addAll(float[], float[], float[])} ran meanwhile;
+ * those two operations move or number points and take an exclusive lock.
+ * <p>
+ * A query sees every point whose append completed before it started, and {@link #size()} only
+ * counts fully written points. Index-based access stays consistent while points are appended,
+ * since appends never move existing points.
+ * Building a {@link KdTree} or {@link GridIndex} reads the columns directly and must not
+ * run concurrently with {@link #removePoint(long)}.
+ */
+public final class ConcurrentPointCloud extends PointCloud {
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Creates a new empty concurrent point cloud.
+     */
+    public ConcurrentPointCloud() {
+        this(0);
+    }
+
+    /**
+     * Creates a new empty concurrent point cloud with room for the given number of points.
+     *
+     * @param initialCapacity The number of points to allocate space for
+     * @throws IllegalArgumentException if initialCapacity is negative
+     */
+    public ConcurrentPointCloud(int initialCapacity) {
+        super(new ConcurrentPointStore(initialCapacity));
+    }
+
+    @Override
+    public boolean addPoint(long id, Point3D point) {
+        long stamp = lock.readLock();
+        try {
+            return super.addPoint(id, point);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The block of ids is assigned atomically; other updates wait until the points are added.
+     */
+    @Override
+    public long addAll(float[] x, float[] y, float[] z) {
+        long stamp = lock.writeLock();
+        try {
+            return super.addAll(x, y, z);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean removePoint(long id) {
+        long stamp = lock.writeLock();
+        try {
+            return super.removePoint(id);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Runs a query optimistically, falling back to the read lock if points were moved meanwhile.
+     * An exception from an invalidated attempt is discarded along with its result.
+     */
+    private <T> T read(Supplier<T> query) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = query.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return query.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void read(Runnable query) {
+        read(() -> {
+            query.run();
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<Point3D> getPoint(long id) {
+        return read(() -> super.getPoint(id));
+    }
+
+    @Override
+    public int indexOf(long id) {
+        return read(() -> super.indexOf(id));
+    }
+
+    @Override
+    public long idAt(int index) {
+        return read(() -> super.idAt(index));
+    }
+
+    @Override
+    public float xAt(int index) {
+        return read(() -> super.xAt(index));
+    }
+
+    @Override
+    public float yAt(int index) {
+        return read(() -> super.yAt(index));
+    }
+
+    @Override
+    public float zAt(int index) {
+        return read(() -> super.zAt(index));
+    }
+
+    @Override
+    public Optional<Double> distance(long id1, long id2) {
+        return read(() -> super.distance(id1, id2));
+    }
+
+    @Override
+    public Optional<Double> slope(long id1, long id2) {
+        return read(() -> super.slope(id1, id2));
+    }
+
+    @Override
+    public Optional<Double> bearing(long id1, long id2) {
+        return read(() -> super.bearing(id1, id2));
+    }
+
+    @Override
+    public void distances(long[] ids1, long[] ids2, double[] out) {
+        read(() -> super.distances(ids1, ids2, out));
+    }
+
+    @Override
+    public void slopes(long[] ids1, long[] ids2, double[] out) {
+        read(() -> super.slopes(ids1, ids2, out));
+    }
+
+    @Override
+    public void bearings(long[] ids1, long[] ids2, double[] out) {
+        read(() -> super.bearings(ids1, ids2, out));
+    }
+
+    @Override
+    public void distancesAt(int[] indices1, int[] indices2, double[] out) {
+        read(() -> super.distancesAt(indices1, indices2, out));
+    }
+
+    @Override
+    public void slopesAt(int[] indices1, int[] indices2, double[] out) {
+        read(() -> super.slopesAt(indices1, indices2, out));
+    }
+
+    @Override
+    public void bearingsAt(int[] indices1, int[] indices2, double[] out) {
+        read(() -> super.bearingsAt(indices1, indices2, out));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Points appended during the pass may or may not be included.
+     */
+    @Override
+    public Optional<PointCloudStatistics> statistics() {
+        return read(super::statistics);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Points appended during the pass may or may not be included.
+     */
+    @Override
+    public Optional<PointCloudStatistics> parallelStatistics() {
+        return read(super::parallelStatistics);
+    }
+}
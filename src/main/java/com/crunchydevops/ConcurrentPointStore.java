@@ -0,0 +1,252 @@
+package com.crunchydevops;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe {@link PointStore} for concurrent appends.
+ * <p>
+ * Columns are split into fixed-size chunks that never move once allocated, so appending
+ * threads write their points in parallel and readers need no lock to read a column.
+ * The id index is striped: each stripe is a {@link LongIntHashMap} guarded by its own
+ * {@link StampedLock}, and lookups are optimistic reads that only fall back to the read lock
+ * if a writer touched the stripe meanwhile. Appends reserve their index with an atomic counter
+ * and mark it done once written; whichever append finishes advances {@link #size()} over the
+ * done indices, so it only counts fully written points and no append waits for another.
+ * <p>
+ * {@link #remove(long)} is not safe against concurrent appends or reads, and neither is
+ * assigning ids from {@link #maxId()}; {@link ConcurrentPointCloud} runs those under an exclusive lock.
+ */
+final class ConcurrentPointStore implements PointStore {
+    private static final int CHUNK_SHIFT = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int STRIPES = 64;
+
+    private volatile Chunk[] chunks = new Chunk[0];
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final AtomicLong maxId = new AtomicLong();
+    private final AtomicInteger published = new AtomicInteger();
+
+    ConcurrentPointStore(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(initialCapacity / STRIPES);
+        }
+        allocateChunks(initialCapacity);
+    }
+
+    private static final class Chunk {
+        private final float[] xs = new float[CHUNK_SIZE];
+        private final float[] ys = new float[CHUNK_SIZE];
+        private final float[] zs = new float[CHUNK_SIZE];
+        private final long[] ids = new long[CHUNK_SIZE];
+        private final AtomicLongArray done = new AtomicLongArray(CHUNK_SIZE / Long.SIZE);
+    }
+
+    private static final class Stripe {
+        private final StampedLock lock = new StampedLock();
+        private final LongIntHashMap index;
+
+        private Stripe(int expectedSize) {
+            this.index = new LongIntHashMap(expectedSize);
+        }
+    }
+
+    private Stripe stripe(long id) {
+        // Mix the id so that neither sequential ids nor the bits used by the map pick the stripe
+        long h = id ^ (id >>> 33);
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return stripes[(int) h & (STRIPES - 1)];
+    }
+
+    private Chunk chunk(int index) {
+        return chunks[index >>> CHUNK_SHIFT];
+    }
+
+    /**
+     * Makes sure chunks exist for the first {@code capacity} indices.
+     */
+    private void allocateChunks(int capacity) {
+        int needed = (int) (((long) capacity + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+        if (chunks.length >= needed) {
+            return;
+        }
+        synchronized (this) {
+            Chunk[] current = chunks;
+            if (current.length < needed) {
+                Chunk[] grown = Arrays.copyOf(current, Math.max(needed, current.length * 2));
+                for (int i = current.length; i < grown.length; i++) {
+                    grown[i] = new Chunk();
+                }
+                chunks = grown;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return published.get();
+    }
+
+    @Override
+    public float x(int index) {
+        return chunk(index).xs[index & (CHUNK_SIZE - 1)];
+    }
+
+    @Override
+    public float y(int index) {
+        return chunk(index).ys[index & (CHUNK_SIZE - 1)];
+    }
+
+    @Override
+    public float z(int index) {
+        return chunk(index).zs[index & (CHUNK_SIZE - 1)];
+    }
+
+    @Override
+    public long id(int index) {
+        return chunk(index).ids[index & (CHUNK_SIZE - 1)];
+    }
+
+    @Override
+    public int indexOf(long id) {
+        Stripe stripe = stripe(id);
+        long stamp = stripe.lock.tryOptimisticRead();
+        int index = stripe.index.getRacy(id);
+        if (stripe.lock.validate(stamp)) {
+            return index;
+        }
+        stamp = stripe.lock.readLock();
+        try {
+            return stripe.index.get(id);
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void append(long id, float x, float y, float z) {
+        appendIfAbsent(id, x, y, z);
+    }
+
+    @Override
+    public boolean appendIfAbsent(long id, float x, float y, float z) {
+        Stripe stripe = stripe(id);
+        int index;
+        long stamp = stripe.lock.writeLock();
+        try {
+            if (stripe.index.get(id) >= 0) {
+                return false;
+            }
+            index = reserved.getAndIncrement();
+            if (index < 0) {
+                reserved.decrementAndGet();
+                throw new IllegalStateException("Point cloud is full");
+            }
+            allocateChunks(index + 1);
+            Chunk chunk = chunk(index);
+            int offset = index & (CHUNK_SIZE - 1);
+            chunk.xs[offset] = x;
+            chunk.ys[offset] = y;
+            chunk.zs[offset] = z;
+            chunk.ids[offset] = id;
+            stripe.index.put(id, index);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+        long current;
+        while (id > (current = maxId.get()) && !maxId.compareAndSet(current, id)) {
+            Thread.onSpinWait();
+        }
+        publish(index);
+        return true;
+    }
+
+    /**
+     * Marks a written index as done and advances the published size over every done index.
+     * Each append marks its index before scanning, so the last one to finish an unbroken
+     * run always publishes it.
+     */
+    private void publish(int index) {
+        chunk(index).done.getAndAccumulate((index & (CHUNK_SIZE - 1)) >>> 6, 1L << index, (a, b) -> a | b);
+        while (true) {
+            int size = published.get();
+            if (size >= reserved.get() || !isDone(size)) {
+                return;
+            }
+            published.compareAndSet(size, size + 1);
+        }
+    }
+
+    private boolean isDone(int index) {
+        // The chunk of an index reserved by another append may not be allocated yet
+        Chunk[] current = chunks;
+        int chunk = index >>> CHUNK_SHIFT;
+        return chunk < current.length
+            && (current[chunk].done.get((index & (CHUNK_SIZE - 1)) >>> 6) & (1L << index)) != 0;
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        allocateChunks(capacity);
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.writeLock();
+            try {
+                stripe.index.ensureCapacity(capacity / STRIPES + capacity / (4 * STRIPES));
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(long id) {
+        Stripe stripe = stripe(id);
+        int index;
+        long stamp = stripe.lock.writeLock();
+        try {
+            index = stripe.index.remove(id);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+        if (index < 0) {
+            return false;
+        }
+        int last = published.get() - 1;
+        if (index != last) {
+            Chunk from = chunk(last);
+            Chunk to = chunk(index);
+            int source = last & (CHUNK_SIZE - 1);
+            int target = index & (CHUNK_SIZE - 1);
+            to.xs[target] = from.xs[source];
+            to.ys[target] = from.ys[source];
+            to.zs[target] = from.zs[source];
+            long movedId = from.ids[source];
+            to.ids[target] = movedId;
+            Stripe moved = stripe(movedId);
+            stamp = moved.lock.writeLock();
+            try {
+                moved.index.put(movedId, index);
+            } finally {
+                moved.lock.unlockWrite(stamp);
+            }
+        }
+        Chunk lastChunk = chunk(last);
+        lastChunk.done.getAndAccumulate((last & (CHUNK_SIZE - 1)) >>> 6, ~(1L << last), (a, b) -> a & b);
+        reserved.set(last);
+        published.set(last);
+        return true;
+    }
+
+    @Override
+    public long maxId() {
+        return maxId.get();
+    }
+}
@@ -0,0 +1,358 @@
+package com.crunchydevops;
+
+import java.util.Arrays;
+
+/**
+ * {@link PointStore} whose columns and id index are split into pages that can be shared with
+ * read-only snapshots.
+ * <p>
+ * Every page records the epoch it was created in. Taking a snapshot shares the page directories
+ * with a frozen store and starts a new epoch, which costs O(1). The next update copies the
+ * directories once, and each update copies a page of an older epoch before writing to it,
+ * so a snapshot keeps seeing exactly the pages it was created with.
+ * The id index is an open-addressing table with linear probing and backward-shift deletion,
+ * like {@link LongIntHashMap}, laid out over pages of slots.
+ */
+final class CopyOnWritePointStore implements PointStore {
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int INDEX_PAGE_SHIFT = 10;
+    private static final int MIN_INDEX_CAPACITY = 16;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+    private static final int MAX_INDEX_CAPACITY = 1 << 30;
+    // The index is kept at most half full, as in LongIntHashMap
+    static final int MAX_SIZE = MAX_INDEX_CAPACITY / 2;
+
+    private final boolean frozen;
+    private Page[] pages;
+    private int size;
+    private long maxId;
+    private IndexPage[] indexPages;
+    private int indexCapacity;
+    private int indexShift;
+    private int indexSize;
+    private long epoch = 0;
+    private boolean shared = false;
+
+    /**
+     * @throws IllegalArgumentException if initialCapacity is negative or exceeds {@link #MAX_SIZE}
+     */
+    CopyOnWritePointStore(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        int indexCapacity = indexCapacityFor(initialCapacity);
+        this.frozen = false;
+        this.pages = new Page[(initialCapacity + PAGE_SIZE - 1) >>> PAGE_SHIFT];
+        allocateIndex(indexCapacity);
+    }
+
+    private CopyOnWritePointStore(CopyOnWritePointStore source) {
+        this.frozen = true;
+        this.pages = source.pages;
+        this.size = source.size;
+        this.maxId = source.maxId;
+        this.indexPages = source.indexPages;
+        this.indexCapacity = source.indexCapacity;
+        this.indexShift = source.indexShift;
+        this.indexSize = source.indexSize;
+    }
+
+    private static final class Page {
+        private final float[] xs;
+        private final float[] ys;
+        private final float[] zs;
+        private final long[] ids;
+        private final long epoch;
+
+        private Page(long epoch) {
+            this(new float[PAGE_SIZE], new float[PAGE_SIZE], new float[PAGE_SIZE], new long[PAGE_SIZE], epoch);
+        }
+
+        private Page(float[] xs, float[] ys, float[] zs, long[] ids, long epoch) {
+            this.xs = xs;
+            this.ys = ys;
+            this.zs = zs;
+            this.ids = ids;
+            this.epoch = epoch;
+        }
+
+        private Page copy(long epoch) {
+            return new Page(xs.clone(), ys.clone(), zs.clone(), ids.clone(), epoch);
+        }
+    }
+
+    private static final class IndexPage {
+        private final long[] keys;
+        private final int[] values; // value + 1, 0 marks an empty slot
+        private final long epoch;
+
+        private IndexPage(int slots, long epoch) {
+            this(new long[slots], new int[slots], epoch);
+        }
+
+        private IndexPage(long[] keys, int[] values, long epoch) {
+            this.keys = keys;
+            this.values = values;
+            this.epoch = epoch;
+        }
+
+        private IndexPage copy(long epoch) {
+            return new IndexPage(keys.clone(), values.clone(), epoch);
+        }
+    }
+
+    /**
+     * Freezes the current contents into a read-only store sharing all pages.
+     */
+    CopyOnWritePointStore snapshot() {
+        CopyOnWritePointStore snapshot = new CopyOnWritePointStore(this);
+        shared = true;
+        epoch++;
+        return snapshot;
+    }
+
+    private void checkWritable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+        if (shared) {
+            // The first update after a snapshot gives this store its own directories
+            pages = pages.clone();
+            indexPages = indexPages.clone();
+            shared = false;
+        }
+    }
+
+    private Page writablePage(int index) {
+        int p = index >>> PAGE_SHIFT;
+        Page page = pages[p];
+        if (page == null) {
+            page = new Page(epoch);
+            pages[p] = page;
+        } else if (page.epoch != epoch) {
+            page = page.copy(epoch);
+            pages[p] = page;
+        }
+        return page;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public float x(int index) {
+        return pages[index >>> PAGE_SHIFT].xs[index & (PAGE_SIZE - 1)];
+    }
+
+    @Override
+    public float y(int index) {
+        return pages[index >>> PAGE_SHIFT].ys[index & (PAGE_SIZE - 1)];
+    }
+
+    @Override
+    public float z(int index) {
+        return pages[index >>> PAGE_SHIFT].zs[index & (PAGE_SIZE - 1)];
+    }
+
+    @Override
+    public long id(int index) {
+        return pages[index >>> PAGE_SHIFT].ids[index & (PAGE_SIZE - 1)];
+    }
+
+    @Override
+    public int indexOf(long id) {
+        for (int slot = slot(id); ; slot = (slot + 1) & (indexCapacity - 1)) {
+            int value = value(slot);
+            if (value == 0) {
+                return -1;
+            }
+            if (key(slot) == id) {
+                return value - 1;
+            }
+        }
+    }
+
+    @Override
+    public void append(long id, float x, float y, float z) {
+        checkWritable();
+        if (size == MAX_SIZE) {
+            throw new IllegalStateException("Point cloud cannot hold more than " + MAX_SIZE + " points");
+        }
+        if (size == (long) pages.length * PAGE_SIZE) {
+            pages = Arrays.copyOf(pages, Math.max(1, pages.length * 2));
+        }
+        Page page = writablePage(size);
+        int offset = size & (PAGE_SIZE - 1);
+        page.xs[offset] = x;
+        page.ys[offset] = y;
+        page.zs[offset] = z;
+        page.ids[offset] = id;
+        indexPut(id, size);
+        size++;
+        maxId = Math.max(maxId, id);
+    }
+
+    /**
+     * @throws IllegalArgumentException if capacity exceeds {@link #MAX_SIZE}
+     */
+    @Override
+    public void ensureCapacity(int capacity) {
+        if (capacity > MAX_SIZE) {
+            throw new IllegalArgumentException("Point cloud cannot hold more than " + MAX_SIZE + " points");
+        }
+        checkWritable();
+        int needed = (int) (((long) capacity + PAGE_SIZE - 1) >>> PAGE_SHIFT);
+        if (needed > pages.length) {
+            pages = Arrays.copyOf(pages, needed);
+        }
+        int tableSize = indexCapacityFor(capacity);
+        if (tableSize > indexCapacity) {
+            rehash(tableSize);
+        }
+    }
+
+    @Override
+    public boolean remove(long id) {
+        checkWritable();
+        int i = indexRemove(id);
+        if (i < 0) {
+            return false;
+        }
+        int last = --size;
+        if (i != last) {
+            Page from = pages[last >>> PAGE_SHIFT];
+            int source = last & (PAGE_SIZE - 1);
+            Page to = writablePage(i);
+            int target = i & (PAGE_SIZE - 1);
+            to.xs[target] = from.xs[source];
+            to.ys[target] = from.ys[source];
+            to.zs[target] = from.zs[source];
+            to.ids[target] = from.ids[source];
+            indexPut(to.ids[target], i);
+        }
+        return true;
+    }
+
+    @Override
+    public long maxId() {
+        return maxId;
+    }
+
+    // Id index
+
+    private static int indexCapacityFor(int expectedSize) {
+        if (expectedSize > MAX_SIZE) {
+            throw new IllegalArgumentException("Point cloud cannot hold more than " + MAX_SIZE + " points");
+        }
+        int capacity = MIN_INDEX_CAPACITY;
+        while (capacity < (long) expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocateIndex(int capacity) {
+        int pageSlots = Math.min(capacity, 1 << INDEX_PAGE_SHIFT);
+        indexPages = new IndexPage[capacity / pageSlots];
+        for (int p = 0; p < indexPages.length; p++) {
+            indexPages[p] = new IndexPage(pageSlots, epoch);
+        }
+        indexCapacity = capacity;
+        indexShift = Long.numberOfLeadingZeros(capacity - 1);
+    }
+
+    private int slot(long key) {
+        return (int) ((key * GOLDEN_RATIO) >>> indexShift);
+    }
+
+    private int pageSlots() {
+        return indexPages[0].keys.length;
+    }
+
+    private long key(int slot) {
+        int slots = pageSlots();
+        return indexPages[slot / slots].keys[slot & (slots - 1)];
+    }
+
+    private int value(int slot) {
+        int slots = pageSlots();
+        return indexPages[slot / slots].values[slot & (slots - 1)];
+    }
+
+    private void setSlot(int slot, long key, int value) {
+        int slots = pageSlots();
+        int p = slot / slots;
+        IndexPage page = indexPages[p];
+        if (page.epoch != epoch) {
+            page = page.copy(epoch);
+            indexPages[p] = page;
+        }
+        page.keys[slot & (slots - 1)] = key;
+        page.values[slot & (slots - 1)] = value;
+    }
+
+    private void indexPut(long key, int index) {
+        for (int slot = slot(key); ; slot = (slot + 1) & (indexCapacity - 1)) {
+            int current = value(slot);
+            if (current == 0) {
+                setSlot(slot, key, index + 1);
+                if (++indexSize * 2 > indexCapacity) {
+                    rehash(indexCapacity * 2);
+                }
+                return;
+            }
+            if (key(slot) == key) {
+                setSlot(slot, key, index + 1);
+                return;
+            }
+        }
+    }
+
+    private int indexRemove(long key) {
+        int mask = indexCapacity - 1;
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            int current = value(slot);
+            if (current == 0) {
+                return -1;
+            }
+            if (key(slot) == key) {
+                // Backward-shift deletion
+                int hole = slot;
+                int next = slot;
+                while (true) {
+                    next = (next + 1) & mask;
+                    if (value(next) == 0) {
+                        break;
+                    }
+                    int home = slot(key(next));
+                    if (((next - home) & mask) >= ((next - hole) & mask)) {
+                        setSlot(hole, key(next), value(next));
+                        hole = next;
+                    }
+                }
+                setSlot(hole, 0, 0);
+                indexSize--;
+                return current - 1;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        IndexPage[] oldPages = indexPages;
+        allocateIndex(capacity);
+        for (IndexPage page : oldPages) {
+            for (int i = 0; i < page.keys.length; i++) {
+                if (page.values[i] != 0) {
+                    int slot = slot(page.keys[i]);
+                    while (value(slot) != 0) {
+                        slot = (slot + 1) & (indexCapacity - 1);
+                    }
+                    setSlot(slot, page.keys[i], page.values[i]);
+                }
+            }
+        }
+    }
+}
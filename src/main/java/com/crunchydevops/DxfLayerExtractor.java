@@ -1,40 +1,83 @@
 package com.crunchydevops;
 
 import com.crunchydevops.dxf.DxfLayer;
+import com.crunchydevops.dxf.DxfParseCache;
 import com.crunchydevops.dxf.DxfReader;
 
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Application that reads a DXF file and extracts all layer information.
+ * Only the layer table is read, so listing the layers does not depend on the size of the drawing.
+ * Pass {@code --counts} to also count the entities of each layer in one streaming pass,
+ * or {@code --full} to parse every entity as before; with {@code --full}, set the
+ * {@value DxfParseCache#DIRECTORY_PROPERTY} system property to reuse parses across runs.
  */
 public class DxfLayerExtractor {
+    private static final String COUNTS_OPTION = "--counts";
+    private static final String FULL_OPTION = "--full";
+
     public static void main(String[] args) {
         try {
-            // Get DXF file path
-            String dxfPath = args.length > 0 ? args[0] : "data/project.dxf";
+            // Get DXF file path and options
+            boolean counts = Arrays.asList(args).contains(COUNTS_OPTION);
+            boolean full = Arrays.asList(args).contains(FULL_OPTION);
+            String dxfPath = Arrays.stream(args).filter(arg -> !arg.startsWith("--"))
+                .findFirst().orElse("data/project.dxf");
             Path filePath = Path.of(dxfPath);
             
-            // Create DXF reader and process file
+            // Create DXF reader, backed by the parse cache if one is configured, and process file
             System.out.println("Reading DXF file: " + filePath.toAbsolutePath());
-            DxfReader reader = new DxfReader(filePath);
-            Map<String, DxfLayer> layers = reader.readLayers();
-            
-            // Print layer information
-            System.out.println("\nFound " + layers.size() + " layers:");
-            System.out.println("=".repeat(40));
-            
-            layers.values().stream()
-                  .sorted((l1, l2) -> l1.name().compareToIgnoreCase(l2.name()))
-                  .forEach(layer -> {
-                      System.out.println(layer);
-                      System.out.println("-".repeat(40));
-                  });
+            DxfReader reader = new DxfReader(filePath, false, DxfParseCache.configured().orElse(null));
+            if (full) {
+                printLayers(reader.readLayers());
+            } else {
+                printLayerTable(reader.readLayerTable(), counts ? reader.countEntitiesByLayer() : null);
+            }
             
         } catch (Exception e) {
             System.err.println("Error processing DXF file: " + e.getMessage());
             e.printStackTrace();
         }
     }
+
+    private static void printLayers(Map<String, DxfLayer> layers) {
+        // Print layer information
+        System.out.println("\nFound " + layers.size() + " layers:");
+        System.out.println("=".repeat(40));
+        
+        layers.values().stream()
+              .sorted((l1, l2) -> l1.name().compareToIgnoreCase(l2.name()))
+              .forEach(layer -> {
+                  System.out.println(layer);
+                  System.out.println("-".repeat(40));
+              });
+    }
+
+    /**
+     * Prints the layer definitions, and the entity count of each layer if counted.
+     * Layer names are case-insensitive, so counts of names differing only in case are added up.
+     * Layers used by entities without a definition are listed with default properties.
+     */
+    private static void printLayerTable(Map<String, DxfLayer> definitions, Map<String, Long> entityCounts) {
+        Map<String, DxfLayer> layers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        layers.putAll(definitions);
+        Map<String, Long> counts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (entityCounts != null) {
+            entityCounts.forEach((name, count) -> counts.merge(name, count, Long::sum));
+            counts.keySet().forEach(name -> layers.computeIfAbsent(name, DxfLayer::create));
+        }
+        System.out.println("\nFound " + layers.size() + " layers:");
+        System.out.println("=".repeat(40));
+
+        layers.forEach((name, layer) -> {
+            System.out.print(entityCounts != null
+                ? layer.toString(counts.getOrDefault(name, 0L))
+                : layer.describeProperties());
+            System.out.println("-".repeat(40));
+        });
+    }
 }
@@ -0,0 +1,545 @@
+package com.crunchydevops;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Two-dimensional bucketing index over the XY coordinates of a {@link PointCloud}
+ * for window, polygon and corridor queries.
+ * Points are hashed into a uniform grid sized to the extent of the cloud at build time.
+ * A cell that collects too many points, as happens with clustered survey data, turns into
+ * a quadtree split at the centre of its contents, so dense areas stay cheap to query.
+ * Every bucket tracks the bounding box of its contents, which is what queries prune on;
+ * points added outside the original extent land in the edge cells and are still found.
+ * <p>
+ * The index does not observe its cloud. Mirror {@code addPoint}/{@code removePoint} with
+ * {@link #insert(long, Point3D)}/{@link #remove(long, Point3D)}; rebuild it if the extent
+ * of the cloud grows far beyond the original one.
+ * Queries may run concurrently; updates must not run concurrently with anything else.
+ */
+public final class GridIndex {
+    private static final Logger logger = LoggerFactory.getLogger(GridIndex.class);
+    private static final int TARGET_CELL_SIZE = 16;
+    private static final int MAX_CELLS = 1 << 22;
+    private static final int SPLIT_THRESHOLD = 256;
+    private static final int MAX_DEPTH = 16;
+
+    private final double originX;
+    private final double originY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final Bucket[] cells;
+    private int size;
+
+    private GridIndex(double originX, double originY, double cellSize, int columns, int rows) {
+        this.originX = originX;
+        this.originY = originY;
+        this.cellSize = cellSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.cells = new Bucket[columns * rows];
+    }
+
+    /**
+     * Builds an index over the current points of the cloud, sizing the grid
+     * to their extent at about {@value #TARGET_CELL_SIZE} points per cell.
+     *
+     * @param cloud The points to index
+     */
+    public static GridIndex build(PointCloud cloud) {
+        PointCloudStatistics stats = cloud.statistics().orElse(null);
+        GridIndex index;
+        if (stats == null) {
+            index = new GridIndex(0, 0, 1, 1, 1);
+        } else {
+            double width = (double) stats.maxX() - stats.minX();
+            double height = (double) stats.maxY() - stats.minY();
+            int targetCells = Math.max(1, Math.min(MAX_CELLS, stats.count() / TARGET_CELL_SIZE));
+            double cellSize;
+            if (width * height > 0) {
+                cellSize = Math.sqrt(width * height / targetCells);
+            } else {
+                cellSize = Math.max(width, height) / targetCells;
+            }
+            if (!(cellSize > 0)) {
+                cellSize = 1;
+            }
+            int columns = (int) Math.min(MAX_CELLS, Math.max(1, Math.ceil(width / cellSize)));
+            int rows = (int) Math.min(MAX_CELLS / columns, Math.max(1, Math.ceil(height / cellSize)));
+            index = new GridIndex(stats.minX(), stats.minY(), cellSize, columns, rows);
+        }
+
+        PointStore store = cloud.store();
+        for (int i = 0; i < store.size(); i++) {
+            index.add(store.id(i), store.x(i), store.y(i));
+        }
+        logger.debug("Built {}x{} grid index over {} points", index.columns, index.rows, index.size);
+        return index;
+    }
+
+    /**
+     * @return The number of points in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a point, typically one just added to the cloud.
+     * IDs are not checked for duplicates.
+     *
+     * @param id The ID of the point
+     * @param point The coordinates of the point
+     * @throws IllegalArgumentException if point is null
+     */
+    public void insert(long id, Point3D point) {
+        if (point == null) {
+            throw new IllegalArgumentException("Point cannot be null");
+        }
+        add(id, point.getX(), point.getY());
+    }
+
+    private void add(long id, float x, float y) {
+        int cell = cellOf(x, y);
+        Bucket bucket = cells[cell];
+        if (bucket == null) {
+            bucket = new Bucket(0);
+            cells[cell] = bucket;
+        }
+        bucket.add(id, x, y);
+        size++;
+    }
+
+    /**
+     * Removes a point, typically one just removed from the cloud.
+     *
+     * @param id The ID of the point
+     * @param point The coordinates the point was inserted with
+     * @return true if the point was removed, false if it wasn't found at these coordinates
+     * @throws IllegalArgumentException if point is null
+     */
+    public boolean remove(long id, Point3D point) {
+        if (point == null) {
+            throw new IllegalArgumentException("Point cannot be null");
+        }
+        Bucket bucket = cells[cellOf(point.getX(), point.getY())];
+        if (bucket != null && bucket.remove(id, point.getX(), point.getY())) {
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    private int cellOf(float x, float y) {
+        return row(y) * columns + column(x);
+    }
+
+    private int column(double x) {
+        return (int) Math.max(0, Math.min(columns - 1, Math.floor((x - originX) / cellSize)));
+    }
+
+    private int row(double y) {
+        return (int) Math.max(0, Math.min(rows - 1, Math.floor((y - originY) / cellSize)));
+    }
+
+    /**
+     * Finds the points inside an axis-aligned rectangle, boundary included.
+     *
+     * @return The IDs of the points found, in no particular order
+     */
+    public long[] window(double minX, double minY, double maxX, double maxY) {
+        IdCollector collector = new IdCollector();
+        window(minX, minY, maxX, maxY, collector);
+        return collector.toArray();
+    }
+
+    /**
+     * Passes the ID of each point inside an axis-aligned rectangle, boundary included, to the consumer.
+     */
+    public void window(double minX, double minY, double maxX, double maxY, LongConsumer consumer) {
+        query(minX, minY, maxX, maxY, null, consumer);
+    }
+
+    private void query(double minX, double minY, double maxX, double maxY, PolygonFilter filter, LongConsumer consumer) {
+        if (minX > maxX || minY > maxY) {
+            return;
+        }
+        for (int row = row(minY); row <= row(maxY); row++) {
+            for (int column = column(minX); column <= column(maxX); column++) {
+                Bucket bucket = cells[row * columns + column];
+                if (bucket != null) {
+                    bucket.window(minX, minY, maxX, maxY, filter, consumer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the points inside a polygon, using the even-odd rule.
+     *
+     * @param vertices The polygon vertices packed as x0, y0, x1, y1, ...; the polygon is closed implicitly
+     * @return The IDs of the points found, in no particular order
+     * @throws IllegalArgumentException if there are fewer than three vertices
+     */
+    public long[] polygon(double[] vertices) {
+        IdCollector collector = new IdCollector();
+        polygon(vertices, collector);
+        return collector.toArray();
+    }
+
+    /**
+     * Passes the ID of each point inside a polygon, using the even-odd rule, to the consumer.
+     *
+     * @param vertices The polygon vertices packed as x0, y0, x1, y1, ...; the polygon is closed implicitly
+     * @throws IllegalArgumentException if there are fewer than three vertices
+     */
+    public void polygon(double[] vertices, LongConsumer consumer) {
+        if (vertices.length < 6 || vertices.length % 2 != 0) {
+            throw new IllegalArgumentException("A polygon needs at least three x, y vertex pairs");
+        }
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < vertices.length; i += 2) {
+            minX = Math.min(minX, vertices[i]);
+            maxX = Math.max(maxX, vertices[i]);
+            minY = Math.min(minY, vertices[i + 1]);
+            maxY = Math.max(maxY, vertices[i + 1]);
+        }
+        query(minX, minY, maxX, maxY, new PolygonFilter(vertices), consumer);
+    }
+
+    /**
+     * Even-odd point-in-polygon test applied to the candidates of the polygon's bounding box.
+     */
+    private record PolygonFilter(double[] vertices) {
+
+        boolean contains(double x, double y) {
+            boolean inside = false;
+            int n = vertices.length;
+            for (int i = 0, j = n - 2; i < n; j = i, i += 2) {
+                double xi = vertices[i], yi = vertices[i + 1];
+                double xj = vertices[j], yj = vertices[j + 1];
+                if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+    }
+
+    /**
+     * Finds the points within a distance of a polyline, such as the buffer around a road alignment.
+     *
+     * @param vertices The polyline vertices packed as x0, y0, x1, y1, ...
+     * @param halfWidth The buffer distance on either side of the polyline
+     * @return The IDs of the points found, each once, in no particular order
+     * @throws IllegalArgumentException if there are fewer than two vertices or halfWidth is negative
+     */
+    public long[] corridor(double[] vertices, double halfWidth) {
+        IdCollector collector = new IdCollector();
+        corridor(vertices, halfWidth, collector);
+        return collector.toArray();
+    }
+
+    /**
+     * Passes the ID of each point within a distance of a polyline to the consumer, each once.
+     *
+     * @param vertices The polyline vertices packed as x0, y0, x1, y1, ...
+     * @param halfWidth The buffer distance on either side of the polyline
+     * @throws IllegalArgumentException if there are fewer than two vertices or halfWidth is negative
+     */
+    public void corridor(double[] vertices, double halfWidth, LongConsumer consumer) {
+        if (vertices.length < 4 || vertices.length % 2 != 0) {
+            throw new IllegalArgumentException("A polyline needs at least two x, y vertex pairs");
+        }
+        if (halfWidth < 0) {
+            throw new IllegalArgumentException("Corridor width cannot be negative: " + halfWidth);
+        }
+
+        // Pair every cell with the segments whose buffer reaches its contents, sorted by cell
+        int segments = vertices.length / 2 - 1;
+        long[] pairs = new long[16];
+        int pairCount = 0;
+        for (int s = 0; s < segments; s++) {
+            double x1 = vertices[2 * s], y1 = vertices[2 * s + 1];
+            double dx = vertices[2 * s + 2] - x1, dy = vertices[2 * s + 3] - y1;
+            int r0 = row(Math.min(y1, y1 + dy) - halfWidth), r1 = row(Math.max(y1, y1 + dy) + halfWidth);
+            for (int row = r0; row <= r1; row++) {
+                // Only the part of the segment within halfWidth of the row can reach its cells;
+                // the edge rows also hold the points beyond the extent
+                double t0 = 0, t1 = 1;
+                if (dy != 0) {
+                    double low = row == 0 ? Double.NEGATIVE_INFINITY : originY + row * cellSize - halfWidth;
+                    double high = row == rows - 1 ? Double.POSITIVE_INFINITY : originY + (row + 1) * cellSize + halfWidth;
+                    double ta = (low - y1) / dy, tb = (high - y1) / dy;
+                    t0 = Math.max(0, Math.min(ta, tb));
+                    t1 = Math.min(1, Math.max(ta, tb));
+                    if (t0 > t1) {
+                        continue;
+                    }
+                }
+                double xa = x1 + t0 * dx, xb = x1 + t1 * dx;
+                int c0 = column(Math.min(xa, xb) - halfWidth), c1 = column(Math.max(xa, xb) + halfWidth);
+                for (int column = c0; column <= c1; column++) {
+                    int cell = row * columns + column;
+                    if (cells[cell] != null && CorridorFilter.reaches(vertices, s, halfWidth, cells[cell])) {
+                        if (pairCount == pairs.length) {
+                            pairs = Arrays.copyOf(pairs, pairCount * 2);
+                        }
+                        pairs[pairCount++] = ((long) cell << 32) | s;
+                    }
+                }
+            }
+        }
+        Arrays.sort(pairs, 0, pairCount);
+
+        // Visit each cell once, testing its points against its segments only
+        int[] cellSegments = new int[16];
+        for (int start = 0; start < pairCount; ) {
+            int cell = (int) (pairs[start] >>> 32);
+            int end = start;
+            while (end < pairCount && (int) (pairs[end] >>> 32) == cell) {
+                if (end - start == cellSegments.length) {
+                    cellSegments = Arrays.copyOf(cellSegments, cellSegments.length * 2);
+                }
+                cellSegments[end - start] = (int) pairs[end];
+                end++;
+            }
+            cells[cell].corridor(new CorridorFilter(vertices, cellSegments, end - start, halfWidth), consumer);
+            start = end;
+        }
+    }
+
+    /**
+     * Tests points and boxes against the buffers of a subset of polyline segments.
+     */
+    private record CorridorFilter(double[] vertices, int[] segments, int count, double halfWidth) {
+
+        boolean overlaps(Bucket bucket) {
+            for (int i = 0; i < count; i++) {
+                if (reaches(vertices, segments[i], halfWidth, bucket)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean contains(double x, double y) {
+            double limit = halfWidth * halfWidth;
+            for (int i = 0; i < count; i++) {
+                if (distanceSq(vertices, segments[i], x, y) <= limit) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return true if the buffer of segment s overlaps the bounding box of the bucket
+         */
+        static boolean reaches(double[] vertices, int s, double halfWidth, Bucket bucket) {
+            double x1 = vertices[2 * s], y1 = vertices[2 * s + 1];
+            double x2 = vertices[2 * s + 2], y2 = vertices[2 * s + 3];
+            if (bucket.minX > Math.max(x1, x2) + halfWidth || bucket.maxX < Math.min(x1, x2) - halfWidth
+                    || bucket.minY > Math.max(y1, y2) + halfWidth || bucket.maxY < Math.min(y1, y2) - halfWidth) {
+                return false;
+            }
+            if (crosses(x1, y1, x2, y2, bucket)) {
+                return true;
+            }
+            // Apart from each other, the closest points are an end point or a corner of the box
+            double limit = halfWidth * halfWidth;
+            return boxDistanceSq(x1, y1, bucket) <= limit || boxDistanceSq(x2, y2, bucket) <= limit
+                || distanceSq(vertices, s, bucket.minX, bucket.minY) <= limit
+                || distanceSq(vertices, s, bucket.maxX, bucket.minY) <= limit
+                || distanceSq(vertices, s, bucket.minX, bucket.maxY) <= limit
+                || distanceSq(vertices, s, bucket.maxX, bucket.maxY) <= limit;
+        }
+
+        /**
+         * @return true if the segment touches the bounding box of the bucket, by Liang-Barsky clipping
+         */
+        private static boolean crosses(double x1, double y1, double x2, double y2, Bucket bucket) {
+            double dx = x2 - x1, dy = y2 - y1;
+            double[] p = {-dx, dx, -dy, dy};
+            double[] q = {x1 - bucket.minX, bucket.maxX - x1, y1 - bucket.minY, bucket.maxY - y1};
+            double t0 = 0, t1 = 1;
+            for (int i = 0; i < 4; i++) {
+                if (p[i] == 0) {
+                    if (q[i] < 0) {
+                        return false;
+                    }
+                } else if (p[i] < 0) {
+                    t0 = Math.max(t0, q[i] / p[i]);
+                } else {
+                    t1 = Math.min(t1, q[i] / p[i]);
+                }
+                if (t0 > t1) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static double boxDistanceSq(double x, double y, Bucket bucket) {
+            double ex = Math.max(0, Math.max(bucket.minX - x, x - bucket.maxX));
+            double ey = Math.max(0, Math.max(bucket.minY - y, y - bucket.maxY));
+            return ex * ex + ey * ey;
+        }
+
+        /**
+         * @return The squared distance from the point to segment s
+         */
+        private static double distanceSq(double[] vertices, int s, double x, double y) {
+            double x1 = vertices[2 * s], y1 = vertices[2 * s + 1];
+            double dx = vertices[2 * s + 2] - x1, dy = vertices[2 * s + 3] - y1;
+            double lengthSq = dx * dx + dy * dy;
+            double t = lengthSq == 0 ? 0 : Math.max(0, Math.min(1, ((x - x1) * dx + (y - y1) * dy) / lengthSq));
+            double ex = x1 + t * dx - x, ey = y1 + t * dy - y;
+            return ex * ex + ey * ey;
+        }
+    }
+
+    /**
+     * A grid cell or quadtree node. Leaves hold points in primitive columns; nodes hold four children.
+     */
+    private static final class Bucket {
+        private final int depth;
+        // Bounding box of everything below this bucket
+        private float minX = Float.POSITIVE_INFINITY;
+        private float minY = Float.POSITIVE_INFINITY;
+        private float maxX = Float.NEGATIVE_INFINITY;
+        private float maxY = Float.NEGATIVE_INFINITY;
+        private float[] xs = new float[4];
+        private float[] ys = new float[4];
+        private long[] ids = new long[4];
+        private int size;
+        private Bucket[] children;
+        private float splitX;
+        private float splitY;
+
+        private Bucket(int depth) {
+            this.depth = depth;
+        }
+
+        private int quadrant(float x, float y) {
+            return (x >= splitX ? 1 : 0) + (y >= splitY ? 2 : 0);
+        }
+
+        private void add(long id, float x, float y) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            if (children != null) {
+                children[quadrant(x, y)].add(id, x, y);
+                return;
+            }
+            if (size == ids.length) {
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            ids[size] = id;
+            size++;
+            if (size > SPLIT_THRESHOLD && depth < MAX_DEPTH && (maxX > minX || maxY > minY)) {
+                split();
+            }
+        }
+
+        private void split() {
+            splitX = minX + (maxX - minX) / 2;
+            splitY = minY + (maxY - minY) / 2;
+            children = new Bucket[] {new Bucket(depth + 1), new Bucket(depth + 1),
+                new Bucket(depth + 1), new Bucket(depth + 1)};
+            for (int i = 0; i < size; i++) {
+                children[quadrant(xs[i], ys[i])].add(ids[i], xs[i], ys[i]);
+            }
+            xs = null;
+            ys = null;
+            ids = null;
+            size = 0;
+        }
+
+        private boolean remove(long id, float x, float y) {
+            if (children != null) {
+                return children[quadrant(x, y)].remove(id, x, y);
+            }
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    int last = --size;
+                    xs[i] = xs[last];
+                    ys[i] = ys[last];
+                    ids[i] = ids[last];
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void window(double qMinX, double qMinY, double qMaxX, double qMaxY,
+                            PolygonFilter polygon, LongConsumer consumer) {
+            if (minX > qMaxX || maxX < qMinX || minY > qMaxY || maxY < qMinY) {
+                return;
+            }
+            boolean covered = polygon == null && minX >= qMinX && maxX <= qMaxX && minY >= qMinY && maxY <= qMaxY;
+            if (children != null) {
+                for (Bucket child : children) {
+                    child.window(qMinX, qMinY, qMaxX, qMaxY, polygon, consumer);
+                }
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                float x = xs[i];
+                float y = ys[i];
+                if (covered || (x >= qMinX && x <= qMaxX && y >= qMinY && y <= qMaxY
+                        && (polygon == null || polygon.contains(x, y)))) {
+                    consumer.accept(ids[i]);
+                }
+            }
+        }
+
+        private void corridor(CorridorFilter filter, LongConsumer consumer) {
+            if ((size == 0 && children == null) || !filter.overlaps(this)) {
+                return;
+            }
+            if (children != null) {
+                for (Bucket child : children) {
+                    child.corridor(filter, consumer);
+                }
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                if (filter.contains(xs[i], ys[i])) {
+                    consumer.accept(ids[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Accumulates IDs into a growable primitive array.
+     */
+    private static final class IdCollector implements LongConsumer {
+        private long[] ids = new long[16];
+        private int size;
+
+        @Override
+        public void accept(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        private long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
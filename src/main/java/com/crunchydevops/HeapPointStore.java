@@ -0,0 +1,108 @@
+package com.crunchydevops;
+
+import java.util.Arrays;
+
+/**
+ * On-heap {@link PointStore} using growable primitive columns and a {@link LongIntHashMap} id index.
+ */
+final class HeapPointStore implements PointStore {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private float[] xs;
+    private float[] ys;
+    private float[] zs;
+    private long[] ids;
+    private int size = 0;
+    private long maxId = 0;
+    private final LongIntHashMap index;
+
+    HeapPointStore(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        this.xs = new float[initialCapacity];
+        this.ys = new float[initialCapacity];
+        this.zs = new float[initialCapacity];
+        this.ids = new long[initialCapacity];
+        this.index = new LongIntHashMap(initialCapacity);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public float x(int index) {
+        return xs[index];
+    }
+
+    @Override
+    public float y(int index) {
+        return ys[index];
+    }
+
+    @Override
+    public float z(int index) {
+        return zs[index];
+    }
+
+    @Override
+    public long id(int index) {
+        return ids[index];
+    }
+
+    @Override
+    public int indexOf(long id) {
+        return index.get(id);
+    }
+
+    @Override
+    public void append(long id, float x, float y, float z) {
+        if (size == xs.length) {
+            ensureCapacity(size + 1);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        zs[size] = z;
+        ids[size] = id;
+        index.put(id, size);
+        size++;
+        maxId = Math.max(maxId, id);
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        if (capacity > xs.length) {
+            int newCapacity = (int) Math.min(Integer.MAX_VALUE - 8,
+                Math.max(capacity, Math.max(DEFAULT_CAPACITY, 2L * xs.length)));
+            xs = Arrays.copyOf(xs, newCapacity);
+            ys = Arrays.copyOf(ys, newCapacity);
+            zs = Arrays.copyOf(zs, newCapacity);
+            ids = Arrays.copyOf(ids, newCapacity);
+        }
+        index.ensureCapacity(capacity);
+    }
+
+    @Override
+    public boolean remove(long id) {
+        int i = index.remove(id);
+        if (i < 0) {
+            return false;
+        }
+        int last = --size;
+        if (i != last) {
+            xs[i] = xs[last];
+            ys[i] = ys[last];
+            zs[i] = zs[last];
+            ids[i] = ids[last];
+            index.put(ids[i], i);
+        }
+        return true;
+    }
+
+    @Override
+    public long maxId() {
+        return maxId;
+    }
+}
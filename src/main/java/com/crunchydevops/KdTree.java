@@ -0,0 +1,529 @@
+package com.crunchydevops;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.OptionalLong;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Balanced KD-tree over the points of a {@link PointCloud} for nearest-neighbour,
+ * k-nearest and radius queries in the XY plane or in 3D.
+ * The tree is stored implicitly: the points are permuted so that each subtree is a
+ * contiguous range whose median splits it, and no node objects are allocated.
+ * Building partitions around medians with quickselect and runs the subtrees of large
+ * ranges in parallel on the common fork-join pool.
+ * <p>
+ * The tree does not observe its cloud. Mirror {@code addPoint}/{@code removePoint} with
+ * {@link #insert(long, Point3D)}/{@link #remove(long)}: inserted points go to a small
+ * buffer that queries scan linearly, removed points are marked as deleted, and the
+ * tree rebuilds itself once these updates exceed a fraction of its size.
+ * Queries may run concurrently; updates must not run concurrently with anything else.
+ */
+public final class KdTree {
+    private static final Logger logger = LoggerFactory.getLogger(KdTree.class);
+    private static final int LEAF_SIZE = 8;
+    private static final int PARALLEL_THRESHOLD = 1 << 15;
+    private static final int MIN_REBUILD_UPDATES = 1024;
+
+    /**
+     * The coordinates the tree splits on and measures distances with.
+     */
+    public enum Dimensions {
+        /** Horizontal distance; z is ignored */
+        XY(2),
+        /** Euclidean distance in 3D */
+        XYZ(3);
+
+        private final int count;
+
+        Dimensions(int count) {
+            this.count = count;
+        }
+    }
+
+    private final Dimensions dimensions;
+    private final int k;
+
+    // Tree points in tree order
+    private float[][] columns;
+    private long[] ids;
+    private int treeSize;
+    private final BitSet deleted = new BitSet();
+    private int deletedCount;
+
+    // Points inserted since the last build
+    private float[][] pending = new float[3][16];
+    private long[] pendingIds = new long[16];
+    private int pendingSize;
+
+    // id -> tree slot, or treeSize + pending index
+    private final LongIntHashMap slots = new LongIntHashMap();
+
+    private KdTree(Dimensions dimensions) {
+        this.dimensions = dimensions;
+        this.k = dimensions.count;
+    }
+
+    /**
+     * Builds a tree over the current points of the cloud.
+     *
+     * @param cloud The points to index
+     * @param dimensions Whether to index the XY plane or 3D space
+     */
+    public static KdTree build(PointCloud cloud, Dimensions dimensions) {
+        KdTree tree = new KdTree(dimensions);
+        PointStore store = cloud.store();
+        int size = store.size();
+        float[][] columns = new float[3][size];
+        long[] ids = new long[size];
+        for (int i = 0; i < size; i++) {
+            columns[0][i] = store.x(i);
+            columns[1][i] = store.y(i);
+            columns[2][i] = store.z(i);
+            ids[i] = store.id(i);
+        }
+        tree.build(columns, ids, size);
+        return tree;
+    }
+
+    private void build(float[][] newColumns, long[] newIds, int size) {
+        long start = System.nanoTime();
+        columns = newColumns;
+        ids = newIds;
+        treeSize = size;
+        deleted.clear();
+        deletedCount = 0;
+        if (size >= PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new BuildTask(0, size, 0));
+        } else {
+            partition(0, size, 0);
+        }
+        slots.clear();
+        slots.ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            slots.put(ids[i], i);
+        }
+        logger.debug("Built {} KD-tree over {} points in {} ms", dimensions, size, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Places the median of {@code [lo, hi)} on the split axis in the middle and recurses into both halves.
+     */
+    private void partition(int lo, int hi, int depth) {
+        while (hi - lo > LEAF_SIZE) {
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi, mid, depth % k);
+            partition(mid + 1, hi, depth + 1);
+            hi = mid;
+            depth++;
+        }
+    }
+
+    private final class BuildTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int lo;
+        private final int hi;
+        private final int depth;
+
+        private BuildTask(int lo, int hi, int depth) {
+            this.lo = lo;
+            this.hi = hi;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo < PARALLEL_THRESHOLD) {
+                partition(lo, hi, depth);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi, mid, depth % k);
+            invokeAll(new BuildTask(lo, mid, depth + 1), new BuildTask(mid + 1, hi, depth + 1));
+        }
+    }
+
+    /**
+     * Quickselect: reorders {@code [lo, hi)} so that no point before {@code nth} has a larger
+     * coordinate on the axis and no point after it has a smaller one.
+     */
+    private void select(int lo, int hi, int nth, int axis) {
+        float[] c = columns[axis];
+        hi--;
+        while (lo < hi) {
+            float pivot = medianOf3(c[lo], c[(lo + hi) >>> 1], c[hi]);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (c[i] < pivot) {
+                    i++;
+                }
+                while (c[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (nth <= j) {
+                hi = j;
+            } else if (nth >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static float medianOf3(float a, float b, float c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private void swap(int i, int j) {
+        for (float[] c : columns) {
+            float t = c[i];
+            c[i] = c[j];
+            c[j] = t;
+        }
+        long t = ids[i];
+        ids[i] = ids[j];
+        ids[j] = t;
+    }
+
+    /**
+     * @return The dimensions the tree indexes
+     */
+    public Dimensions dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * @return The number of points in the tree
+     */
+    public int size() {
+        return treeSize - deletedCount + pendingSize;
+    }
+
+    /**
+     * Adds a point, typically one just added to the cloud.
+     *
+     * @param id The ID of the point
+     * @param point The coordinates of the point
+     * @return true if the point was added, false if the ID is already indexed
+     * @throws IllegalArgumentException if point is null
+     */
+    public boolean insert(long id, Point3D point) {
+        if (point == null) {
+            throw new IllegalArgumentException("Point cannot be null");
+        }
+        if (slots.containsKey(id)) {
+            return false;
+        }
+        if (pendingSize == pendingIds.length) {
+            int capacity = pendingSize * 2;
+            for (int axis = 0; axis < 3; axis++) {
+                pending[axis] = Arrays.copyOf(pending[axis], capacity);
+            }
+            pendingIds = Arrays.copyOf(pendingIds, capacity);
+        }
+        pending[0][pendingSize] = point.getX();
+        pending[1][pendingSize] = point.getY();
+        pending[2][pendingSize] = point.getZ();
+        pendingIds[pendingSize] = id;
+        slots.put(id, treeSize + pendingSize);
+        pendingSize++;
+        rebuildIfStale();
+        return true;
+    }
+
+    /**
+     * Removes a point, typically one just removed from the cloud.
+     *
+     * @param id The ID of the point
+     * @return true if the point was removed, false if it wasn't indexed
+     */
+    public boolean remove(long id) {
+        int slot = slots.remove(id);
+        if (slot < 0) {
+            return false;
+        }
+        if (slot < treeSize) {
+            deleted.set(slot);
+            deletedCount++;
+        } else {
+            int p = slot - treeSize;
+            int last = --pendingSize;
+            if (p != last) {
+                for (float[] c : pending) {
+                    c[p] = c[last];
+                }
+                pendingIds[p] = pendingIds[last];
+                slots.put(pendingIds[p], slot);
+            }
+        }
+        rebuildIfStale();
+        return true;
+    }
+
+    private void rebuildIfStale() {
+        if (pendingSize + deletedCount > Math.max(MIN_REBUILD_UPDATES, size() / 8)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds the tree from its live points, folding in pending insertions and dropping deleted points.
+     */
+    public void rebuild() {
+        int size = size();
+        float[][] newColumns = new float[3][size];
+        long[] newIds = new long[size];
+        int n = 0;
+        for (int i = 0; i < treeSize; i++) {
+            if (!deleted.get(i)) {
+                for (int axis = 0; axis < 3; axis++) {
+                    newColumns[axis][n] = columns[axis][i];
+                }
+                newIds[n++] = ids[i];
+            }
+        }
+        for (int i = 0; i < pendingSize; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                newColumns[axis][n] = pending[axis][i];
+            }
+            newIds[n++] = pendingIds[i];
+        }
+        pendingSize = 0;
+        build(newColumns, newIds, size);
+    }
+
+    /**
+     * Finds the point closest to the given location.
+     *
+     * @param x The x coordinate of the location
+     * @param y The y coordinate of the location
+     * @param z The z coordinate of the location, ignored by an XY tree
+     * @return The ID of the closest point, empty if the tree is empty
+     */
+    public OptionalLong nearest(double x, double y, double z) {
+        Neighbours best = new Neighbours(1, x, y, z);
+        best.search(0, treeSize, 0);
+        best.scanPending();
+        return best.size == 0 ? OptionalLong.empty() : OptionalLong.of(best.ids[0]);
+    }
+
+    /**
+     * Finds the {@code count} points closest to the given location.
+     *
+     * @param x The x coordinate of the location
+     * @param y The y coordinate of the location
+     * @param z The z coordinate of the location, ignored by an XY tree
+     * @param count The number of points to find
+     * @return The IDs of up to {@code count} points, closest first
+     * @throws IllegalArgumentException if count is negative
+     */
+    public long[] nearest(double x, double y, double z, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative: " + count);
+        }
+        if (count == 0) {
+            return new long[0];
+        }
+        Neighbours best = new Neighbours(Math.min(count, size()), x, y, z);
+        best.search(0, treeSize, 0);
+        best.scanPending();
+        return best.sortedIds();
+    }
+
+    /**
+     * Finds the points within the given distance of a location, boundary included.
+     *
+     * @param x The x coordinate of the location
+     * @param y The y coordinate of the location
+     * @param z The z coordinate of the location, ignored by an XY tree
+     * @param radius The search radius
+     * @return The IDs of the points found, in no particular order
+     * @throws IllegalArgumentException if radius is negative
+     */
+    public long[] withinRadius(double x, double y, double z, double radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Radius cannot be negative: " + radius);
+        }
+        double[] query = {x, y, z};
+        double radiusSq = radius * radius;
+        long[][] found = {new long[16]};
+        int[] count = {0};
+        collect(0, treeSize, 0, query, radiusSq, found, count);
+        for (int i = 0; i < pendingSize; i++) {
+            if (distanceSq(pending, i, query) <= radiusSq) {
+                add(found, count, pendingIds[i]);
+            }
+        }
+        return Arrays.copyOf(found[0], count[0]);
+    }
+
+    private void collect(int lo, int hi, int depth, double[] query, double radiusSq, long[][] found, int[] count) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int i = lo; i < hi; i++) {
+                if (!deleted.get(i) && distanceSq(columns, i, query) <= radiusSq) {
+                    add(found, count, ids[i]);
+                }
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int axis = depth % k;
+        double diff = query[axis] - columns[axis][mid];
+        if (!deleted.get(mid) && distanceSq(columns, mid, query) <= radiusSq) {
+            add(found, count, ids[mid]);
+        }
+        if (diff <= 0 || diff * diff <= radiusSq) {
+            collect(lo, mid, depth + 1, query, radiusSq, found, count);
+        }
+        if (diff >= 0 || diff * diff <= radiusSq) {
+            collect(mid + 1, hi, depth + 1, query, radiusSq, found, count);
+        }
+    }
+
+    private static void add(long[][] found, int[] count, long id) {
+        if (count[0] == found[0].length) {
+            found[0] = Arrays.copyOf(found[0], count[0] * 2);
+        }
+        found[0][count[0]++] = id;
+    }
+
+    private double distanceSq(float[][] points, int i, double[] query) {
+        double dx = points[0][i] - query[0];
+        double dy = points[1][i] - query[1];
+        if (k == 2) {
+            return dx * dx + dy * dy;
+        }
+        double dz = points[2][i] - query[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * The best candidates found so far, kept as a bounded max-heap on squared distance.
+     */
+    private final class Neighbours {
+        private final double[] query;
+        private final double[] distances;
+        private final long[] ids;
+        private int size;
+
+        private Neighbours(int capacity, double x, double y, double z) {
+            this.query = new double[] {x, y, z};
+            this.distances = new double[capacity];
+            this.ids = new long[capacity];
+        }
+
+        private double worst() {
+            return size < distances.length ? Double.POSITIVE_INFINITY : distances[0];
+        }
+
+        private void offer(double distance, long id) {
+            if (distances.length == 0 || distance >= worst()) {
+                return;
+            }
+            int i;
+            if (size < distances.length) {
+                // Sift up from the new leaf
+                i = size++;
+                while (i > 0 && distances[(i - 1) >> 1] < distance) {
+                    int parent = (i - 1) >> 1;
+                    distances[i] = distances[parent];
+                    ids[i] = ids[parent];
+                    i = parent;
+                }
+            } else {
+                // Replace the root and sift down
+                i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && distances[child + 1] > distances[child]) {
+                        child++;
+                    }
+                    if (distances[child] <= distance) {
+                        break;
+                    }
+                    distances[i] = distances[child];
+                    ids[i] = ids[child];
+                    i = child;
+                }
+            }
+            distances[i] = distance;
+            ids[i] = id;
+        }
+
+        private void search(int lo, int hi, int depth) {
+            if (hi - lo <= LEAF_SIZE) {
+                for (int i = lo; i < hi; i++) {
+                    if (!deleted.get(i)) {
+                        offer(distanceSq(columns, i, query), KdTree.this.ids[i]);
+                    }
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            int axis = depth % k;
+            double diff = query[axis] - columns[axis][mid];
+            if (!deleted.get(mid)) {
+                offer(distanceSq(columns, mid, query), KdTree.this.ids[mid]);
+            }
+            if (diff < 0) {
+                search(lo, mid, depth + 1);
+                if (diff * diff < worst()) {
+                    search(mid + 1, hi, depth + 1);
+                }
+            } else {
+                search(mid + 1, hi, depth + 1);
+                if (diff * diff < worst()) {
+                    search(lo, mid, depth + 1);
+                }
+            }
+        }
+
+        private void scanPending() {
+            for (int i = 0; i < pendingSize; i++) {
+                offer(distanceSq(pending, i, query), pendingIds[i]);
+            }
+        }
+
+        private long[] sortedIds() {
+            long[] result = new long[size];
+            // Pop the heap from the worst candidate down
+            while (size > 0) {
+                long id = ids[0];
+                double last = distances[--size];
+                long lastId = ids[size];
+                result[size] = id;
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && distances[child + 1] > distances[child]) {
+                        child++;
+                    }
+                    if (distances[child] <= last) {
+                        break;
+                    }
+                    distances[i] = distances[child];
+                    ids[i] = ids[child];
+                    i = child;
+                }
+                distances[i] = last;
+                ids[i] = lastId;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.crunchydevops;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to non-negative int values.
+ * Uses linear probing with Fibonacci hashing and backward-shift deletion, so
+ * there are no tombstones and no boxing; each entry costs 12 bytes of slot
+ * storage at a load factor of at most one half.
+ */
+final class LongIntHashMap {
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    static final int MAX_SIZE = MAX_CAPACITY / 2;
+    static final int NO_VALUE = -1;
+
+    private long[] keys;
+    private int[] values; // value + 1, 0 marks an empty slot
+    private int size = 0;
+    private int shift;
+    private int mask;
+
+    LongIntHashMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * @throws IllegalArgumentException if expectedSize exceeds {@link #MAX_SIZE}
+     */
+    LongIntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        if (expectedSize > MAX_SIZE) {
+            throw new IllegalArgumentException("Expected size cannot exceed " + MAX_SIZE + ": " + expectedSize);
+        }
+        int capacity = MIN_CAPACITY;
+        while (capacity < (long) expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        shift = Long.numberOfLeadingZeros(capacity - 1);
+    }
+
+    private int slot(long key) {
+        return (int) ((key * GOLDEN_RATIO) >>> shift);
+    }
+
+    /**
+     * @return The value mapped to the key, or {@link #NO_VALUE} if there is none
+     */
+    int get(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            int value = values[slot];
+            if (value == 0) {
+                return NO_VALUE;
+            }
+            if (keys[slot] == key) {
+                return value - 1;
+            }
+        }
+    }
+
+    /**
+     * Looks up a key while another thread may be updating the map.
+     * Never throws and never probes more than the whole table, but the result is only
+     * meaningful if no update ran concurrently, which the caller must check separately,
+     * for example by validating a {@link java.util.concurrent.locks.StampedLock} stamp.
+     *
+     * @return The value mapped to the key, or {@link #NO_VALUE} if there is none
+     */
+    int getRacy(long key) {
+        long[] currentKeys = keys;
+        int[] currentValues = values;
+        // Both lengths are powers of two, so a rehash caught halfway only shrinks the table seen
+        int length = Math.min(currentKeys.length, currentValues.length);
+        int slot = (int) ((key * GOLDEN_RATIO) >>> Long.numberOfLeadingZeros(length - 1));
+        for (int probe = 0; probe < length; probe++, slot = (slot + 1) & (length - 1)) {
+            int value = currentValues[slot];
+            if (value == 0) {
+                return NO_VALUE;
+            }
+            if (currentKeys[slot] == key) {
+                return value - 1;
+            }
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * @return true if the key is mapped
+     */
+    boolean containsKey(long key) {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * Maps the key to the value, replacing any previous mapping.
+     *
+     * @param value A non-negative value
+     * @return The previous value, or {@link #NO_VALUE} if there was none
+     * @throws IllegalStateException if the key is new and the map already holds {@link #MAX_SIZE} mappings
+     */
+    int put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must be non-negative: " + value);
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            int current = values[slot];
+            if (current == 0) {
+                if (size == MAX_SIZE) {
+                    throw new IllegalStateException("Map cannot hold more than " + MAX_SIZE + " mappings");
+                }
+                keys[slot] = key;
+                values[slot] = value + 1;
+                if (++size * 2 > keys.length) {
+                    rehash(keys.length * 2);
+                }
+                return NO_VALUE;
+            }
+            if (keys[slot] == key) {
+                values[slot] = value + 1;
+                return current - 1;
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping for the key.
+     *
+     * @return The removed value, or {@link #NO_VALUE} if there was none
+     */
+    int remove(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            int current = values[slot];
+            if (current == 0) {
+                return NO_VALUE;
+            }
+            if (keys[slot] == key) {
+                deleteSlot(slot);
+                size--;
+                return current - 1;
+            }
+        }
+    }
+
+    /**
+     * Empties the slot and shifts back the entries of the probe sequence that follow it.
+     */
+    private void deleteSlot(int hole) {
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == 0) {
+                break;
+            }
+            int home = slot(keys[slot]);
+            // Move the entry into the hole unless its home lies cyclically in (hole, slot]
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = keys[slot];
+                values[hole] = values[slot];
+                hole = slot;
+            }
+        }
+        values[hole] = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Makes room for at least the given number of entries without further rehashing.
+     *
+     * @throws IllegalArgumentException if expectedSize exceeds {@link #MAX_SIZE}
+     */
+    void ensureCapacity(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    /**
+     * @return The number of mappings
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes all mappings.
+     */
+    void clear() {
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+}
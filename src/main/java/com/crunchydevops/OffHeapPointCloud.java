@@ -0,0 +1,85 @@
+package com.crunchydevops;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * A {@link PointCloud} whose coordinate columns and id index live outside the Java heap.
+ * Clouds created with {@link #allocate(int)} use direct buffers, which are bounded by
+ * {@code -XX:MaxDirectMemorySize} rather than the heap. Clouds created with {@link #open(Path)}
+ * are memory-mapped from a file, so the operating system pages them in and out and the
+ * points survive a restart. Either way a cloud holds up to {@value OffHeapPointStore#MAX_CAPACITY}
+ * points and must be closed to release its buffers.
+ */
+public final class OffHeapPointCloud extends PointCloud implements AutoCloseable {
+
+    private OffHeapPointCloud(OffHeapPointStore store) {
+        super(store);
+    }
+
+    /**
+     * Creates an empty cloud in direct memory.
+     *
+     * @param initialCapacity The number of points to allocate space for
+     * @throws IllegalArgumentException if initialCapacity is negative
+     */
+    public static OffHeapPointCloud allocate(int initialCapacity) {
+        return new OffHeapPointCloud(OffHeapPointStore.allocate(initialCapacity));
+    }
+
+    /**
+     * Opens the cloud saved in the given file, creating an empty one if the file does not exist.
+     *
+     * @param file The backing file
+     * @throws IOException if the file cannot be mapped or is not a point cloud file
+     */
+    public static OffHeapPointCloud open(Path file) throws IOException {
+        return open(file, 0);
+    }
+
+    /**
+     * Opens the cloud saved in the given file, creating one with room for the given
+     * number of points if the file does not exist.
+     *
+     * @param file The backing file
+     * @param initialCapacity The number of points to allocate space for in a new file
+     * @throws IOException if the file cannot be mapped or is not a point cloud file
+     */
+    public static OffHeapPointCloud open(Path file, int initialCapacity) throws IOException {
+        return new OffHeapPointCloud(OffHeapPointStore.open(file, initialCapacity));
+    }
+
+    /**
+     * @return true if the cloud is memory-mapped from a file
+     */
+    public boolean isFileBacked() {
+        return offHeapStore().isFileBacked();
+    }
+
+    /**
+     * Writes pending changes of a file-backed cloud to disk; does nothing for direct memory.
+     *
+     * @throws IllegalStateException if the cloud is closed
+     */
+    public void flush() {
+        offHeapStore().flush();
+    }
+
+    /**
+     * Flushes the cloud and releases its buffers.
+     * Lookups and updates on a closed cloud throw {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        try {
+            offHeapStore().close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private OffHeapPointStore offHeapStore() {
+        return (OffHeapPointStore) store();
+    }
+}
@@ -0,0 +1,400 @@
+package com.crunchydevops;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link PointStore} whose columns and id index live outside the Java heap,
+ * either in direct buffers or in a memory-mapped file.
+ * The id index uses the same linear probing, Fibonacci hashing and backward-shift
+ * deletion as {@link LongIntHashMap}, over a key buffer and a slot buffer.
+ * <p>
+ * A file holds a 64 byte header (magic, version, capacity, size, max id) followed
+ * by the x, y, z and id columns and the index, all little-endian. Each region is a
+ * separate buffer so that no single mapping exceeds 2 GB.
+ */
+final class OffHeapPointStore extends BufferPointStore {
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapPointStore.class);
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+    private static final int MAGIC = 0x444C4350; // "PCLD" little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SIZE_OFFSET = 12;
+    private static final int MAX_ID_OFFSET = 16;
+    private static final int MIN_CAPACITY = 16;
+    // The key buffer (8 bytes per slot, two slots per point) must fit in one buffer
+    static final int MAX_CAPACITY = 1 << 26;
+
+    private final FileChannel channel;
+    private ByteBuffer header;
+    private ByteBuffer xs;
+    private ByteBuffer ys;
+    private ByteBuffer zs;
+    private ByteBuffer ids;
+    private ByteBuffer keys;
+    private ByteBuffer slots; // index + 1, 0 marks an empty slot
+    private int capacity;
+    private int size;
+    private long maxId;
+    private int shift;
+    private int mask;
+
+    private OffHeapPointStore(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Creates a store backed by direct buffers.
+     */
+    static OffHeapPointStore allocate(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        OffHeapPointStore store = new OffHeapPointStore(null);
+        try {
+            store.header = ByteBuffer.allocateDirect(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            store.allocateColumns(capacityFor(initialCapacity));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return store;
+    }
+
+    /**
+     * Opens the store saved in the given file, creating an empty one if the file does not exist.
+     *
+     * @throws IOException if the file cannot be mapped or is not a point cloud file
+     */
+    static OffHeapPointStore open(Path file, int initialCapacity) throws IOException {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        try {
+            OffHeapPointStore store = new OffHeapPointStore(channel);
+            long length = channel.size();
+            if (length > 0) {
+                // Mapping the header writable would extend a shorter file, so it is checked read-only first
+                if (length < HEADER_SIZE) {
+                    throw new IOException("Not a point cloud file: " + file);
+                }
+                checkHeader(channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN),
+                    length, file);
+            }
+            store.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (length == 0) {
+                store.header.putInt(0, MAGIC);
+                store.header.putInt(4, VERSION);
+                store.allocateColumns(capacityFor(initialCapacity));
+                logger.debug("Created point cloud file {} with capacity {}", file, store.capacity);
+            } else {
+                store.load();
+                logger.debug("Opened point cloud file {} with {} points", file, store.size);
+            }
+            return store;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void checkHeader(ByteBuffer header, long length, Path file) throws IOException {
+        int fileCapacity = header.getInt(CAPACITY_OFFSET);
+        int fileSize = header.getInt(SIZE_OFFSET);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                || fileCapacity < MIN_CAPACITY || fileCapacity > MAX_CAPACITY
+                || fileSize < 0 || fileSize > fileCapacity
+                || length != fileLength(fileCapacity)) {
+            throw new IOException("Not a point cloud file: " + file);
+        }
+    }
+
+    /**
+     * Maps the columns and index described by a header checked by {@link #checkHeader}.
+     */
+    private void load() throws IOException {
+        map(header.getInt(CAPACITY_OFFSET));
+        size = header.getInt(SIZE_OFFSET);
+        maxId = header.getLong(MAX_ID_OFFSET);
+    }
+
+    private static int capacityFor(int requested) {
+        if (requested > MAX_CAPACITY) {
+            throw new IllegalStateException("Point cloud cannot hold more than " + MAX_CAPACITY + " points");
+        }
+        return Math.max(requested, MIN_CAPACITY);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(capacity * 2 - 1) << 1;
+    }
+
+    private static long fileLength(int capacity) {
+        return HEADER_SIZE + 20L * capacity + 12L * tableSizeFor(capacity);
+    }
+
+    /**
+     * Allocates or maps empty columns and an empty index for the given capacity.
+     */
+    private void allocateColumns(int newCapacity) throws IOException {
+        if (channel != null) {
+            // Extend the file; the new layout may overlap old data, so the index is cleared below
+            long length = fileLength(newCapacity);
+            if (channel.size() < length) {
+                channel.write(ByteBuffer.allocate(1), length - 1);
+            }
+        }
+        map(newCapacity);
+        if (channel != null) {
+            for (int i = 0; i < slots.capacity(); i += 4) {
+                slots.putInt(i, 0);
+            }
+        }
+        header.putInt(CAPACITY_OFFSET, capacity);
+        writeCounters();
+    }
+
+    private void map(int newCapacity) throws IOException {
+        int tableSize = tableSizeFor(newCapacity);
+        long offset = HEADER_SIZE;
+        xs = region(offset, 4L * newCapacity);
+        offset += 4L * newCapacity;
+        ys = region(offset, 4L * newCapacity);
+        offset += 4L * newCapacity;
+        zs = region(offset, 4L * newCapacity);
+        offset += 4L * newCapacity;
+        ids = region(offset, 8L * newCapacity);
+        offset += 8L * newCapacity;
+        keys = region(offset, 8L * tableSize);
+        offset += 8L * tableSize;
+        slots = region(offset, 4L * tableSize);
+        capacity = newCapacity;
+        mask = tableSize - 1;
+        shift = Long.numberOfLeadingZeros(tableSize - 1);
+    }
+
+    private ByteBuffer region(long offset, long length) throws IOException {
+        ByteBuffer buffer = channel == null
+            ? ByteBuffer.allocateDirect((int) length)
+            : channel.map(FileChannel.MapMode.READ_WRITE, offset, length);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void writeCounters() {
+        header.putInt(SIZE_OFFSET, size);
+        header.putLong(MAX_ID_OFFSET, maxId);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public float x(int index) {
+        return ensureOpen(xs).getFloat(index << 2);
+    }
+
+    @Override
+    public float y(int index) {
+        return ensureOpen(ys).getFloat(index << 2);
+    }
+
+    @Override
+    public float z(int index) {
+        return ensureOpen(zs).getFloat(index << 2);
+    }
+
+    @Override
+    public long id(int index) {
+        return ensureOpen(ids).getLong(index << 3);
+    }
+
+    private int slot(long key) {
+        return (int) ((key * GOLDEN_RATIO) >>> shift);
+    }
+
+    @Override
+    public int indexOf(long id) {
+        ByteBuffer slots = ensureOpen(this.slots);
+        ByteBuffer keys = ensureOpen(this.keys);
+        for (int slot = slot(id); ; slot = (slot + 1) & mask) {
+            int value = slots.getInt(slot << 2);
+            if (value == 0) {
+                return -1;
+            }
+            if (keys.getLong(slot << 3) == id) {
+                return value - 1;
+            }
+        }
+    }
+
+    @Override
+    public void append(long id, float x, float y, float z) {
+        ensureOpen();
+        if (size == capacity) {
+            ensureCapacity(size + 1);
+        }
+        xs.putFloat(size << 2, x);
+        ys.putFloat(size << 2, y);
+        zs.putFloat(size << 2, z);
+        ids.putLong(size << 3, id);
+        putIndex(id, size);
+        size++;
+        maxId = Math.max(maxId, id);
+        writeCounters();
+    }
+
+    private void putIndex(long id, int index) {
+        for (int slot = slot(id); ; slot = (slot + 1) & mask) {
+            if (slots.getInt(slot << 2) == 0 || keys.getLong(slot << 3) == id) {
+                keys.putLong(slot << 3, id);
+                slots.putInt(slot << 2, index + 1);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int required) {
+        ensureOpen();
+        if (required <= capacity) {
+            return;
+        }
+        int newCapacity = capacityFor((int) Math.min(MAX_CAPACITY, Math.max(required, 2L * capacity)));
+        ByteBuffer oldXs = detach(xs);
+        ByteBuffer oldYs = detach(ys);
+        ByteBuffer oldZs = detach(zs);
+        ByteBuffer oldIds = detach(ids);
+        try {
+            allocateColumns(newCapacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        xs.put(0, oldXs, 0, size << 2);
+        ys.put(0, oldYs, 0, size << 2);
+        zs.put(0, oldZs, 0, size << 2);
+        ids.put(0, oldIds, 0, size << 3);
+        for (int i = 0; i < size; i++) {
+            putIndex(id(i), i);
+        }
+        logger.debug("Grew off-heap point cloud to capacity {}", newCapacity);
+    }
+
+    /**
+     * Copies the used part of a mapped column, which the new file layout may overwrite.
+     */
+    private ByteBuffer detach(ByteBuffer column) {
+        if (channel == null) {
+            return column;
+        }
+        int bytes = (int) ((long) size * column.capacity() / capacity);
+        ByteBuffer copy = ByteBuffer.allocateDirect(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        copy.put(0, column, 0, bytes);
+        return copy;
+    }
+
+    @Override
+    public boolean remove(long id) {
+        ensureOpen();
+        int i = removeIndex(id);
+        if (i < 0) {
+            return false;
+        }
+        int last = --size;
+        if (i != last) {
+            xs.putFloat(i << 2, x(last));
+            ys.putFloat(i << 2, y(last));
+            zs.putFloat(i << 2, z(last));
+            long moved = id(last);
+            ids.putLong(i << 3, moved);
+            putIndex(moved, i);
+        }
+        writeCounters();
+        return true;
+    }
+
+    private int removeIndex(long id) {
+        for (int slot = slot(id); ; slot = (slot + 1) & mask) {
+            int current = slots.getInt(slot << 2);
+            if (current == 0) {
+                return -1;
+            }
+            if (keys.getLong(slot << 3) == id) {
+                deleteSlot(slot);
+                return current - 1;
+            }
+        }
+    }
+
+    private void deleteSlot(int hole) {
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int value = slots.getInt(slot << 2);
+            if (value == 0) {
+                break;
+            }
+            long key = keys.getLong(slot << 3);
+            int home = slot(key);
+            // Move the entry into the hole unless its home lies cyclically in (hole, slot]
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys.putLong(hole << 3, key);
+                slots.putInt(hole << 2, value);
+                hole = slot;
+            }
+        }
+        slots.putInt(hole << 2, 0);
+    }
+
+    @Override
+    public long maxId() {
+        return maxId;
+    }
+
+    /**
+     * @return true if the store is backed by a file
+     */
+    boolean isFileBacked() {
+        return channel != null;
+    }
+
+    /**
+     * Writes changes of a file-backed store to disk.
+     */
+    void flush() {
+        ensureOpen();
+        if (channel != null) {
+            for (ByteBuffer buffer : new ByteBuffer[] {header, xs, ys, zs, ids, keys, slots}) {
+                ((MappedByteBuffer) buffer).force();
+            }
+        }
+    }
+
+    /**
+     * Flushes a file-backed store and releases the buffers.
+     * The memory is returned once the buffers are no longer reachable.
+     */
+    void close() throws IOException {
+        if (isClosed()) {
+            return;
+        }
+        flush();
+        markClosed();
+        header = xs = ys = zs = ids = keys = slots = null;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
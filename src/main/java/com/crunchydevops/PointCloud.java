@@ -1,7 +1,6 @@
 package com.crunchydevops;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import static java.lang.Math.*;
 
@@ -9,15 +8,47 @@ import static java.lang.Math.*;
  * A collection of 3D points with unique identifiers and geometric operations.
  * This class provides functionality to store and manipulate points in 3D space,
  * including calculations for distance, slope, and bearing angles between points.
+ * Points are stored as a structure of arrays: growable {@code float} columns for the
+ * coordinates, a {@code long} column for the ids and an open-addressing id index,
+ * so a point costs about 40 bytes instead of a boxed key, a map node and a {@link Point3D}.
+ * Points occupy the dense indices {@code 0..size()-1}; removing a point moves the
+ * last point into its index.
+ * The columns live on the heap; see {@link OffHeapPointCloud} for clouds larger than the heap.
  */
 public class PointCloud {
-    private final Map<Long, Point3D> points;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final PointStore store;
 
     /**
      * Creates a new empty point cloud.
      */
     public PointCloud() {
-        this.points = new HashMap<>();
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty point cloud with room for the given number of points.
+     *
+     * @param initialCapacity The number of points to allocate space for
+     * @throws IllegalArgumentException if initialCapacity is negative
+     */
+    public PointCloud(int initialCapacity) {
+        this(new HeapPointStore(initialCapacity));
+    }
+
+    /**
+     * Creates a point cloud over the given column storage.
+     */
+    PointCloud(PointStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @return The column storage behind this cloud
+     */
+    PointStore store() {
+        return store;
     }
 
     /**
@@ -32,11 +63,31 @@ public class PointCloud {
         if (point == null) {
             throw new IllegalArgumentException("Point cannot be null");
         }
-        if (points.containsKey(id)) {
-            return false;
+        return store.appendIfAbsent(id, point.getX(), point.getY(), point.getZ());
+    }
+
+    /**
+     * Adds points from coordinate columns, assigning consecutive ids above the largest id in use.
+     *
+     * @param x The x coordinates
+     * @param y The y coordinates
+     * @param z The z coordinates
+     * @return The id assigned to the first point; point {@code i} gets this id plus {@code i}
+     * @throws IllegalArgumentException if the arrays have different lengths
+     */
+    public long addAll(float[] x, float[] y, float[] z) {
+        if (x.length != y.length || x.length != z.length) {
+            throw new IllegalArgumentException("Coordinate arrays must have the same length");
+        }
+        long firstId = store.maxId() + 1;
+        if (firstId <= 0 || firstId > Long.MAX_VALUE - x.length) {
+            throw new IllegalStateException("No ids left to assign");
         }
-        points.put(id, point);
-        return true;
+        store.ensureCapacity(store.size() + x.length);
+        for (int i = 0; i < x.length; i++) {
+            store.append(firstId + i, x[i], y[i], z[i]);
+        }
+        return firstId;
     }
 
     /**
@@ -46,7 +97,57 @@ public class PointCloud {
      * @return Optional containing the point if found, empty otherwise
      */
     public Optional<Point3D> getPoint(long id) {
-        return Optional.ofNullable(points.get(id));
+        int i = store.indexOf(id);
+        if (i < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new Point3D(store.x(i), store.y(i), store.z(i)));
+    }
+
+    /**
+     * Returns the index currently holding the point with the given ID.
+     *
+     * @param id The ID of the point
+     * @return The index in {@code 0..size()-1}, or -1 if there is no such point
+     */
+    public int indexOf(long id) {
+        return store.indexOf(id);
+    }
+
+    /**
+     * @param index A point index in {@code 0..size()-1}
+     * @return The ID of the point at the given index
+     */
+    public long idAt(int index) {
+        Objects.checkIndex(index, store.size());
+        return store.id(index);
+    }
+
+    /**
+     * @param index A point index in {@code 0..size()-1}
+     * @return The x coordinate of the point at the given index
+     */
+    public float xAt(int index) {
+        Objects.checkIndex(index, store.size());
+        return store.x(index);
+    }
+
+    /**
+     * @param index A point index in {@code 0..size()-1}
+     * @return The y coordinate of the point at the given index
+     */
+    public float yAt(int index) {
+        Objects.checkIndex(index, store.size());
+        return store.y(index);
+    }
+
+    /**
+     * @param index A point index in {@code 0..size()-1}
+     * @return The z coordinate of the point at the given index
+     */
+    public float zAt(int index) {
+        Objects.checkIndex(index, store.size());
+        return store.z(index);
     }
 
     /**
@@ -57,18 +158,13 @@ public class PointCloud {
      * @return Optional containing the distance if both points exist, empty otherwise
      */
     public Optional<Double> distance(long id1, long id2) {
-        Point3D p1 = points.get(id1);
-        Point3D p2 = points.get(id2);
-        
-        if (p1 == null || p2 == null) {
+        int i1 = store.indexOf(id1);
+        int i2 = store.indexOf(id2);
+
+        if (i1 < 0 || i2 < 0) {
             return Optional.empty();
         }
-
-        double dx = p2.getX() - p1.getX();
-        double dy = p2.getY() - p1.getY();
-        double dz = p2.getZ() - p1.getZ();
-
-        return Optional.of(sqrt(dx * dx + dy * dy + dz * dz));
+        return Optional.of(distanceBetween(i1, i2));
     }
 
     /**
@@ -87,33 +183,13 @@ public class PointCloud {
      * @return Optional containing the slope as a percentage if both points exist, empty otherwise
      */
     public Optional<Double> slope(long id1, long id2) {
-        Point3D p1 = points.get(id1);
-        Point3D p2 = points.get(id2);
-        
-        if (p1 == null || p2 == null) {
-            return Optional.empty();
-        }
+        int i1 = store.indexOf(id1);
+        int i2 = store.indexOf(id2);
 
-        double dx = p2.getX() - p1.getX();
-        double dy = p2.getY() - p1.getY();
-        double dz = p2.getZ() - p1.getZ();
-        
-        // Calculate horizontal distance
-        double horizontalDist = sqrt(dx * dx + dy * dy);
-        
-        // Handle case where points are directly above/below each other
-        if (horizontalDist == 0) {
-            if (dz > 0) {
-                return Optional.of(Double.POSITIVE_INFINITY);
-            } else if (dz < 0) {
-                return Optional.of(Double.NEGATIVE_INFINITY);
-            } else {
-                return Optional.of(0.0);
-            }
+        if (i1 < 0 || i2 < 0) {
+            return Optional.empty();
         }
-
-        // Calculate slope as percentage (rise/run × 100)
-        return Optional.of((dz / horizontalDist) * 100.0);
+        return Optional.of(slopeBetween(i1, i2));
     }
 
     /**
@@ -129,28 +205,207 @@ public class PointCloud {
      * @return Optional containing the bearing in degrees if both points exist and have different positions, empty otherwise
      */
     public Optional<Double> bearing(long id1, long id2) {
-        Point3D p1 = points.get(id1);
-        Point3D p2 = points.get(id2);
-        
-        if (p1 == null || p2 == null) {
+        int i1 = store.indexOf(id1);
+        int i2 = store.indexOf(id2);
+
+        if (i1 < 0 || i2 < 0) {
             return Optional.empty();
         }
+        double bearing = bearingBetween(i1, i2);
+        return Double.isNaN(bearing) ? Optional.empty() : Optional.of(bearing);
+    }
+
+    /**
+     * Calculates the distances between pairs of points identified by their IDs.
+     * Pair {@code k} is {@code (ids1[k], ids2[k])}; its result is written to {@code out[k]},
+     * or NaN if either point does not exist.
+     *
+     * @param ids1 IDs of the first points
+     * @param ids2 IDs of the second points
+     * @param out Receives the distances; must be at least as long as the ID arrays
+     * @throws IllegalArgumentException if the array lengths do not match
+     */
+    public void distances(long[] ids1, long[] ids2, double[] out) {
+        checkBatch(ids1.length, ids2.length, out.length);
+        for (int k = 0; k < ids1.length; k++) {
+            int i1 = store.indexOf(ids1[k]);
+            int i2 = store.indexOf(ids2[k]);
+            out[k] = i1 < 0 || i2 < 0 ? Double.NaN : distanceBetween(i1, i2);
+        }
+    }
+
+    /**
+     * Calculates the slopes between pairs of points identified by their IDs,
+     * with the same conventions as {@link #slope(long, long)}.
+     * Pair {@code k} is {@code (ids1[k], ids2[k])}; its result is written to {@code out[k]},
+     * or NaN if either point does not exist.
+     *
+     * @param ids1 IDs of the first points
+     * @param ids2 IDs of the second points
+     * @param out Receives the slopes as percentages; must be at least as long as the ID arrays
+     * @throws IllegalArgumentException if the array lengths do not match
+     */
+    public void slopes(long[] ids1, long[] ids2, double[] out) {
+        checkBatch(ids1.length, ids2.length, out.length);
+        for (int k = 0; k < ids1.length; k++) {
+            int i1 = store.indexOf(ids1[k]);
+            int i2 = store.indexOf(ids2[k]);
+            out[k] = i1 < 0 || i2 < 0 ? Double.NaN : slopeBetween(i1, i2);
+        }
+    }
+
+    /**
+     * Calculates the bearings between pairs of points identified by their IDs,
+     * with the same conventions as {@link #bearing(long, long)}.
+     * Pair {@code k} is {@code (ids1[k], ids2[k])}; its result is written to {@code out[k]},
+     * or NaN if either point does not exist or the points are coincident.
+     *
+     * @param ids1 IDs of the first points
+     * @param ids2 IDs of the second points
+     * @param out Receives the bearings in degrees; must be at least as long as the ID arrays
+     * @throws IllegalArgumentException if the array lengths do not match
+     */
+    public void bearings(long[] ids1, long[] ids2, double[] out) {
+        checkBatch(ids1.length, ids2.length, out.length);
+        for (int k = 0; k < ids1.length; k++) {
+            int i1 = store.indexOf(ids1[k]);
+            int i2 = store.indexOf(ids2[k]);
+            out[k] = i1 < 0 || i2 < 0 ? Double.NaN : bearingBetween(i1, i2);
+        }
+    }
+
+    /**
+     * Calculates the distances between pairs of points identified by their indices,
+     * skipping the id lookups of {@link #distances(long[], long[], double[])}.
+     *
+     * @param indices1 Indices of the first points, in {@code 0..size()-1}
+     * @param indices2 Indices of the second points, in {@code 0..size()-1}
+     * @param out Receives the distances; must be at least as long as the index arrays
+     * @throws IllegalArgumentException if the array lengths do not match
+     * @throws IndexOutOfBoundsException if an index is out of range
+     */
+    public void distancesAt(int[] indices1, int[] indices2, double[] out) {
+        checkBatch(indices1.length, indices2.length, out.length);
+        int size = store.size();
+        for (int k = 0; k < indices1.length; k++) {
+            out[k] = distanceBetween(Objects.checkIndex(indices1[k], size), Objects.checkIndex(indices2[k], size));
+        }
+    }
+
+    /**
+     * Calculates the slopes between pairs of points identified by their indices,
+     * skipping the id lookups of {@link #slopes(long[], long[], double[])}.
+     *
+     * @param indices1 Indices of the first points, in {@code 0..size()-1}
+     * @param indices2 Indices of the second points, in {@code 0..size()-1}
+     * @param out Receives the slopes as percentages; must be at least as long as the index arrays
+     * @throws IllegalArgumentException if the array lengths do not match
+     * @throws IndexOutOfBoundsException if an index is out of range
+     */
+    public void slopesAt(int[] indices1, int[] indices2, double[] out) {
+        checkBatch(indices1.length, indices2.length, out.length);
+        int size = store.size();
+        for (int k = 0; k < indices1.length; k++) {
+            out[k] = slopeBetween(Objects.checkIndex(indices1[k], size), Objects.checkIndex(indices2[k], size));
+        }
+    }
+
+    /**
+     * Calculates the bearings between pairs of points identified by their indices,
+     * skipping the id lookups of {@link #bearings(long[], long[], double[])}.
+     * Coincident points give NaN.
+     *
+     * @param indices1 Indices of the first points, in {@code 0..size()-1}
+     * @param indices2 Indices of the second points, in {@code 0..size()-1}
+     * @param out Receives the bearings in degrees; must be at least as long as the index arrays
+     * @throws IllegalArgumentException if the array lengths do not match
+     * @throws IndexOutOfBoundsException if an index is out of range
+     */
+    public void bearingsAt(int[] indices1, int[] indices2, double[] out) {
+        checkBatch(indices1.length, indices2.length, out.length);
+        int size = store.size();
+        for (int k = 0; k < indices1.length; k++) {
+            out[k] = bearingBetween(Objects.checkIndex(indices1[k], size), Objects.checkIndex(indices2[k], size));
+        }
+    }
+
+    private static void checkBatch(int length1, int length2, int outLength) {
+        if (length1 != length2) {
+            throw new IllegalArgumentException("Point arrays must have the same length");
+        }
+        if (outLength < length1) {
+            throw new IllegalArgumentException("Output array too short: " + outLength + " < " + length1);
+        }
+    }
+
+    private double distanceBetween(int i1, int i2) {
+        double dx = store.x(i2) - store.x(i1);
+        double dy = store.y(i2) - store.y(i1);
+        double dz = store.z(i2) - store.z(i1);
+
+        return sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    private double slopeBetween(int i1, int i2) {
+        double dx = store.x(i2) - store.x(i1);
+        double dy = store.y(i2) - store.y(i1);
+        double dz = store.z(i2) - store.z(i1);
+
+        // Calculate horizontal distance
+        double horizontalDist = sqrt(dx * dx + dy * dy);
+
+        // Handle case where points are directly above/below each other
+        if (horizontalDist == 0) {
+            if (dz > 0) {
+                return Double.POSITIVE_INFINITY;
+            } else if (dz < 0) {
+                return Double.NEGATIVE_INFINITY;
+            } else {
+                return 0.0;
+            }
+        }
+
+        // Calculate slope as percentage (rise/run × 100)
+        return (dz / horizontalDist) * 100.0;
+    }
+
+    /**
+     * @return The bearing in degrees, or NaN for coincident points
+     */
+    private double bearingBetween(int i1, int i2) {
+        double dx = store.x(i2) - store.x(i1);
+        double dy = store.y(i2) - store.y(i1);
 
-        double dx = p2.getX() - p1.getX();
-        double dy = p2.getY() - p1.getY();
-        
         // Handle coincident points
         if (dx == 0 && dy == 0) {
-            return Optional.empty();
+            return Double.NaN;
         }
 
         // Calculate bearing from north
         double bearing = toDegrees(atan2(dx, dy));
-        
+
         // Convert to 0-360 range
-        bearing = (bearing + 360) % 360;
+        return (bearing + 360) % 360;
+    }
 
-        return Optional.of(bearing);
+    /**
+     * Computes the bounding box, the Z distribution and the lowest and highest points in one pass.
+     *
+     * @return Optional containing the statistics, empty if the cloud is empty
+     */
+    public Optional<PointCloudStatistics> statistics() {
+        return Optional.ofNullable(PointCloudStatistics.of(store));
+    }
+
+    /**
+     * Computes the same statistics as {@link #statistics()}, splitting large clouds
+     * into chunks reduced in parallel on the common fork-join pool.
+     * The cloud must not be modified while the statistics are computed.
+     *
+     * @return Optional containing the statistics, empty if the cloud is empty
+     */
+    public Optional<PointCloudStatistics> parallelStatistics() {
+        return Optional.ofNullable(PointCloudStatistics.ofParallel(store));
     }
 
     /**
@@ -159,16 +414,17 @@ public class PointCloud {
      * @return The number of points
      */
     public int size() {
-        return points.size();
+        return store.size();
     }
 
     /**
      * Removes a point from the cloud.
+     * The last point is moved into the index of the removed one.
      *
      * @param id The ID of the point to remove
      * @return true if the point was removed, false if it didn't exist
      */
     public boolean removePoint(long id) {
-        return points.remove(id) != null;
+        return store.remove(id);
     }
 }
@@ -0,0 +1,46 @@
+package com.crunchydevops;
+
+/**
+ * An immutable view of a {@link VersionedPointCloud} at one version.
+ * All queries of {@link PointCloud} are available and safe to call from any number of threads;
+ * the update methods throw {@link UnsupportedOperationException}.
+ */
+public final class PointCloudSnapshot extends PointCloud {
+    private final long version;
+
+    PointCloudSnapshot(CopyOnWritePointStore store, long version) {
+        super(store);
+        this.version = version;
+    }
+
+    /**
+     * @return The version of the cloud this snapshot was taken at
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean addPoint(long id, Point3D point) {
+        throw new UnsupportedOperationException("Snapshots are read-only");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public long addAll(float[] x, float[] y, float[] z) {
+        throw new UnsupportedOperationException("Snapshots are read-only");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean removePoint(long id) {
+        throw new UnsupportedOperationException("Snapshots are read-only");
+    }
+}
@@ -0,0 +1,205 @@
+package com.crunchydevops;
+
+import java.util.stream.IntStream;
+
+/**
+ * Summary statistics of a {@link PointCloud}: the bounding box, the distribution of
+ * the Z coordinates and the IDs of the lowest and highest points.
+ * Ties on Z are resolved in favour of the point with the lowest index.
+ *
+ * @param count The number of points
+ * @param minX The smallest x coordinate
+ * @param minY The smallest y coordinate
+ * @param minZ The smallest z coordinate
+ * @param maxX The largest x coordinate
+ * @param maxY The largest y coordinate
+ * @param maxZ The largest z coordinate
+ * @param meanZ The mean z coordinate
+ * @param stdDevZ The population standard deviation of the z coordinates
+ * @param lowestId The ID of a point with the smallest z coordinate
+ * @param highestId The ID of a point with the largest z coordinate
+ */
+public record PointCloudStatistics(
+        int count,
+        float minX, float minY, float minZ,
+        float maxX, float maxY, float maxZ,
+        double meanZ, double stdDevZ,
+        long lowestId, long highestId) {
+
+    // Below this many points per task, splitting costs more than it saves
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Computes the statistics of the given store in a single pass.
+     *
+     * @return The statistics, or null if the store is empty
+     */
+    static PointCloudStatistics of(PointStore store) {
+        int size = store.size();
+        if (size == 0) {
+            return null;
+        }
+        return reduce(store, 0, size).toStatistics(store);
+    }
+
+    /**
+     * Computes the statistics of the given store with one pass per chunk on the common pool.
+     *
+     * @return The statistics, or null if the store is empty
+     */
+    static PointCloudStatistics ofParallel(PointStore store) {
+        int size = store.size();
+        if (size == 0) {
+            return null;
+        }
+        int chunks = Math.max(1, Math.min(size / MIN_CHUNK_SIZE, 4 * Runtime.getRuntime().availableProcessors()));
+        if (chunks == 1) {
+            return of(store);
+        }
+        return IntStream.range(0, chunks)
+            .parallel()
+            .mapToObj(c -> reduce(store, (int) ((long) size * c / chunks), (int) ((long) size * (c + 1) / chunks)))
+            .reduce(Accumulator::merge)
+            .orElseThrow()
+            .toStatistics(store);
+    }
+
+    /**
+     * Reduces the points in {@code [from, to)}, which must not be empty.
+     * The loop is unrolled into two independent lanes to shorten the dependency chains
+     * of the min/max comparisons and sums; Z is summed relative to the first value
+     * so that the variance does not suffer from cancellation at large elevations.
+     */
+    private static Accumulator reduce(PointStore store, int from, int to) {
+        float shift = store.z(from);
+        float minX0 = Float.POSITIVE_INFINITY, minX1 = Float.POSITIVE_INFINITY;
+        float minY0 = Float.POSITIVE_INFINITY, minY1 = Float.POSITIVE_INFINITY;
+        float minZ0 = Float.POSITIVE_INFINITY, minZ1 = Float.POSITIVE_INFINITY;
+        float maxX0 = Float.NEGATIVE_INFINITY, maxX1 = Float.NEGATIVE_INFINITY;
+        float maxY0 = Float.NEGATIVE_INFINITY, maxY1 = Float.NEGATIVE_INFINITY;
+        float maxZ0 = Float.NEGATIVE_INFINITY, maxZ1 = Float.NEGATIVE_INFINITY;
+        int lowest0 = from, lowest1 = from, highest0 = from, highest1 = from;
+        double sum0 = 0, sum1 = 0, sumSq0 = 0, sumSq1 = 0;
+
+        int i = from;
+        for (; i + 1 < to; i += 2) {
+            float x0 = store.x(i), y0 = store.y(i), z0 = store.z(i);
+            float x1 = store.x(i + 1), y1 = store.y(i + 1), z1 = store.z(i + 1);
+            minX0 = x0 < minX0 ? x0 : minX0;
+            minX1 = x1 < minX1 ? x1 : minX1;
+            maxX0 = x0 > maxX0 ? x0 : maxX0;
+            maxX1 = x1 > maxX1 ? x1 : maxX1;
+            minY0 = y0 < minY0 ? y0 : minY0;
+            minY1 = y1 < minY1 ? y1 : minY1;
+            maxY0 = y0 > maxY0 ? y0 : maxY0;
+            maxY1 = y1 > maxY1 ? y1 : maxY1;
+            if (z0 < minZ0) {
+                minZ0 = z0;
+                lowest0 = i;
+            }
+            if (z1 < minZ1) {
+                minZ1 = z1;
+                lowest1 = i + 1;
+            }
+            if (z0 > maxZ0) {
+                maxZ0 = z0;
+                highest0 = i;
+            }
+            if (z1 > maxZ1) {
+                maxZ1 = z1;
+                highest1 = i + 1;
+            }
+            double d0 = (double) z0 - shift;
+            double d1 = (double) z1 - shift;
+            sum0 += d0;
+            sum1 += d1;
+            sumSq0 += d0 * d0;
+            sumSq1 += d1 * d1;
+        }
+        // Odd point out joins lane 0
+        if (i < to) {
+            float x = store.x(i), y = store.y(i), z = store.z(i);
+            minX0 = x < minX0 ? x : minX0;
+            maxX0 = x > maxX0 ? x : maxX0;
+            minY0 = y < minY0 ? y : minY0;
+            maxY0 = y > maxY0 ? y : maxY0;
+            if (z < minZ0) {
+                minZ0 = z;
+                lowest0 = i;
+            }
+            if (z > maxZ0) {
+                maxZ0 = z;
+                highest0 = i;
+            }
+            double d = (double) z - shift;
+            sum0 += d;
+            sumSq0 += d * d;
+        }
+
+        // Combine the lanes, preferring the lower index on ties
+        Accumulator result = new Accumulator();
+        result.count = to - from;
+        result.minX = Math.min(minX0, minX1);
+        result.minY = Math.min(minY0, minY1);
+        result.maxX = Math.max(maxX0, maxX1);
+        result.maxY = Math.max(maxY0, maxY1);
+        if (minZ1 < minZ0 || (minZ1 == minZ0 && lowest1 < lowest0)) {
+            result.minZ = minZ1;
+            result.lowest = lowest1;
+        } else {
+            result.minZ = minZ0;
+            result.lowest = lowest0;
+        }
+        if (maxZ1 > maxZ0 || (maxZ1 == maxZ0 && highest1 < highest0)) {
+            result.maxZ = maxZ1;
+            result.highest = highest1;
+        } else {
+            result.maxZ = maxZ0;
+            result.highest = highest0;
+        }
+        double sum = sum0 + sum1;
+        result.mean = shift + sum / result.count;
+        result.m2 = Math.max(0.0, (sumSq0 + sumSq1) - sum * sum / result.count);
+        return result;
+    }
+
+    /**
+     * Partial statistics of a contiguous index range.
+     */
+    private static final class Accumulator {
+        private int count;
+        private float minX, minY, minZ, maxX, maxY, maxZ;
+        private int lowest, highest;
+        private double mean;
+        private double m2; // Sum of squared deviations from the mean
+
+        /**
+         * Merges the partial statistics of the range that follows this one.
+         */
+        private Accumulator merge(Accumulator next) {
+            int total = count + next.count;
+            double delta = next.mean - mean;
+            m2 += next.m2 + delta * delta * ((double) count * next.count / total);
+            mean += delta * next.count / total;
+            count = total;
+            minX = Math.min(minX, next.minX);
+            minY = Math.min(minY, next.minY);
+            maxX = Math.max(maxX, next.maxX);
+            maxY = Math.max(maxY, next.maxY);
+            if (next.minZ < minZ) {
+                minZ = next.minZ;
+                lowest = next.lowest;
+            }
+            if (next.maxZ > maxZ) {
+                maxZ = next.maxZ;
+                highest = next.highest;
+            }
+            return this;
+        }
+
+        private PointCloudStatistics toStatistics(PointStore store) {
+            return new PointCloudStatistics(count, minX, minY, minZ, maxX, maxY, maxZ,
+                mean, Math.sqrt(m2 / count), store.id(lowest), store.id(highest));
+        }
+    }
+}
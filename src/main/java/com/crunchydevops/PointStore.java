@@ -0,0 +1,62 @@
+package com.crunchydevops;
+
+/**
+ * Column storage behind a {@link PointCloud}.
+ * Points occupy the dense indices {@code 0..size()-1}; implementations keep an id index
+ * and move the last point into the index of a removed one.
+ */
+interface PointStore {
+
+    /**
+     * @return The number of stored points
+     */
+    int size();
+
+    float x(int index);
+
+    float y(int index);
+
+    float z(int index);
+
+    long id(int index);
+
+    /**
+     * @return The index of the point with the given id, or -1 if there is none
+     */
+    int indexOf(long id);
+
+    /**
+     * Appends a point whose id is known not to be stored yet.
+     */
+    void append(long id, float x, float y, float z);
+
+    /**
+     * Appends a point unless its id is already stored.
+     *
+     * @return true if the point was appended
+     */
+    default boolean appendIfAbsent(long id, float x, float y, float z) {
+        if (indexOf(id) >= 0) {
+            return false;
+        }
+        append(id, x, y, z);
+        return true;
+    }
+
+    /**
+     * Makes room for at least the given number of points.
+     */
+    void ensureCapacity(int capacity);
+
+    /**
+     * Removes the point with the given id, moving the last point into its index.
+     *
+     * @return true if the point was removed
+     */
+    boolean remove(long id);
+
+    /**
+     * @return The largest id ever stored, or 0 if none was positive
+     */
+    long maxId();
+}
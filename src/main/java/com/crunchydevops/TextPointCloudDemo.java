@@ -1,13 +1,24 @@
 package com.crunchydevops;
 
 import com.crunchydevops.dxf.DxfEntity;
+import com.crunchydevops.dxf.DxfFilter;
 import com.crunchydevops.dxf.DxfLayer;
+import com.crunchydevops.dxf.DxfNumberParser;
+import com.crunchydevops.dxf.DxfOffsetIndex;
+import com.crunchydevops.dxf.DxfParseCache;
 import com.crunchydevops.dxf.DxfReader;
+import com.crunchydevops.dxf.DxfText;
+import com.crunchydevops.dxf.DxfVisitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Optional;
 
 /**
@@ -15,11 +26,25 @@ import java.util.Optional;
  * and creates a PointCloud.
  * - X,Y coordinates are taken from the text position
  * - Z coordinate is parsed from the text content
+ * Set the {@value #POINT_CACHE_PROPERTY} system property to "true" to cache the points in a
+ * columnar file next to the DXF file, so later runs map that file instead of parsing the DXF
+ * file again; the cache is used while the DXF file keeps the size, modification time or
+ * content it was built from. Set {@value DxfParseCache#DIRECTORY_PROPERTY} to also cache the
+ * DXF parse, or {@value DxfOffsetIndex#SAVE_PROPERTY} to "true" to keep the offset index of
+ * the DXF file in a sidecar file next to it. A current sidecar is always used; without one,
+ * a configured parse cache is used instead of building a new index.
  */
 public class TextPointCloudDemo {
     private static final Logger logger = LoggerFactory.getLogger(TextPointCloudDemo.class);
     private static final String TARGET_LAYER = "z value TN";
-    private final PointCloud pointCloud;
+    /**
+     * System property that enables the columnar point cache when set to "true".
+     */
+    public static final String POINT_CACHE_PROPERTY = "dxf.points.cache";
+    private static final String CACHE_SUFFIX = ".pcol";
+    // The size, modification time and content hash of the DXF file the cache was built from
+    private static final String SOURCE_SUFFIX = ".source";
+    private PointCloud pointCloud;
     private long nextId = 1;
 
     public TextPointCloudDemo() {
@@ -28,63 +53,67 @@ public class TextPointCloudDemo {
 
     /**
      * Processes a TEXT entity and adds it to the point cloud if valid.
-     * Group codes for TEXT entities:
-     * 10: X coordinate
-     * 20: Y coordinate
-     * 1: Text string (contains Z value)
+     * X and Y come from the insertion point, Z from the text content, each parsed
+     * straight to a float so that it is rounded only once.
      */
     private void processTextEntity(DxfEntity entity) {
-        Map<Integer, String> codes = entity.groupCodes();
-        
+        if (!(entity.geometry().orElse(null) instanceof DxfText text)) {
+            logger.error("Failed to parse coordinates from TEXT entity: {}", entity);
+            return;
+        }
+
         try {
-            // Get X and Y from text position
-            float x = Float.parseFloat(codes.getOrDefault(10, "0"));
-            float y = Float.parseFloat(codes.getOrDefault(20, "0"));
-            
             // Get Z from text content
-            String text = codes.getOrDefault(1, "").trim();
-            float z = Float.parseFloat(text);
+            float z = DxfNumberParser.parseFloat(text.text());
             
             // Create point and add to cloud
-            Point3D point = new Point3D(x, y, z);
+            Point3D point = new Point3D(coordinate(entity, 10), coordinate(entity, 20), z);
             pointCloud.addPoint(nextId++, point);
             logger.trace("Added point: {}", point);
             
         } catch (NumberFormatException e) {
             // Skip invalid points
-            logger.error("Failed to parse coordinates from TEXT entity: {}", entity);
+            logger.error("Failed to parse Z value from TEXT entity: {}", entity);
         }
     }
 
+    /**
+     * @return The value of the first pair with the given coordinate group code, or 0 if there is none
+     */
+    private static float coordinate(DxfEntity entity, int code) {
+        int index = entity.indexOf(code);
+        return index < 0 ? 0 : entity.floatAt(index);
+    }
+
     /**
      * Loads points from TEXT entities in the specified layer of the DXF file.
+     * Only the TEXT entities of the target layer are built. A saved offset index of the file lets the
+     * reader seek to the entities of that layer instead of scanning the rest of the file; a new index
+     * is only built when it is to be saved, since building it costs a pass over the file.
      */
     public void loadFromDxf(String filePath) {
         try {
             logger.info("Reading DXF file: {}", filePath);
             logger.info("Target layer: {}", TARGET_LAYER);
             
-            DxfReader reader = new DxfReader(Path.of(filePath));
-            Map<String, DxfLayer> layers = reader.readLayers();
-            logger.debug("Found {} layers in file", layers.size());
+            Path dxfFile = Path.of(filePath);
+            DxfParseCache cache = DxfParseCache.configured().orElse(null);
+            DxfReader reader = new DxfReader(dxfFile, false, cache);
+            Optional<DxfOffsetIndex> savedIndex = DxfOffsetIndex.loadSaved(dxfFile);
+            if (savedIndex.isPresent()) {
+                reader.setOffsetIndex(savedIndex.get());
+            } else if (cache == null && Boolean.getBoolean(DxfOffsetIndex.SAVE_PROPERTY)) {
+                reader.setOffsetIndex(DxfOffsetIndex.load(dxfFile, true));
+            }
+            TextCollector collector = new TextCollector();
+            reader.accept(collector, DxfFilter.all().withLayers(TARGET_LAYER).withEntityTypes("TEXT"));
             
-            // Get target layer
-            DxfLayer layer = layers.get(TARGET_LAYER);
-            if (layer == null) {
+            if (!collector.layerFound) {
                 logger.error("Layer '{}' not found in DXF file", TARGET_LAYER);
                 return;
             }
             
-            // Process TEXT entities from target layer
-            int textCount = 0;
-            for (DxfEntity entity : layer.entities()) {
-                if (entity.type().equals("TEXT")) {
-                    processTextEntity(entity);
-                    textCount++;
-                }
-            }
-            
-            logger.info("Processed {} TEXT entities from layer '{}'", textCount, TARGET_LAYER);
+            logger.info("Processed {} TEXT entities from layer '{}'", collector.textCount, TARGET_LAYER);
             logger.info("Created {} valid points", pointCloud.size());
             
         } catch (Exception e) {
@@ -92,6 +121,94 @@ public class TextPointCloudDemo {
         }
     }
 
+    /**
+     * Maps the points from a columnar cache file if it was built from the DXF file as it is now.
+     * The DXF file must have the recorded size, and either the recorded modification time or,
+     * failing that, the recorded content hash.
+     *
+     * @return true if the points were loaded from the cache
+     */
+    public boolean loadFromCache(Path cacheFile, Path dxfFile) {
+        Path sourceFile = sourceOf(cacheFile);
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(sourceFile))) {
+            long size = in.readLong();
+            long modified = in.readLong();
+            byte[] hash = in.readAllBytes();
+            if (Files.size(dxfFile) != size || !Files.exists(cacheFile)) {
+                return false;
+            }
+            if (Files.getLastModifiedTime(dxfFile).toMillis() != modified
+                    && !Arrays.equals(hash, DxfParseCache.contentHash(dxfFile))) {
+                return false;
+            }
+            pointCloud = ColumnarPointCloud.open(cacheFile);
+            logger.info("Loaded {} points from cache file: {}", pointCloud.size(), cacheFile);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable cache file {}: {}", cacheFile, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes the loaded points to a columnar cache file, recording the DXF file they were read from.
+     *
+     * @param source The size, modification time and content hash of the DXF file, taken before reading it
+     */
+    public void saveToCache(Path cacheFile, SourceStamp source) {
+        Path sourceFile = sourceOf(cacheFile);
+        try {
+            // The cache is not trusted until its source is recorded again
+            Files.deleteIfExists(sourceFile);
+            ColumnarPointCloud.write(pointCloud, cacheFile);
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(sourceFile))) {
+                out.writeLong(source.size());
+                out.writeLong(source.modified());
+                out.write(source.hash());
+            }
+            logger.info("Wrote {} points to cache file: {}", pointCloud.size(), cacheFile);
+        } catch (IOException e) {
+            logger.warn("Failed to write cache file {}: {}", cacheFile, e.getMessage());
+        }
+    }
+
+    /**
+     * The state of a DXF file when its points were read.
+     */
+    public record SourceStamp(long size, long modified, byte[] hash) {
+
+        public static SourceStamp of(Path file) throws IOException {
+            return new SourceStamp(Files.size(file), Files.getLastModifiedTime(file).toMillis(),
+                DxfParseCache.contentHash(file));
+        }
+    }
+
+    private static Path sourceOf(Path cacheFile) {
+        return cacheFile.resolveSibling(cacheFile.getFileName() + SOURCE_SUFFIX);
+    }
+
+    /**
+     * Visitor receiving the TEXT entities of the target layer.
+     */
+    private class TextCollector implements DxfVisitor {
+        private boolean layerFound = false;
+        private int textCount = 0;
+
+        @Override
+        public void onLayerDefinition(String name, DxfLayer layer) {
+            layerFound = true;
+        }
+
+        @Override
+        public void onEntity(String layerName, DxfEntity entity) {
+            layerFound = true;
+            processTextEntity(entity);
+            textCount++;
+        }
+    }
+
     /**
      * Performs some example calculations with the loaded points.
      */
@@ -101,60 +218,58 @@ public class TextPointCloudDemo {
             return;
         }
 
-        // Find points with minimum and maximum Z values
-        Optional<Point3D> lowestPoint = Optional.empty();
-        Optional<Point3D> highestPoint = Optional.empty();
-        long lowestId = 0, highestId = 0;
-        float minZ = Float.MAX_VALUE;
-        float maxZ = Float.MIN_VALUE;
-
-        for (long id = 1; id < nextId; id++) {
-            Optional<Point3D> point = pointCloud.getPoint(id);
-            if (point.isPresent()) {
-                float z = point.get().getZ();
-                if (z < minZ) {
-                    minZ = z;
-                    lowestPoint = point;
-                    lowestId = id;
-                }
-                if (z > maxZ) {
-                    maxZ = z;
-                    highestPoint = point;
-                    highestId = id;
-                }
-            }
-        }
+        PointCloudStatistics stats = pointCloud.statistics().orElseThrow();
+        long lowestId = stats.lowestId();
+        long highestId = stats.highestId();
+        Point3D lowestPoint = pointCloud.getPoint(lowestId).orElseThrow();
+        Point3D highestPoint = pointCloud.getPoint(highestId).orElseThrow();
 
         logger.info("\nPoint Analysis:");
         logger.info("=".repeat(40));
-        
-        if (lowestPoint.isPresent() && highestPoint.isPresent()) {
-            logger.info("Lowest point (ID: {}): {:.2f}, {:.2f}, {:.2f}",
-                lowestId, lowestPoint.get().getX(), lowestPoint.get().getY(), lowestPoint.get().getZ());
-            logger.info("Highest point (ID: {}): {:.2f}, {:.2f}, {:.2f}",
-                highestId, highestPoint.get().getX(), highestPoint.get().getY(), highestPoint.get().getZ());
-            
-            // Calculate geometric properties between highest and lowest points
-            logger.info("\nGeometric Properties:");
-            logger.info("-".repeat(40));
-            
-            pointCloud.distance(lowestId, highestId)
-                .ifPresent(distance -> logger.info("Distance: {:.2f} meters", distance));
-            
-            pointCloud.slope(lowestId, highestId)
-                .ifPresent(slope -> logger.info("Slope: {:.1f}%%", slope));
-            
-            pointCloud.bearing(lowestId, highestId)
-                .ifPresent(bearing -> logger.info("Bearing: {:.1f} degrees", bearing));
-        }
+        logger.info("Extent: {} .. {}",
+            "%.2f, %.2f".formatted(stats.minX(), stats.minY()), "%.2f, %.2f".formatted(stats.maxX(), stats.maxY()));
+        logger.info("Elevation: mean {}, std dev {}", "%.2f".formatted(stats.meanZ()), "%.2f".formatted(stats.stdDevZ()));
+        logger.info("Lowest point (ID: {}): {}",
+            lowestId, "%.2f, %.2f, %.2f".formatted(lowestPoint.getX(), lowestPoint.getY(), lowestPoint.getZ()));
+        logger.info("Highest point (ID: {}): {}",
+            highestId, "%.2f, %.2f, %.2f".formatted(highestPoint.getX(), highestPoint.getY(), highestPoint.getZ()));
+
+        // Calculate geometric properties between highest and lowest points
+        logger.info("\nGeometric Properties:");
+        logger.info("-".repeat(40));
+
+        pointCloud.distance(lowestId, highestId)
+            .ifPresent(distance -> logger.info("Distance: {} meters", "%.2f".formatted(distance)));
+
+        pointCloud.slope(lowestId, highestId)
+            .ifPresent(slope -> logger.info("Slope: {}%", "%.1f".formatted(slope)));
+
+        pointCloud.bearing(lowestId, highestId)
+            .ifPresent(bearing -> logger.info("Bearing: {} degrees", "%.1f".formatted(bearing)));
     }
 
     public static void main(String[] args) {
         TextPointCloudDemo demo = new TextPointCloudDemo();
         
-        // Load points from DXF file
+        // Load points from the cache if enabled, or from the DXF file and refresh the cache
         String dxfPath = args.length > 0 ? args[0] : "data/project.dxf";
-        demo.loadFromDxf(dxfPath);
+        if (!Boolean.getBoolean(POINT_CACHE_PROPERTY)) {
+            demo.loadFromDxf(dxfPath);
+        } else {
+            Path cacheFile = Path.of(dxfPath + CACHE_SUFFIX);
+            if (!demo.loadFromCache(cacheFile, Path.of(dxfPath))) {
+                SourceStamp source = null;
+                try {
+                    source = SourceStamp.of(Path.of(dxfPath));
+                } catch (IOException e) {
+                    logger.warn("Not caching points of {}: {}", dxfPath, e.getMessage());
+                }
+                demo.loadFromDxf(dxfPath);
+                if (source != null && demo.pointCloud.size() > 0) {
+                    demo.saveToCache(cacheFile, source);
+                }
+            }
+        }
         
         // Perform example calculations
         demo.performCalculations();
@@ -0,0 +1,87 @@
+package com.crunchydevops;
+
+/**
+ * A {@link PointCloud} that hands out immutable, versioned snapshots of itself.
+ * <p>
+ * {@link #snapshot()} costs O(1): the snapshot shares the column and index pages of the cloud,
+ * and later updates copy only the pages they write to. A long-running analysis can therefore
+ * work on a snapshot without locks while another thread keeps updating the cloud, and it never
+ * sees a partially applied update.
+ * <p>
+ * Updates and {@link #snapshot()} are synchronized, so snapshots may be taken from any thread.
+ * The query methods of the cloud itself are meant for the updating thread; other threads
+ * should query a snapshot.
+ */
+public final class VersionedPointCloud extends PointCloud {
+    private final CopyOnWritePointStore store;
+    private long version = 0;
+    private PointCloudSnapshot latest;
+
+    /**
+     * Creates a new empty versioned point cloud.
+     */
+    public VersionedPointCloud() {
+        this(0);
+    }
+
+    /**
+     * Creates a new empty versioned point cloud with room for the given number of points.
+     *
+     * @param initialCapacity The number of points to allocate space for
+     * @throws IllegalArgumentException if initialCapacity is negative or exceeds
+     *     {@value CopyOnWritePointStore#MAX_SIZE}
+     */
+    public VersionedPointCloud(int initialCapacity) {
+        this(new CopyOnWritePointStore(initialCapacity));
+    }
+
+    private VersionedPointCloud(CopyOnWritePointStore store) {
+        super(store);
+        this.store = store;
+    }
+
+    /**
+     * @return The number of successful updates made to the cloud
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Returns an immutable view of the current contents.
+     * Taking a snapshot when nothing changed since the previous one returns that snapshot again.
+     */
+    public synchronized PointCloudSnapshot snapshot() {
+        if (latest == null || latest.version() != version) {
+            latest = new PointCloudSnapshot(store.snapshot(), version);
+        }
+        return latest;
+    }
+
+    @Override
+    public synchronized boolean addPoint(long id, Point3D point) {
+        boolean added = super.addPoint(id, point);
+        if (added) {
+            version++;
+        }
+        return added;
+    }
+
+    @Override
+    public synchronized long addAll(float[] x, float[] y, float[] z) {
+        long firstId = super.addAll(x, y, z);
+        if (x.length > 0) {
+            version++;
+        }
+        return firstId;
+    }
+
+    @Override
+    public synchronized boolean removePoint(long id) {
+        boolean removed = super.removePoint(id);
+        if (removed) {
+            version++;
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,15 @@
+package com.crunchydevops.dxf;
+
+/**
+ * Geometry of an ARC entity, drawn counter-clockwise from the start angle to the end angle.
+ *
+ * @param centerX Center X (group code 10)
+ * @param centerY Center Y (group code 20)
+ * @param centerZ Center Z (group code 30)
+ * @param radius Radius (group code 40)
+ * @param startAngle Start angle in degrees (group code 50)
+ * @param endAngle End angle in degrees (group code 51)
+ */
+public record DxfArc(double centerX, double centerY, double centerZ, double radius,
+                     double startAngle, double endAngle) implements DxfGeometry {
+}
@@ -0,0 +1,12 @@
+package com.crunchydevops.dxf;
+
+/**
+ * Geometry of a CIRCLE entity.
+ *
+ * @param centerX Center X (group code 10)
+ * @param centerY Center Y (group code 20)
+ * @param centerZ Center Z (group code 30)
+ * @param radius Radius (group code 40)
+ */
+public record DxfCircle(double centerX, double centerY, double centerZ, double radius) implements DxfGeometry {
+}
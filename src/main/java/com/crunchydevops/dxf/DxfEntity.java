@@ -3,26 +3,48 @@ package com.crunchydevops.dxf;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
 
 /**
  * Represents an entity in a DXF file.
+ * Group codes are kept in file order, including repeated codes such as the
+ * 10/20 vertex pairs of an LWPOLYLINE. Codes are stored in a primitive array and
+ * all values share a single backing string, so an entity costs a handful of
+ * objects regardless of how many group codes it has.
+ * Supported entity types are also decoded into a typed {@link DxfGeometry} when built.
  * Implements security best practices for data validation and immutability.
  */
-public record DxfEntity(String type, Map<Integer, String> groupCodes) {
+public final class DxfEntity {
     private static final Logger logger = LoggerFactory.getLogger(DxfEntity.class);
     private static final int MAX_TYPE_LENGTH = 255;
     private static final int MAX_VALUE_LENGTH = 255;
     private static final int MIN_GROUP_CODE = 0;
     private static final int MAX_GROUP_CODE = 1071;
 
+    private final String type;
+    private final int[] codes;
+    private final int[] valueEnds;
+    private final String values;
+    private final DxfGeometry geometry;
+
     /**
-     * Creates a new DxfEntity with validation.
+     * Creates a new DxfEntity with validation from a map of group codes.
+     * A map cannot hold repeated codes or file order, so the pairs are stored in ascending code order.
      */
-    public DxfEntity {
+    public DxfEntity(String type, Map<Integer, String> groupCodes) {
+        this(type, builderOf(groupCodes));
+    }
+
+    private DxfEntity(String type, Builder builder) {
         // Validate type
         Objects.requireNonNull(type, "Entity type cannot be null");
         if (type.isEmpty()) {
@@ -32,35 +54,323 @@ public record DxfEntity(String type, Map<Integer, String> groupCodes) {
             logger.warn("Entity type too long, truncating: {}", type);
             type = type.substring(0, MAX_TYPE_LENGTH);
         }
-        type = type.replaceAll("[^a-zA-Z0-9_-]", "_");
+        this.type = type.replaceAll("[^a-zA-Z0-9_-]", "_");
+        this.codes = Arrays.copyOf(builder.codes, builder.size);
+        this.valueEnds = Arrays.copyOf(builder.valueEnds, builder.size);
+        this.values = builder.values.toString();
+        this.geometry = DxfGeometryDecoder.decode(this);
+        logger.trace("Created entity: type='{}', groupCodes={}", this.type, codes.length);
+    }
 
-        // Validate and copy group codes
+    private DxfEntity(String type, int[] codes, int[] valueEnds, String values) {
+        this.type = type;
+        this.codes = codes;
+        this.valueEnds = valueEnds;
+        this.values = values;
+        this.geometry = DxfGeometryDecoder.decode(this);
+    }
+
+    /**
+     * Restores an entity from the columns of one built before, as returned by
+     * {@link #valueEnd(int)} and {@link #values()}. The values are not validated again,
+     * but the columns are checked so that every pair indexes the value string.
+     *
+     * @throws IllegalArgumentException if the columns differ in length or the value ends
+     *     decrease or fall outside the value string
+     */
+    static DxfEntity restore(String type, int[] codes, int[] valueEnds, String values) {
+        if (codes.length != valueEnds.length) {
+            throw new IllegalArgumentException(
+                "Entity has %d group codes but %d values".formatted(codes.length, valueEnds.length));
+        }
+        int previous = 0;
+        for (int end : valueEnds) {
+            if (end < previous || end > values.length()) {
+                throw new IllegalArgumentException(
+                    "Value end %d out of range %d..%d".formatted(end, previous, values.length()));
+            }
+            previous = end;
+        }
+        return new DxfEntity(type, codes, valueEnds, values);
+    }
+
+    private static Builder builderOf(Map<Integer, String> groupCodes) {
         Objects.requireNonNull(groupCodes, "Group codes cannot be null");
-        Map<Integer, String> validatedCodes = new HashMap<>();
-        
+        Builder builder = new Builder();
+        Map<Integer, String> sorted = new TreeMap<>();
         groupCodes.forEach((code, value) -> {
-            if (code != null && value != null &&
-                code >= MIN_GROUP_CODE && code <= MAX_GROUP_CODE) {
-                
-                if (value.length() > MAX_VALUE_LENGTH) {
-                    logger.warn("Group code {} value too long, truncating: {}", code, value);
-                    value = value.substring(0, MAX_VALUE_LENGTH);
-                }
-                validatedCodes.put(code, value);
-            } else {
+            if (code == null) {
                 logger.warn("Skipping invalid group code: {} = {}", code, value);
+            } else {
+                sorted.put(code, value);
             }
         });
+        sorted.forEach(builder::add);
+        return builder;
+    }
+
+    /**
+     * Creates a builder accumulating group codes in file order.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The entity type, e.g. "TEXT"
+     */
+    public String type() {
+        return type;
+    }
+
+    /**
+     * Returns the typed geometry decoded at parse time.
+     *
+     * @return The geometry for TEXT, LINE, CIRCLE, ARC and LWPOLYLINE entities, empty otherwise
+     */
+    public Optional<DxfGeometry> geometry() {
+        return Optional.ofNullable(geometry);
+    }
+
+    /**
+     * @return The number of group code/value pairs
+     */
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * @return The group code of the pair at the given index
+     */
+    public int codeAt(int index) {
+        return codes[index];
+    }
+
+    /**
+     * @return The value of the pair at the given index
+     */
+    public String valueAt(int index) {
+        Objects.checkIndex(index, codes.length);
+        return values.substring(valueStart(index), valueEnds[index]);
+    }
+
+    /**
+     * Parses the value of the pair at the given index as a double,
+     * reading the shared value string in place.
+     *
+     * @throws NumberFormatException if the value is not a number
+     */
+    public double doubleAt(int index) {
+        Objects.checkIndex(index, codes.length);
+        return DxfNumberParser.parseDouble(values, valueStart(index), valueEnds[index]);
+    }
+
+    /**
+     * Parses the value of the pair at the given index as a float, rounded once from its
+     * decimal digits rather than through a double.
+     *
+     * @throws NumberFormatException if the value is not a number
+     */
+    public float floatAt(int index) {
+        Objects.checkIndex(index, codes.length);
+        return DxfNumberParser.parseFloat(values, valueStart(index), valueEnds[index]);
+    }
+
+    /**
+     * Returns the index of the first pair with the given code at or after {@code fromIndex}.
+     *
+     * @return The index, or -1 if there is none
+     */
+    public int indexOf(int code, int fromIndex) {
+        for (int i = Math.max(fromIndex, 0); i < codes.length; i++) {
+            if (codes[i] == code) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The index of the first pair with the given code, or -1 if there is none
+     */
+    public int indexOf(int code) {
+        return indexOf(code, 0);
+    }
+
+    /**
+     * @return The first value with the given code, if any
+     */
+    public Optional<String> first(int code) {
+        int index = indexOf(code);
+        return index < 0 ? Optional.empty() : Optional.of(valueAt(index));
+    }
+
+    /**
+     * @return All values with the given code, in file order
+     */
+    public List<String> all(int code) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i] == code) {
+                result.add(valueAt(i));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Returns the group codes as a map.
+     * Repeated codes collapse to their last value; use {@link #all(int)} to get every value.
+     */
+    public Map<Integer, String> groupCodes() {
+        Map<Integer, String> map = new TreeMap<>();
+        for (int i = 0; i < codes.length; i++) {
+            map.put(codes[i], valueAt(i));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * @return The end of the value at the given index within {@link #values()}
+     */
+    int valueEnd(int index) {
+        return valueEnds[index];
+    }
+
+    /**
+     * @return All values concatenated in file order
+     */
+    String values() {
+        return values;
+    }
+
+    private int valueStart(int index) {
+        return index == 0 ? 0 : valueEnds[index - 1];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DxfEntity entity = (DxfEntity) o;
+        return type.equals(entity.type) &&
+               Arrays.equals(codes, entity.codes) &&
+               Arrays.equals(valueEnds, entity.valueEnds) &&
+               values.equals(entity.values);
+    }
 
-        groupCodes = Collections.unmodifiableMap(validatedCodes);
-        logger.debug("Created entity: type='{}', groupCodes={}", type, groupCodes.size());
+    @Override
+    public int hashCode() {
+        int result = type.hashCode();
+        result = 31 * result + Arrays.hashCode(codes);
+        result = 31 * result + values.hashCode();
+        return result;
     }
 
     @Override
     public String toString() {
+        StringBuilder pairs = new StringBuilder("[");
+        for (int i = 0; i < codes.length; i++) {
+            if (i > 0) {
+                pairs.append(", ");
+            }
+            pairs.append(codes[i]).append('=').append(valueAt(i));
+        }
+        pairs.append(']');
         return """
             Entity Type: %s
             Group Codes: %s
-            """.formatted(type, groupCodes);
+            """.formatted(type, pairs);
+    }
+
+    /**
+     * Accumulates group code/value pairs in order and builds an immutable {@link DxfEntity}.
+     */
+    public static final class Builder {
+        private int[] codes = new int[16];
+        private int[] valueEnds = new int[16];
+        private final StringBuilder values = new StringBuilder();
+        private int size = 0;
+
+        private Builder() {
+        }
+
+        /**
+         * Appends a group code/value pair, skipping invalid codes and truncating long values.
+         */
+        public Builder add(int code, String value) {
+            if (value == null || code < MIN_GROUP_CODE || code > MAX_GROUP_CODE) {
+                logger.warn("Skipping invalid group code: {} = {}", code, value);
+                return this;
+            }
+            if (value.length() > MAX_VALUE_LENGTH) {
+                logger.warn("Group code {} value too long, truncating: {}", code, value);
+                value = value.substring(0, MAX_VALUE_LENGTH);
+            }
+            values.append(value);
+            return endPair(code);
+        }
+
+        /**
+         * Appends a group code/value pair whose value is UTF-8 encoded in {@code length} bytes
+         * at an absolute offset of the buffer. ASCII values are copied into the shared value
+         * string without an intermediate {@code String}.
+         */
+        Builder add(int code, ByteBuffer buffer, int offset, int length) {
+            if (code < MIN_GROUP_CODE || code > MAX_GROUP_CODE) {
+                logger.warn("Skipping invalid group code: {}", code);
+                return this;
+            }
+            int start = values.length();
+            for (int i = 0; i < length; i++) {
+                byte b = buffer.get(offset + i);
+                if (b < 0) {
+                    values.setLength(start);
+                    byte[] bytes = new byte[length];
+                    buffer.get(offset, bytes);
+                    return add(code, new String(bytes, StandardCharsets.UTF_8));
+                }
+                values.append((char) b);
+            }
+            if (length > MAX_VALUE_LENGTH) {
+                logger.warn("Group code {} value too long, truncating", code);
+                values.setLength(start + MAX_VALUE_LENGTH);
+            }
+            return endPair(code);
+        }
+
+        private Builder endPair(int code) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+                valueEnds = Arrays.copyOf(valueEnds, size * 2);
+            }
+            codes[size] = code;
+            valueEnds[size] = values.length();
+            size++;
+            return this;
+        }
+
+        /**
+         * @return The number of pairs added so far
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Builds the entity; the builder can keep being used afterwards.
+         */
+        public DxfEntity build(String type) {
+            return new DxfEntity(type, this);
+        }
+
+        /**
+         * Removes all pairs so that the builder can be reused for the next entity.
+         */
+        public Builder clear() {
+            size = 0;
+            values.setLength(0);
+            return this;
+        }
     }
 }
@@ -0,0 +1,97 @@
+package com.crunchydevops.dxf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Selects the layers and entity types reported by {@link DxfReader#accept(DxfVisitor, DxfFilter)}.
+ * Entity types are matched against the raw bytes of the file, so rejected entities are
+ * skipped by the parser without being decoded or built.
+ * An unrestricted dimension accepts everything.
+ */
+public final class DxfFilter {
+    private static final DxfFilter ALL = new DxfFilter(null, null);
+
+    private final Set<String> layerNames;
+    private final Set<String> entityTypes;
+    private final byte[][] entityTypeBytes;
+
+    private DxfFilter(Set<String> layerNames, Set<String> entityTypes) {
+        this.layerNames = layerNames;
+        this.entityTypes = entityTypes;
+        this.entityTypeBytes = entityTypes == null ? null : entityTypes.stream()
+            .map(type -> type.getBytes(StandardCharsets.UTF_8))
+            .toArray(byte[][]::new);
+    }
+
+    /**
+     * @return A filter accepting every layer and entity type
+     */
+    public static DxfFilter all() {
+        return ALL;
+    }
+
+    /**
+     * Returns a copy of this filter restricted to the given layer names, as written in the file.
+     */
+    public DxfFilter withLayers(String... names) {
+        return new DxfFilter(copyOf(names, "Layer name"), entityTypes);
+    }
+
+    /**
+     * Returns a copy of this filter restricted to the given entity types (e.g. "TEXT").
+     */
+    public DxfFilter withEntityTypes(String... types) {
+        return new DxfFilter(layerNames, copyOf(types, "Entity type"));
+    }
+
+    private static Set<String> copyOf(String[] values, String what) {
+        Objects.requireNonNull(values, what + "s cannot be null");
+        Arrays.stream(values).forEach(value -> Objects.requireNonNull(value, what + " cannot be null"));
+        return Set.of(Arrays.stream(values).distinct().toArray(String[]::new));
+    }
+
+    /**
+     * @return true if entities on the given layer are accepted
+     */
+    public boolean acceptsLayer(String name) {
+        return layerNames == null || layerNames.contains(name);
+    }
+
+    /**
+     * @return true if entities of the given type are accepted
+     */
+    public boolean acceptsEntityType(String type) {
+        return entityTypes == null || entityTypes.contains(type);
+    }
+
+    /**
+     * @return true if this filter restricts layers
+     */
+    boolean filtersLayers() {
+        return layerNames != null;
+    }
+
+    /**
+     * Matches the entity type held by the tokenizer's current value without decoding it.
+     */
+    boolean acceptsEntityType(DxfTokenizer tokenizer) {
+        if (entityTypeBytes == null) {
+            return true;
+        }
+        for (byte[] type : entityTypeBytes) {
+            if (tokenizer.valueEquals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "DxfFilter{layers=%s, entityTypes=%s}".formatted(
+            layerNames == null ? "*" : layerNames, entityTypes == null ? "*" : entityTypes);
+    }
+}
@@ -0,0 +1,9 @@
+package com.crunchydevops.dxf;
+
+/**
+ * Typed geometry decoded from a {@link DxfEntity} when it is parsed.
+ * Coordinates are primitive doubles taken as written in the file
+ * (object coordinates for entities with a non-default extrusion direction).
+ */
+public sealed interface DxfGeometry permits DxfText, DxfLine, DxfCircle, DxfArc, DxfLwPolyline {
+}
@@ -0,0 +1,134 @@
+package com.crunchydevops.dxf;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+
+/**
+ * Decodes the group codes of supported entity types into {@link DxfGeometry} records.
+ * Each entity is decoded in a single pass over its pairs and every number is parsed once.
+ */
+final class DxfGeometryDecoder {
+    private static final Logger logger = LoggerFactory.getLogger(DxfGeometryDecoder.class);
+
+    private DxfGeometryDecoder() {
+    }
+
+    /**
+     * @return The geometry of the entity, or null if its type is not supported or its values are invalid
+     */
+    static DxfGeometry decode(DxfEntity entity) {
+        try {
+            return switch (entity.type()) {
+                case "TEXT" -> decodeText(entity);
+                case "LINE" -> decodeLine(entity);
+                case "CIRCLE" -> decodeCircle(entity);
+                case "ARC" -> decodeArc(entity);
+                case "LWPOLYLINE" -> decodeLwPolyline(entity);
+                default -> null;
+            };
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid coordinates in {} entity: {}", entity.type(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static DxfText decodeText(DxfEntity entity) {
+        double x = 0, y = 0, z = 0, height = 0, rotation = 0;
+        String text = "";
+        for (int i = 0; i < entity.size(); i++) {
+            switch (entity.codeAt(i)) {
+                case 10 -> x = entity.doubleAt(i);
+                case 20 -> y = entity.doubleAt(i);
+                case 30 -> z = entity.doubleAt(i);
+                case 40 -> height = entity.doubleAt(i);
+                case 50 -> rotation = entity.doubleAt(i);
+                case 1 -> text = entity.valueAt(i);
+                default -> {} // Not part of the geometry
+            }
+        }
+        return new DxfText(x, y, z, height, rotation, text);
+    }
+
+    private static DxfLine decodeLine(DxfEntity entity) {
+        double x1 = 0, y1 = 0, z1 = 0, x2 = 0, y2 = 0, z2 = 0;
+        for (int i = 0; i < entity.size(); i++) {
+            switch (entity.codeAt(i)) {
+                case 10 -> x1 = entity.doubleAt(i);
+                case 20 -> y1 = entity.doubleAt(i);
+                case 30 -> z1 = entity.doubleAt(i);
+                case 11 -> x2 = entity.doubleAt(i);
+                case 21 -> y2 = entity.doubleAt(i);
+                case 31 -> z2 = entity.doubleAt(i);
+                default -> {} // Not part of the geometry
+            }
+        }
+        return new DxfLine(x1, y1, z1, x2, y2, z2);
+    }
+
+    private static DxfCircle decodeCircle(DxfEntity entity) {
+        double x = 0, y = 0, z = 0, radius = 0;
+        for (int i = 0; i < entity.size(); i++) {
+            switch (entity.codeAt(i)) {
+                case 10 -> x = entity.doubleAt(i);
+                case 20 -> y = entity.doubleAt(i);
+                case 30 -> z = entity.doubleAt(i);
+                case 40 -> radius = entity.doubleAt(i);
+                default -> {} // Not part of the geometry
+            }
+        }
+        return new DxfCircle(x, y, z, radius);
+    }
+
+    private static DxfArc decodeArc(DxfEntity entity) {
+        double x = 0, y = 0, z = 0, radius = 0, startAngle = 0, endAngle = 0;
+        for (int i = 0; i < entity.size(); i++) {
+            switch (entity.codeAt(i)) {
+                case 10 -> x = entity.doubleAt(i);
+                case 20 -> y = entity.doubleAt(i);
+                case 30 -> z = entity.doubleAt(i);
+                case 40 -> radius = entity.doubleAt(i);
+                case 50 -> startAngle = entity.doubleAt(i);
+                case 51 -> endAngle = entity.doubleAt(i);
+                default -> {} // Not part of the geometry
+            }
+        }
+        return new DxfArc(x, y, z, radius, startAngle, endAngle);
+    }
+
+    private static DxfLwPolyline decodeLwPolyline(DxfEntity entity) {
+        double[] vertices = new double[16];
+        double[] bulges = new double[8];
+        int count = 0;
+        double elevation = 0;
+        boolean closed = false;
+        for (int i = 0; i < entity.size(); i++) {
+            switch (entity.codeAt(i)) {
+                case 10 -> {
+                    // Each 10 code starts a new vertex
+                    if (2 * count == vertices.length) {
+                        vertices = Arrays.copyOf(vertices, vertices.length * 2);
+                        bulges = Arrays.copyOf(bulges, bulges.length * 2);
+                    }
+                    vertices[2 * count] = entity.doubleAt(i);
+                    count++;
+                }
+                case 20 -> {
+                    if (count > 0) {
+                        vertices[2 * count - 1] = entity.doubleAt(i);
+                    }
+                }
+                case 42 -> {
+                    if (count > 0) {
+                        bulges[count - 1] = entity.doubleAt(i);
+                    }
+                }
+                case 38 -> elevation = entity.doubleAt(i);
+                case 70 -> closed = (Integer.parseInt(entity.valueAt(i)) & 1) != 0;
+                default -> {} // Not part of the geometry
+            }
+        }
+        return new DxfLwPolyline(Arrays.copyOf(vertices, 2 * count), Arrays.copyOf(bulges, count), elevation, closed);
+    }
+}
@@ -65,8 +65,28 @@ public record DxfLayer(String name, int colorNumber, String lineType, boolean is
         return new DxfLayer(name, 7, "CONTINUOUS", true, new ArrayList<>());
     }
 
+    /**
+     * Creates a builder for a layer with the given name and default properties.
+     */
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * Creates a builder initialized with the properties and entities of this layer.
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder(name)
+            .colorNumber(colorNumber)
+            .lineType(lineType)
+            .visible(isVisible);
+        entities.forEach(builder::addEntity);
+        return builder;
+    }
+
     /**
      * Adds an entity to this layer, returning a new DxfLayer instance.
+     * This copies the entity list; use a {@link Builder} to accumulate many entities.
      */
     public DxfLayer addEntity(DxfEntity entity) {
         Objects.requireNonNull(entity, "Entity cannot be null");
@@ -77,12 +97,85 @@ public record DxfLayer(String name, int colorNumber, String lineType, boolean is
 
     @Override
     public String toString() {
+        return toString(entities.size());
+    }
+
+    /**
+     * @return The layer as formatted by {@link #toString()}, with an entity count
+     *     counted elsewhere instead of the number of entities held
+     */
+    public String toString(long entityCount) {
+        return describeProperties() + "Entity Count: %d\n".formatted(entityCount);
+    }
+
+    /**
+     * @return The properties of the layer as formatted by {@link #toString()}, without the entity count
+     */
+    public String describeProperties() {
         return """
             Layer: %s
             Color Number: %d
             Line Type: %s
             Visible: %b
-            Entity Count: %d
-            """.formatted(name, colorNumber, lineType, isVisible, entities.size());
+            """.formatted(name, colorNumber, lineType, isVisible);
+    }
+
+    /**
+     * Mutable accumulator used while parsing, frozen once into an immutable {@link DxfLayer}.
+     * Adding an entity is amortized O(1).
+     */
+    public static final class Builder {
+        private final String name;
+        private int colorNumber = 7;
+        private String lineType = "CONTINUOUS";
+        private boolean isVisible = true;
+        private final List<DxfEntity> entities = new ArrayList<>();
+
+        private Builder(String name) {
+            this.name = Objects.requireNonNull(name, "Layer name cannot be null");
+        }
+
+        public Builder colorNumber(int colorNumber) {
+            this.colorNumber = colorNumber;
+            return this;
+        }
+
+        public Builder lineType(String lineType) {
+            this.lineType = lineType;
+            return this;
+        }
+
+        public Builder visible(boolean isVisible) {
+            this.isVisible = isVisible;
+            return this;
+        }
+
+        /**
+         * Copies the color, line type and visibility of the given layer definition.
+         */
+        public Builder properties(DxfLayer layer) {
+            return colorNumber(layer.colorNumber())
+                .lineType(layer.lineType())
+                .visible(layer.isVisible());
+        }
+
+        public Builder addEntity(DxfEntity entity) {
+            entities.add(Objects.requireNonNull(entity, "Entity cannot be null"));
+            return this;
+        }
+
+        /**
+         * @return The number of entities added so far
+         */
+        public int entityCount() {
+            return entities.size();
+        }
+
+        /**
+         * Validates the accumulated state and creates the immutable layer.
+         */
+        public DxfLayer build() {
+            return new DxfLayer(name, colorNumber, lineType, isVisible, entities);
+        }
     }
 }
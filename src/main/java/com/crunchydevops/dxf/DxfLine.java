@@ -0,0 +1,24 @@
+package com.crunchydevops.dxf;
+
+/**
+ * Geometry of a LINE entity.
+ *
+ * @param x1 Start point X (group code 10)
+ * @param y1 Start point Y (group code 20)
+ * @param z1 Start point Z (group code 30)
+ * @param x2 End point X (group code 11)
+ * @param y2 End point Y (group code 21)
+ * @param z2 End point Z (group code 31)
+ */
+public record DxfLine(double x1, double y1, double z1, double x2, double y2, double z2) implements DxfGeometry {
+
+    /**
+     * @return The 3D length of the line
+     */
+    public double length() {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double dz = z2 - z1;
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+}
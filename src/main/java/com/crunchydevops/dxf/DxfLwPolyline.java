@@ -0,0 +1,101 @@
+package com.crunchydevops.dxf;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Geometry of an LWPOLYLINE entity.
+ * Vertices are packed as {@code x0, y0, x1, y1, ...} in a single array.
+ * The arrays are copied on the way in and out, so the geometry cannot be changed once built;
+ * use {@link #x}, {@link #y} and {@link #bulge} to read single vertices without copying.
+ *
+ * @param vertices Packed vertex coordinates (group codes 10/20)
+ * @param bulges Bulge of the segment starting at each vertex, 0 for straight segments (group code 42)
+ * @param elevation Elevation of every vertex (group code 38)
+ * @param closed true if the last vertex connects back to the first (bit 1 of group code 70)
+ */
+public record DxfLwPolyline(double[] vertices, double[] bulges, double elevation, boolean closed)
+        implements DxfGeometry {
+
+    public DxfLwPolyline {
+        Objects.requireNonNull(vertices, "Vertices cannot be null");
+        Objects.requireNonNull(bulges, "Bulges cannot be null");
+        if (vertices.length % 2 != 0) {
+            throw new IllegalArgumentException("Vertices must hold x/y pairs");
+        }
+        if (bulges.length != vertices.length / 2) {
+            throw new IllegalArgumentException("There must be one bulge per vertex");
+        }
+        vertices = vertices.clone();
+        bulges = bulges.clone();
+    }
+
+    /**
+     * @return A copy of the packed vertex coordinates
+     */
+    @Override
+    public double[] vertices() {
+        return vertices.clone();
+    }
+
+    /**
+     * @return A copy of the bulges, one per vertex
+     */
+    @Override
+    public double[] bulges() {
+        return bulges.clone();
+    }
+
+    /**
+     * @return The number of vertices
+     */
+    public int vertexCount() {
+        return vertices.length / 2;
+    }
+
+    /**
+     * @return The X coordinate of the vertex at the given index
+     */
+    public double x(int index) {
+        return vertices[2 * index];
+    }
+
+    /**
+     * @return The Y coordinate of the vertex at the given index
+     */
+    public double y(int index) {
+        return vertices[2 * index + 1];
+    }
+
+    /**
+     * @return The bulge of the segment starting at the vertex at the given index
+     */
+    public double bulge(int index) {
+        return bulges[index];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DxfLwPolyline that = (DxfLwPolyline) o;
+        return Double.compare(that.elevation, elevation) == 0 &&
+               closed == that.closed &&
+               Arrays.equals(vertices, that.vertices) &&
+               Arrays.equals(bulges, that.bulges);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(vertices);
+        result = 31 * result + Arrays.hashCode(bulges);
+        result = 31 * result + Double.hashCode(elevation);
+        result = 31 * result + Boolean.hashCode(closed);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "DxfLwPolyline{vertices=%d, elevation=%s, closed=%b}".formatted(vertexCount(), elevation, closed);
+    }
+}
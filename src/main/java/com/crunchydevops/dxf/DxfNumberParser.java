@@ -0,0 +1,286 @@
+package com.crunchydevops.dxf;
+
+import java.math.BigInteger;
+import java.util.Objects;
+
+/**
+ * Parses the decimal numbers of DXF values straight from character ranges, such as the
+ * shared value string of a {@link DxfEntity}.
+ * A value is an optional sign, digits with an optional decimal point and an optional
+ * e/E exponent, surrounded by optional blanks, as written for coordinates.
+ * Nothing is allocated for such values and the result is correctly rounded, the same
+ * as {@link Double#parseDouble} and {@link Float#parseFloat}.
+ * <p>
+ * Up to 19 significant digits are read into a 64-bit integer. Values whose integer
+ * and power of ten are both exactly representable are computed with one exact
+ * operation; the others are converted with the Eisel-Lemire algorithm over a table
+ * of 128-bit powers of ten. The rare values that remain ambiguous, and anything else
+ * {@link Double#parseDouble} accepts, such as "NaN" or hexadecimal notation, fall back
+ * to the JDK.
+ */
+public final class DxfNumberParser {
+    private static final int MAX_DIGITS = 19;
+    private static final int MIN_EXPONENT = -348;
+    private static final int MAX_EXPONENT = 347;
+    // Exponents beyond this bound are zero or infinite for any 19-digit mantissa
+    private static final int EXPONENT_LIMIT = 100_000;
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+    private static final long MAX_EXACT_FLOAT = 1L << 24;
+    private static final int MAX_EXACT_DOUBLE_POWER = 22;
+    private static final int MAX_EXACT_FLOAT_POWER = 10;
+    private static final double[] DOUBLE_POWERS = new double[MAX_EXACT_DOUBLE_POWER + 1];
+    private static final float[] FLOAT_POWERS = new float[MAX_EXACT_FLOAT_POWER + 1];
+    // The 128-bit mantissas of 10^MIN_EXPONENT .. 10^MAX_EXPONENT, rounded down
+    private static final long[] POWER_HIGH = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+    private static final long[] POWER_LOW = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+
+    static {
+        double doublePower = 1;
+        for (int i = 0; i <= MAX_EXACT_DOUBLE_POWER; i++, doublePower *= 10) {
+            DOUBLE_POWERS[i] = doublePower;
+        }
+        float floatPower = 1;
+        for (int i = 0; i <= MAX_EXACT_FLOAT_POWER; i++, floatPower *= 10) {
+            FLOAT_POWERS[i] = floatPower;
+        }
+        for (int exponent = MIN_EXPONENT; exponent <= MAX_EXPONENT; exponent++) {
+            BigInteger power = BigInteger.TEN.pow(Math.abs(exponent));
+            BigInteger mantissa;
+            if (exponent >= 0) {
+                int excess = power.bitLength() - 128;
+                mantissa = excess > 0 ? power.shiftRight(excess) : power.shiftLeft(-excess);
+            } else {
+                // 2^(127 + bits) / 10^-exponent lies strictly between 2^127 and 2^128
+                mantissa = BigInteger.ONE.shiftLeft(127 + power.bitLength()).divide(power);
+            }
+            POWER_HIGH[exponent - MIN_EXPONENT] = mantissa.shiftRight(64).longValue();
+            POWER_LOW[exponent - MIN_EXPONENT] = mantissa.longValue();
+        }
+    }
+
+    private DxfNumberParser() {
+    }
+
+    /**
+     * Parses a decimal number.
+     *
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static double parseDouble(CharSequence text) {
+        return parseDouble(text, 0, text.length());
+    }
+
+    /**
+     * Parses the decimal number between {@code start} inclusive and {@code end} exclusive.
+     *
+     * @throws NumberFormatException if the range is not a number
+     * @throws IndexOutOfBoundsException if the range is outside the text
+     */
+    public static double parseDouble(CharSequence text, int start, int end) {
+        return scan(text, start, end, false);
+    }
+
+    /**
+     * Parses a decimal number rounded once to the nearest float.
+     *
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static float parseFloat(CharSequence text) {
+        return parseFloat(text, 0, text.length());
+    }
+
+    /**
+     * Parses the decimal number between {@code start} inclusive and {@code end} exclusive,
+     * rounded once to the nearest float.
+     *
+     * @throws NumberFormatException if the range is not a number
+     * @throws IndexOutOfBoundsException if the range is outside the text
+     */
+    public static float parseFloat(CharSequence text, int start, int end) {
+        return (float) scan(text, start, end, true);
+    }
+
+    private static double scan(CharSequence text, int start, int end, boolean single) {
+        Objects.checkFromToIndex(start, end, text.length());
+        int pos = start;
+        int limit = end;
+        while (pos < limit && text.charAt(pos) <= ' ') {
+            pos++;
+        }
+        while (limit > pos && text.charAt(limit - 1) <= ' ') {
+            limit--;
+        }
+        boolean negative = false;
+        if (pos < limit && (text.charAt(pos) == '-' || text.charAt(pos) == '+')) {
+            negative = text.charAt(pos) == '-';
+            pos++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean truncated = false;
+        int digitsStart = pos;
+        boolean point = false;
+        for (; pos < limit; pos++) {
+            char c = text.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                if (digits < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    if (point) {
+                        exponent--;
+                    }
+                } else {
+                    truncated |= c != '0';
+                    if (!point) {
+                        exponent++;
+                    }
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        int mantissaLength = pos - digitsStart - (point ? 1 : 0);
+        if (mantissaLength > 0 && pos < limit && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < limit && (text.charAt(pos) == '-' || text.charAt(pos) == '+')) {
+                negativeExponent = text.charAt(pos) == '-';
+                pos++;
+            }
+            int exponentStart = pos;
+            int value = 0;
+            for (; pos < limit && text.charAt(pos) >= '0' && text.charAt(pos) <= '9'; pos++) {
+                value = Math.min(value * 10 + (text.charAt(pos) - '0'), EXPONENT_LIMIT);
+            }
+            if (pos == exponentStart) {
+                return fallback(text.subSequence(start, end).toString(), single);
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (mantissaLength == 0 || pos != limit) {
+            return fallback(text.subSequence(start, end).toString(), single);
+        }
+        double result = toBinary(mantissa, exponent, negative, truncated, single);
+        return Double.isNaN(result) ? fallback(text.subSequence(start, end).toString(), single) : result;
+    }
+
+    private static double fallback(String text, boolean single) {
+        return single ? Float.parseFloat(text) : Double.parseDouble(text);
+    }
+
+    /**
+     * Converts mantissa * 10^exponent to the nearest double, or to the nearest float widened
+     * to a double when {@code single} is set.
+     *
+     * @param truncated Whether nonzero digits were dropped after the 19 held in the mantissa
+     * @return The value, or NaN if it cannot be decided without the exact digits
+     */
+    private static double toBinary(long mantissa, int exponent, boolean negative, boolean truncated, boolean single) {
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        // A 19-digit mantissa may exceed Long.MAX_VALUE and read as negative
+        if (!truncated && mantissa > 0) {
+            if (single) {
+                if (mantissa <= MAX_EXACT_FLOAT && Math.abs(exponent) <= MAX_EXACT_FLOAT_POWER) {
+                    float value = exponent >= 0
+                        ? (float) mantissa * FLOAT_POWERS[exponent]
+                        : (float) mantissa / FLOAT_POWERS[-exponent];
+                    return negative ? -value : value;
+                }
+            } else if (mantissa <= MAX_EXACT_DOUBLE && Math.abs(exponent) <= MAX_EXACT_DOUBLE_POWER) {
+                double value = exponent >= 0
+                    ? (double) mantissa * DOUBLE_POWERS[exponent]
+                    : (double) mantissa / DOUBLE_POWERS[-exponent];
+                return negative ? -value : value;
+            }
+        }
+        if (exponent < MIN_EXPONENT) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (exponent > MAX_EXPONENT) {
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        double value = eiselLemire(mantissa, exponent, single);
+        if (truncated && !Double.isNaN(value)) {
+            // The exact value lies between mantissa and mantissa + 1; both must round alike
+            double upper = eiselLemire(mantissa + 1, exponent, single);
+            if (upper != value) {
+                return Double.NaN;
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * The Eisel-Lemire conversion of a nonzero mantissa * 10^exponent, as described in
+     * "Number Parsing at a Gigabyte per Second" (Lemire, 2021).
+     *
+     * @return The positive value, or NaN if it is too close to a halfway point or
+     *     outside the normal range to be decided from 128 bits of the power of ten
+     */
+    private static double eiselLemire(long mantissa, int exponent, boolean single) {
+        int mantissaBits = single ? 23 : 52;
+        int bias = single ? 127 : 1023;
+        int maxBiasedExponent = single ? 0xFF : 0x7FF;
+        // The low bits of the product below the result and its rounding bit
+        int shift = 63 - mantissaBits - 2;
+        long lowMask = (1L << shift) - 1;
+
+        int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+        mantissa <<= leadingZeros;
+        long binaryExponent = ((217706L * exponent) >> 16) + 64 + bias - leadingZeros;
+
+        int index = exponent - MIN_EXPONENT;
+        long high = unsignedMultiplyHigh(mantissa, POWER_HIGH[index]);
+        long low = mantissa * POWER_HIGH[index];
+        if ((high & lowMask) == lowMask && Long.compareUnsigned(low + mantissa, mantissa) < 0) {
+            // The truncated power may be off enough to carry; bring in its low 64 bits
+            long lowHigh = unsignedMultiplyHigh(mantissa, POWER_LOW[index]);
+            long lowLow = mantissa * POWER_LOW[index];
+            long mergedHigh = high;
+            long mergedLow = low + lowHigh;
+            if (Long.compareUnsigned(mergedLow, low) < 0) {
+                mergedHigh++;
+            }
+            if ((mergedHigh & lowMask) == lowMask && mergedLow + 1 == 0
+                    && Long.compareUnsigned(lowLow + mantissa, mantissa) < 0) {
+                return Double.NaN;
+            }
+            high = mergedHigh;
+            low = mergedLow;
+        }
+
+        int top = (int) (high >>> 63);
+        long result = high >>> (top + shift);
+        binaryExponent -= 1 ^ top;
+        if (low == 0 && (high & lowMask) == 0 && (result & 3) == 1) {
+            // Exactly halfway between two values as far as the truncated power tells
+            return Double.NaN;
+        }
+        result += result & 1;
+        result >>>= 1;
+        if ((result >>> (mantissaBits + 1)) != 0) {
+            result >>>= 1;
+            binaryExponent++;
+        }
+        if (binaryExponent <= 0 || binaryExponent >= maxBiasedExponent) {
+            // Subnormal or overflowing results are left to the JDK
+            return Double.NaN;
+        }
+        long fraction = result & ((1L << mantissaBits) - 1);
+        if (single) {
+            return Float.intBitsToFloat((int) (binaryExponent << mantissaBits | fraction));
+        }
+        return Double.longBitsToDouble(binaryExponent << mantissaBits | fraction);
+    }
+
+    private static long unsignedMultiplyHigh(long x, long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+}
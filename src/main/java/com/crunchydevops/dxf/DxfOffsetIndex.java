@@ -0,0 +1,451 @@
+package com.crunchydevops.dxf;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Byte offsets of the sections of a DXF file and of the runs of consecutive entities
+ * on the same layer within its ENTITIES section.
+ * A {@link DxfReader} given an index answers layer-filtered reads by seeking to the
+ * TABLES section and to the runs of the accepted layers, so a single-layer read costs
+ * in proportion to that layer instead of the file.
+ * <p>
+ * The index is built in one pass over the file and may be saved to a sidecar file next to it,
+ * named after the file with a {@value #SIDECAR_SUFFIX} suffix. A saved index is validated the
+ * same way as a {@link DxfParseCache} entry: it records the size, modification time and SHA-256
+ * content hash of the file, is trusted while the size and modification time match, and is
+ * still current after a modification time change if the content did not change.
+ */
+public final class DxfOffsetIndex {
+    private static final Logger logger = LoggerFactory.getLogger(DxfOffsetIndex.class);
+    public static final String SIDECAR_SUFFIX = ".dxfidx";
+    /**
+     * System property that makes {@link #load(Path)} save the sidecar when set to "true".
+     */
+    public static final String SAVE_PROPERTY = "dxf.index.save";
+    private static final int MAGIC = 0x49465844; // "DXFI" little-endian
+    private static final int VERSION = 2;
+    private static final int HASH_LENGTH = 32;
+    private static final int BUFFER_SIZE = 1 << 16;
+    // The smallest sidecar records: a section name length and three longs, a name length,
+    // and a layer number and three longs
+    private static final int SECTION_BYTES = 2 + 3 * 8;
+    private static final int LAYER_NAME_BYTES = 2;
+    private static final int RUN_BYTES = 4 + 3 * 8;
+    private static final String SECTION = "SECTION";
+    private static final String ENDSEC = "ENDSEC";
+    private static final String EOF = "EOF";
+    private static final String ENTITIES = "ENTITIES";
+    private static final String DEFAULT_LAYER = "0";
+
+    /**
+     * A section from its SECTION pair to just past its ENDSEC pair.
+     *
+     * @param name The section name, e.g. "ENTITIES"
+     * @param start The byte offset of the SECTION pair
+     * @param end The byte offset just past the ENDSEC pair, or the end of the file
+     * @param line The number of lines before the SECTION pair
+     */
+    public record Section(String name, long start, long end, long line) {}
+
+    /**
+     * Consecutive entities on one layer, from the type pair of the first entity to the
+     * type pair following the last one.
+     *
+     * @param layer The layer name as written in the file, inherited when an entity has none
+     * @param start The byte offset of the type pair of the first entity
+     * @param end The byte offset of the pair following the last entity
+     * @param line The number of lines before the first entity
+     */
+    public record Run(String layer, long start, long end, long line) {}
+
+    private final Path file;
+    private final long fileSize;
+    private volatile long modified;
+    private final byte[] hash; // null unless built to be saved or read from a sidecar
+    private final List<Section> sections;
+    private final List<Run> runs;
+
+    private DxfOffsetIndex(Path file, long fileSize, long modified, byte[] hash, List<Section> sections,
+                           List<Run> runs) {
+        this.file = file;
+        this.fileSize = fileSize;
+        this.modified = modified;
+        this.hash = hash;
+        this.sections = Collections.unmodifiableList(sections);
+        this.runs = Collections.unmodifiableList(runs);
+    }
+
+    /**
+     * Loads the sidecar index of the file, or builds the index in memory if the sidecar is
+     * missing or stale. The sidecar is only saved if the {@value #SAVE_PROPERTY} system
+     * property is "true".
+     *
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a structurally valid DXF file
+     */
+    public static DxfOffsetIndex load(Path file) throws IOException {
+        return load(file, Boolean.getBoolean(SAVE_PROPERTY));
+    }
+
+    /**
+     * Loads the sidecar index of the file, or builds the index if the sidecar is missing or stale.
+     * A sidecar that cannot be written is logged and the index is used from memory.
+     *
+     * @param save Whether to save a built index to the sidecar, and to refresh the modification
+     *     time recorded in a sidecar whose file was touched without changing
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a structurally valid DXF file
+     */
+    public static DxfOffsetIndex load(Path file, boolean save) throws IOException {
+        Path sidecar = sidecarOf(file);
+        DxfOffsetIndex index = read(file, sidecar);
+        if (index != null) {
+            long recorded = index.modified;
+            if (index.isCurrent()) {
+                logger.debug("Loaded offset index {}", sidecar);
+                if (save && index.modified != recorded) {
+                    index.trySave(sidecar);
+                }
+                return index;
+            }
+        }
+        if (!save) {
+            return build(file);
+        }
+        index = build(file, DxfParseCache.contentHash(file));
+        index.trySave(sidecar);
+        return index;
+    }
+
+    /**
+     * Loads the sidecar index of the file without building one, so that a caller can fall back
+     * to a single filtered scan when no index has been saved.
+     *
+     * @return The saved index, or empty if the sidecar is missing, unreadable or stale
+     */
+    public static Optional<DxfOffsetIndex> loadSaved(Path file) {
+        DxfOffsetIndex index = read(file, sidecarOf(file));
+        return index != null && index.isCurrent() ? Optional.of(index) : Optional.empty();
+    }
+
+    private void trySave(Path sidecar) {
+        try {
+            write(sidecar);
+        } catch (IOException e) {
+            logger.warn("Could not save offset index {}: {}", sidecar, e.getMessage());
+        }
+    }
+
+    /**
+     * @return The sidecar file holding the index of the given DXF file
+     */
+    public static Path sidecarOf(Path file) {
+        return file.resolveSibling(file.getFileName() + SIDECAR_SUFFIX);
+    }
+
+    /**
+     * Indexes the file in one pass without building any entity.
+     *
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a structurally valid DXF file
+     */
+    public static DxfOffsetIndex build(Path file) throws IOException {
+        return build(file, null);
+    }
+
+    /**
+     * @param hash The content hash of the file taken before indexing it, or null
+     */
+    private static DxfOffsetIndex build(Path file, byte[] hash) throws IOException {
+        long fileSize = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        List<Section> sections = new ArrayList<>();
+        List<Run> runs = new ArrayList<>();
+        try (DxfTokenizer tokenizer = new DxfTokenizer(file)) {
+            while (tokenizer.next()) {
+                if (tokenizer.code() != 0) {
+                    throw invalid(tokenizer);
+                }
+                if (tokenizer.valueEquals(EOF)) {
+                    break;
+                }
+                if (!tokenizer.valueEquals(SECTION)) {
+                    throw invalid(tokenizer);
+                }
+                long start = tokenizer.pairPosition();
+                long line = tokenizer.pairLine();
+                String name = "";
+                if (tokenizer.next()) {
+                    if (tokenizer.code() == 2) {
+                        name = tokenizer.value();
+                    } else {
+                        tokenizer.pushBack();
+                    }
+                }
+                if (ENTITIES.equals(name)) {
+                    indexEntities(tokenizer, runs);
+                } else {
+                    skipSection(tokenizer);
+                }
+                sections.add(new Section(name, start, tokenizer.position(), line));
+            }
+        }
+        logger.debug("Indexed {} sections and {} entity runs of {}", sections.size(), runs.size(), file);
+        return new DxfOffsetIndex(file, fileSize, modified, hash, sections, runs);
+    }
+
+    private static IllegalArgumentException invalid(DxfTokenizer tokenizer) {
+        return new IllegalArgumentException("Invalid DXF file: unexpected '%d/%s' at line %d, expected a SECTION"
+            .formatted(tokenizer.code(), tokenizer.value(), tokenizer.lineNumber()));
+    }
+
+    private static void skipSection(DxfTokenizer tokenizer) throws IOException {
+        while (tokenizer.next()) {
+            if (tokenizer.code() == 0 && tokenizer.valueEquals(ENDSEC)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Splits the entities into runs on the layer in effect for each entity, which is the
+     * last layer named by a group code 8, as {@link DxfReader} resolves it.
+     */
+    private static void indexEntities(DxfTokenizer tokenizer, List<Run> runs) throws IOException {
+        String layer = DEFAULT_LAYER;
+        byte[] layerBytes = DEFAULT_LAYER.getBytes(StandardCharsets.UTF_8);
+        String runLayer = null;
+        long runStart = -1;
+        long runLine = 0;
+        long entityStart = -1;
+        long entityLine = 0;
+        long end = -1;
+        while (tokenizer.next()) {
+            int code = tokenizer.code();
+            if (code == 8 && !tokenizer.valueEquals(layerBytes)) {
+                layer = tokenizer.value();
+                layerBytes = layer.getBytes(StandardCharsets.UTF_8);
+            }
+            if (code != 0) {
+                continue;
+            }
+            // The entity ending here now has its layer; a change of layer ends the run before it
+            if (entityStart >= 0 && !layer.equals(runLayer)) {
+                if (runLayer != null) {
+                    runs.add(new Run(runLayer, runStart, entityStart, runLine));
+                }
+                runLayer = layer;
+                runStart = entityStart;
+                runLine = entityLine;
+            }
+            if (tokenizer.valueEquals(ENDSEC)) {
+                end = tokenizer.pairPosition();
+                entityStart = -1;
+                break;
+            }
+            entityStart = tokenizer.pairPosition();
+            entityLine = tokenizer.pairLine();
+        }
+        if (end < 0) {
+            // The section is cut short by the end of the file
+            end = tokenizer.position();
+            if (entityStart >= 0 && !layer.equals(runLayer)) {
+                if (runLayer != null) {
+                    runs.add(new Run(runLayer, runStart, entityStart, runLine));
+                }
+                runLayer = layer;
+                runStart = entityStart;
+                runLine = entityLine;
+            }
+        }
+        if (runLayer != null) {
+            runs.add(new Run(runLayer, runStart, end, runLine));
+        }
+    }
+
+    /**
+     * @return The indexed DXF file
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Checks that the file has not changed since it was indexed.
+     * A file with the recorded size and modification time is trusted without being read;
+     * one whose modification time changed is hashed and compared with the recorded hash,
+     * and adopts the new modification time if the content is unchanged.
+     * An index built by {@link #build} records no hash, so any change of the modification
+     * time makes it stale.
+     *
+     * @return true if the index still describes the file
+     */
+    public boolean isCurrent() {
+        try {
+            if (Files.size(file) != fileSize) {
+                return false;
+            }
+            long current = Files.getLastModifiedTime(file).toMillis();
+            if (current == modified) {
+                return true;
+            }
+            if (hash == null || !Arrays.equals(hash, DxfParseCache.contentHash(file))) {
+                return false;
+            }
+            // Later checks trust the new modification time without hashing again
+            modified = current;
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return The sections in file order
+     */
+    public List<Section> sections() {
+        return sections;
+    }
+
+    /**
+     * @return The entity runs of every layer in file order
+     */
+    public List<Run> runs() {
+        return runs;
+    }
+
+    /**
+     * @return The entity runs of the given layer, as written in the file, in file order
+     */
+    public List<Run> runs(String layer) {
+        return runs.stream().filter(run -> run.layer().equals(layer)).toList();
+    }
+
+    /**
+     * @return The names of the layers holding entities, in order of first appearance
+     */
+    public Set<String> layers() {
+        Set<String> layers = new LinkedHashSet<>();
+        runs.forEach(run -> layers.add(run.layer()));
+        return Collections.unmodifiableSet(layers);
+    }
+
+    /**
+     * Saves the index, which must hold a content hash, to the given file, replacing it atomically.
+     */
+    private void write(Path sidecar) throws IOException {
+        Path temporary = Files.createTempFile(sidecar.toAbsolutePath().getParent(), sidecar.getFileName().toString(),
+            ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(fileSize);
+                out.writeLong(modified);
+                out.write(hash);
+                out.writeInt(sections.size());
+                for (Section section : sections) {
+                    out.writeUTF(section.name());
+                    out.writeLong(section.start());
+                    out.writeLong(section.end());
+                    out.writeLong(section.line());
+                }
+                // Layer names are written once and referenced by number
+                Map<String, Integer> layerNumbers = new HashMap<>();
+                for (Run run : runs) {
+                    layerNumbers.putIfAbsent(run.layer(), layerNumbers.size());
+                }
+                String[] layerNames = new String[layerNumbers.size()];
+                layerNumbers.forEach((name, number) -> layerNames[number] = name);
+                out.writeInt(layerNames.length);
+                for (String name : layerNames) {
+                    out.writeUTF(name);
+                }
+                out.writeInt(runs.size());
+                for (Run run : runs) {
+                    out.writeInt(layerNumbers.get(run.layer()));
+                    out.writeLong(run.start());
+                    out.writeLong(run.end());
+                    out.writeLong(run.line());
+                }
+            }
+            Files.move(temporary, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Saved offset index {}", sidecar);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * @return The index saved in the sidecar, or null if there is none or it is unreadable
+     */
+    private static DxfOffsetIndex read(Path file, Path sidecar) {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(sidecar), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long fileSize = in.readLong();
+            long modified = in.readLong();
+            byte[] hash = new byte[HASH_LENGTH];
+            in.readFully(hash);
+            // Counts are checked against the sidecar size before anything is allocated for them
+            long length = Files.size(sidecar);
+            int sectionCount = readCount(in, SECTION_BYTES, length, sidecar);
+            List<Section> sections = new ArrayList<>(sectionCount);
+            for (int i = 0; i < sectionCount; i++) {
+                sections.add(new Section(in.readUTF(), in.readLong(), in.readLong(), in.readLong()));
+            }
+            String[] layerNames = new String[readCount(in, LAYER_NAME_BYTES, length, sidecar)];
+            for (int i = 0; i < layerNames.length; i++) {
+                layerNames[i] = in.readUTF();
+            }
+            int runCount = readCount(in, RUN_BYTES, length, sidecar);
+            List<Run> runs = new ArrayList<>(runCount);
+            for (int i = 0; i < runCount; i++) {
+                runs.add(new Run(layerNames[in.readInt()], in.readLong(), in.readLong(), in.readLong()));
+            }
+            return new DxfOffsetIndex(file, fileSize, modified, hash, sections, runs);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable offset index {}: {}", sidecar, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the number of records that follow, each taking at least {@code minBytes} bytes of the sidecar.
+     *
+     * @throws IOException if the count is negative or more records than the sidecar can hold
+     */
+    private static int readCount(DataInputStream in, int minBytes, long length, Path sidecar) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || (long) count * minBytes > length) {
+            throw new IOException("Invalid record count %d in %s".formatted(count, sidecar));
+        }
+        return count;
+    }
+}
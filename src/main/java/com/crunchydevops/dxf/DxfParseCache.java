@@ -0,0 +1,629 @@
+package com.crunchydevops.dxf;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * On-disk cache of parsed DXF files shared by {@link DxfReader}s.
+ * An entry records every layer definition and entity of a file in a compact binary form,
+ * so a cached file is replayed to a visitor without tokenizing it; filters are applied
+ * during the replay, so one entry serves every filter.
+ * <p>
+ * Entries are keyed by the absolute path of the file and validated against its size,
+ * modification time and SHA-256 content hash. A file whose size and modification time
+ * match is trusted without being read; one whose modification time changed is hashed and
+ * still hits if its content did not. The cache directory is bounded in bytes: each hit
+ * touches its entry and the least recently used entries are evicted when a new one is added.
+ * Several readers and processes may share a directory, since entries are replaced atomically.
+ */
+public final class DxfParseCache {
+    private static final Logger logger = LoggerFactory.getLogger(DxfParseCache.class);
+    /**
+     * System property naming the cache directory used by {@link #configured()}.
+     */
+    public static final String DIRECTORY_PROPERTY = "dxf.cache.dir";
+    /**
+     * System property overriding the size bound used by {@link #configured()}.
+     */
+    public static final String MAX_BYTES_PROPERTY = "dxf.cache.maxBytes";
+    public static final long DEFAULT_MAX_BYTES = 1L << 30;
+    private static final String SUFFIX = ".dxfc";
+    private static final int MAGIC = 0x43465844; // "DXFC" little-endian
+    private static final int VERSION = 1;
+    private static final int HASH_LENGTH = 32;
+    // magic, version, source size, source mtime, payload length, content hash
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + HASH_LENGTH;
+    private static final int MTIME_OFFSET = 16;
+    private static final int PAYLOAD_OFFSET = 24;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int HASH_BUFFER_SIZE = 1 << 20;
+    private static final byte END = 0;
+    private static final byte LAYER_DEFINITION = 1;
+    private static final byte ENTITY = 2;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a cache bounded to {@value #DEFAULT_MAX_BYTES} bytes.
+     *
+     * @throws IOException if the directory cannot be created
+     */
+    public DxfParseCache(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a cache storing its entries in the given directory, creating it if needed.
+     *
+     * @param directory The cache directory
+     * @param maxBytes The total size the entries are evicted down to
+     * @throws IllegalArgumentException if maxBytes is not positive
+     * @throws IOException if the directory cannot be created
+     */
+    public DxfParseCache(Path directory, long maxBytes) throws IOException {
+        Objects.requireNonNull(directory, "Cache directory cannot be null");
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxBytes);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Creates the cache configured by the {@value #DIRECTORY_PROPERTY} and
+     * {@value #MAX_BYTES_PROPERTY} system properties.
+     *
+     * @return The cache, or empty if no directory is configured or it cannot be created
+     */
+    public static Optional<DxfParseCache> configured() {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory == null || directory.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new DxfParseCache(Path.of(directory),
+                Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES)));
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("DXF parse cache disabled: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return The cache directory
+     */
+    public Path directory() {
+        return directory;
+    }
+
+    /**
+     * @return The total size the entries are evicted down to
+     */
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return The number of reads served from the cache
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of reads that had to parse the file
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Identifies a DXF file as it is now; the content hash is only computed when needed.
+     */
+    final class Key {
+        private final Path source;
+        private final Path entry;
+        private final long size;
+        private final long modified;
+        private byte[] hash;
+
+        private Key(Path source) throws IOException {
+            this.source = source;
+            Path absolute = source.toAbsolutePath().normalize();
+            this.entry = directory.resolve(HexFormat.of().formatHex(
+                sha256().digest(absolute.toString().getBytes(StandardCharsets.UTF_8))) + SUFFIX);
+            this.size = Files.size(source);
+            this.modified = Files.getLastModifiedTime(source).toMillis();
+        }
+
+        private byte[] hash() throws IOException {
+            if (hash == null) {
+                hash = contentHash(source);
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * Hashes a file the way cache entries and saved offset indexes identify their source.
+     *
+     * @return The SHA-256 hash of the content of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static byte[] contentHash(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * @return The key of the file in its current state
+     */
+    Key key(Path source) throws IOException {
+        return new Key(source);
+    }
+
+    /**
+     * Replays the cached parse of the file to the visitor if the entry is still valid.
+     *
+     * @return true if the visitor was served from the cache, false if the file must be parsed
+     * @throws CorruptEntryException if the entry turned out to be corrupt during the replay;
+     *     it is deleted and the file must be parsed, skipping the events already delivered
+     */
+    boolean replay(Key key, DxfVisitor visitor, DxfFilter filter) throws IOException {
+        if (!isValid(key)) {
+            misses.incrementAndGet();
+            return false;
+        }
+        CountingVisitor counting = new CountingVisitor(visitor);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(key.entry), BUFFER_SIZE))) {
+            long entryLength = Files.size(key.entry);
+            in.skipNBytes(HEADER_SIZE);
+            Names names = new Names();
+            for (byte tag = in.readByte(); tag != END; tag = in.readByte()) {
+                if (tag == LAYER_DEFINITION) {
+                    readLayerDefinition(in, counting, filter);
+                } else if (tag == ENTITY) {
+                    readEntity(in, entryLength, names, counting, filter);
+                } else {
+                    throw new IOException("Unknown record " + tag);
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(key.entry);
+            misses.incrementAndGet();
+            throw new CorruptEntryException(key.entry, counting.delivered, e);
+        }
+        touch(key.entry);
+        hits.incrementAndGet();
+        logger.debug("Read {} from parse cache entry {}", key.source, key.entry);
+        return true;
+    }
+
+    private static void readLayerDefinition(DataInputStream in, DxfVisitor visitor, DxfFilter filter)
+            throws IOException {
+        String name = in.readUTF();
+        int color = in.readInt();
+        String lineType = in.readUTF();
+        boolean visible = in.readBoolean();
+        if (filter.acceptsLayer(name)) {
+            visitor.onLayerDefinition(name, new DxfLayer(name, color, lineType, visible, List.of()));
+        }
+    }
+
+    private static void readEntity(DataInputStream in, long entryLength, Names names, DxfVisitor visitor,
+                                   DxfFilter filter) throws IOException {
+        int layer = names.read(in);
+        int type = names.read(in);
+        int size = in.readInt();
+        int valuesLength = in.readInt();
+        if (size < 0 || valuesLength < 0 || 6L * size + valuesLength > entryLength) {
+            throw new IOException("Invalid entity of %d pairs and %d value bytes".formatted(size, valuesLength));
+        }
+        if (!names.acceptsLayer(layer, filter) || !names.acceptsEntityType(type, filter)) {
+            in.skipNBytes(6L * size + valuesLength);
+            return;
+        }
+        int[] codes = new int[size];
+        int[] valueEnds = new int[size];
+        for (int i = 0; i < size; i++) {
+            codes[i] = in.readShort();
+        }
+        for (int i = 0; i < size; i++) {
+            valueEnds[i] = in.readInt();
+        }
+        byte[] values = new byte[valuesLength];
+        in.readFully(values);
+        DxfEntity entity;
+        try {
+            entity = DxfEntity.restore(names.get(type), codes, valueEnds, new String(values, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        visitor.onEntity(names.get(layer), entity);
+    }
+
+    /**
+     * Thrown when an entry turns out to be corrupt after part of it may have been replayed.
+     */
+    static final class CorruptEntryException extends IOException {
+        private static final long serialVersionUID = 1L;
+        private final long delivered;
+
+        private CorruptEntryException(Path entry, long delivered, IOException cause) {
+            super("Corrupt DXF parse cache entry: " + entry, cause);
+            this.delivered = delivered;
+        }
+
+        /**
+         * @return The number of events the visitor received before the corruption was found
+         */
+        long delivered() {
+            return delivered;
+        }
+    }
+
+    /**
+     * Forwards events to a visitor and counts them.
+     */
+    private static final class CountingVisitor implements DxfVisitor {
+        private final DxfVisitor visitor;
+        private long delivered;
+
+        CountingVisitor(DxfVisitor visitor) {
+            this.visitor = visitor;
+        }
+
+        @Override
+        public void onLayerDefinition(String name, DxfLayer layer) {
+            visitor.onLayerDefinition(name, layer);
+            delivered++;
+        }
+
+        @Override
+        public void onEntity(String layerName, DxfEntity entity) {
+            visitor.onEntity(layerName, entity);
+            delivered++;
+        }
+    }
+
+    /**
+     * Layer names and entity types of an entry, each written in full on first use and
+     * referenced by number afterwards, with the filter decisions remembered per name.
+     */
+    private static final class Names {
+        private static final byte UNKNOWN = 0;
+        private static final byte ACCEPTED = 1;
+        private static final byte REJECTED = 2;
+
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> numbers = new HashMap<>();
+        private byte[] layerDecisions = new byte[16];
+        private byte[] typeDecisions = new byte[16];
+
+        void write(DataOutputStream out, String name) throws IOException {
+            Integer number = numbers.get(name);
+            if (number != null) {
+                out.writeInt(number);
+                return;
+            }
+            out.writeInt(names.size());
+            out.writeUTF(name);
+            numbers.put(name, names.size());
+            names.add(name);
+        }
+
+        int read(DataInputStream in) throws IOException {
+            int number = in.readInt();
+            if (number == names.size()) {
+                names.add(in.readUTF());
+            } else if (number < 0 || number > names.size()) {
+                throw new IOException("Invalid name reference " + number);
+            }
+            return number;
+        }
+
+        String get(int number) {
+            return names.get(number);
+        }
+
+        boolean acceptsLayer(int number, DxfFilter filter) {
+            layerDecisions = decide(layerDecisions, number, () -> filter.acceptsLayer(names.get(number)));
+            return layerDecisions[number] == ACCEPTED;
+        }
+
+        boolean acceptsEntityType(int number, DxfFilter filter) {
+            typeDecisions = decide(typeDecisions, number, () -> filter.acceptsEntityType(names.get(number)));
+            return typeDecisions[number] == ACCEPTED;
+        }
+
+        private static byte[] decide(byte[] decisions, int number, BooleanSupplier accepts) {
+            if (number >= decisions.length) {
+                decisions = Arrays.copyOf(decisions, Math.max(number + 1, decisions.length * 2));
+            }
+            if (decisions[number] == UNKNOWN) {
+                decisions[number] = accepts.getAsBoolean() ? ACCEPTED : REJECTED;
+            }
+            return decisions;
+        }
+    }
+
+    /**
+     * Checks the entry header against the file, refreshing the recorded modification time
+     * of an entry whose file was touched without changing.
+     */
+    private boolean isValid(Key key) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        long entryLength;
+        try (FileChannel channel = FileChannel.open(key.entry, StandardOpenOption.READ)) {
+            entryLength = channel.size();
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until the header is complete or the file ends
+            }
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION
+                || header.getLong() != key.size) {
+            return false;
+        }
+        long modified = header.getLong();
+        if (entryLength != HEADER_SIZE + header.getLong()) {
+            return false;
+        }
+        if (modified == key.modified) {
+            return true;
+        }
+        byte[] hash = new byte[HASH_LENGTH];
+        header.get(hash);
+        if (!Arrays.equals(hash, key.hash())) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(key.entry, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putLong(0, key.modified), MTIME_OFFSET);
+        }
+        return true;
+    }
+
+    private static void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            logger.debug("Could not touch parse cache entry {}: {}", entry, e.getMessage());
+        }
+    }
+
+    /**
+     * Creates a visitor that records every event of a full parse of the file into a new entry
+     * and forwards the events accepted by the filter to the given visitor.
+     * The entry is only stored by {@link Recorder#commit()}.
+     */
+    Recorder recorder(Key key, DxfVisitor visitor, DxfFilter filter) throws IOException {
+        return recorder(key, visitor, filter, 0);
+    }
+
+    /**
+     * Creates a recorder that does not forward the first {@code skip} accepted events,
+     * which a replay interrupted by a corrupt entry has already delivered.
+     */
+    Recorder recorder(Key key, DxfVisitor visitor, DxfFilter filter, long skip) throws IOException {
+        return new Recorder(key, visitor, filter, skip);
+    }
+
+    /**
+     * Writes the events of a parse into a temporary file which replaces the entry on commit.
+     * A write failure only disables recording; the events keep reaching the visitor.
+     */
+    final class Recorder implements DxfVisitor, Closeable {
+        private final Key key;
+        private final DxfVisitor visitor;
+        private final DxfFilter filter;
+        private final Path temporary;
+        private final Names names = new Names();
+        private DataOutputStream out;
+        private long skip;
+
+        private Recorder(Key key, DxfVisitor visitor, DxfFilter filter, long skip) throws IOException {
+            this.key = key;
+            this.visitor = visitor;
+            this.filter = filter;
+            this.skip = skip;
+            byte[] hash = key.hash();
+            this.temporary = Files.createTempFile(directory, "entry", ".tmp");
+            try {
+                this.out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE));
+                // The payload length is filled in on commit
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(key.size);
+                out.writeLong(key.modified);
+                out.writeLong(0);
+                out.write(hash);
+            } catch (IOException e) {
+                close();
+                Files.deleteIfExists(temporary);
+                throw e;
+            }
+        }
+
+        @Override
+        public void onLayerDefinition(String name, DxfLayer layer) {
+            if (out != null) {
+                try {
+                    out.writeByte(LAYER_DEFINITION);
+                    out.writeUTF(name);
+                    out.writeInt(layer.colorNumber());
+                    out.writeUTF(layer.lineType());
+                    out.writeBoolean(layer.isVisible());
+                } catch (IOException e) {
+                    abandon(e);
+                }
+            }
+            if (filter.acceptsLayer(name) && !skipped()) {
+                visitor.onLayerDefinition(name, layer);
+            }
+        }
+
+        @Override
+        public void onEntity(String layerName, DxfEntity entity) {
+            if (out != null) {
+                try {
+                    byte[] values = entity.values().getBytes(StandardCharsets.UTF_8);
+                    out.writeByte(ENTITY);
+                    names.write(out, layerName);
+                    names.write(out, entity.type());
+                    out.writeInt(entity.size());
+                    out.writeInt(values.length);
+                    for (int i = 0; i < entity.size(); i++) {
+                        out.writeShort(entity.codeAt(i));
+                    }
+                    for (int i = 0; i < entity.size(); i++) {
+                        out.writeInt(entity.valueEnd(i));
+                    }
+                    out.write(values);
+                } catch (IOException e) {
+                    abandon(e);
+                }
+            }
+            if (filter.acceptsLayer(layerName) && filter.acceptsEntityType(entity.type()) && !skipped()) {
+                visitor.onEntity(layerName, entity);
+            }
+        }
+
+        /**
+         * @return true if the accepted event was delivered already and must not be forwarded
+         */
+        private boolean skipped() {
+            if (skip == 0) {
+                return false;
+            }
+            skip--;
+            return true;
+        }
+
+        private void abandon(IOException e) {
+            logger.warn("Not caching {}: {}", key.source, e.getMessage());
+            close();
+        }
+
+        /**
+         * Stores the recorded entry and evicts the least recently used entries beyond the size bound.
+         */
+        void commit() throws IOException {
+            if (out == null) {
+                return;
+            }
+            out.writeByte(END);
+            out.close();
+            out = null;
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                long payload = channel.size() - HEADER_SIZE;
+                channel.write(ByteBuffer.allocate(8).putLong(0, payload), PAYLOAD_OFFSET);
+            }
+            Files.move(temporary, key.entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Stored parse of {} in cache entry {}", key.source, key.entry);
+            evict();
+        }
+
+        /**
+         * Discards an uncommitted entry.
+         */
+        @Override
+        public void close() {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.close();
+            } catch (IOException e) {
+                logger.debug("Could not close parse cache entry {}: {}", temporary, e.getMessage());
+            }
+            out = null;
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException e) {
+                logger.debug("Could not delete parse cache entry {}: {}", temporary, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the directory fits the size bound.
+     */
+    private void evict() throws IOException {
+        record Entry(Path path, long size, FileTime used) {}
+        List<Entry> entries = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path path : stream) {
+                try {
+                    Entry entry = new Entry(path, Files.size(path), Files.getLastModifiedTime(path));
+                    entries.add(entry);
+                    total += entry.size();
+                } catch (IOException e) {
+                    // Removed concurrently by another reader
+                }
+            }
+        }
+        entries.sort(Comparator.comparing(Entry::used));
+        for (Entry entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            Files.deleteIfExists(entry.path());
+            total -= entry.size();
+            logger.debug("Evicted parse cache entry {}", entry.path());
+        }
+    }
+}
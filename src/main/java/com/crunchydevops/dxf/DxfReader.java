@@ -4,41 +4,101 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 /**
  * A modern Java 17 DXF file reader that extracts layer information.
+ * The file is memory-mapped and scanned by a {@link DxfTokenizer}, so files of any
+ * size can be read without loading them onto the heap, and keywords are matched
+ * against the raw bytes without creating strings.
+ * In parallel mode the ENTITIES section is split into byte ranges which are parsed
+ * concurrently on worker threads owned by the read and handed over in file order.
+ * With a {@link DxfParseCache} a file that was parsed before is replayed from the cache
+ * instead of being parsed again. With a {@link DxfOffsetIndex} reads restricted to some
+ * layers seek to the entities of those layers instead of scanning the whole file.
  * Implements security best practices for file handling and input validation.
  */
 public class DxfReader {
     private static final Logger logger = LoggerFactory.getLogger(DxfReader.class);
-    private static final int MAX_FILE_SIZE = 50 * 1024 * 1024; // 50MB limit
     private static final SecureRandom secureRandom = new SecureRandom();
 
     // DXF keywords as constants
     private static final String SECTION = "SECTION";
     private static final String ENDSEC = "ENDSEC";
+    private static final String EOF = "EOF";
     private static final String TABLES = "TABLES";
     private static final String ENTITIES = "ENTITIES";
+    private static final String BLOCKS = "BLOCKS";
+    private static final String OBJECTS = "OBJECTS";
     private static final String TABLE = "TABLE";
     private static final String ENDTAB = "ENDTAB";
     private static final String LAYER = "LAYER";
     private static final String TEXT = "TEXT";
-    private static final String GROUP_CODE_0 = "0";
-    private static final String GROUP_CODE_2 = "2";
-    private static final String GROUP_CODE_8 = "8";
-    private static final String GROUP_CODE_62 = "62";
-    private static final String GROUP_CODE_6 = "6";
-
-    private final List<String> lines;
-    private int currentLine = 0;
-    private final Map<String, DxfLayer> layers = new HashMap<>();
+    private static final int GROUP_CODE_0 = 0;
+    private static final int GROUP_CODE_2 = 2;
+    private static final int GROUP_CODE_8 = 8;
+    private static final int GROUP_CODE_62 = 62;
+    private static final int GROUP_CODE_6 = 6;
+    private static final String DEFAULT_LAYER = "0";
+    private static final int DEFAULT_CHUNK_SIZE = 1024 * 1024; // 1MB of entity records per task
+    // Bytes mapped before a chunk so that the line holding its start is found; longer than any line
+    private static final int RESYNC_MARGIN = 64 * 1024;
+    // Bytes mapped past a chunk for the entity running over its end; longer entities are remapped
+    private static final int CHUNK_SLACK = 1 << 20;
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ThreadFactory ENTITY_THREADS = task -> {
+        Thread thread = new Thread(task, "dxf-entities-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    private final Path filePath;
+    private final boolean parallel;
+    private final DxfParseCache cache;
+    private DxfOffsetIndex offsetIndex;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private DxfTokenizer tokenizer;
+    private DxfVisitor visitor;
+    private DxfFilter filter;
+    private final Map<String, DxfLayer.Builder> layers = new HashMap<>();
     
+    /**
+     * Creates a sequential reader for the given file.
+     */
     public DxfReader(Path filePath) throws IOException {
+        this(filePath, false);
+    }
+
+    /**
+     * Creates a reader for the given file.
+     *
+     * @param filePath The DXF file to read
+     * @param parallel true to parse the ENTITIES section on worker threads
+     */
+    public DxfReader(Path filePath, boolean parallel) throws IOException {
+        this(filePath, parallel, null);
+    }
+
+    /**
+     * Creates a reader for the given file which reuses and fills the given parse cache.
+     *
+     * @param filePath The DXF file to read
+     * @param parallel true to parse the ENTITIES section on worker threads
+     * @param cache The parse cache, or null to always parse the file
+     */
+    public DxfReader(Path filePath, boolean parallel, DxfParseCache cache) throws IOException {
         if (!Files.exists(filePath)) {
             logger.error("File does not exist: {}", filePath);
             throw new IOException("File does not exist: " + filePath);
@@ -47,100 +107,342 @@ public class DxfReader {
             logger.error("Not a regular file: {}", filePath);
             throw new IOException("Not a regular file: " + filePath);
         }
-        if (Files.size(filePath) > MAX_FILE_SIZE) {
-            logger.error("File too large ({}MB), max size is {}MB", 
-                Files.size(filePath) / (1024 * 1024), MAX_FILE_SIZE / (1024 * 1024));
-            throw new IOException("File too large");
+        if (Files.size(filePath) == 0) {
+            throw new IOException("Empty DXF file");
         }
 
-        logger.info("Reading DXF file: {}", filePath);
-        this.lines = Files.readAllLines(filePath, StandardCharsets.UTF_8);
-        logger.debug("Read {} lines from file", lines.size());
-        
-        // Validate file content
-        validateFileContent();
+        logger.info("Opening DXF file: {}", filePath);
+        this.filePath = filePath;
+        this.parallel = parallel;
+        this.cache = cache;
     }
 
-    private void validateFileContent() throws IOException {
-        if (lines.isEmpty()) {
-            throw new IOException("Empty DXF file");
-        }
+    /**
+     * @return true if the ENTITIES section is parsed in parallel
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
 
-        // Basic DXF structure validation
-        boolean hasSection = false;
-        for (String line : lines) {
-            if (line != null && line.trim().equals(SECTION)) {
-                hasSection = true;
-                break;
-            }
+    /**
+     * Sets the number of bytes of the ENTITIES section handed to each parallel task.
+     */
+    void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
         }
-        if (!hasSection) {
-            throw new IOException("Invalid DXF file: no SECTION found");
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the offset index used to answer reads restricted to some layers.
+     * Such reads take precedence over the parse cache; a stale index is ignored.
+     *
+     * @param offsetIndex The index of this reader's file, or null to scan the file
+     * @throws IllegalArgumentException if the index belongs to another file
+     */
+    public void setOffsetIndex(DxfOffsetIndex offsetIndex) {
+        if (offsetIndex != null && !offsetIndex.file().toAbsolutePath().normalize()
+                .equals(filePath.toAbsolutePath().normalize())) {
+            throw new IllegalArgumentException("Offset index belongs to " + offsetIndex.file());
         }
+        this.offsetIndex = offsetIndex;
     }
 
     /**
      * Reads and processes the entire DXF file with input validation.
+     *
+     * @throws IllegalArgumentException if the file is not a structurally valid DXF file
      */
     public Map<String, DxfLayer> readLayers() {
         logger.info("Starting to process DXF file");
-        try {
-            while (currentLine < lines.size()) {
-                String groupCode = getValidatedLine();
-                String value = currentLine < lines.size() ? getValidatedLine() : "";
-                
-                if (GROUP_CODE_0.equals(groupCode) && SECTION.equals(value)) {
-                    processSection();
-                }
+        layers.clear();
+        DxfVisitor collector = new DxfVisitor() {
+            @Override
+            public void onLayerDefinition(String name, DxfLayer layer) {
+                layers.computeIfAbsent(name, DxfLayer::builder).properties(layer);
             }
-        } catch (Exception e) {
+
+            @Override
+            public void onEntity(String layerName, DxfEntity entity) {
+                addEntityToLayer(layerName, entity);
+            }
+        };
+        try {
+            accept(collector, DxfFilter.all());
+        } catch (IOException e) {
             logger.error("Error processing DXF file: {}", e.getMessage());
             return new HashMap<>(); // Return empty map instead of null
         }
         
         logger.info("Finished processing DXF file. Found {} layers", layers.size());
-        return Collections.unmodifiableMap(new HashMap<>(layers)); // Return immutable copy
+        Map<String, DxfLayer> result = new HashMap<>();
+        layers.forEach((name, builder) -> result.put(name, builder.build()));
+        layers.clear();
+        return Collections.unmodifiableMap(result); // Return immutable copy
     }
 
-    private String getValidatedLine() {
-        String line = lines.get(currentLine++).trim();
-        // Prevent null values and ensure reasonable line length
-        if (line == null || line.length() > 1000) {
-            logger.warn("Invalid line at position {}, using empty string", currentLine - 1);
-            return "";
+    /**
+     * Reads the layer definitions of the LAYER table without entities, keyed by their name
+     * as written in the file. Reading stops at the end of the TABLES section, or at the
+     * first BLOCKS, ENTITIES or OBJECTS section if the file has no TABLES section before it,
+     * so the cost does not depend on the size of the drawing.
+     *
+     * @throws IllegalArgumentException if the file is not a structurally valid DXF file
+     */
+    public Map<String, DxfLayer> readLayerTable() throws IOException {
+        Map<String, DxfLayer> result = new HashMap<>();
+        DxfVisitor collector = new DxfVisitor() {
+            @Override
+            public void onLayerDefinition(String name, DxfLayer layer) {
+                result.put(name, layer);
+            }
+        };
+        try (DxfTokenizer dxfTokenizer = new DxfTokenizer(filePath)) {
+            this.tokenizer = dxfTokenizer;
+            this.visitor = collector;
+            this.filter = DxfFilter.all();
+            if (offsetIndex != null && offsetIndex.isCurrent()) {
+                for (DxfOffsetIndex.Section section : offsetIndex.sections()) {
+                    if (TABLES.equals(section.name())) {
+                        dxfTokenizer.seek(section.start(), section.line());
+                        dxfTokenizer.next();
+                        processSection();
+                    }
+                }
+            } else {
+                readTablesSection();
+            }
+        } finally {
+            this.tokenizer = null;
+            this.visitor = null;
+            this.filter = null;
         }
-        return line;
+        logger.debug("Read {} layer definitions", result.size());
+        return Collections.unmodifiableMap(result);
     }
-    
+
     /**
-     * Reads and processes the entire DXF file.
+     * Processes the first TABLES section, skipping the sections before it.
      */
-    public Map<String, DxfLayer> readLayersOld() {
-        logger.info("Starting to process DXF file");
-        while (currentLine < lines.size()) {
-            String groupCode = lines.get(currentLine++).trim();
-            String value = currentLine < lines.size() ? lines.get(currentLine++).trim() : "";
-            
-            if (GROUP_CODE_0.equals(groupCode) && SECTION.equals(value)) {
-                processSection();
+    private void readTablesSection() throws IOException {
+        while (tokenizer.next()) {
+            if (tokenizer.code() == GROUP_CODE_0 && tokenizer.valueEquals(SECTION)) {
+                switch (readSectionType()) {
+                    case TABLES -> {
+                        processTables();
+                        return;
+                    }
+                    // The TABLES section precedes these in a well-formed file
+                    case BLOCKS, ENTITIES, OBJECTS -> {
+                        return;
+                    }
+                    default -> skipSection();
+                }
+            } else if (tokenizer.code() == GROUP_CODE_0 && tokenizer.valueEquals(EOF)) {
+                return;
+            } else {
+                throw new IllegalArgumentException(
+                    "Invalid DXF file: unexpected '%d/%s' at line %d, expected a SECTION"
+                        .formatted(tokenizer.code(), tokenizer.value(), tokenizer.lineNumber()));
             }
         }
-        logger.info("Finished processing DXF file. Found {} layers", layers.size());
-        return layers;
     }
-    
-    private void processSection() {
-        // Read section type
-        String sectionType = "";
-        if (currentLine + 1 < lines.size() && GROUP_CODE_2.equals(lines.get(currentLine))) {
-            sectionType = lines.get(currentLine + 1).trim();
-            currentLine += 2;
+
+    /**
+     * Counts the entities of each layer in one streaming pass over the ENTITIES section.
+     * No entity is built and a layer name is only decoded when it changes.
+     *
+     * @return The entity count of each layer, keyed by the name as written in the file, in order of first use
+     * @throws IllegalArgumentException if the file is not a structurally valid DXF file
+     */
+    public Map<String, Long> countEntitiesByLayer() throws IOException {
+        Map<String, long[]> counts = new LinkedHashMap<>();
+        try (DxfTokenizer dxfTokenizer = new DxfTokenizer(filePath)) {
+            this.tokenizer = dxfTokenizer;
+            readSections(() -> {
+                if (ENTITIES.equals(readSectionType())) {
+                    countEntities(dxfTokenizer, counts);
+                } else {
+                    skipSection();
+                }
+            });
+        } finally {
+            this.tokenizer = null;
         }
-        
+        Map<String, Long> result = new LinkedHashMap<>();
+        counts.forEach((layer, count) -> result.put(layer, count[0]));
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static void countEntities(DxfTokenizer tokenizer, Map<String, long[]> counts) throws IOException {
+        String layer = DEFAULT_LAYER;
+        byte[] layerBytes = DEFAULT_LAYER.getBytes(StandardCharsets.UTF_8);
+        long[] count = null; // Counter of the current layer, looked up again when the layer changes
+        boolean inEntity = false;
+        while (tokenizer.next()) {
+            int groupCode = tokenizer.code();
+            if (groupCode == GROUP_CODE_8 && !tokenizer.valueEquals(layerBytes)) {
+                layer = tokenizer.value();
+                layerBytes = layer.getBytes(StandardCharsets.UTF_8);
+                count = null;
+            } else if (groupCode == GROUP_CODE_0) {
+                // The entity ending here is counted on the layer in effect at its end
+                if (inEntity) {
+                    if (count == null) {
+                        count = counts.computeIfAbsent(layer, name -> new long[1]);
+                    }
+                    count[0]++;
+                }
+                if (tokenizer.valueEquals(ENDSEC)) {
+                    return;
+                }
+                inEntity = true;
+            }
+        }
+        if (inEntity) {
+            counts.computeIfAbsent(layer, name -> new long[1])[0]++;
+        }
+    }
+
+    /**
+     * Streams every layer definition and entity of the file to the visitor.
+     *
+     * @throws IllegalArgumentException if the file is not a structurally valid DXF file
+     */
+    public void accept(DxfVisitor visitor) throws IOException {
+        accept(visitor, DxfFilter.all());
+    }
+
+    /**
+     * Streams the layer definitions and entities accepted by the filter to the visitor.
+     * Entities rejected by the filter are skipped at the token level without being built.
+     * With a parse cache, a valid entry is replayed instead; otherwise the whole file is
+     * parsed once to fill the cache and the filter is applied to the parsed events. An entry found
+     * to be corrupt during its replay is dropped and the parse resumes after the events it delivered.
+     * A current offset index takes precedence over the cache for reads restricted to some layers.
+     *
+     * @throws IllegalArgumentException if the file is not a structurally valid DXF file
+     */
+    public void accept(DxfVisitor visitor, DxfFilter filter) throws IOException {
+        Objects.requireNonNull(visitor, "Visitor cannot be null");
+        Objects.requireNonNull(filter, "Filter cannot be null");
+        if (offsetIndex != null && filter.filtersLayers()) {
+            if (offsetIndex.isCurrent()) {
+                parseIndexed(visitor, filter);
+                return;
+            }
+            logger.warn("Offset index of {} is stale, reading the whole file", filePath);
+        }
+        if (cache == null) {
+            parse(visitor, filter);
+            return;
+        }
+        DxfParseCache.Key key = cache.key(filePath);
+        long delivered = 0;
+        try {
+            if (cache.replay(key, visitor, filter)) {
+                return;
+            }
+        } catch (DxfParseCache.CorruptEntryException e) {
+            logger.warn("{}, parsing the file instead", e.getMessage());
+            delivered = e.delivered();
+        }
+        try (DxfParseCache.Recorder recorder = cache.recorder(key, visitor, filter, delivered)) {
+            parse(recorder, DxfFilter.all());
+            recorder.commit();
+        }
+    }
+
+    private void parse(DxfVisitor visitor, DxfFilter filter) throws IOException {
+        logger.debug("Streaming DXF file with {}", filter);
+        try (DxfTokenizer dxfTokenizer = new DxfTokenizer(filePath)) {
+            this.tokenizer = dxfTokenizer;
+            this.visitor = visitor;
+            this.filter = filter;
+            readSections();
+        } finally {
+            this.tokenizer = null;
+            this.visitor = null;
+            this.filter = null;
+        }
+    }
+
+    /**
+     * Parses the TABLES sections and the entity runs of the accepted layers found by the offset index.
+     */
+    private void parseIndexed(DxfVisitor visitor, DxfFilter filter) throws IOException {
+        logger.debug("Reading indexed DXF file with {}", filter);
+        try (DxfTokenizer dxfTokenizer = new DxfTokenizer(filePath)) {
+            this.tokenizer = dxfTokenizer;
+            this.visitor = visitor;
+            this.filter = filter;
+            for (DxfOffsetIndex.Section section : offsetIndex.sections()) {
+                if (TABLES.equals(section.name())) {
+                    dxfTokenizer.seek(section.start(), section.line());
+                    dxfTokenizer.next();
+                    processSection();
+                }
+            }
+            for (DxfOffsetIndex.Run run : offsetIndex.runs()) {
+                if (filter.acceptsLayer(run.layer())) {
+                    dxfTokenizer.seek(run.start(), run.line());
+                    EntityProcessor processor = new EntityProcessor(run.layer(), visitor::onEntity);
+                    parseEntities(dxfTokenizer, processor, filter, run.end());
+                }
+            }
+        } finally {
+            this.tokenizer = null;
+            this.visitor = null;
+            this.filter = null;
+        }
+    }
+
+    /**
+     * Walks the top-level records, which must be sections terminated by an EOF marker.
+     */
+    private void readSections() throws IOException {
+        readSections(this::processSection);
+    }
+
+    /**
+     * Walks the top-level records, which must be sections terminated by an EOF marker,
+     * handing each section to the handler with its SECTION pair current.
+     */
+    private void readSections(SectionHandler handler) throws IOException {
+        boolean hasSection = false;
+        while (tokenizer.next()) {
+            int groupCode = tokenizer.code();
+
+            if (groupCode == GROUP_CODE_0 && tokenizer.valueEquals(SECTION)) {
+                hasSection = true;
+                handler.handle();
+            } else if (groupCode == GROUP_CODE_0 && tokenizer.valueEquals(EOF) && hasSection) {
+                return;
+            } else {
+                throw new IllegalArgumentException(
+                    "Invalid DXF file: unexpected '%d/%s' at line %d, expected a SECTION"
+                        .formatted(groupCode, tokenizer.value(), tokenizer.lineNumber()));
+            }
+        }
+        if (!hasSection) {
+            throw new IllegalArgumentException("Invalid DXF file: no SECTION found");
+        }
+        throw new IllegalArgumentException("Invalid DXF file: missing EOF marker");
+    }
+    
+    private void processSection() throws IOException {
+        String sectionType = readSectionType();
         logger.debug("Processing section: {}", sectionType);
         switch (sectionType) {
             case TABLES -> processTables();
-            case ENTITIES -> processEntities();
+            case ENTITIES -> {
+                if (parallel) {
+                    processEntitiesInParallel();
+                } else {
+                    processEntities();
+                }
+            }
             default -> {
                 logger.debug("Skipping unknown section: {}", sectionType);
                 skipSection();
@@ -148,29 +450,44 @@ public class DxfReader {
         }
     }
     
-    private void processTables() {
+    /**
+     * Reads the type of the section whose SECTION pair is current.
+     */
+    private String readSectionType() throws IOException {
+        String sectionType = "";
+        if (tokenizer.next()) {
+            if (tokenizer.code() == GROUP_CODE_2) {
+                sectionType = tokenizer.value();
+            } else {
+                tokenizer.pushBack();
+            }
+        }
+        return sectionType;
+    }
+
+    private void processTables() throws IOException {
         logger.debug("Processing TABLES section");
-        while (currentLine < lines.size()) {
-            String groupCode = lines.get(currentLine++).trim();
-            String value = currentLine < lines.size() ? lines.get(currentLine++).trim() : "";
-            
-            if (GROUP_CODE_0.equals(groupCode)) {
-                if (ENDSEC.equals(value)) {
+        while (tokenizer.next()) {
+            if (tokenizer.code() == GROUP_CODE_0) {
+                if (tokenizer.valueEquals(ENDSEC)) {
                     logger.debug("Finished processing TABLES section");
                     return;
-                } else if (TABLE.equals(value)) {
+                } else if (tokenizer.valueEquals(TABLE)) {
                     processTable();
                 }
             }
         }
     }
     
-    private void processTable() {
+    private void processTable() throws IOException {
         // Read table type
         String tableType = "";
-        if (currentLine + 1 < lines.size() && GROUP_CODE_2.equals(lines.get(currentLine))) {
-            tableType = lines.get(currentLine + 1).trim();
-            currentLine += 2;
+        if (tokenizer.next()) {
+            if (tokenizer.code() == GROUP_CODE_2) {
+                tableType = tokenizer.value();
+            } else {
+                tokenizer.pushBack();
+            }
         }
         
         logger.debug("Processing table: {}", tableType);
@@ -182,79 +499,78 @@ public class DxfReader {
         }
     }
     
-    private void processLayerTable() {
+    private void processLayerTable() throws IOException {
         logger.debug("Processing LAYER table");
-        while (currentLine < lines.size()) {
-            String groupCode = lines.get(currentLine++).trim();
-            String value = currentLine < lines.size() ? lines.get(currentLine++).trim() : "";
-            
-            if (GROUP_CODE_0.equals(groupCode)) {
-                if (ENDTAB.equals(value)) {
+        while (tokenizer.next()) {
+            if (tokenizer.code() == GROUP_CODE_0) {
+                if (tokenizer.valueEquals(ENDTAB)) {
                     logger.debug("Finished processing LAYER table");
                     return;
-                } else if (LAYER.equals(value)) {
+                } else if (tokenizer.valueEquals(LAYER)) {
                     processLayerDefinition();
                 }
             }
         }
     }
     
-    private void processLayerDefinition() {
+    private void processLayerDefinition() throws IOException {
         logger.debug("Processing layer definition");
         String name = "";
         int color = 7;
         String lineType = "CONTINUOUS";
         boolean isVisible = true;
         
-        while (currentLine < lines.size()) {
-            String groupCode = getValidatedLine();
-            String value = currentLine < lines.size() ? getValidatedLine() : "";
+        while (tokenizer.next()) {
+            int groupCode = tokenizer.code();
             
-            if (GROUP_CODE_0.equals(groupCode)) {
-                currentLine -= 2; // Back up so next reader sees this
+            if (groupCode == GROUP_CODE_0) {
+                tokenizer.pushBack(); // Back up so next reader sees this
                 break;
             }
             
-            // Validate value length before processing
-            if (value.length() > 255) {
-                logger.warn("Value too long at line {}, truncating", currentLine - 1);
-                value = value.substring(0, 255);
-            }
-            
             switch (groupCode) {
-                case GROUP_CODE_2 -> name = sanitizeName(value);
+                case GROUP_CODE_2 -> name = truncatedValue();
                 case GROUP_CODE_62 -> {
                     try {
-                        color = Integer.parseInt(value);
+                        color = tokenizer.intValue();
                         isVisible = color >= 0;
                         // Keep negative color for visibility but use absolute value for display
                     } catch (NumberFormatException e) {
-                        logger.warn("Invalid color value: {}", value);
+                        logger.warn("Invalid color value: {}", tokenizer.value());
                         color = 7; // Default color
                     }
                 }
-                case GROUP_CODE_6 -> lineType = sanitizeName(value);
+                case GROUP_CODE_6 -> lineType = sanitizeName(truncatedValue());
                 default -> {} // Skip other group codes
             }
         }
         
-        if (!name.isEmpty()) {
-            layers.put(name, new DxfLayer(name, color, lineType, isVisible, new ArrayList<>()));
+        if (!name.isEmpty() && filter.acceptsLayer(name)) {
+            // Report the raw name so that entities referencing it through group code 8 match;
+            // DxfLayer sanitizes the name it stores
+            visitor.onLayerDefinition(name, new DxfLayer(name, color, lineType, isVisible, new ArrayList<>()));
         }
     }
     
+    private String truncatedValue() {
+        String value = tokenizer.value();
+        // Validate value length before processing
+        if (value.length() > 255) {
+            logger.warn("Value too long at line {}, truncating", tokenizer.lineNumber());
+            value = value.substring(0, 255);
+        }
+        return value;
+    }
+
     private String sanitizeName(String input) {
         // Allow spaces in addition to alphanumeric, underscore, and hyphen
         return input.replaceAll("[^a-zA-Z0-9_\\- ]", "_");
     }
     
-    private void skipTable() {
+    private void skipTable() throws IOException {
         logger.debug("Skipping table");
-        while (currentLine < lines.size()) {
-            String groupCode = lines.get(currentLine++).trim();
-            String value = currentLine < lines.size() ? lines.get(currentLine++).trim() : "";
-            
-            if (GROUP_CODE_0.equals(groupCode) && ENDTAB.equals(value)) {
+        while (tokenizer.next()) {
+            if (tokenizer.code() == GROUP_CODE_0 && tokenizer.valueEquals(ENDTAB)) {
                 return;
             }
         }
@@ -263,40 +579,235 @@ public class DxfReader {
     /**
      * Processes the ENTITIES section of the DXF file.
      */
-    private void processEntities() {
-        EntityProcessor processor = new EntityProcessor();
+    private void processEntities() throws IOException {
         logger.debug("Starting to process ENTITIES section");
-        
-        while (currentLine < lines.size()) {
-            String groupCode = lines.get(currentLine++).trim();
-            String value = currentLine < lines.size() ? lines.get(currentLine++).trim() : "";
+        EntityProcessor processor = new EntityProcessor(DEFAULT_LAYER, visitor::onEntity);
+        parseEntities(tokenizer, processor, filter, Long.MAX_VALUE);
+        logger.debug("Finished processing ENTITIES section");
+    }
+
+    /**
+     * Parses entity records until ENDSEC, the first record whose group code starts at or
+     * after the given byte offset, or the end of the input.
+     * Entities rejected by the filter are skipped without decoding their values.
+     *
+     * @return true if parsing stopped at ENDSEC, which is then the current pair
+     */
+    private static boolean parseEntities(DxfTokenizer tokenizer, EntityProcessor processor, DxfFilter filter,
+            long end) throws IOException {
+        while (tokenizer.next()) {
+            int groupCode = tokenizer.code();
             
-            if (GROUP_CODE_0.equals(groupCode)) {
-                if (ENDSEC.equals(value)) {
-                    processor.addCurrentEntity();
-                    logger.debug("Finished processing ENTITIES section");
-                    return;
+            if (groupCode == GROUP_CODE_0) {
+                processor.addCurrentEntity();
+                if (tokenizer.valueEquals(ENDSEC)) {
+                    return true;
+                }
+                if (tokenizer.codePosition() >= end) {
+                    return false;
+                }
+                if (filter.acceptsEntityType(tokenizer) && isLayerAccepted(tokenizer, processor, filter)) {
+                    processor.startNewEntity(tokenizer.value());
+                } else {
+                    skipEntity(tokenizer, processor);
                 }
-                processor.startNewEntity(value);
                 continue;
             }
             
-            if (GROUP_CODE_8.equals(groupCode)) {
-                processor.setCurrentLayer(value);
+            if (groupCode == GROUP_CODE_8) {
+                processor.setCurrentLayer(tokenizer);
                 continue;
             }
             
-            processor.addGroupCode(groupCode, value);
+            processor.addGroupCode(groupCode, tokenizer);
+        }
+        processor.addCurrentEntity();
+        return false;
+    }
+
+    /**
+     * Looks ahead for the layer of the entity starting at the current pair,
+     * then rewinds so that the entity's type pair is current again.
+     */
+    private static boolean isLayerAccepted(DxfTokenizer tokenizer, EntityProcessor processor, DxfFilter filter)
+            throws IOException {
+        if (!filter.filtersLayers()) {
+            return true;
+        }
+        tokenizer.mark();
+        while (tokenizer.next() && tokenizer.code() != GROUP_CODE_0) {
+            if (tokenizer.code() == GROUP_CODE_8) {
+                processor.setCurrentLayer(tokenizer);
+                break;
+            }
+        }
+        tokenizer.reset();
+        tokenizer.next();
+        // A layer inherited from a previous chunk is not known yet; the merge applies the filter
+        return processor.currentLayer == null || filter.acceptsLayer(processor.currentLayer);
+    }
+
+    /**
+     * Skips the pairs of a rejected entity, only tracking layer changes.
+     */
+    private static void skipEntity(DxfTokenizer tokenizer, EntityProcessor processor) throws IOException {
+        while (tokenizer.next()) {
+            if (tokenizer.code() == GROUP_CODE_0) {
+                tokenizer.pushBack();
+                return;
+            }
+            if (tokenizer.code() == GROUP_CODE_8) {
+                processor.setCurrentLayer(tokenizer);
+            }
+        }
+    }
+
+    /**
+     * Processes the ENTITIES section by splitting the rest of the input into byte ranges
+     * of {@code chunkSize} bytes, parsed concurrently on worker threads owned by this read.
+     * Each task starts at the first entity at or after its range and parses every entity
+     * starting inside it, so no serial scan is needed to find entity boundaries.
+     * Chunks are handed to the visitor in file order as soon as each one is done, with a
+     * bounded number in flight; the end of the section is only known once a chunk reaches
+     * ENDSEC, and the chunks past it are then cancelled.
+     */
+    private void processEntitiesInParallel() throws IOException {
+        logger.debug("Starting to process ENTITIES section in parallel");
+        long sectionStart = tokenizer.position();
+        long inputEnd = tokenizer.size();
+        long chunkCount = Math.max(1, (inputEnd - sectionStart + chunkSize - 1) / chunkSize);
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxInFlight = threads * 2;
+
+        DxfTokenizer source = tokenizer;
+        DxfFilter chunkFilter = filter;
+        ExecutorService executor = Executors.newFixedThreadPool(threads, ENTITY_THREADS);
+        Deque<Future<EntityChunk>> pending = new ArrayDeque<>();
+        try {
+            long submitted = 0;
+            long sectionEnd = -1;
+            long line = tokenizer.lineNumber();
+            String carriedLayer = DEFAULT_LAYER;
+            while (sectionEnd < 0 && (submitted < chunkCount || !pending.isEmpty())) {
+                while (submitted < chunkCount && pending.size() < maxInFlight) {
+                    long start = sectionStart + submitted * chunkSize;
+                    long end = Math.min(inputEnd, start + chunkSize);
+                    // Only the first chunk knows its starting layer; later ones inherit it during the merge
+                    String initialLayer = submitted == 0 ? DEFAULT_LAYER : null;
+                    pending.add(executor.submit(
+                        () -> parseChunk(source, sectionStart, start, end, initialLayer, chunkFilter)));
+                    submitted++;
+                }
+                EntityChunk chunk = awaitChunk(pending.poll());
+                for (int i = 0; i < chunk.entities().size(); i++) {
+                    String layerName = chunk.layerNames().get(i);
+                    if (layerName == null) {
+                        layerName = carriedLayer;
+                        if (!filter.acceptsLayer(layerName)) {
+                            continue;
+                        }
+                    }
+                    visitor.onEntity(layerName, chunk.entities().get(i));
+                }
+                if (chunk.finalLayer() != null) {
+                    carriedLayer = chunk.finalLayer();
+                }
+                line += chunk.lines();
+                sectionEnd = chunk.sectionEnd();
+            }
+            logger.debug("Parsed ENTITIES section in {} of {} chunks", submitted - pending.size(), chunkCount);
+            // Continue after ENDSEC, or at the end of the input if the section is cut short
+            tokenizer.seek(sectionEnd >= 0 ? sectionEnd : inputEnd, line);
+        } finally {
+            // Interrupting a task could close the shared file channel, so running tasks are left to finish
+            pending.forEach(future -> future.cancel(false));
+            executor.shutdown();
         }
+        logger.debug("Finished processing ENTITIES section");
     }
+
+    /**
+     * Parses the entities starting in a byte range of the ENTITIES section.
+     */
+    private static EntityChunk parseChunk(DxfTokenizer source, long sectionStart, long start, long end,
+            String initialLayer, DxfFilter filter) throws IOException {
+        List<String> layerNames = new ArrayList<>();
+        List<DxfEntity> entities = new ArrayList<>();
+        EntityProcessor processor = new EntityProcessor(initialLayer, (layerName, entity) -> {
+            layerNames.add(layerName);
+            entities.add(entity);
+        });
+        // Map a little before the range so that the line holding its start can be found, and a
+        // little past it for the last entity; the tokenizer remaps if that entity runs further
+        long regionStart = Math.max(sectionStart, start - RESYNC_MARGIN);
+        int window = (int) Math.min(Integer.MAX_VALUE, end - regionStart + CHUNK_SLACK);
+        long sectionEnd = -1;
+        long lines = 0;
+        try (DxfTokenizer chunkTokenizer = source.fork(regionStart, window)) {
+            if (chunkTokenizer.syncToEntity(start)) {
+                // The lines before the first entity belong to the previous chunk, except in the first one
+                long firstLine = start == sectionStart ? 0 : chunkTokenizer.lineNumber();
+                if (parseEntities(chunkTokenizer, processor, filter, end)) {
+                    sectionEnd = chunkTokenizer.position();
+                    lines = chunkTokenizer.lineNumber() - firstLine;
+                } else {
+                    // Up to the first entity of the next chunk, or to the end of the input
+                    lines = chunkTokenizer.pairLine() - firstLine;
+                }
+            } else if (start == sectionStart) {
+                lines = chunkTokenizer.lineNumber();
+            }
+        }
+        return new EntityChunk(layerNames, entities, processor.currentLayer, sectionEnd, lines);
+    }
+
+    private static EntityChunk awaitChunk(Future<EntityChunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing ENTITIES section", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Failed to parse ENTITIES section", e.getCause());
+        }
+    }
+
+    /**
+     * Reads one section whose SECTION pair is current, up to and including its ENDSEC pair.
+     */
+    @FunctionalInterface
+    private interface SectionHandler {
+        void handle() throws IOException;
+    }
+
+    /**
+     * Entities parsed from one chunk, with a null layer name for entities that
+     * inherit the layer in effect at the end of the previous chunk, the byte offset
+     * just past ENDSEC if the chunk reached it, or -1, and the number of lines it consumed.
+     */
+    private record EntityChunk(List<String> layerNames, List<DxfEntity> entities, String finalLayer,
+            long sectionEnd, long lines) {}
     
     /**
      * Helper class to manage entity processing state.
      */
-    private class EntityProcessor {
-        private String currentLayer = "0";  // Default layer
-        private Map<Integer, String> groupCodes = new HashMap<>();
+    private static class EntityProcessor {
+        private final BiConsumer<String, DxfEntity> sink;
+        private String currentLayer;
+        private byte[] currentLayerBytes;
+        private final DxfEntity.Builder groupCodes = DxfEntity.builder();
         private String entityType = "";
+
+        EntityProcessor(String initialLayer, BiConsumer<String, DxfEntity> sink) {
+            this.currentLayer = initialLayer;
+            this.sink = sink;
+        }
         
         /**
          * Starts processing a new entity.
@@ -304,50 +815,52 @@ public class DxfReader {
         void startNewEntity(String type) {
             addCurrentEntity();
             entityType = type;
-            groupCodes = new HashMap<>();
+            groupCodes.clear();
             logger.trace("Starting new entity of type: {}", type);
         }
         
         /**
-         * Sets the current layer for subsequent entities.
+         * Sets the current layer for subsequent entities from the tokenizer's current value.
+         * The name is only decoded when it differs from the current layer.
          */
-        void setCurrentLayer(String layer) {
-            logger.trace("Switching to layer: {}", layer);
-            currentLayer = layer;
+        void setCurrentLayer(DxfTokenizer tokenizer) {
+            if (currentLayerBytes != null && tokenizer.valueEquals(currentLayerBytes)) {
+                return;
+            }
+            currentLayer = tokenizer.value();
+            currentLayerBytes = currentLayer.getBytes(StandardCharsets.UTF_8);
+            logger.trace("Switching to layer: {}", currentLayer);
         }
         
         /**
-         * Adds a group code to the current entity.
+         * Adds the tokenizer's current pair to the current entity, decoding the value
+         * straight into the entity's shared value string.
          */
-        void addGroupCode(String code, String value) {
-            try {
-                // Validate group code range
-                int groupCode = Integer.parseInt(code);
-                if (groupCode < 0 || groupCode > 1071) {
-                    logger.warn("Invalid group code range: {}", groupCode);
-                    return;
-                }
-                
-                // Validate value length
-                if (value != null && value.length() <= 255) {
-                    groupCodes.put(groupCode, value);
-                    logger.trace("Added group code {} = {} to entity", groupCode, value);
-                } else {
-                    logger.warn("Invalid value length for group code {}", groupCode);
-                }
-            } catch (NumberFormatException e) {
-                logger.warn("Invalid group code: {}", code);
+        void addGroupCode(int groupCode, DxfTokenizer tokenizer) {
+            // Validate group code range
+            if (groupCode < 0 || groupCode > 1071) {
+                logger.warn("Invalid group code range: {}", groupCode);
+                return;
+            }
+
+            // Validate value length; only a long value is decoded to count its characters
+            if (tokenizer.valueLength() > 255 && tokenizer.value().length() > 255) {
+                logger.warn("Invalid value length for group code {}", groupCode);
+                return;
             }
+            groupCodes.add(groupCode, tokenizer.buffer(), tokenizer.valueOffset(), tokenizer.valueLength());
+            logger.trace("Added group code {} to entity", groupCode);
         }
         
         /**
-         * Adds the current entity to its layer if valid.
+         * Hands the current entity to the sink if valid.
          */
         void addCurrentEntity() {
             if (!entityType.isEmpty()) {
-                DxfEntity entity = new DxfEntity(entityType, groupCodes);
-                addEntityToLayer(currentLayer, entity);
-                logger.debug("Added {} entity to layer '{}'", entityType, currentLayer);
+                DxfEntity entity = groupCodes.build(entityType);
+                sink.accept(currentLayer, entity);
+                logger.trace("Added {} entity to layer '{}'", entityType, currentLayer);
+                entityType = "";
             }
         }
     }
@@ -355,17 +868,14 @@ public class DxfReader {
     private void addEntityToLayer(String layerName, DxfEntity entity) {
         layers.computeIfAbsent(layerName, name -> {
             logger.debug("Creating new layer: {}", name);
-            return DxfLayer.create(name);
+            return DxfLayer.builder(name);
         }).addEntity(entity);
     }
     
-    private void skipSection() {
+    private void skipSection() throws IOException {
         logger.debug("Skipping section");
-        while (currentLine < lines.size()) {
-            String groupCode = lines.get(currentLine++).trim();
-            String value = currentLine < lines.size() ? lines.get(currentLine++).trim() : "";
-            
-            if (GROUP_CODE_0.equals(groupCode) && ENDSEC.equals(value)) {
+        while (tokenizer.next()) {
+            if (tokenizer.code() == GROUP_CODE_0 && tokenizer.valueEquals(ENDSEC)) {
                 return;
             }
         }
@@ -0,0 +1,21 @@
+package com.crunchydevops.dxf;
+
+import java.util.Objects;
+
+/**
+ * Geometry of a TEXT entity.
+ *
+ * @param x Insertion point X (group code 10)
+ * @param y Insertion point Y (group code 20)
+ * @param z Insertion point Z (group code 30)
+ * @param height Text height (group code 40)
+ * @param rotation Rotation angle in degrees (group code 50)
+ * @param text Text string (group code 1)
+ */
+public record DxfText(double x, double y, double z, double height, double rotation, String text)
+        implements DxfGeometry {
+
+    public DxfText {
+        Objects.requireNonNull(text, "Text cannot be null");
+    }
+}
@@ -0,0 +1,558 @@
+package com.crunchydevops.dxf;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streaming pull-parser for ASCII DXF files.
+ * The file is memory-mapped and scanned byte by byte: group codes are parsed into
+ * ints without allocating, and values are exposed as offset/length slices of the
+ * mapped buffer. A value only becomes a {@code String} when {@link #value()} is called.
+ * Files larger than a single mapping are read through a sliding window.
+ */
+final class DxfTokenizer implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(DxfTokenizer.class);
+    static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+    private static final int MAX_LINE_LENGTH = 1000;
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long fileSize;
+    private final int windowSize;
+    private ByteBuffer buffer;
+    private long windowStart = 0;
+    private int position = 0;
+    private long lineNumber = 0;
+
+    private int pairStart;
+    private int codeStart;
+    private long pairLine;
+    private long markPosition = -1;
+    private long markLine;
+    private int code;
+    private int valueOffset;
+    private int valueLength;
+    private String value;
+    private boolean pushedBack = false;
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Opens a tokenizer over the given file.
+     */
+    DxfTokenizer(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Opens a tokenizer over the given file, mapping at most {@code windowSize} bytes at a time.
+     */
+    DxfTokenizer(Path path, int windowSize) throws IOException {
+        if (windowSize <= MAX_LINE_LENGTH * 2) {
+            throw new IllegalArgumentException("Window size too small: " + windowSize);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.ownsChannel = true;
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        map(0);
+    }
+
+    /**
+     * Creates a tokenizer sharing the file of another one, starting at an absolute byte offset.
+     */
+    private DxfTokenizer(FileChannel channel, long fileSize, int windowSize, long start) throws IOException {
+        this.channel = channel;
+        this.ownsChannel = false;
+        this.fileSize = fileSize;
+        this.windowSize = windowSize;
+        map(start);
+    }
+
+    /**
+     * Creates a tokenizer over an in-memory buffer, from its position to its limit.
+     */
+    DxfTokenizer(ByteBuffer source) {
+        this.channel = null;
+        this.ownsChannel = false;
+        this.buffer = source.slice();
+        this.fileSize = buffer.limit();
+        this.windowSize = Integer.MAX_VALUE;
+    }
+
+    private void map(long start) throws IOException {
+        long length = Math.min(windowSize, fileSize - start);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        windowStart = start;
+        position = 0;
+    }
+
+    private boolean isLastWindow() {
+        return windowStart + buffer.limit() >= fileSize;
+    }
+
+    /**
+     * Advances to the next group code/value pair.
+     *
+     * @return true if a pair was read, false at the end of the input
+     * @throws IllegalArgumentException if the group code line is not an integer
+     */
+    boolean next() throws IOException {
+        if (pushedBack) {
+            pushedBack = false;
+            return true;
+        }
+        value = null;
+
+        while (true) {
+            int start = position;
+            long startLine = lineNumber;
+            if (scanPair()) {
+                return true;
+            }
+            if (isLastWindow()) {
+                return false;
+            }
+            if (start == 0) {
+                throw new IllegalArgumentException("Line too long at line " + (startLine + 1));
+            }
+            // The pair straddles the end of the window: remap starting at the pair and retry
+            lineNumber = startLine;
+            map(windowStart + start);
+        }
+    }
+
+    /**
+     * Scans one pair at the current position.
+     *
+     * @return false if the window ended before the pair was complete
+     */
+    private boolean scanPair() {
+        int limit = buffer.limit();
+        int pos = position;
+        boolean last = isLastWindow();
+
+        // Group code line
+        pairStart = pos;
+        pairLine = lineNumber;
+        // Blank lines before the group code are skipped but still counted, a CR LF pair once
+        while (pos < limit && isBlank(buffer.get(pos))) {
+            byte b = buffer.get(pos++);
+            if (b == '\n' || b == '\r' && (pos == limit || buffer.get(pos) != '\n')) {
+                lineNumber++;
+            }
+        }
+        if (pos >= limit) {
+            if (last) {
+                position = pos;
+            }
+            return false;
+        }
+        int lineEnd = findLineEnd(pos, limit);
+        if (lineEnd == limit && !last) {
+            return false;
+        }
+        lineNumber++;
+        codeStart = pos;
+        code = parseCode(pos, lineEnd);
+        pos = skipLineTerminator(lineEnd, limit);
+
+        // Value line
+        int valueEnd = findLineEnd(pos, limit);
+        if (valueEnd == limit && !last) {
+            return false;
+        }
+        int start = pos;
+        int end = valueEnd;
+        while (start < end && isBlank(buffer.get(start))) {
+            start++;
+        }
+        while (end > start && isBlank(buffer.get(end - 1))) {
+            end--;
+        }
+        if (pos < limit || valueEnd > pos) {
+            lineNumber++;
+        }
+        if (end - start > MAX_LINE_LENGTH) {
+            logger.warn("Invalid line at position {}, using empty string", lineNumber);
+            start = end;
+        }
+        valueOffset = start;
+        valueLength = end - start;
+        position = skipLineTerminator(valueEnd, limit);
+        return true;
+    }
+
+    private int findLineEnd(int from, int limit) {
+        int pos = from;
+        while (pos < limit) {
+            byte b = buffer.get(pos);
+            if (b == '\n' || b == '\r') {
+                return pos;
+            }
+            pos++;
+        }
+        return limit;
+    }
+
+    private int skipLineTerminator(int pos, int limit) {
+        if (pos < limit && buffer.get(pos) == '\r') {
+            pos++;
+        }
+        if (pos < limit && buffer.get(pos) == '\n') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private int parseCode(int from, int to) {
+        int pos = from;
+        int end = to;
+        while (end > pos && isBlank(buffer.get(end - 1))) {
+            end--;
+        }
+        boolean negative = pos < end && buffer.get(pos) == '-';
+        if (negative) {
+            pos++;
+        }
+        if (pos == end || end - pos > 9) {
+            throw invalidCode(from, to);
+        }
+        int result = 0;
+        for (; pos < end; pos++) {
+            int digit = buffer.get(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalidCode(from, to);
+            }
+            result = result * 10 + digit;
+        }
+        return negative ? -result : result;
+    }
+
+    private IllegalArgumentException invalidCode(int from, int to) {
+        String line = decode(from, Math.min(to - from, MAX_LINE_LENGTH)).trim();
+        return new IllegalArgumentException(
+            "Invalid group code '%s' at line %d".formatted(line, lineNumber));
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * Makes the next call to {@link #next()} return the current pair again.
+     */
+    void pushBack() {
+        pushedBack = true;
+    }
+
+    /**
+     * Remembers the current pair so that {@link #reset()} can return to it after looking ahead.
+     */
+    void mark() {
+        markPosition = pairPosition();
+        markLine = pairLine;
+    }
+
+    /**
+     * Rewinds to the pair remembered by {@link #mark()}; the next call to {@link #next()} returns it again.
+     */
+    void reset() throws IOException {
+        if (markPosition < 0) {
+            throw new IllegalStateException("No mark set");
+        }
+        pushedBack = false;
+        value = null;
+        if (markPosition >= windowStart && markPosition <= windowStart + buffer.limit()) {
+            position = (int) (markPosition - windowStart);
+        } else {
+            map(markPosition);
+        }
+        lineNumber = markLine;
+        markPosition = -1;
+    }
+
+    /**
+     * Moves to an absolute byte offset at the start of a pair, as returned by {@link #pairPosition()},
+     * so that the next call to {@link #next()} reads the pair there.
+     *
+     * @param offset The byte offset of the pair
+     * @param line The number of lines before the pair, used for error messages
+     */
+    void seek(long offset, long line) throws IOException {
+        if (offset < 0 || offset > fileSize) {
+            throw new IllegalArgumentException("Offset out of range: " + offset);
+        }
+        pushedBack = false;
+        value = null;
+        markPosition = -1;
+        if (offset >= windowStart && offset <= windowStart + buffer.limit()) {
+            position = (int) (offset - windowStart);
+        } else {
+            map(offset);
+        }
+        lineNumber = line;
+    }
+
+    /**
+     * Moves to the first group code 0 pair whose code starts at or after an offset within
+     * the current window, so that the next call to {@link #next()} reads it. This finds the
+     * next record when starting in the middle of a section: a line holding only "0" starts
+     * a pair when the line after it is not an integer, since group code lines always are
+     * and the values of group code 0 never are. The lines skipped from the start of the line
+     * holding the offset are added to {@link #lineNumber()}.
+     *
+     * @param offset An absolute byte offset within the current window
+     * @return false if no such pair starts before the end of the window
+     */
+    boolean syncToEntity(long offset) {
+        int limit = buffer.limit();
+        if (offset < windowStart || offset > windowStart + limit) {
+            throw new IllegalArgumentException("Offset outside the current window: " + offset);
+        }
+        int from = (int) (offset - windowStart);
+        int pos = from;
+        // Back up to the start of the line holding the offset
+        while (pos > 0 && buffer.get(pos - 1) != '\n' && buffer.get(pos - 1) != '\r') {
+            pos--;
+        }
+        long skipped = 0;
+        while (pos < limit) {
+            int lineEnd = findLineEnd(pos, limit);
+            int start = pos;
+            while (start < lineEnd && isBlank(buffer.get(start))) {
+                start++;
+            }
+            int end = lineEnd;
+            while (end > start && isBlank(buffer.get(end - 1))) {
+                end--;
+            }
+            int next = skipLineTerminator(lineEnd, limit);
+            if (start >= from && end - start == 1 && buffer.get(start) == '0'
+                    && !isInteger(next, findLineEnd(next, limit))) {
+                position = pos;
+                lineNumber += skipped;
+                pushedBack = false;
+                value = null;
+                markPosition = -1;
+                return true;
+            }
+            pos = next > lineEnd ? next : lineEnd + 1;
+            skipped++;
+        }
+        position = limit;
+        lineNumber += skipped;
+        return false;
+    }
+
+    private boolean isInteger(int from, int to) {
+        int pos = from;
+        int end = to;
+        while (pos < end && isBlank(buffer.get(pos))) {
+            pos++;
+        }
+        while (end > pos && isBlank(buffer.get(end - 1))) {
+            end--;
+        }
+        if (pos < end && buffer.get(pos) == '-') {
+            pos++;
+        }
+        if (pos == end) {
+            return false;
+        }
+        for (; pos < end; pos++) {
+            byte b = buffer.get(pos);
+            if (b < '0' || b > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of lines before the current pair
+     */
+    long pairLine() {
+        return pairLine;
+    }
+
+    /**
+     * @return The group code of the current pair
+     */
+    int code() {
+        return code;
+    }
+
+    /**
+     * Decodes the trimmed value of the current pair, caching it until the next pair.
+     *
+     * @return The trimmed value of the current pair
+     */
+    String value() {
+        if (value == null) {
+            value = decode(valueOffset, valueLength);
+        }
+        return value;
+    }
+
+    /**
+     * @return The offset of the current value within {@link #buffer()}
+     */
+    int valueOffset() {
+        return valueOffset;
+    }
+
+    /**
+     * @return The length in bytes of the current (trimmed) value
+     */
+    int valueLength() {
+        return valueLength;
+    }
+
+    /**
+     * Returns the buffer the current value slice refers to.
+     * The slice is only valid until the next call to {@link #next()}.
+     */
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Compares the current value to an ASCII string without decoding it.
+     */
+    boolean valueEquals(String ascii) {
+        int length = ascii.length();
+        if (length != valueLength) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(valueOffset + i) != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares the current value to UTF-8 encoded bytes without decoding it.
+     */
+    boolean valueEquals(byte[] utf8) {
+        int length = utf8.length;
+        if (length != valueLength) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(valueOffset + i) != utf8[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses the current value as an integer without decoding it.
+     *
+     * @throws NumberFormatException if the value is not an integer
+     */
+    int intValue() {
+        int pos = valueOffset;
+        int end = valueOffset + valueLength;
+        boolean negative = pos < end && buffer.get(pos) == '-';
+        if (negative || (pos < end && buffer.get(pos) == '+')) {
+            pos++;
+        }
+        if (pos == end || end - pos > 9) {
+            throw new NumberFormatException("Not an integer: " + value());
+        }
+        int result = 0;
+        for (; pos < end; pos++) {
+            int digit = buffer.get(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not an integer: " + value());
+            }
+            result = result * 10 + digit;
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * @return The absolute byte offset of the current pair in the file
+     */
+    long pairPosition() {
+        return windowStart + pairStart;
+    }
+
+    /**
+     * @return The absolute byte offset of the group code of the current pair, past any leading blanks
+     */
+    long codePosition() {
+        return windowStart + codeStart;
+    }
+
+    /**
+     * @return The absolute byte offset just past the current pair
+     */
+    long position() {
+        return windowStart + position;
+    }
+
+    /**
+     * @return The size in bytes of the underlying input
+     */
+    long size() {
+        return fileSize;
+    }
+
+    /**
+     * Creates a separate tokenizer over the same input, positioned at an absolute byte offset
+     * and reporting absolute offsets, for another thread to work on part of the input.
+     * A file is mapped {@code windowSize} bytes at a time from the offset, and remapped
+     * further if the tokenizer reads past that; closing the new tokenizer leaves the file open.
+     *
+     * @param start The absolute byte offset of the first window
+     * @param windowSize The number of bytes to map at a time
+     */
+    DxfTokenizer fork(long start, int windowSize) throws IOException {
+        if (start < 0 || start > fileSize) {
+            throw new IllegalArgumentException("Offset out of range: " + start);
+        }
+        if (channel != null) {
+            if (windowSize <= MAX_LINE_LENGTH * 2) {
+                throw new IllegalArgumentException("Window size too small: " + windowSize);
+            }
+            return new DxfTokenizer(channel, fileSize, windowSize, start);
+        }
+        DxfTokenizer tokenizer = new DxfTokenizer(buffer.asReadOnlyBuffer().position(0));
+        tokenizer.seek(start, 0);
+        return tokenizer;
+    }
+
+    /**
+     * @return The number of lines consumed so far
+     */
+    long lineNumber() {
+        return lineNumber;
+    }
+
+    private String decode(int offset, int length) {
+        if (scratch.length < length) {
+            scratch = new byte[length];
+        }
+        buffer.get(offset, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.crunchydevops.dxf;
+
+/**
+ * Callback interface for streaming a DXF file through {@link DxfReader#accept(DxfVisitor, DxfFilter)}.
+ * Callbacks are invoked in file order on the calling thread; the default implementations ignore the event.
+ */
+public interface DxfVisitor {
+
+    /**
+     * Called for each layer definition of the LAYER table accepted by the filter.
+     *
+     * @param name The layer name as written in the file, as referenced by entities
+     * @param layer The validated layer definition, without entities
+     */
+    default void onLayerDefinition(String name, DxfLayer layer) {
+    }
+
+    /**
+     * Called for each entity of the ENTITIES section accepted by the filter.
+     *
+     * @param layerName The layer name as written in the file
+     * @param entity The parsed entity
+     */
+    default void onEntity(String layerName, DxfEntity entity) {
+    }
+}
@@ -0,0 +1,99 @@
+package com.crunchydevops.dxf;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Writes layers and their entities as an ASCII DXF file.
+ * The file holds a LAYER table and an ENTITIES section; each entity is written with
+ * its type, a group code 8 naming its layer and then its group codes in order.
+ * This is the subset of the format read back by {@link DxfReader}.
+ */
+public final class DxfWriter {
+    private static final Logger logger = LoggerFactory.getLogger(DxfWriter.class);
+
+    private final Writer writer;
+
+    private DxfWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Writes the layers to a file, replacing it if it exists.
+     */
+    public static void write(Path path, Collection<DxfLayer> layers) throws IOException {
+        Objects.requireNonNull(path, "Path cannot be null");
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            write(out, layers);
+        }
+    }
+
+    /**
+     * Writes the layers to a writer, which is left open.
+     */
+    public static void write(Writer out, Collection<DxfLayer> layers) throws IOException {
+        Objects.requireNonNull(out, "Writer cannot be null");
+        Objects.requireNonNull(layers, "Layers cannot be null");
+        DxfWriter writer = new DxfWriter(out);
+        writer.writeTables(layers);
+        writer.writeEntities(layers);
+        writer.pair(0, "EOF");
+        logger.debug("Wrote {} layers", layers.size());
+    }
+
+    private void writeTables(Collection<DxfLayer> layers) throws IOException {
+        pair(0, "SECTION");
+        pair(2, "TABLES");
+        pair(0, "TABLE");
+        pair(2, "LAYER");
+        pair(70, Integer.toString(layers.size()));
+        for (DxfLayer layer : layers) {
+            pair(0, "LAYER");
+            pair(2, layer.name());
+            pair(70, "0");
+            // A negative color hides the layer
+            int color = Math.abs(layer.colorNumber());
+            pair(62, Integer.toString(layer.isVisible() ? color : -color));
+            pair(6, layer.lineType());
+        }
+        pair(0, "ENDTAB");
+        pair(0, "ENDSEC");
+    }
+
+    private void writeEntities(Collection<DxfLayer> layers) throws IOException {
+        pair(0, "SECTION");
+        pair(2, "ENTITIES");
+        for (DxfLayer layer : layers) {
+            for (DxfEntity entity : layer.entities()) {
+                pair(0, entity.type());
+                pair(8, layer.name());
+                for (int i = 0; i < entity.size(); i++) {
+                    pair(entity.codeAt(i), entity.valueAt(i));
+                }
+            }
+        }
+        pair(0, "ENDSEC");
+    }
+
+    private void pair(int code, String value) throws IOException {
+        // Group codes are conventionally right-aligned in three columns
+        if (code < 10) {
+            writer.write("  ");
+        } else if (code < 100) {
+            writer.write(' ');
+        }
+        writer.write(Integer.toString(code));
+        writer.write('\n');
+        writer.write(value);
+        writer.write('\n');
+    }
+}
@@ -0,0 +1,126 @@
+package com.crunchydevops.tin;
+
+import com.crunchydevops.dxf.DxfEntity;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A contour line at one elevation.
+ * Vertices are packed as {@code x0, y0, x1, y1, ...}; the line runs with higher ground on its left.
+ *
+ * @param elevation The elevation of the line
+ * @param vertices Packed vertex coordinates
+ * @param closed true if the last vertex connects back to the first
+ */
+public record Contour(double elevation, double[] vertices, boolean closed) {
+
+    public Contour {
+        Objects.requireNonNull(vertices, "Vertices cannot be null");
+        if (vertices.length % 2 != 0) {
+            throw new IllegalArgumentException("Vertices must hold x/y pairs");
+        }
+    }
+
+    /**
+     * @return The number of vertices
+     */
+    public int vertexCount() {
+        return vertices.length / 2;
+    }
+
+    /**
+     * @return The X coordinate of the vertex at the given index
+     */
+    public double x(int index) {
+        return vertices[2 * index];
+    }
+
+    /**
+     * @return The Y coordinate of the vertex at the given index
+     */
+    public double y(int index) {
+        return vertices[2 * index + 1];
+    }
+
+    /**
+     * Smooths the line with Chaikin's corner cutting: every iteration replaces each segment
+     * by points at a quarter and three quarters of its length. Open lines keep their end points.
+     *
+     * @param iterations The number of iterations; each roughly doubles the vertex count
+     * @throws IllegalArgumentException if iterations is negative
+     */
+    public Contour smoothed(int iterations) {
+        if (iterations < 0) {
+            throw new IllegalArgumentException("Iterations cannot be negative: " + iterations);
+        }
+        double[] points = vertices;
+        for (int i = 0; i < iterations && points.length >= 6; i++) {
+            points = chaikin(points, closed);
+        }
+        return new Contour(elevation, points, closed);
+    }
+
+    private static double[] chaikin(double[] points, boolean closed) {
+        int count = points.length / 2;
+        int segments = closed ? count : count - 1;
+        double[] result = new double[4 * segments + (closed ? 0 : 4)];
+        int n = 0;
+        if (!closed) {
+            result[n++] = points[0];
+            result[n++] = points[1];
+        }
+        for (int s = 0; s < segments; s++) {
+            int next = (s + 1) % count;
+            double ax = points[2 * s], ay = points[2 * s + 1];
+            double bx = points[2 * next], by = points[2 * next + 1];
+            result[n++] = 0.75 * ax + 0.25 * bx;
+            result[n++] = 0.75 * ay + 0.25 * by;
+            result[n++] = 0.25 * ax + 0.75 * bx;
+            result[n++] = 0.25 * ay + 0.75 * by;
+        }
+        if (!closed) {
+            result[n++] = points[2 * count - 2];
+            result[n] = points[2 * count - 1];
+        }
+        return result;
+    }
+
+    /**
+     * Converts the line to an LWPOLYLINE entity at its elevation.
+     */
+    public DxfEntity toEntity() {
+        DxfEntity.Builder builder = DxfEntity.builder()
+            .add(90, Integer.toString(vertexCount()))
+            .add(70, closed ? "1" : "0")
+            .add(38, Double.toString(elevation));
+        for (int i = 0; i < vertexCount(); i++) {
+            builder.add(10, Double.toString(x(i)))
+                .add(20, Double.toString(y(i)));
+        }
+        return builder.build("LWPOLYLINE");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Contour that = (Contour) o;
+        return Double.compare(that.elevation, elevation) == 0 &&
+               closed == that.closed &&
+               Arrays.equals(vertices, that.vertices);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(vertices);
+        result = 31 * result + Double.hashCode(elevation);
+        result = 31 * result + Boolean.hashCode(closed);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Contour{elevation=%s, vertices=%d, closed=%b}".formatted(elevation, vertexCount(), closed);
+    }
+}
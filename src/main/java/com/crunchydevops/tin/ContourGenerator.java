@@ -0,0 +1,245 @@
+package com.crunchydevops.tin;
+
+import com.crunchydevops.dxf.DxfLayer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Generates contour lines from a TIN at every multiple of an interval.
+ * <p>
+ * Each triangle is bucketed once under every level it crosses, so the work is proportional
+ * to the number of segments produced rather than to triangles times levels. The levels are
+ * then traced in parallel. A segment leaves its triangle through an edge that the next
+ * segment enters, so segments are joined by walking to the neighbour across that shared
+ * edge, without searching for matching end points.
+ * A vertex lying exactly on a level counts as above it, so every crossed triangle holds
+ * exactly one segment.
+ */
+public final class ContourGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(ContourGenerator.class);
+    private static final int MAX_LEVELS = 1 << 20;
+
+    private final Tin tin;
+    private final double interval;
+    private long firstLevel;
+    private int[] levelStart;
+    private int[] triangles;
+
+    private ContourGenerator(Tin tin, double interval) {
+        this.tin = tin;
+        this.interval = interval;
+    }
+
+    /**
+     * Generates the contour lines at every multiple of the interval within the elevation range of the TIN.
+     *
+     * @return The lines ordered by elevation
+     * @throws IllegalArgumentException if the interval is not positive or gives too many levels
+     */
+    public static List<Contour> generate(Tin tin, double interval) {
+        Objects.requireNonNull(tin, "TIN cannot be null");
+        if (!(interval > 0) || Double.isInfinite(interval)) {
+            throw new IllegalArgumentException("Interval must be positive: " + interval);
+        }
+        long start = System.nanoTime();
+        ContourGenerator generator = new ContourGenerator(tin, interval);
+        generator.bucketTriangles();
+        int levels = generator.levelStart.length - 1;
+        List<Contour> contours = IntStream.range(0, levels)
+            .parallel()
+            .mapToObj(generator::traceLevel)
+            .flatMap(List::stream)
+            .toList();
+        logger.debug("Generated {} contours on {} levels in {} ms", contours.size(), levels,
+            (System.nanoTime() - start) / 1_000_000);
+        return contours;
+    }
+
+    /**
+     * Builds a layer holding the contour lines as LWPOLYLINE entities.
+     */
+    public static DxfLayer toLayer(String name, List<Contour> contours) {
+        DxfLayer.Builder builder = DxfLayer.builder(name);
+        contours.forEach(contour -> builder.addEntity(contour.toEntity()));
+        return builder.build();
+    }
+
+    /**
+     * Lists the triangles crossing each level, in triangle order.
+     */
+    private void bucketTriangles() {
+        int count = tin.triangleCount();
+        double minZ = Double.POSITIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int t = 0; t < count; t++) {
+            for (int k = 0; k < 3; k++) {
+                double z = tin.z(tin.vertex(t, k));
+                minZ = Math.min(minZ, z);
+                maxZ = Math.max(maxZ, z);
+            }
+        }
+        if (count == 0 || lowestLevel(minZ) > highestLevel(maxZ)) {
+            levelStart = new int[1];
+            triangles = new int[0];
+            return;
+        }
+        firstLevel = lowestLevel(minZ);
+        long levels = highestLevel(maxZ) - firstLevel + 1;
+        if (levels > MAX_LEVELS) {
+            throw new IllegalArgumentException("Interval too small: %s gives %d levels".formatted(interval, levels));
+        }
+
+        // Count, then fill, the crossings of each level
+        levelStart = new int[(int) levels + 1];
+        long crossings = 0;
+        for (int t = 0; t < count; t++) {
+            double[] range = zRange(t);
+            for (long k = lowestLevel(range[0]); k <= highestLevel(range[1]); k++) {
+                levelStart[(int) (k - firstLevel) + 1]++;
+                crossings++;
+            }
+        }
+        if (crossings > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Interval too small: %s gives %d crossings".formatted(interval, crossings));
+        }
+        for (int i = 0; i < levels; i++) {
+            levelStart[i + 1] += levelStart[i];
+        }
+        triangles = new int[(int) crossings];
+        int[] fill = Arrays.copyOf(levelStart, levelStart.length);
+        for (int t = 0; t < count; t++) {
+            double[] range = zRange(t);
+            for (long k = lowestLevel(range[0]); k <= highestLevel(range[1]); k++) {
+                triangles[fill[(int) (k - firstLevel)]++] = t;
+            }
+        }
+    }
+
+    private double[] zRange(int t) {
+        double a = tin.z(tin.vertex(t, 0)), b = tin.z(tin.vertex(t, 1)), c = tin.z(tin.vertex(t, 2));
+        return new double[] {Math.min(a, Math.min(b, c)), Math.max(a, Math.max(b, c))};
+    }
+
+    /**
+     * @return The smallest k with k * interval strictly above z
+     */
+    private long lowestLevel(double z) {
+        long k = (long) Math.floor(z / interval) + 1;
+        while (k * interval <= z) {
+            k++;
+        }
+        while ((k - 1) * interval > z) {
+            k--;
+        }
+        return k;
+    }
+
+    /**
+     * @return The largest k with k * interval at or below z
+     */
+    private long highestLevel(double z) {
+        long k = (long) Math.floor(z / interval);
+        while (k * interval > z) {
+            k--;
+        }
+        while ((k + 1) * interval <= z) {
+            k++;
+        }
+        return k;
+    }
+
+    private List<Contour> traceLevel(int index) {
+        double level = (firstLevel + index) * interval;
+        int from = levelStart[index];
+        int to = levelStart[index + 1];
+        boolean[] visited = new boolean[to - from];
+        List<Contour> contours = new ArrayList<>();
+
+        // Open lines start on the hull, then whatever is left forms closed loops
+        for (int i = from; i < to; i++) {
+            int t = triangles[i];
+            if (!visited[i - from] && tin.neighbour(t, edge(t, level, true)) < 0) {
+                trace(t, level, from, to, visited, contours);
+            }
+        }
+        for (int i = from; i < to; i++) {
+            if (!visited[i - from]) {
+                trace(triangles[i], level, from, to, visited, contours);
+            }
+        }
+        return contours;
+    }
+
+    private void trace(int start, double level, int from, int to, boolean[] visited, List<Contour> contours) {
+        Points points = new Points();
+        points.add(tin, start, edge(start, level, true), level);
+        boolean closed = false;
+        int t = start;
+        while (true) {
+            visited[Arrays.binarySearch(triangles, from, to, t) - from] = true;
+            int exit = edge(t, level, false);
+            int next = tin.neighbour(t, exit);
+            if (next == start) {
+                // Back at the entry point of the first triangle
+                closed = true;
+                break;
+            }
+            points.add(tin, t, exit, level);
+            if (next < 0) {
+                break;
+            }
+            int position = Arrays.binarySearch(triangles, from, to, next);
+            if (position < 0 || visited[position - from]) {
+                logger.warn("Contour at {} ran into a visited triangle {}", level, next);
+                break;
+            }
+            t = next;
+        }
+        if (points.size >= 4) {
+            contours.add(new Contour(level, Arrays.copyOf(points.coordinates, points.size), closed));
+        }
+    }
+
+    /**
+     * Finds the edge of a crossed triangle through which the line enters (from a vertex above
+     * to one below) or leaves. Walking in that direction keeps the higher ground on the left.
+     */
+    private int edge(int t, double level, boolean entry) {
+        for (int k = 0; k < 3; k++) {
+            boolean fromAbove = tin.z(tin.vertex(t, k)) >= level;
+            boolean toAbove = tin.z(tin.vertex(t, (k + 1) % 3)) >= level;
+            if (fromAbove != toAbove && fromAbove == entry) {
+                return k;
+            }
+        }
+        throw new IllegalStateException("Triangle " + t + " does not cross " + level);
+    }
+
+    /**
+     * Packed points of a line being traced, skipping repeats where the line passes through a vertex.
+     */
+    private static final class Points {
+        private double[] coordinates = new double[32];
+        private int size;
+
+        private void add(Tin tin, int t, int edge, double level) {
+            int a = tin.vertex(t, edge), b = tin.vertex(t, (edge + 1) % 3);
+            double f = (level - tin.z(a)) / (tin.z(b) - tin.z(a));
+            double x = tin.x(a) + f * (tin.x(b) - tin.x(a));
+            double y = tin.y(a) + f * (tin.y(b) - tin.y(a));
+            if (size > 0 && coordinates[size - 2] == x && coordinates[size - 1] == y) {
+                return;
+            }
+            if (size == coordinates.length) {
+                coordinates = Arrays.copyOf(coordinates, size * 2);
+            }
+            coordinates[size++] = x;
+            coordinates[size++] = y;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.crunchydevops.tin;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Cross-sections taken at regular stations along an alignment.
+ * Each section samples the terrain at the same offsets, measured perpendicular to the
+ * alignment and positive to the right of the direction of travel. Elevations are packed
+ * section by section into a single array.
+ */
+public final class CrossSections {
+    private final double[] stations;
+    private final double[] offsets;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] elevations;
+
+    CrossSections(double[] stations, double[] offsets, double[] xs, double[] ys, double[] elevations) {
+        this.stations = stations;
+        this.offsets = offsets;
+        this.xs = xs;
+        this.ys = ys;
+        this.elevations = elevations;
+    }
+
+    /**
+     * @return The number of sections
+     */
+    public int sectionCount() {
+        return stations.length;
+    }
+
+    /**
+     * @return The station of each section along the alignment
+     */
+    public double[] stations() {
+        return stations;
+    }
+
+    /**
+     * @return The offsets sampled in every section, in ascending order
+     */
+    public double[] offsets() {
+        return offsets;
+    }
+
+    /**
+     * @return The elevations of all sections, {@code offsets().length} values per section, NaN outside the TIN
+     */
+    public double[] elevations() {
+        return elevations;
+    }
+
+    /**
+     * @return The elevation of a section at the offset with the given index, NaN outside the TIN
+     */
+    public double elevation(int section, int offset) {
+        Objects.checkIndex(section, stations.length);
+        return elevations[section * offsets.length + Objects.checkIndex(offset, offsets.length)];
+    }
+
+    /**
+     * Returns one section as a profile whose stations are the offsets.
+     */
+    public Profile section(int section) {
+        Objects.checkIndex(section, stations.length);
+        int from = section * offsets.length;
+        int to = from + offsets.length;
+        return new Profile(offsets.clone(), Arrays.copyOfRange(xs, from, to), Arrays.copyOfRange(ys, from, to),
+            Arrays.copyOfRange(elevations, from, to));
+    }
+
+    @Override
+    public String toString() {
+        return "CrossSections{sections=%d, offsets=%d}".formatted(stations.length, offsets.length);
+    }
+}
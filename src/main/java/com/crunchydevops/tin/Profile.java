@@ -0,0 +1,90 @@
+package com.crunchydevops.tin;
+
+import java.util.Objects;
+
+/**
+ * Terrain elevations sampled along a line, such as a longitudinal profile along an
+ * alignment or a single cross-section across it.
+ * Samples are held in parallel primitive arrays, which are returned without copying.
+ */
+public final class Profile {
+    private final double[] stations;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] elevations;
+
+    Profile(double[] stations, double[] xs, double[] ys, double[] elevations) {
+        this.stations = stations;
+        this.xs = xs;
+        this.ys = ys;
+        this.elevations = elevations;
+    }
+
+    /**
+     * @return The number of samples
+     */
+    public int size() {
+        return stations.length;
+    }
+
+    /**
+     * @return The distance of each sample along the line, in ascending order
+     */
+    public double[] stations() {
+        return stations;
+    }
+
+    /**
+     * @return The x coordinate of each sample
+     */
+    public double[] xs() {
+        return xs;
+    }
+
+    /**
+     * @return The y coordinate of each sample
+     */
+    public double[] ys() {
+        return ys;
+    }
+
+    /**
+     * @return The terrain elevation at each sample, NaN outside the TIN
+     */
+    public double[] elevations() {
+        return elevations;
+    }
+
+    /**
+     * Calculates the grade of the segment between sample {@code segment} and the next one as a
+     * percentage, with the same convention as {@link com.crunchydevops.PointCloud#slope(long, long)}.
+     *
+     * @return The grade, NaN if either sample lies outside the TIN
+     */
+    public double grade(int segment) {
+        Objects.checkIndex(segment, Math.max(0, size() - 1));
+        double run = stations[segment + 1] - stations[segment];
+        double rise = elevations[segment + 1] - elevations[segment];
+        if (run == 0) {
+            return rise > 0 ? Double.POSITIVE_INFINITY : rise < 0 ? Double.NEGATIVE_INFINITY : rise;
+        }
+        return rise / run * 100.0;
+    }
+
+    /**
+     * @return The grade of every segment, one fewer than the samples
+     * @see #grade(int)
+     */
+    public double[] grades() {
+        double[] grades = new double[Math.max(0, size() - 1)];
+        for (int i = 0; i < grades.length; i++) {
+            grades[i] = grade(i);
+        }
+        return grades;
+    }
+
+    @Override
+    public String toString() {
+        return "Profile{samples=%d, length=%.3f}".formatted(size(), size() == 0 ? 0.0 : stations[size() - 1] - stations[0]);
+    }
+}
@@ -0,0 +1,194 @@
+package com.crunchydevops.tin;
+
+import com.crunchydevops.dxf.DxfLwPolyline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Extracts longitudinal profiles and cross-sections along an alignment from a TIN.
+ * <p>
+ * The alignment is a polyline given as packed {@code x0, y0, x1, y1, ...} coordinates or as an
+ * LWPOLYLINE; arc segments of a polyline are followed along their chords. Stations are placed at
+ * every multiple of the interval from the start, plus the end of the alignment. Sample locations
+ * are computed in parallel and interpolated with {@link Tin#elevations(double[], double[], double[])},
+ * in station order so that each walk through the TIN starts next to the previous sample.
+ */
+public final class ProfileExtractor {
+    private static final Logger logger = LoggerFactory.getLogger(ProfileExtractor.class);
+    private static final int MAX_SAMPLES = 1 << 26;
+
+    private final double[] vertices;
+    private final double[] chainage;
+    private final double length;
+
+    private ProfileExtractor(double[] alignment) {
+        Objects.requireNonNull(alignment, "Alignment cannot be null");
+        if (alignment.length % 2 != 0) {
+            throw new IllegalArgumentException("Alignment must hold x/y pairs");
+        }
+        // Drop repeated vertices so that every segment has a direction
+        double[] packed = new double[alignment.length];
+        int size = 0;
+        for (int i = 0; i < alignment.length; i += 2) {
+            if (size == 0 || alignment[i] != packed[size - 2] || alignment[i + 1] != packed[size - 1]) {
+                packed[size++] = alignment[i];
+                packed[size++] = alignment[i + 1];
+            }
+        }
+        if (size < 4) {
+            throw new IllegalArgumentException("Alignment must have at least two distinct vertices");
+        }
+        this.vertices = Arrays.copyOf(packed, size);
+        this.chainage = new double[size / 2];
+        for (int i = 1; i < chainage.length; i++) {
+            chainage[i] = chainage[i - 1] + Math.hypot(vertices[2 * i] - vertices[2 * i - 2],
+                vertices[2 * i + 1] - vertices[2 * i - 1]);
+        }
+        this.length = chainage[chainage.length - 1];
+    }
+
+    private static double[] packed(DxfLwPolyline polyline) {
+        Objects.requireNonNull(polyline, "Polyline cannot be null");
+        double[] xy = polyline.vertices();
+        if (!polyline.closed() || xy.length < 2) {
+            return xy;
+        }
+        double[] loop = Arrays.copyOf(xy, xy.length + 2);
+        loop[xy.length] = xy[0];
+        loop[xy.length + 1] = xy[1];
+        return loop;
+    }
+
+    /**
+     * Samples the terrain along an alignment.
+     *
+     * @param alignment Packed x/y coordinates of the alignment vertices
+     * @param interval The distance between stations
+     * @throws IllegalArgumentException if the alignment has no length or the interval is not positive
+     */
+    public static Profile longitudinal(Tin tin, double[] alignment, double interval) {
+        Objects.requireNonNull(tin, "TIN cannot be null");
+        ProfileExtractor extractor = new ProfileExtractor(alignment);
+        double[] stations = extractor.stations(interval);
+        int n = stations.length;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int segment = extractor.segmentAt(stations[i]);
+            double along = stations[i] - extractor.chainage[segment];
+            xs[i] = extractor.x(segment) + along * extractor.directionX(segment);
+            ys[i] = extractor.y(segment) + along * extractor.directionY(segment);
+        });
+        return new Profile(stations, xs, ys, tin.elevations(xs, ys));
+    }
+
+    /**
+     * Samples the terrain along an LWPOLYLINE, for example one read by a {@link com.crunchydevops.dxf.DxfReader}.
+     *
+     * @see #longitudinal(Tin, double[], double)
+     */
+    public static Profile longitudinal(Tin tin, DxfLwPolyline alignment, double interval) {
+        return longitudinal(tin, packed(alignment), interval);
+    }
+
+    /**
+     * Takes cross-sections at every station along an alignment.
+     * At a station on a vertex the section is perpendicular to the following segment.
+     *
+     * @param alignment Packed x/y coordinates of the alignment vertices
+     * @param interval The distance between stations
+     * @param offsets The offsets to sample, positive to the right; must be in ascending order
+     * @throws IllegalArgumentException if the alignment has no length, the interval is not
+     *         positive or the offsets are not ascending
+     */
+    public static CrossSections crossSections(Tin tin, double[] alignment, double interval, double[] offsets) {
+        Objects.requireNonNull(tin, "TIN cannot be null");
+        Objects.requireNonNull(offsets, "Offsets cannot be null");
+        for (int i = 0; i < offsets.length; i++) {
+            if (!Double.isFinite(offsets[i]) || (i > 0 && offsets[i] <= offsets[i - 1])) {
+                throw new IllegalArgumentException("Offsets must be finite and ascending: " + Arrays.toString(offsets));
+            }
+        }
+        ProfileExtractor extractor = new ProfileExtractor(alignment);
+        double[] stations = extractor.stations(interval);
+        int m = offsets.length;
+        if ((long) stations.length * m > MAX_SAMPLES) {
+            throw new IllegalArgumentException("Too many samples: %d sections of %d offsets".formatted(stations.length, m));
+        }
+        double[] xs = new double[stations.length * m];
+        double[] ys = new double[stations.length * m];
+        IntStream.range(0, stations.length).parallel().forEach(i -> {
+            int segment = extractor.segmentAt(stations[i]);
+            double along = stations[i] - extractor.chainage[segment];
+            double ux = extractor.directionX(segment);
+            double uy = extractor.directionY(segment);
+            double cx = extractor.x(segment) + along * ux;
+            double cy = extractor.y(segment) + along * uy;
+            // The right-hand normal of (ux, uy) is (uy, -ux)
+            for (int j = 0; j < m; j++) {
+                xs[i * m + j] = cx + offsets[j] * uy;
+                ys[i * m + j] = cy - offsets[j] * ux;
+            }
+        });
+        double[] elevations = tin.elevations(xs, ys);
+        logger.debug("Sampled {} cross-sections of {} offsets", stations.length, m);
+        return new CrossSections(stations, offsets.clone(), xs, ys, elevations);
+    }
+
+    /**
+     * Takes cross-sections along an LWPOLYLINE.
+     *
+     * @see #crossSections(Tin, double[], double, double[])
+     */
+    public static CrossSections crossSections(Tin tin, DxfLwPolyline alignment, double interval, double[] offsets) {
+        return crossSections(tin, packed(alignment), interval, offsets);
+    }
+
+    private double[] stations(double interval) {
+        if (!(interval > 0) || Double.isInfinite(interval)) {
+            throw new IllegalArgumentException("Interval must be positive: " + interval);
+        }
+        double count = Math.floor(length / interval) + 1;
+        boolean endStation = (count - 1) * interval < length;
+        if (count + (endStation ? 1 : 0) > MAX_SAMPLES) {
+            throw new IllegalArgumentException("Interval too small: %s over a length of %s".formatted(interval, length));
+        }
+        double[] stations = new double[(int) count + (endStation ? 1 : 0)];
+        for (int i = 0; i < (int) count; i++) {
+            stations[i] = i * interval;
+        }
+        if (endStation) {
+            stations[stations.length - 1] = length;
+        }
+        return stations;
+    }
+
+    /**
+     * @return The segment containing a station, the following one at a vertex
+     */
+    private int segmentAt(double station) {
+        int index = Arrays.binarySearch(chainage, station);
+        int segment = index >= 0 ? index : -index - 2;
+        return Math.max(0, Math.min(chainage.length - 2, segment));
+    }
+
+    private double x(int vertex) {
+        return vertices[2 * vertex];
+    }
+
+    private double y(int vertex) {
+        return vertices[2 * vertex + 1];
+    }
+
+    private double directionX(int segment) {
+        return (x(segment + 1) - x(segment)) / (chainage[segment + 1] - chainage[segment]);
+    }
+
+    private double directionY(int segment) {
+        return (y(segment + 1) - y(segment)) / (chainage[segment + 1] - chainage[segment]);
+    }
+}
@@ -0,0 +1,986 @@
+package com.crunchydevops.tin;
+
+import com.crunchydevops.Point3D;
+import com.crunchydevops.PointCloud;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Triangulated irregular network: the Delaunay triangulation of the XY positions
+ * of a set of points, carrying their Z values.
+ * <p>
+ * The mesh is a compact half-edge structure in two int arrays. Triangle {@code t}
+ * owns half-edges {@code 3t}, {@code 3t+1} and {@code 3t+2}; {@code triangles[e]} is
+ * the vertex half-edge {@code e} starts from and {@code halfedges[e]} is the opposite
+ * half-edge in the adjacent triangle, or -1 on the convex hull. Triangles are
+ * counter-clockwise.
+ * <p>
+ * Building follows the sweep-hull approach of Delaunator: points are sorted by distance
+ * from a seed circumcircle so that each one lies outside the hull built so far, triangles
+ * are fanned from it to the visible hull edges, and edges are flipped until they are
+ * locally Delaunay. {@link #insert(long, Point3D)} adds points later on, splitting the
+ * triangle that contains them or extending the hull.
+ * Points sharing the XY position of an existing vertex are skipped.
+ * <p>
+ * Elevations are interpolated linearly within the triangle found by walking the mesh
+ * from a nearby start, see {@link #elevations(double[], double[], double[])}.
+ */
+public final class Tin {
+    private static final Logger logger = LoggerFactory.getLogger(Tin.class);
+    private static final double EPSILON = Math.ulp(1.0);
+    private static final int WALK_FAILED = Integer.MIN_VALUE;
+    // Batches at least this large are interpolated in parallel, in chunks of CHUNK_SIZE queries
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+    private static final int CHUNK_SIZE = 4096;
+
+    // Vertices
+    private double[] coords = new double[0]; // x, y pairs
+    private double[] zs = new double[0];
+    private long[] ids = new long[0];
+    private int vertexCount;
+
+    // Half-edge mesh
+    private int[] triangles = new int[0];
+    private int[] halfedges = new int[0];
+    private int trianglesLength;
+
+    // Convex hull as a circular list of vertices; hullTri[v] is the half-edge from v to hullNext[v]
+    private int[] hullPrev = new int[0];
+    private int[] hullNext = new int[0];
+    private int[] hullTri = new int[0];
+    private int[] hullHash = new int[0];
+    private int hashSize;
+    private int hullStart = -1;
+    private int hullSize;
+    private double centerX;
+    private double centerY;
+
+    private int[] edgeStack = new int[512];
+    private int lastTriangle;
+    private long sampleSeed = 0x9E3779B97F4A7C15L;
+
+    private Tin() {
+    }
+
+    /**
+     * Triangulates the points of a cloud.
+     *
+     * @param cloud The points to triangulate
+     */
+    public static Tin build(PointCloud cloud) {
+        Tin tin = new Tin();
+        int n = cloud.size();
+        tin.ensureVertexCapacity(n);
+        for (int i = 0; i < n; i++) {
+            tin.coords[2 * i] = cloud.xAt(i);
+            tin.coords[2 * i + 1] = cloud.yAt(i);
+            tin.zs[i] = cloud.zAt(i);
+            tin.ids[i] = cloud.idAt(i);
+        }
+        tin.vertexCount = n;
+        tin.triangulate();
+        return tin;
+    }
+
+    private void ensureVertexCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int newCapacity = Math.max(capacity, Math.max(16, ids.length * 2));
+            coords = Arrays.copyOf(coords, 2 * newCapacity);
+            zs = Arrays.copyOf(zs, newCapacity);
+            ids = Arrays.copyOf(ids, newCapacity);
+            hullPrev = Arrays.copyOf(hullPrev, newCapacity);
+            hullNext = Arrays.copyOf(hullNext, newCapacity);
+            hullTri = Arrays.copyOf(hullTri, newCapacity);
+        }
+    }
+
+    private void ensureTriangleCapacity(int extraTriangles) {
+        int required = trianglesLength + 3 * extraTriangles;
+        if (required > triangles.length) {
+            int newLength = Math.max(required, triangles.length * 3 / 2);
+            triangles = Arrays.copyOf(triangles, newLength);
+            halfedges = Arrays.copyOf(halfedges, newLength);
+        }
+    }
+
+    /**
+     * Rebuilds the whole mesh from the current vertices.
+     */
+    private void triangulate() {
+        long start = System.nanoTime();
+        int n = vertexCount;
+        trianglesLength = 0;
+        lastTriangle = 0;
+        hullStart = -1;
+        hullSize = 0;
+        triangles = new int[3 * Math.max(2 * n - 5, 1)];
+        halfedges = new int[triangles.length];
+        hashSize = (int) Math.max(1, Math.ceil(Math.sqrt(n)));
+        hullHash = new int[hashSize];
+        if (n < 3) {
+            return;
+        }
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            double x = coords[2 * i], y = coords[2 * i + 1];
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        double cx = (minX + maxX) / 2;
+        double cy = (minY + maxY) / 2;
+
+        // Seed triangle: the point closest to the centre, its nearest neighbour,
+        // and the point forming the smallest circumcircle with them
+        int i0 = 0, i1 = -1, i2 = -1;
+        double minDist = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            double d = dist(cx, cy, coords[2 * i], coords[2 * i + 1]);
+            if (d < minDist) {
+                i0 = i;
+                minDist = d;
+            }
+        }
+        double i0x = coords[2 * i0], i0y = coords[2 * i0 + 1];
+        minDist = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            double d = dist(i0x, i0y, coords[2 * i], coords[2 * i + 1]);
+            if (i != i0 && d < minDist && d > 0) {
+                i1 = i;
+                minDist = d;
+            }
+        }
+        if (i1 < 0) {
+            logger.debug("All {} points coincide, no triangles", n);
+            return;
+        }
+        double i1x = coords[2 * i1], i1y = coords[2 * i1 + 1];
+        double minRadius = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            if (i == i0 || i == i1) {
+                continue;
+            }
+            double r = circumradius(i0x, i0y, i1x, i1y, coords[2 * i], coords[2 * i + 1]);
+            if (r < minRadius) {
+                i2 = i;
+                minRadius = r;
+            }
+        }
+        if (i2 < 0) {
+            logger.debug("All {} points are collinear, no triangles", n);
+            return;
+        }
+        double i2x = coords[2 * i2], i2y = coords[2 * i2 + 1];
+
+        // Make the seed counter-clockwise
+        if (cross(i0x, i0y, i1x, i1y, i2x, i2y) < 0) {
+            int i = i1;
+            i1 = i2;
+            i2 = i;
+            double x = i1x, y = i1y;
+            i1x = i2x;
+            i1y = i2y;
+            i2x = x;
+            i2y = y;
+        }
+
+        double[] center = circumcenter(i0x, i0y, i1x, i1y, i2x, i2y);
+        centerX = center[0];
+        centerY = center[1];
+
+        // Sort the points by distance from the seed circumcentre
+        int[] order = new int[n];
+        double[] dists = new double[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+            dists[i] = dist(coords[2 * i], coords[2 * i + 1], centerX, centerY);
+        }
+        quicksort(order, dists, 0, n - 1);
+
+        // The seed triangle is the initial hull
+        hullStart = i0;
+        hullSize = 3;
+        hullNext[i0] = hullPrev[i2] = i1;
+        hullNext[i1] = hullPrev[i0] = i2;
+        hullNext[i2] = hullPrev[i1] = i0;
+        hullTri[i0] = 0;
+        hullTri[i1] = 1;
+        hullTri[i2] = 2;
+        Arrays.fill(hullHash, -1);
+        hullHash[hashKey(i0x, i0y)] = i0;
+        hullHash[hashKey(i1x, i1y)] = i1;
+        hullHash[hashKey(i2x, i2y)] = i2;
+        addTriangle(i0, i1, i2, -1, -1, -1);
+
+        double xp = 0, yp = 0;
+        int skipped = 0;
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+            double x = coords[2 * i], y = coords[2 * i + 1];
+
+            // Skip near-duplicate points
+            if (k > 0 && Math.abs(x - xp) <= EPSILON && Math.abs(y - yp) <= EPSILON) {
+                skipped++;
+                continue;
+            }
+            xp = x;
+            yp = y;
+            if (i == i0 || i == i1 || i == i2) {
+                continue;
+            }
+
+            int e = findVisibleHullEdge(x, y);
+            if (e >= 0) {
+                addHullPoint(i, e);
+            } else if (!insertInside(i)) {
+                // Rounding in the sort can leave a point on or inside the hull
+                skipped++;
+            }
+        }
+        logger.debug("Triangulated {} points into {} triangles in {} ms ({} duplicates skipped)",
+            n, triangleCount(), (System.nanoTime() - start) / 1_000_000, skipped);
+    }
+
+    /**
+     * Uses the angular hash around the seed circumcentre to find a hull edge visible from a point.
+     *
+     * @return The vertex starting the visible edge, or -1 if no edge is visible
+     */
+    private int findVisibleHullEdge(double x, double y) {
+        int start = 0;
+        int key = hashKey(x, y);
+        for (int j = 0; j < hashSize; j++) {
+            start = hullHash[(key + j) % hashSize];
+            if (start != -1 && start != hullNext[start]) {
+                break;
+            }
+        }
+        start = hullPrev[start];
+        int e = start;
+        while (!isVisible(x, y, e, hullNext[e])) {
+            e = hullNext[e];
+            if (e == start) {
+                return -1;
+            }
+        }
+        return e;
+    }
+
+    private boolean isVisible(double x, double y, int from, int to) {
+        return cross(coords[2 * from], coords[2 * from + 1], coords[2 * to], coords[2 * to + 1], x, y) < 0;
+    }
+
+    /**
+     * Connects a point outside the hull to the chain of hull edges it can see,
+     * starting from the visible edge that begins at vertex {@code e}.
+     */
+    private void addHullPoint(int i, int e) {
+        double x = coords[2 * i], y = coords[2 * i + 1];
+        ensureTriangleCapacity(hullSize);
+
+        // Each new hull edge is recorded before legalizing, which keeps hullTri in step with its flips
+        int t = addTriangle(e, i, hullNext[e], -1, -1, hullTri[e]);
+        hullTri[e] = t;
+        hullTri[i] = t + 1;
+        legalize(t + 2);
+        hullSize++;
+
+        // Walk forward through the hull, adding triangles and flipping
+        int n = hullNext[e];
+        int q;
+        while (isVisible(x, y, n, q = hullNext[n])) {
+            t = addTriangle(n, i, q, hullTri[i], -1, hullTri[n]);
+            hullTri[i] = t + 1;
+            legalize(t + 2);
+            hullNext[n] = n; // Mark as removed
+            hullSize--;
+            n = q;
+        }
+
+        // Walk backward from the other side
+        while (isVisible(x, y, q = hullPrev[e], e)) {
+            t = addTriangle(q, i, e, -1, hullTri[e], hullTri[q]);
+            hullTri[q] = t;
+            legalize(t + 2);
+            hullNext[e] = e; // Mark as removed
+            hullSize--;
+            e = q;
+        }
+
+        hullStart = hullPrev[i] = e;
+        hullNext[e] = hullPrev[n] = i;
+        hullNext[i] = n;
+        hullHash[hashKey(x, y)] = i;
+        hullHash[hashKey(coords[2 * e], coords[2 * e + 1])] = e;
+        lastTriangle = t - t % 3;
+    }
+
+    /**
+     * Adds a point to the mesh after the initial build.
+     * Points inside the hull split the triangle containing them; points outside extend the hull.
+     * IDs are not checked for duplicates.
+     *
+     * @param id The ID of the point
+     * @param point The point to add
+     * @return true if the point was added, false if a vertex already exists at its XY position
+     * @throws IllegalArgumentException if point is null
+     */
+    public boolean insert(long id, Point3D point) {
+        if (point == null) {
+            throw new IllegalArgumentException("Point cannot be null");
+        }
+        double x = point.getX();
+        double y = point.getY();
+        ensureVertexCapacity(vertexCount + 1);
+        int i = vertexCount;
+        coords[2 * i] = x;
+        coords[2 * i + 1] = y;
+        zs[i] = point.getZ();
+        ids[i] = id;
+
+        if (trianglesLength == 0) {
+            // Fewer than three non-collinear points so far: start over
+            for (int v = 0; v < vertexCount; v++) {
+                if (coords[2 * v] == x && coords[2 * v + 1] == y) {
+                    return false;
+                }
+            }
+            vertexCount++;
+            triangulate();
+            return true;
+        }
+
+        int located = locate(x, y);
+        if (located < 0) {
+            vertexCount++;
+            addHullPoint(i, triangles[~located]);
+            return true;
+        }
+        if (!insertInside(i, located)) {
+            return false;
+        }
+        vertexCount++;
+        return true;
+    }
+
+    private boolean insertInside(int i) {
+        int located = locate(coords[2 * i], coords[2 * i + 1]);
+        if (located < 0) {
+            addHullPoint(i, triangles[~located]);
+            return true;
+        }
+        return insertInside(i, located);
+    }
+
+    /**
+     * Locates a point for insertion, starting from the last triangle located.
+     *
+     * @return The first half-edge of the triangle containing the point, or the complement
+     *         ({@code ~e}) of a hull half-edge that the point lies outside of
+     */
+    private int locate(double x, double y) {
+        sampleSeed = xorshift(sampleSeed);
+        int located = walk(x, y, jump(x, y, lastTriangle, sampleSeed));
+        if (located != WALK_FAILED) {
+            if (located >= 0) {
+                lastTriangle = located;
+            }
+            return located;
+        }
+
+        // The walk did not converge: fall back to a scan
+        for (int t = 0; t < trianglesLength; t += 3) {
+            if (containsPoint(t, x, y)) {
+                lastTriangle = t;
+                return t;
+            }
+        }
+        int e = hullStart;
+        do {
+            if (isVisible(x, y, e, hullNext[e])) {
+                return ~hullTri[e];
+            }
+            e = hullNext[e];
+        } while (e != hullStart);
+        throw new IllegalStateException("Cannot locate point " + x + ", " + y);
+    }
+
+    private static long xorshift(long seed) {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return seed;
+    }
+
+    /**
+     * Picks the closest of a sample of about {@code n^(1/3)} triangles and the given one as
+     * the start of a walk, so that isolated queries on a large mesh do not walk across it.
+     *
+     * @return The first half-edge of the chosen triangle
+     */
+    private int jump(double x, double y, int start, long seed) {
+        int t = start;
+        int triangleCount = triangleCount();
+        int samples = (int) Math.cbrt(triangleCount);
+        if (samples > 1) {
+            int v = triangles[t];
+            double best = dist(x, y, coords[2 * v], coords[2 * v + 1]);
+            for (int s = 0; s < samples; s++) {
+                seed = xorshift(seed);
+                int candidate = 3 * (int) Long.remainderUnsigned(seed, triangleCount);
+                v = triangles[candidate];
+                double d = dist(x, y, coords[2 * v], coords[2 * v + 1]);
+                if (d < best) {
+                    best = d;
+                    t = candidate;
+                }
+            }
+        }
+        return t;
+    }
+
+    /**
+     * Walks from triangle {@code t} towards a point, crossing an edge the point lies beyond at each step.
+     * Does not modify the mesh, so concurrent walks are safe.
+     *
+     * @return The first half-edge of the triangle containing the point, the complement
+     *         ({@code ~e}) of a hull half-edge that the point lies outside of, or
+     *         {@link #WALK_FAILED} if the walk did not converge
+     */
+    private int walk(double x, double y, int t) {
+        for (int steps = 0; steps < trianglesLength; steps++) {
+            int next = -1;
+            for (int k = 0; k < 3; k++) {
+                // Rotate the first edge tested so that the walk cannot cycle on degenerate input
+                int e = t + (k + steps) % 3;
+                int a = triangles[e];
+                int b = triangles[t + (e - t + 1) % 3];
+                if (cross(coords[2 * a], coords[2 * a + 1], coords[2 * b], coords[2 * b + 1], x, y) < 0) {
+                    int opposite = halfedges[e];
+                    if (opposite == -1) {
+                        return ~e;
+                    }
+                    next = opposite - opposite % 3;
+                    break;
+                }
+            }
+            if (next == -1) {
+                return t;
+            }
+            t = next;
+        }
+        return WALK_FAILED;
+    }
+
+    private boolean containsPoint(int t, double x, double y) {
+        for (int k = 0; k < 3; k++) {
+            int a = triangles[t + k];
+            int b = triangles[t + (k + 1) % 3];
+            if (cross(coords[2 * a], coords[2 * a + 1], coords[2 * b], coords[2 * b + 1], x, y) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Inserts vertex {@code i}, which lies in or on triangle {@code t}.
+     *
+     * @return false if the vertex coincides with a corner of the triangle
+     */
+    private boolean insertInside(int i, int t) {
+        double x = coords[2 * i], y = coords[2 * i + 1];
+        for (int k = 0; k < 3; k++) {
+            int v = triangles[t + k];
+            if (Math.abs(coords[2 * v] - x) <= EPSILON && Math.abs(coords[2 * v + 1] - y) <= EPSILON) {
+                return false;
+            }
+        }
+        ensureTriangleCapacity(2);
+
+        for (int k = 0; k < 3; k++) {
+            int e = t + k;
+            if (halfedges[e] == -1) {
+                int a = triangles[e];
+                int b = triangles[t + (k + 1) % 3];
+                if (cross(coords[2 * a], coords[2 * a + 1], coords[2 * b], coords[2 * b + 1], x, y) == 0) {
+                    splitHullEdge(i, t, k);
+                    return true;
+                }
+            }
+        }
+
+        // Split the triangle in three; a point on an interior edge leaves a flat triangle that the flips remove
+        int a = triangles[t], b = triangles[t + 1], c = triangles[t + 2];
+        int h1 = halfedges[t + 1], h2 = halfedges[t + 2];
+        triangles[t + 2] = i;
+        int t1 = addTriangle(b, c, i, h1, -1, t + 1);
+        int t2 = addTriangle(c, a, i, h2, t + 2, t1 + 1);
+        if (h1 == -1) {
+            hullTri[b] = t1;
+        }
+        if (h2 == -1) {
+            hullTri[c] = t2;
+        }
+        legalize(t);
+        legalize(t1);
+        legalize(t2);
+        return true;
+    }
+
+    /**
+     * Splits triangle {@code t} in two at vertex {@code i}, which lies on its hull edge {@code t + k}.
+     */
+    private void splitHullEdge(int i, int t, int k) {
+        int a = triangles[t + k];
+        int b = triangles[t + (k + 1) % 3];
+        int c = triangles[t + (k + 2) % 3];
+        int h1 = halfedges[t + (k + 1) % 3];
+        int h2 = halfedges[t + (k + 2) % 3];
+
+        // Triangle t becomes (a, i, c) and a new triangle takes (i, b, c)
+        triangles[t] = a;
+        triangles[t + 1] = i;
+        triangles[t + 2] = c;
+        link(t, -1);
+        link(t + 2, h2);
+        int t1 = addTriangle(i, b, c, -1, h1, t + 1);
+
+        hullTri[a] = t;
+        hullTri[i] = t1;
+        if (h1 == -1) {
+            hullTri[b] = t1 + 1;
+        }
+        if (h2 == -1) {
+            hullTri[c] = t + 2;
+        }
+        hullNext[a] = hullPrev[b] = i;
+        hullPrev[i] = a;
+        hullNext[i] = b;
+        hullSize++;
+        hullHash[hashKey(coords[2 * i], coords[2 * i + 1])] = i;
+
+        legalize(t1 + 1);
+        legalize(t + 2);
+    }
+
+    /**
+     * Flips edges, starting from half-edge {@code a}, until they are locally Delaunay.
+     * A flip moves the half-edges on the far sides of the two triangles; when one of them is
+     * on the hull, {@code hullTri} of the vertex it starts from follows it.
+     */
+    private void legalize(int a) {
+        int i = 0;
+        while (true) {
+            int b = halfedges[a];
+            int a0 = a - a % 3;
+            int ar = a0 + (a + 2) % 3;
+
+            if (b == -1) {
+                if (i == 0) {
+                    break;
+                }
+                a = edgeStack[--i];
+                continue;
+            }
+
+            int b0 = b - b % 3;
+            int al = a0 + (a + 1) % 3;
+            int bl = b0 + (b + 2) % 3;
+            int p0 = triangles[ar];
+            int pr = triangles[a];
+            int pl = triangles[al];
+            int p1 = triangles[bl];
+
+            if (inCircle(coords[2 * p0], coords[2 * p0 + 1], coords[2 * pr], coords[2 * pr + 1],
+                    coords[2 * pl], coords[2 * pl + 1], coords[2 * p1], coords[2 * p1 + 1])) {
+                triangles[a] = p1;
+                triangles[b] = p0;
+
+                // Edge p1 -> p0 moves from bl to a, and edge p0 -> pr from ar to b
+                int hbl = halfedges[bl];
+                int har = halfedges[ar];
+                if (hbl == -1) {
+                    hullTri[p1] = a;
+                }
+                if (har == -1) {
+                    hullTri[p0] = b;
+                }
+                link(a, hbl);
+                link(b, har);
+                link(ar, bl);
+
+                int br = b0 + (b + 1) % 3;
+                if (i == edgeStack.length) {
+                    edgeStack = Arrays.copyOf(edgeStack, i * 2);
+                }
+                edgeStack[i++] = br;
+            } else {
+                if (i == 0) {
+                    break;
+                }
+                a = edgeStack[--i];
+            }
+        }
+    }
+
+    private void link(int a, int b) {
+        halfedges[a] = b;
+        if (b != -1) {
+            halfedges[b] = a;
+        }
+    }
+
+    private int addTriangle(int i0, int i1, int i2, int a, int b, int c) {
+        ensureTriangleCapacity(1);
+        int t = trianglesLength;
+        triangles[t] = i0;
+        triangles[t + 1] = i1;
+        triangles[t + 2] = i2;
+        link(t, a);
+        link(t + 1, b);
+        link(t + 2, c);
+        trianglesLength += 3;
+        return t;
+    }
+
+    private int hashKey(double x, double y) {
+        return (int) Math.floor(pseudoAngle(x - centerX, y - centerY) * hashSize) % hashSize;
+    }
+
+    /**
+     * Monotonic in the angle of (dx, dy) without trigonometry.
+     *
+     * @return A value in [0, 1]
+     */
+    private static double pseudoAngle(double dx, double dy) {
+        double p = dx / (Math.abs(dx) + Math.abs(dy));
+        return (dy > 0 ? 3 - p : 1 + p) / 4;
+    }
+
+    private static double dist(double ax, double ay, double bx, double by) {
+        double dx = ax - bx;
+        double dy = ay - by;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * @return Twice the signed area of (a, b, c): positive if counter-clockwise
+     */
+    static double cross(double ax, double ay, double bx, double by, double cx, double cy) {
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+    }
+
+    /**
+     * @return true if p lies strictly inside the circumcircle of the counter-clockwise triangle (a, b, c)
+     */
+    private static boolean inCircle(double ax, double ay, double bx, double by, double cx, double cy,
+                                    double px, double py) {
+        double dx = ax - px, dy = ay - py;
+        double ex = bx - px, ey = by - py;
+        double fx = cx - px, fy = cy - py;
+        double ap = dx * dx + dy * dy;
+        double bp = ex * ex + ey * ey;
+        double cp = fx * fx + fy * fy;
+        return dx * (ey * cp - bp * fy) - dy * (ex * cp - bp * fx) + ap * (ex * fy - ey * fx) > 0;
+    }
+
+    private static double circumradius(double ax, double ay, double bx, double by, double cx, double cy) {
+        double dx = bx - ax, dy = by - ay;
+        double ex = cx - ax, ey = cy - ay;
+        double bl = dx * dx + dy * dy;
+        double cl = ex * ex + ey * ey;
+        double d = 0.5 / (dx * ey - dy * ex);
+        double x = (ey * bl - dy * cl) * d;
+        double y = (dx * cl - ex * bl) * d;
+        return x * x + y * y;
+    }
+
+    private static double[] circumcenter(double ax, double ay, double bx, double by, double cx, double cy) {
+        double dx = bx - ax, dy = by - ay;
+        double ex = cx - ax, ey = cy - ay;
+        double bl = dx * dx + dy * dy;
+        double cl = ex * ex + ey * ey;
+        double d = 0.5 / (dx * ey - dy * ex);
+        return new double[] {ax + (ey * bl - dy * cl) * d, ay + (dx * cl - ex * bl) * d};
+    }
+
+    /**
+     * Sorts point indices by their distances, using median-of-three quicksort and insertion sort for short runs.
+     */
+    private static void quicksort(int[] order, double[] dists, int left, int right) {
+        while (right - left > 20) {
+            int median = (left + right) >>> 1;
+            int i = left + 1;
+            int j = right;
+            swap(order, median, i);
+            if (dists[order[left]] > dists[order[right]]) {
+                swap(order, left, right);
+            }
+            if (dists[order[i]] > dists[order[right]]) {
+                swap(order, i, right);
+            }
+            if (dists[order[left]] > dists[order[i]]) {
+                swap(order, left, i);
+            }
+            int pivot = order[i];
+            double pivotDist = dists[pivot];
+            while (true) {
+                do {
+                    i++;
+                } while (dists[order[i]] < pivotDist);
+                do {
+                    j--;
+                } while (dists[order[j]] > pivotDist);
+                if (j < i) {
+                    break;
+                }
+                swap(order, i, j);
+            }
+            order[left + 1] = order[j];
+            order[j] = pivot;
+            // Recurse into the shorter side, loop on the longer one
+            if (right - i + 1 >= j - left) {
+                quicksort(order, dists, i, right);
+                right = j - 1;
+            } else {
+                quicksort(order, dists, left, j - 1);
+                left = i;
+            }
+        }
+        for (int i = left + 1; i <= right; i++) {
+            int temp = order[i];
+            double tempDist = dists[temp];
+            int j = i - 1;
+            while (j >= left && dists[order[j]] > tempDist) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = temp;
+        }
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    /**
+     * Interpolates the elevation at a location linearly within the triangle containing it.
+     *
+     * @param x The x coordinate of the location
+     * @param y The y coordinate of the location
+     * @return The elevation, or NaN if the location is outside the TIN
+     */
+    public double elevation(double x, double y) {
+        int t = triangleAt(x, y, jump(x, y, 0, 0x2545F4914F6CDD1DL));
+        return t < 0 ? Double.NaN : interpolate(t, x, y);
+    }
+
+    /**
+     * Interpolates the elevations at many locations.
+     * Each query starts walking from the triangle the previous one ended in, so spatially
+     * coherent batches such as grid rows or alignment stations cost close to a constant per query.
+     * Large batches are split into contiguous chunks interpolated in parallel.
+     * Must not run concurrently with {@link #insert(long, Point3D)}.
+     *
+     * @param xs The x coordinates of the locations
+     * @param ys The y coordinates of the locations
+     * @param out Receives the elevations, NaN outside the TIN; must be at least as long as the coordinate arrays
+     * @throws IllegalArgumentException if the array lengths do not match
+     */
+    public void elevations(double[] xs, double[] ys, double[] out) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Coordinate arrays must have the same length");
+        }
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Output array too short: " + out.length + " < " + xs.length);
+        }
+        int n = xs.length;
+        if (n < PARALLEL_THRESHOLD) {
+            interpolateRange(xs, ys, out, 0, n);
+            return;
+        }
+        int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks)
+            .parallel()
+            .forEach(c -> interpolateRange(xs, ys, out, c * CHUNK_SIZE, Math.min(n, (c + 1) * CHUNK_SIZE)));
+    }
+
+    /**
+     * Interpolates the elevations at many locations.
+     *
+     * @return The elevations, NaN outside the TIN
+     * @see #elevations(double[], double[], double[])
+     */
+    public double[] elevations(double[] xs, double[] ys) {
+        double[] out = new double[xs.length];
+        elevations(xs, ys, out);
+        return out;
+    }
+
+    private void interpolateRange(double[] xs, double[] ys, double[] out, int from, int to) {
+        if (trianglesLength == 0) {
+            Arrays.fill(out, from, to, Double.NaN);
+            return;
+        }
+        int hint = -1;
+        for (int i = from; i < to; i++) {
+            double x = xs[i];
+            double y = ys[i];
+            if (hint < 0) {
+                hint = jump(x, y, 0, 0x2545F4914F6CDD1DL + i);
+            }
+            int t = triangleAt(x, y, hint);
+            if (t < 0) {
+                out[i] = Double.NaN;
+            } else {
+                out[i] = interpolate(t, x, y);
+                hint = t;
+            }
+        }
+    }
+
+    /**
+     * @return The first half-edge of the triangle containing the point, or -1 if it is outside the TIN
+     */
+    private int triangleAt(double x, double y, int start) {
+        if (trianglesLength == 0) {
+            return -1;
+        }
+        int located = walk(x, y, start);
+        if (located != WALK_FAILED) {
+            return Math.max(located, -1);
+        }
+        for (int t = 0; t < trianglesLength; t += 3) {
+            if (containsPoint(t, x, y)) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the triangle containing a point, walking from a hint such as the previous result.
+     * Safe to call concurrently as long as the mesh is not modified.
+     *
+     * @param hint A triangle to start from, or -1 to pick one
+     * @return The triangle index, or -1 if the point is outside the TIN
+     */
+    int findTriangle(double x, double y, int hint) {
+        if (trianglesLength == 0) {
+            return -1;
+        }
+        int start = hint >= 0 ? 3 * hint : jump(x, y, 0, 0x2545F4914F6CDD1DL);
+        int t = triangleAt(x, y, start);
+        return t < 0 ? -1 : t / 3;
+    }
+
+    /**
+     * Interpolates the plane through the corners of the triangle starting at half-edge {@code t}.
+     */
+    private double interpolate(int t, double x, double y) {
+        int a = triangles[t], b = triangles[t + 1], c = triangles[t + 2];
+        double ax = coords[2 * a], ay = coords[2 * a + 1];
+        double bx = coords[2 * b], by = coords[2 * b + 1];
+        double cx = coords[2 * c], cy = coords[2 * c + 1];
+        double area = cross(ax, ay, bx, by, cx, cy);
+        double wa = cross(bx, by, cx, cy, x, y) / area;
+        double wb = cross(cx, cy, ax, ay, x, y) / area;
+        return wa * zs[a] + wb * zs[b] + (1 - wa - wb) * zs[c];
+    }
+
+    /**
+     * Counts every point the TIN was built from, including near-duplicates left out of the
+     * triangulation, and every point added by {@link #insert}. Points that {@code insert}
+     * rejects because a vertex already exists at their XY position are not counted.
+     *
+     * @return The number of vertices
+     */
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * @return The number of triangles
+     */
+    public int triangleCount() {
+        return trianglesLength / 3;
+    }
+
+    /**
+     * @return The x coordinate of a vertex
+     */
+    public double x(int vertex) {
+        return coords[2 * Objects.checkIndex(vertex, vertexCount)];
+    }
+
+    /**
+     * @return The y coordinate of a vertex
+     */
+    public double y(int vertex) {
+        return coords[2 * Objects.checkIndex(vertex, vertexCount) + 1];
+    }
+
+    /**
+     * @return The z coordinate of a vertex
+     */
+    public double z(int vertex) {
+        return zs[Objects.checkIndex(vertex, vertexCount)];
+    }
+
+    /**
+     * @return The ID of the point a vertex was created from
+     */
+    public long id(int vertex) {
+        return ids[Objects.checkIndex(vertex, vertexCount)];
+    }
+
+    /**
+     * @param triangle A triangle index in {@code 0..triangleCount()-1}
+     * @param corner 0, 1 or 2, in counter-clockwise order
+     * @return The vertex at the given corner of the triangle
+     */
+    public int vertex(int triangle, int corner) {
+        Objects.checkIndex(triangle, triangleCount());
+        return triangles[3 * triangle + Objects.checkIndex(corner, 3)];
+    }
+
+    /**
+     * Returns the triangle across an edge.
+     * Edge {@code k} of a triangle runs from corner {@code k} to corner {@code (k + 1) % 3}.
+     *
+     * @param triangle A triangle index in {@code 0..triangleCount()-1}
+     * @param edge 0, 1 or 2
+     * @return The adjacent triangle, or -1 if the edge is on the convex hull
+     */
+    public int neighbour(int triangle, int edge) {
+        Objects.checkIndex(triangle, triangleCount());
+        int opposite = halfedges[3 * triangle + Objects.checkIndex(edge, 3)];
+        return opposite < 0 ? -1 : opposite / 3;
+    }
+
+    /**
+     * @return The vertices of the convex hull in counter-clockwise order
+     */
+    public int[] hull() {
+        if (hullStart < 0 || trianglesLength == 0) {
+            return new int[0];
+        }
+        int[] hull = new int[hullSize];
+        int e = hullStart;
+        for (int i = 0; i < hullSize; i++) {
+            hull[i] = e;
+            e = hullNext[e];
+        }
+        return hull;
+    }
+}
@@ -0,0 +1,520 @@
+package com.crunchydevops.tin;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes exact cut and fill volumes between two TINs, or between a TIN and a horizontal plane.
+ * <p>
+ * The overlap of the two surfaces is divided into square cells. Every existing triangle is
+ * clipped to the cells it covers, and every clipped piece is intersected with the design
+ * triangles below it, found by walking the design TIN and flooding across its neighbours.
+ * On each resulting convex polygon the height difference is linear, so the polygon is split
+ * along the zero line and each side contributes its area times the difference at its centroid.
+ * Rows of cells are independent and are processed as fork-join tasks on the common pool.
+ */
+public final class VolumeCalculator {
+    private static final Logger logger = LoggerFactory.getLogger(VolumeCalculator.class);
+    private static final int MAX_CELLS = 1 << 26;
+    private static final int ROWS_PER_TASK = 2;
+
+    private final Tin existing;
+    private final Tin design;
+    private final double reference;
+    private final double originX;
+    private final double originY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final double[] cutCells;
+    private final double[] fillCells;
+    private final double[] areaCells;
+    private final TriangleRows existingRows;
+    private final TriangleRows designRows;
+
+    private VolumeCalculator(Tin existing, Tin design, double reference, double cellSize) {
+        if (!(cellSize > 0) || Double.isInfinite(cellSize)) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.existing = existing;
+        this.design = design;
+        this.reference = reference;
+        this.cellSize = cellSize;
+
+        // The grid covers the overlap of the two surfaces
+        double[] bounds = bounds(existing);
+        if (design != null) {
+            double[] other = bounds(design);
+            bounds[0] = Math.max(bounds[0], other[0]);
+            bounds[1] = Math.max(bounds[1], other[1]);
+            bounds[2] = Math.min(bounds[2], other[2]);
+            bounds[3] = Math.min(bounds[3], other[3]);
+        }
+        this.originX = bounds[0];
+        this.originY = bounds[1];
+        boolean empty = !(bounds[2] > bounds[0] && bounds[3] > bounds[1]);
+        double columnCount = empty ? 0 : Math.max(1, Math.ceil((bounds[2] - bounds[0]) / cellSize));
+        double rowCount = empty ? 0 : Math.max(1, Math.ceil((bounds[3] - bounds[1]) / cellSize));
+        if (columnCount * rowCount > MAX_CELLS) {
+            throw new IllegalArgumentException("Cell size too small: %s gives %.0f x %.0f cells"
+                .formatted(cellSize, columnCount, rowCount));
+        }
+        this.columns = (int) columnCount;
+        this.rows = (int) rowCount;
+        this.cutCells = new double[columns * rows];
+        this.fillCells = new double[columns * rows];
+        this.areaCells = new double[columns * rows];
+        this.existingRows = new TriangleRows(existing);
+        this.designRows = design == null ? null : new TriangleRows(design);
+    }
+
+    /**
+     * Computes the volumes between an existing surface and a design surface.
+     *
+     * @param existing The existing terrain, cut where it lies above the design
+     * @param design The design surface
+     * @param cellSize The side length of the cells of the per-cell breakdown
+     * @throws IllegalArgumentException if cellSize is not positive or gives too many cells
+     */
+    public static VolumeReport compare(Tin existing, Tin design, double cellSize) {
+        return new VolumeCalculator(existing, design, 0, cellSize).run();
+    }
+
+    /**
+     * Computes the volumes between an existing surface and a horizontal reference plane.
+     *
+     * @param existing The existing terrain, cut where it lies above the plane
+     * @param referenceElevation The elevation of the plane
+     * @param cellSize The side length of the cells of the per-cell breakdown
+     * @throws IllegalArgumentException if cellSize is not positive or gives too many cells
+     */
+    public static VolumeReport compare(Tin existing, double referenceElevation, double cellSize) {
+        return new VolumeCalculator(existing, null, referenceElevation, cellSize).run();
+    }
+
+    private VolumeReport run() {
+        long start = System.nanoTime();
+        if (rows > 0) {
+            ForkJoinPool.commonPool().invoke(new RowTask(0, rows));
+        }
+        VolumeReport report = new VolumeReport(originX, originY, cellSize, columns, rows, cutCells, fillCells, areaCells);
+        logger.debug("Computed {} in {} ms", report, (System.nanoTime() - start) / 1_000_000);
+        return report;
+    }
+
+    /**
+     * @return minX, minY, maxX, maxY of the triangulated vertices
+     */
+    private static double[] bounds(Tin tin) {
+        double[] bounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int v : tin.hull()) {
+            bounds[0] = Math.min(bounds[0], tin.x(v));
+            bounds[1] = Math.min(bounds[1], tin.y(v));
+            bounds[2] = Math.max(bounds[2], tin.x(v));
+            bounds[3] = Math.max(bounds[3], tin.y(v));
+        }
+        return bounds;
+    }
+
+    private int row(double y) {
+        return (int) Math.max(0, Math.min(rows - 1, Math.floor((y - originY) / cellSize)));
+    }
+
+    private int column(double x) {
+        return (int) Math.max(0, Math.min(columns - 1, Math.floor((x - originX) / cellSize)));
+    }
+
+    /**
+     * The triangles of a TIN bucketed by the grid rows their bounding boxes overlap.
+     */
+    private final class TriangleRows {
+        private final int[] rowStart;
+        private final int[] triangles;
+
+        private TriangleRows(Tin tin) {
+            int count = tin.triangleCount();
+            int[] firstRow = new int[count];
+            int[] lastRow = new int[count];
+            rowStart = new int[rows + 1];
+            double top = originY + rows * cellSize;
+            for (int t = 0; t < count; t++) {
+                double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+                for (int k = 0; k < 3; k++) {
+                    double y = tin.y(tin.vertex(t, k));
+                    minY = Math.min(minY, y);
+                    maxY = Math.max(maxY, y);
+                }
+                if (rows == 0 || maxY < originY || minY > top) {
+                    firstRow[t] = 0;
+                    lastRow[t] = -1;
+                    continue;
+                }
+                firstRow[t] = row(minY);
+                lastRow[t] = row(maxY);
+                for (int r = firstRow[t]; r <= lastRow[t]; r++) {
+                    rowStart[r + 1]++;
+                }
+            }
+            for (int r = 0; r < rows; r++) {
+                rowStart[r + 1] += rowStart[r];
+            }
+            // Order each row from left to right so that consecutive walks in the design TIN stay short
+            long[] keys = new long[rows == 0 ? 0 : rowStart[rows]];
+            int[] fill = Arrays.copyOf(rowStart, rows + 1);
+            for (int t = 0; t < count; t++) {
+                double centroidX = 0;
+                for (int k = 0; k < 3; k++) {
+                    centroidX += tin.x(tin.vertex(t, k)) / 3;
+                }
+                long key = (long) Float.floatToIntBits((float) Math.max(0, centroidX - originX)) << 32 | t;
+                for (int r = firstRow[t]; r <= lastRow[t]; r++) {
+                    keys[fill[r]++] = key;
+                }
+            }
+            triangles = new int[keys.length];
+            for (int r = 0; r < rows; r++) {
+                Arrays.sort(keys, rowStart[r], rowStart[r + 1]);
+            }
+            for (int i = 0; i < keys.length; i++) {
+                triangles[i] = (int) keys[i];
+            }
+        }
+    }
+
+    private final class RowTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+
+        private RowTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                RowWorker worker = new RowWorker();
+                for (int row = from; row < to; row++) {
+                    worker.process(row);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RowTask(from, mid), new RowTask(mid, to));
+        }
+    }
+
+    /**
+     * Clips and integrates the triangles of one row at a time, with its own scratch space.
+     * Coordinates are relative to the grid origin to keep the products small.
+     */
+    private final class RowWorker {
+        private final Polygon triangle = new Polygon();
+        private final Polygon strip = new Polygon();
+        private final Polygon piece = new Polygon();
+        private final Polygon overlap = new Polygon();
+        private final Polygon side = new Polygon();
+        private final Polygon scratch = new Polygon();
+        private final double[] plane = new double[3];
+        private final double[] designPlane = new double[3];
+        private int[] queue = new int[16];
+        private int hint = -1;
+
+        private void process(int row) {
+            double y0 = row * cellSize;
+            double y1 = y0 + cellSize;
+            for (int i = existingRows.rowStart[row]; i < existingRows.rowStart[row + 1]; i++) {
+                int t = existingRows.triangles[i];
+                if (!loadTriangle(existing, t, triangle, plane)) {
+                    continue;
+                }
+                triangle.clip(0, 1, -y0, scratch);
+                scratch.clip(0, -1, y1, strip);
+                if (strip.size < 3) {
+                    continue;
+                }
+                int c0 = column(strip.minX() + originX);
+                int c1 = column(strip.maxX() + originX);
+                for (int column = c0; column <= c1; column++) {
+                    double x0 = column * cellSize;
+                    strip.clip(1, 0, -x0, scratch);
+                    scratch.clip(-1, 0, x0 + cellSize, piece);
+                    if (piece.size < 3) {
+                        continue;
+                    }
+                    int cell = row * columns + column;
+                    if (design == null) {
+                        integrate(piece, plane[0], plane[1], plane[2] - reference, cell);
+                    } else {
+                        overlay(row, cell);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Integrates the piece against every design triangle it overlaps.
+         */
+        private void overlay(int row, int cell) {
+            piece.measure();
+            int seed = design.findTriangle(piece.centroidX + originX, piece.centroidY + originY, hint);
+            if (seed < 0) {
+                // Near the edge of the design surface: test the design triangles of this row
+                double minX = piece.minX(), maxX = piece.maxX();
+                for (int i = designRows.rowStart[row]; i < designRows.rowStart[row + 1]; i++) {
+                    int t = designRows.triangles[i];
+                    if (overlapsX(t, minX, maxX)) {
+                        intersect(t, cell);
+                    }
+                }
+                return;
+            }
+            hint = seed;
+
+            // Flood across neighbours while the design triangles keep overlapping the piece
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = seed;
+            while (head < tail) {
+                int t = queue[head++];
+                if (!intersect(t, cell)) {
+                    continue;
+                }
+                for (int edge = 0; edge < 3; edge++) {
+                    int neighbour = design.neighbour(t, edge);
+                    if (neighbour >= 0 && !contains(queue, tail, neighbour)) {
+                        if (tail == queue.length) {
+                            queue = Arrays.copyOf(queue, tail * 2);
+                        }
+                        queue[tail++] = neighbour;
+                    }
+                }
+            }
+        }
+
+        private boolean overlapsX(int t, double minX, double maxX) {
+            double tMin = Double.POSITIVE_INFINITY, tMax = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < 3; k++) {
+                double x = design.x(design.vertex(t, k)) - originX;
+                tMin = Math.min(tMin, x);
+                tMax = Math.max(tMax, x);
+            }
+            return tMin <= maxX && tMax >= minX;
+        }
+
+        private static boolean contains(int[] values, int size, int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Integrates the overlap of the piece with design triangle t.
+         *
+         * @return true if they overlap with a positive area
+         */
+        private boolean intersect(int t, int cell) {
+            if (!loadTriangle(design, t, scratch, designPlane) || !scratch.overlapsBounds(piece)) {
+                return false;
+            }
+            piece.copyTo(overlap);
+            for (int k = 0; k < 3; k++) {
+                double ax = scratch.x[k], ay = scratch.y[k];
+                double bx = scratch.x[(k + 1) % 3], by = scratch.y[(k + 1) % 3];
+                // Left of the counter-clockwise edge a -> b
+                overlap.clip(-(by - ay), bx - ax, (by - ay) * ax - (bx - ax) * ay, side);
+                side.copyTo(overlap);
+            }
+            if (overlap.size < 3 || overlap.measure() <= 0) {
+                return false;
+            }
+            integrate(overlap, plane[0] - designPlane[0], plane[1] - designPlane[1],
+                plane[2] - designPlane[2], cell);
+            return true;
+        }
+
+        /**
+         * Integrates the height difference a*x + b*y + c over a convex polygon,
+         * splitting it where the difference changes sign.
+         */
+        private void integrate(Polygon polygon, double a, double b, double c, int cell) {
+            double area = polygon.measure();
+            areaCells[cell] += area;
+            double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < polygon.size; i++) {
+                double d = a * polygon.x[i] + b * polygon.y[i] + c;
+                min = Math.min(min, d);
+                max = Math.max(max, d);
+            }
+            if (min >= 0 || max <= 0) {
+                // No sign change: the whole polygon is cut or fill
+                double volume = area * (a * polygon.centroidX + b * polygon.centroidY + c);
+                if (volume > 0) {
+                    cutCells[cell] += volume;
+                } else {
+                    fillCells[cell] -= volume;
+                }
+                return;
+            }
+            polygon.clip(a, b, c, side);
+            if (side.size >= 3) {
+                double sideArea = side.measure();
+                cutCells[cell] += sideArea * Math.max(0, a * side.centroidX + b * side.centroidY + c);
+            }
+            polygon.clip(-a, -b, -c, side);
+            if (side.size >= 3) {
+                double sideArea = side.measure();
+                fillCells[cell] += sideArea * Math.max(0, -(a * side.centroidX + b * side.centroidY + c));
+            }
+        }
+
+        /**
+         * Loads triangle t relative to the grid origin and the coefficients of its plane z = a*x + b*y + c.
+         *
+         * @return false if the triangle is degenerate
+         */
+        private boolean loadTriangle(Tin tin, int t, Polygon polygon, double[] coefficients) {
+            int va = tin.vertex(t, 0), vb = tin.vertex(t, 1), vc = tin.vertex(t, 2);
+            double ax = tin.x(va) - originX, ay = tin.y(va) - originY, az = tin.z(va);
+            double bx = tin.x(vb) - originX, by = tin.y(vb) - originY, bz = tin.z(vb);
+            double cx = tin.x(vc) - originX, cy = tin.y(vc) - originY, cz = tin.z(vc);
+            double det = Tin.cross(ax, ay, bx, by, cx, cy);
+            if (det <= 0) {
+                return false;
+            }
+            double alpha = ((bz - az) * (cy - ay) - (by - ay) * (cz - az)) / det;
+            double beta = ((bx - ax) * (cz - az) - (bz - az) * (cx - ax)) / det;
+            coefficients[0] = alpha;
+            coefficients[1] = beta;
+            coefficients[2] = az - alpha * ax - beta * ay;
+            polygon.size = 3;
+            polygon.x[0] = ax;
+            polygon.y[0] = ay;
+            polygon.x[1] = bx;
+            polygon.y[1] = by;
+            polygon.x[2] = cx;
+            polygon.y[2] = cy;
+            return true;
+        }
+    }
+
+    /**
+     * A small convex polygon with Sutherland-Hodgman clipping.
+     * Clipping a triangle by the four sides of a cell, a second triangle and the zero
+     * line adds at most eight vertices.
+     */
+    private static final class Polygon {
+        private final double[] x = new double[16];
+        private final double[] y = new double[16];
+        private int size;
+        private double centroidX;
+        private double centroidY;
+
+        /**
+         * Writes the part of this polygon where a*x + b*y + c >= 0 into {@code out}.
+         */
+        private void clip(double a, double b, double c, Polygon out) {
+            out.size = 0;
+            if (size == 0) {
+                return;
+            }
+            double px = x[size - 1], py = y[size - 1];
+            double pd = a * px + b * py + c;
+            for (int i = 0; i < size; i++) {
+                double qx = x[i], qy = y[i];
+                double qd = a * qx + b * qy + c;
+                if ((pd >= 0) != (qd >= 0)) {
+                    double t = pd / (pd - qd);
+                    out.add(px + t * (qx - px), py + t * (qy - py));
+                }
+                if (qd >= 0) {
+                    out.add(qx, qy);
+                }
+                px = qx;
+                py = qy;
+                pd = qd;
+            }
+        }
+
+        private void add(double px, double py) {
+            x[size] = px;
+            y[size] = py;
+            size++;
+        }
+
+        private void copyTo(Polygon out) {
+            System.arraycopy(x, 0, out.x, 0, size);
+            System.arraycopy(y, 0, out.y, 0, size);
+            out.size = size;
+        }
+
+        /**
+         * Computes the area of the polygon and stores its centroid.
+         *
+         * @return The area, positive for a counter-clockwise polygon
+         */
+        private double measure() {
+            double sum = 0, cx = 0, cy = 0;
+            for (int i = 0, j = size - 1; i < size; j = i++) {
+                double cross = x[j] * y[i] - x[i] * y[j];
+                sum += cross;
+                cx += (x[j] + x[i]) * cross;
+                cy += (y[j] + y[i]) * cross;
+            }
+            if (sum == 0) {
+                centroidX = size == 0 ? 0 : x[0];
+                centroidY = size == 0 ? 0 : y[0];
+            } else {
+                centroidX = cx / (3 * sum);
+                centroidY = cy / (3 * sum);
+            }
+            return sum / 2;
+        }
+
+        private boolean overlapsBounds(Polygon other) {
+            return minX() <= other.maxX() && maxX() >= other.minX()
+                && minY() <= other.maxY() && maxY() >= other.minY();
+        }
+
+        private double minY() {
+            double min = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                min = Math.min(min, y[i]);
+            }
+            return min;
+        }
+
+        private double maxY() {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, y[i]);
+            }
+            return max;
+        }
+
+        private double minX() {
+            double min = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                min = Math.min(min, x[i]);
+            }
+            return min;
+        }
+
+        private double maxX() {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, x[i]);
+            }
+            return max;
+        }
+    }
+}
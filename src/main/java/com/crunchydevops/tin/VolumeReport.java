@@ -0,0 +1,139 @@
+package com.crunchydevops.tin;
+
+import java.util.Objects;
+
+/**
+ * Cut and fill volumes between an existing surface and a design surface,
+ * in total and per cell of a regular grid.
+ * Cut is where the existing surface lies above the design and material is removed;
+ * fill is where it lies below and material is added. Volumes are in cubic drawing units
+ * and only count the area covered by both surfaces.
+ */
+public final class VolumeReport {
+    private final double originX;
+    private final double originY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final double[] cutCells;
+    private final double[] fillCells;
+    private final double[] areaCells;
+    private final double cut;
+    private final double fill;
+    private final double area;
+
+    VolumeReport(double originX, double originY, double cellSize, int columns, int rows,
+                 double[] cutCells, double[] fillCells, double[] areaCells) {
+        this.originX = originX;
+        this.originY = originY;
+        this.cellSize = cellSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.cutCells = cutCells;
+        this.fillCells = fillCells;
+        this.areaCells = areaCells;
+        double cutSum = 0, fillSum = 0, areaSum = 0;
+        for (int i = 0; i < cutCells.length; i++) {
+            cutSum += cutCells[i];
+            fillSum += fillCells[i];
+            areaSum += areaCells[i];
+        }
+        this.cut = cutSum;
+        this.fill = fillSum;
+        this.area = areaSum;
+    }
+
+    /**
+     * @return The total cut volume
+     */
+    public double cut() {
+        return cut;
+    }
+
+    /**
+     * @return The total fill volume
+     */
+    public double fill() {
+        return fill;
+    }
+
+    /**
+     * @return The net volume, cut minus fill: positive when material is left over
+     */
+    public double net() {
+        return cut - fill;
+    }
+
+    /**
+     * @return The plan area covered by both surfaces
+     */
+    public double area() {
+        return area;
+    }
+
+    /**
+     * @return The x coordinate of the lower left corner of the grid
+     */
+    public double originX() {
+        return originX;
+    }
+
+    /**
+     * @return The y coordinate of the lower left corner of the grid
+     */
+    public double originY() {
+        return originY;
+    }
+
+    /**
+     * @return The side length of a grid cell
+     */
+    public double cellSize() {
+        return cellSize;
+    }
+
+    /**
+     * @return The number of grid columns, along x
+     */
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * @return The number of grid rows, along y
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * @return The cut volume within a grid cell
+     */
+    public double cut(int column, int row) {
+        return cutCells[cell(column, row)];
+    }
+
+    /**
+     * @return The fill volume within a grid cell
+     */
+    public double fill(int column, int row) {
+        return fillCells[cell(column, row)];
+    }
+
+    /**
+     * @return The area of a grid cell covered by both surfaces
+     */
+    public double area(int column, int row) {
+        return areaCells[cell(column, row)];
+    }
+
+    private int cell(int column, int row) {
+        return Objects.checkIndex(row, rows) * columns + Objects.checkIndex(column, columns);
+    }
+
+    @Override
+    public String toString() {
+        return "VolumeReport{cut=%.3f, fill=%.3f, net=%.3f, area=%.3f, grid=%dx%d}"
+            .formatted(cut, fill, net(), area, columns, rows);
+    }
+}
@@ -0,0 +1,132 @@
+package com.crunchydevops;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ColumnarPointCloud
+ */
+class ColumnarPointCloudTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testWrittenCloudMatchesSource() throws IOException {
+        PointCloud source = new PointCloud();
+        Random random = new Random(3);
+        for (int i = 0; i < 10_000; i++) {
+            source.addPoint(random.nextLong() >>> 20, new Point3D(random.nextFloat(), random.nextFloat(), i));
+        }
+        source.removePoint(source.idAt(17));
+        Path file = tempDir.resolve("points.pcol");
+        ColumnarPointCloud.write(source, file, 100);
+
+        try (ColumnarPointCloud cloud = ColumnarPointCloud.open(file)) {
+            assertEquals(source.size(), cloud.size());
+            assertEquals(100, cloud.blockSize());
+            for (int index = 0; index < source.size(); index++) {
+                long id = source.idAt(index);
+                assertEquals(source.getPoint(id), cloud.getPoint(id));
+            }
+            for (int index = 1; index < cloud.size(); index++) {
+                assertTrue(cloud.idAt(index - 1) < cloud.idAt(index));
+                assertEquals(index, cloud.indexOf(cloud.idAt(index)));
+            }
+            assertEquals(-1, cloud.indexOf(-5L));
+            assertEquals(source.statistics(), cloud.statistics());
+        }
+    }
+
+    @Test
+    void testWindowPrunesBlocks() throws IOException {
+        PointCloud source = new PointCloud();
+        // Ids follow a row-by-row survey, so every block covers a strip of rows
+        for (int row = 0; row < 100; row++) {
+            for (int column = 0; column < 100; column++) {
+                source.addPoint(row * 100L + column, new Point3D(column, row, 0));
+            }
+        }
+        Path file = tempDir.resolve("grid.pcol");
+        ColumnarPointCloud.write(source, file, 64);
+
+        try (ColumnarPointCloud cloud = ColumnarPointCloud.open(file)) {
+            long[] ids = cloud.window(10, 20, 12, 21);
+            assertArrayEquals(new long[] {2010, 2011, 2012, 2110, 2111, 2112}, ids);
+            assertEquals(0, cloud.window(200, 200, 300, 300).length);
+
+            long[] expected = GridIndex.build(source).window(-0.5, 40.5, 99.5, 42.5);
+            Arrays.sort(expected);
+            assertArrayEquals(expected, cloud.window(-0.5, 40.5, 99.5, 42.5));
+        }
+    }
+
+    @Test
+    void testCloudIsReadOnly() throws IOException {
+        PointCloud source = new PointCloud();
+        source.addPoint(42L, new Point3D(1, 2, 3));
+        Path file = tempDir.resolve("one.pcol");
+        ColumnarPointCloud.write(source, file);
+
+        ColumnarPointCloud cloud = ColumnarPointCloud.open(file);
+        assertThrows(UnsupportedOperationException.class, () -> cloud.addPoint(1L, new Point3D(0, 0, 0)));
+        assertThrows(UnsupportedOperationException.class, () -> cloud.addAll(new float[1], new float[1], new float[1]));
+        assertThrows(UnsupportedOperationException.class, () -> cloud.removePoint(42L));
+        assertEquals(new Point3D(1, 2, 3), cloud.getPoint(42L).orElseThrow());
+        cloud.close();
+        assertThrows(IllegalStateException.class, () -> cloud.getPoint(42L));
+        assertThrows(IllegalStateException.class, () -> cloud.xAt(0));
+        assertThrows(IllegalStateException.class, () -> cloud.zAt(0));
+        assertThrows(IllegalStateException.class, () -> cloud.idAt(0));
+        assertThrows(IllegalStateException.class, () -> cloud.window(0, 0, 10, 10));
+    }
+
+    @Test
+    void testRewriteKeepsOpenCloudsReadable() throws IOException {
+        PointCloud first = new PointCloud();
+        first.addPoint(1L, new Point3D(1, 2, 3));
+        first.addPoint(2L, new Point3D(4, 5, 6));
+        Path file = tempDir.resolve("points.pcol");
+        ColumnarPointCloud.write(first, file);
+
+        try (ColumnarPointCloud cloud = ColumnarPointCloud.open(file)) {
+            PointCloud second = new PointCloud();
+            second.addPoint(7L, new Point3D(7, 8, 9));
+            ColumnarPointCloud.write(second, file);
+
+            assertEquals(2, cloud.size());
+            assertEquals(new Point3D(4, 5, 6), cloud.getPoint(2L).orElseThrow());
+            try (ColumnarPointCloud rewritten = ColumnarPointCloud.open(file)) {
+                assertEquals(new Point3D(7, 8, 9), rewritten.getPoint(7L).orElseThrow());
+            }
+        }
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testEmptyAndInvalidFiles() throws IOException {
+        Path empty = tempDir.resolve("empty.pcol");
+        ColumnarPointCloud.write(new PointCloud(), empty);
+        try (ColumnarPointCloud cloud = ColumnarPointCloud.open(empty)) {
+            assertEquals(0, cloud.size());
+            assertTrue(cloud.getPoint(1L).isEmpty());
+            assertEquals(0, cloud.window(0, 0, 1, 1).length);
+        }
+
+        Path garbage = tempDir.resolve("garbage.pcol");
+        Files.write(garbage, new byte[100]);
+        assertThrows(IOException.class, () -> ColumnarPointCloud.open(garbage));
+        assertThrows(IllegalArgumentException.class, () -> ColumnarPointCloud.write(new PointCloud(), empty, 0));
+    }
+}
@@ -0,0 +1,157 @@
+package com.crunchydevops;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ConcurrentPointCloud
+ */
+class ConcurrentPointCloudTest {
+    private static final int THREADS = 8;
+
+    private static <T> List<T> runConcurrently(int tasks, Task<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int t = 0; t < tasks; t++) {
+                int index = t;
+                futures.add(executor.submit(() -> task.run(index)));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface Task<T> {
+        T run(int index) throws Exception;
+    }
+
+    @Test
+    void testPointCloudContract() {
+        PointCloud cloud = new ConcurrentPointCloud();
+        assertTrue(cloud.addPoint(1L, new Point3D(0, 0, 0)));
+        assertTrue(cloud.addPoint(2L, new Point3D(3, 4, 0)));
+        assertTrue(cloud.addPoint(3L, new Point3D(3, 4, 3)));
+        assertFalse(cloud.addPoint(2L, new Point3D(9, 9, 9)));
+        assertThrows(IllegalArgumentException.class, () -> cloud.addPoint(4L, null));
+
+        assertEquals(5.0, cloud.distance(1L, 2L).orElseThrow(), 1e-9);
+        assertEquals(Double.POSITIVE_INFINITY, cloud.slope(2L, 3L).orElseThrow());
+        assertEquals(4L, cloud.addAll(new float[] {1}, new float[] {1}, new float[] {1}));
+
+        assertTrue(cloud.removePoint(1L));
+        assertFalse(cloud.removePoint(1L));
+        assertEquals(3, cloud.size());
+        assertEquals(0, cloud.indexOf(4L));
+        assertEquals(new Point3D(1, 1, 1), cloud.getPoint(4L).orElseThrow());
+        assertThrows(IndexOutOfBoundsException.class, () -> cloud.xAt(3));
+        assertEquals(3, cloud.statistics().orElseThrow().count());
+    }
+
+    @Test
+    void testConcurrentAddsKeepOneWinnerPerId() throws Exception {
+        ConcurrentPointCloud cloud = new ConcurrentPointCloud();
+        int perThread = 50_000;
+
+        // Every thread adds its own ids and races the others on a shared range
+        List<Integer> wins = runConcurrently(THREADS, t -> {
+            int won = 0;
+            for (int i = 0; i < perThread; i++) {
+                long own = 1_000_000L * (t + 1) + i;
+                assertTrue(cloud.addPoint(own, new Point3D(i, t, own)));
+                if (cloud.addPoint(i, new Point3D(i, t, i))) {
+                    won++;
+                }
+            }
+            return won;
+        });
+
+        assertEquals(perThread, wins.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(perThread * (THREADS + 1), cloud.size());
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < perThread; i += 97) {
+                long own = 1_000_000L * (t + 1) + i;
+                assertEquals(new Point3D(i, t, own), cloud.getPoint(own).orElseThrow());
+            }
+        }
+        for (int index = 0; index < cloud.size(); index++) {
+            assertEquals(index, cloud.indexOf(cloud.idAt(index)));
+        }
+    }
+
+    @Test
+    void testReadersSeeConsistentPointsDuringUpdates() throws Exception {
+        ConcurrentPointCloud cloud = new ConcurrentPointCloud();
+        for (long id = 0; id < 10_000; id++) {
+            cloud.addPoint(id, new Point3D(id, -id, id));
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger reads = new AtomicInteger();
+
+        List<Boolean> results = runConcurrently(4, t -> {
+            if (t == 0) {
+                // Appends new points while removing others, which moves points between indices
+                for (long id = 10_000; id < 60_000; id++) {
+                    cloud.addPoint(id, new Point3D(id, -id, id));
+                    if (id % 3 == 0) {
+                        assertTrue(cloud.removePoint(id - 5_000));
+                    }
+                }
+                done.set(true);
+                return true;
+            }
+            while (!done.get()) {
+                long id = (long) (Math.random() * 10_000);
+                // Ids from 5 000 up with id % 3 == 1 are being removed
+                if (id < 5_000 || id % 3 != 1) {
+                    Point3D point = cloud.getPoint(id).orElseThrow();
+                    assertEquals(new Point3D(id, -id, id), point);
+                }
+                int size = cloud.size();
+                if (size > 0) {
+                    int index = (int) (Math.random() * size);
+                    long indexed = cloud.idAt(Math.min(index, cloud.size() - 1));
+                    assertTrue(indexed >= 0);
+                }
+                reads.incrementAndGet();
+            }
+            return true;
+        });
+
+        assertTrue(results.stream().allMatch(Boolean::booleanValue));
+        assertTrue(reads.get() > 0);
+        assertEquals(60_000 - 16_666, cloud.size());
+    }
+
+    @Test
+    void testConcurrentAddAllAssignsDisjointIds() throws Exception {
+        ConcurrentPointCloud cloud = new ConcurrentPointCloud(1_000);
+        List<Long> firstIds = runConcurrently(THREADS * 4, t -> {
+            float[] x = new float[1_000];
+            java.util.Arrays.fill(x, t);
+            return cloud.addAll(x, x, x);
+        });
+
+        assertEquals(THREADS * 4 * 1_000, cloud.size());
+        for (int t = 0; t < firstIds.size(); t++) {
+            long first = firstIds.get(t);
+            assertEquals(new Point3D(t, t, t), cloud.getPoint(first).orElseThrow());
+            assertEquals(new Point3D(t, t, t), cloud.getPoint(first + 999).orElseThrow());
+        }
+        assertEquals(THREADS * 4 * 1_000L, firstIds.stream().mapToLong(Long::longValue).max().orElseThrow() + 999);
+    }
+}
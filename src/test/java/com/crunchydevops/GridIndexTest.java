@@ -0,0 +1,154 @@
+package com.crunchydevops;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for GridIndex
+ */
+class GridIndexTest {
+
+    private interface XyPredicate {
+        boolean test(double x, double y);
+    }
+
+    /**
+     * Half the points are spread over a 1 km square, half are packed into a 1 m cluster.
+     */
+    private static PointCloud clusteredCloud() {
+        Random random = new Random(7);
+        int n = 40_000;
+        float[] x = new float[n];
+        float[] y = new float[n];
+        float[] z = new float[n];
+        for (int i = 0; i < n; i++) {
+            boolean clustered = i % 2 == 0;
+            x[i] = clustered ? 500 + random.nextFloat() : random.nextFloat() * 1000;
+            y[i] = clustered ? 500 + random.nextFloat() : random.nextFloat() * 1000;
+        }
+        PointCloud cloud = new PointCloud();
+        cloud.addAll(x, y, z);
+        return cloud;
+    }
+
+    private static long[] bruteForce(PointCloud cloud, XyPredicate predicate) {
+        return java.util.stream.IntStream.range(0, cloud.size())
+            .filter(i -> predicate.test(cloud.xAt(i), cloud.yAt(i)))
+            .mapToLong(cloud::idAt)
+            .sorted()
+            .toArray();
+    }
+
+    private static long[] sorted(long[] ids) {
+        long[] copy = ids.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    @Test
+    void testWindow() {
+        PointCloud cloud = clusteredCloud();
+        GridIndex index = GridIndex.build(cloud);
+        assertEquals(cloud.size(), index.size());
+
+        assertArrayEquals(bruteForce(cloud, (x, y) -> x >= 100 && x <= 300 && y >= 450 && y <= 700),
+            sorted(index.window(100, 450, 300, 700)));
+        assertArrayEquals(bruteForce(cloud, (x, y) -> x >= 500.2 && x <= 500.4 && y >= 500 && y <= 501),
+            sorted(index.window(500.2, 500, 500.4, 501)));
+        assertEquals(cloud.size(), index.window(-1, -1, 1001, 1001).length);
+        assertEquals(0, index.window(2000, 2000, 3000, 3000).length);
+    }
+
+    @Test
+    void testPolygon() {
+        PointCloud cloud = clusteredCloud();
+        GridIndex index = GridIndex.build(cloud);
+        // Triangle covering part of the cluster
+        double[] triangle = {0, 0, 1000, 0, 500.5, 1000};
+        XyPredicate inside = (x, y) -> y <= 2 * x && y <= 2 * (1000 - x) && y >= 0;
+
+        long[] expected = bruteForce(cloud, inside);
+        long[] actual = sorted(index.polygon(triangle));
+        // Points exactly on the slanted edges may fall either way
+        assertTrue(Math.abs(expected.length - actual.length) <= 2);
+        assertThrows(IllegalArgumentException.class, () -> index.polygon(new double[] {0, 0, 1, 1}));
+    }
+
+    @Test
+    void testCorridor() {
+        PointCloud cloud = clusteredCloud();
+        GridIndex index = GridIndex.build(cloud);
+        double[] alignment = {0, 0, 500, 500, 1000, 500};
+
+        long[] expected = bruteForce(cloud, (x, y) -> {
+            double d1 = Math.abs(x - y) / Math.sqrt(2);
+            boolean onFirst = x + y >= 0 && x + y <= 1000 ? d1 <= 5 : Math.min(Math.hypot(x, y), Math.hypot(x - 500, y - 500)) <= 5;
+            boolean onSecond = x >= 500 && x <= 1000 ? Math.abs(y - 500) <= 5 : Math.min(Math.hypot(x - 500, y - 500), Math.hypot(x - 1000, y - 500)) <= 5;
+            return onFirst || onSecond;
+        });
+        long[] actual = sorted(index.corridor(alignment, 5));
+        assertArrayEquals(expected, actual); // Each point once, even near the shared vertex
+        assertThrows(IllegalArgumentException.class, () -> index.corridor(alignment, -1));
+    }
+
+    @Test
+    void testLongDiagonalCorridor() {
+        // A 10 km site with dense clusters on and off a diagonal alignment, as along a road
+        Random random = new Random(11);
+        int n = 300_000;
+        float[] x = new float[n];
+        float[] y = new float[n];
+        float[] z = new float[n];
+        for (int i = 0; i < n; i++) {
+            float centre = switch (i % 3) {
+                case 0 -> 5_000;
+                case 1 -> 7_000;
+                default -> -1;
+            };
+            x[i] = centre < 0 ? random.nextFloat() * 10_000 : centre + random.nextFloat() * 50;
+            y[i] = centre < 0 ? random.nextFloat() * 10_000 : (centre == 7_000 ? 3_000 : centre) + random.nextFloat() * 50;
+        }
+        PointCloud cloud = new PointCloud();
+        cloud.addAll(x, y, z);
+        GridIndex index = GridIndex.build(cloud);
+        // Beyond the extent, next to the end of the alignment
+        cloud.addPoint(-1, new Point3D(10_010, 10_010, 0));
+        index.insert(-1, new Point3D(10_010, 10_010, 0));
+
+        double[] alignment = {0, 0, 5_020, 5_030, 10_000, 10_000};
+        long[] expected = bruteForce(cloud, (px, py) -> {
+            double nearest = Double.POSITIVE_INFINITY;
+            for (int s = 0; s < 2; s++) {
+                double x1 = alignment[2 * s], y1 = alignment[2 * s + 1];
+                double dx = alignment[2 * s + 2] - x1, dy = alignment[2 * s + 3] - y1;
+                double t = Math.max(0, Math.min(1, ((px - x1) * dx + (py - y1) * dy) / (dx * dx + dy * dy)));
+                nearest = Math.min(nearest, Math.hypot(x1 + t * dx - px, y1 + t * dy - py));
+            }
+            return nearest <= 20;
+        });
+        assertTrue(expected.length > 1_000);
+        assertTrue(Arrays.binarySearch(expected, -1) >= 0);
+        assertArrayEquals(expected, sorted(index.corridor(alignment, 20)));
+    }
+
+    @Test
+    void testUpdates() {
+        GridIndex index = GridIndex.build(new PointCloud());
+        for (long id = 0; id < 1000; id++) {
+            index.insert(id, new Point3D(id, 0, 0));
+        }
+        assertEquals(1000, index.size());
+        assertArrayEquals(new long[] {10, 11, 12}, sorted(index.window(10, -1, 12, 1)));
+
+        assertTrue(index.remove(11, new Point3D(11, 0, 0)));
+        assertFalse(index.remove(11, new Point3D(11, 0, 0)));
+        assertArrayEquals(new long[] {10, 12}, sorted(index.window(10, -1, 12, 1)));
+        assertEquals(999, index.size());
+        assertThrows(IllegalArgumentException.class, () -> index.insert(1, null));
+        assertThrows(IllegalArgumentException.class, () -> index.remove(1, null));
+    }
+}
@@ -0,0 +1,114 @@
+package com.crunchydevops;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for KdTree
+ */
+class KdTreeTest {
+
+    private static PointCloud randomCloud(int n, long seed) {
+        // Coarse grid on x to create ties
+        return TestClouds.randomCloud(n, seed, 0, 0, 250, 0, 20);
+    }
+
+    private static double distanceSq(PointCloud cloud, int i, double x, double y, double z, boolean xy) {
+        double dx = cloud.xAt(i) - x;
+        double dy = cloud.yAt(i) - y;
+        double dz = xy ? 0 : cloud.zAt(i) - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Brute-force k nearest distances, to compare with the tree without depending on tie order.
+     */
+    private static double[] bruteForce(PointCloud cloud, double x, double y, double z, int k, boolean xy) {
+        double[] all = new double[cloud.size()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = distanceSq(cloud, i, x, y, z, xy);
+        }
+        Arrays.sort(all);
+        return Arrays.copyOf(all, Math.min(k, all.length));
+    }
+
+    private static double[] distances(PointCloud cloud, long[] ids, double x, double y, double z, boolean xy) {
+        double[] result = new double[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = distanceSq(cloud, cloud.indexOf(ids[i]), x, y, z, xy);
+        }
+        return result;
+    }
+
+    @Test
+    void testQueriesMatchBruteForce() {
+        PointCloud cloud = randomCloud(100_000, 1);
+        Random random = new Random(2);
+        for (KdTree.Dimensions dimensions : KdTree.Dimensions.values()) {
+            boolean xy = dimensions == KdTree.Dimensions.XY;
+            KdTree tree = KdTree.build(cloud, dimensions);
+            assertEquals(100_000, tree.size());
+            for (int q = 0; q < 50; q++) {
+                double x = random.nextDouble() * 260 - 5;
+                double y = random.nextDouble() * 260 - 5;
+                double z = random.nextDouble() * 20;
+
+                long nearest = tree.nearest(x, y, z).orElseThrow();
+                assertEquals(bruteForce(cloud, x, y, z, 1, xy)[0],
+                    distanceSq(cloud, cloud.indexOf(nearest), x, y, z, xy), 1e-9);
+
+                long[] knn = tree.nearest(x, y, z, 10);
+                assertArrayEquals(bruteForce(cloud, x, y, z, 10, xy), distances(cloud, knn, x, y, z, xy), 1e-9);
+
+                long[] within = tree.withinRadius(x, y, z, 3.0);
+                long expected = Arrays.stream(bruteForce(cloud, x, y, z, cloud.size(), xy)).filter(d -> d <= 9.0).count();
+                assertEquals(expected, within.length);
+            }
+        }
+    }
+
+    @Test
+    void testUpdates() {
+        PointCloud cloud = new PointCloud();
+        cloud.addPoint(1L, new Point3D(0, 0, 0));
+        cloud.addPoint(2L, new Point3D(10, 0, 0));
+        KdTree tree = KdTree.build(cloud, KdTree.Dimensions.XY);
+
+        assertTrue(tree.insert(3L, new Point3D(5, 1, 0)));
+        assertFalse(tree.insert(3L, new Point3D(5, 1, 0)));
+        assertEquals(3L, tree.nearest(5, 0, 0).orElseThrow());
+
+        assertTrue(tree.remove(3L));
+        assertFalse(tree.remove(3L));
+        assertTrue(tree.remove(1L));
+        assertEquals(2L, tree.nearest(0, 0, 0).orElseThrow());
+        assertEquals(1, tree.size());
+        assertArrayEquals(new long[] {2L}, tree.nearest(0, 0, 0, 5));
+
+        // Enough updates to trigger rebuilds
+        for (long id = 100; id < 5000; id++) {
+            assertTrue(tree.insert(id, new Point3D(id, id, 0)));
+        }
+        for (long id = 100; id < 5000; id += 2) {
+            assertTrue(tree.remove(id));
+        }
+        assertEquals(1 + 2450, tree.size());
+        assertEquals(101L, tree.nearest(100, 100, 0).orElseThrow());
+        assertArrayEquals(new long[] {2L}, tree.withinRadius(10, 0, 0, 0));
+    }
+
+    @Test
+    void testEmptyTreeAndInvalidArguments() {
+        KdTree tree = KdTree.build(new PointCloud(), KdTree.Dimensions.XYZ);
+        assertTrue(tree.nearest(0, 0, 0).isEmpty());
+        assertEquals(0, tree.nearest(0, 0, 0, 3).length);
+        assertEquals(0, tree.withinRadius(0, 0, 0, 10).length);
+        assertThrows(IllegalArgumentException.class, () -> tree.nearest(0, 0, 0, -1));
+        assertThrows(IllegalArgumentException.class, () -> tree.withinRadius(0, 0, 0, -1));
+        assertThrows(IllegalArgumentException.class, () -> tree.insert(1L, null));
+    }
+}
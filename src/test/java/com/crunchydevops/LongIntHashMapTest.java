@@ -0,0 +1,79 @@
+package com.crunchydevops;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for LongIntHashMap
+ */
+class LongIntHashMapTest {
+
+    @Test
+    void testPutGetRemove() {
+        LongIntHashMap map = new LongIntHashMap();
+        assertEquals(LongIntHashMap.NO_VALUE, map.put(5L, 1));
+        assertEquals(1, map.put(5L, 2));
+        assertEquals(2, map.get(5L));
+        assertTrue(map.containsKey(5L));
+        assertEquals(LongIntHashMap.NO_VALUE, map.get(6L));
+
+        assertEquals(2, map.remove(5L));
+        assertEquals(LongIntHashMap.NO_VALUE, map.remove(5L));
+        assertEquals(0, map.size());
+        assertThrows(IllegalArgumentException.class, () -> map.put(1L, -1));
+    }
+
+    @Test
+    void testMatchesHashMap() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            // Small key range forces collisions, removals and re-insertions
+            long key = random.nextInt(5_000) * 1_024L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.getOrDefault(key, LongIntHashMap.NO_VALUE), map.remove(key));
+                expected.remove(key);
+            } else {
+                assertEquals(expected.getOrDefault(key, LongIntHashMap.NO_VALUE), map.put(key, i));
+                expected.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 5_000 * 1_024L; key += 1_024) {
+            assertEquals(expected.getOrDefault(key, LongIntHashMap.NO_VALUE), map.get(key));
+        }
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(0L));
+    }
+
+    @Test
+    void testRacyGetMatchesGet() {
+        LongIntHashMap map = new LongIntHashMap();
+        for (int i = 0; i < 10_000; i++) {
+            map.put(i * 31L, i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(map.get(i * 31L), map.getRacy(i * 31L));
+            assertEquals(LongIntHashMap.NO_VALUE, map.getRacy(i * 31L + 1));
+        }
+    }
+
+    @Test
+    void testRejectsSizesBeyondTheLargestTable() {
+        assertThrows(IllegalArgumentException.class, () -> new LongIntHashMap(Integer.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> new LongIntHashMap(LongIntHashMap.MAX_SIZE + 1));
+        LongIntHashMap map = new LongIntHashMap();
+        assertThrows(IllegalArgumentException.class, () -> map.ensureCapacity((1 << 29) + 1));
+        assertEquals(0, map.size());
+    }
+}
@@ -0,0 +1,89 @@
+package com.crunchydevops;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for OffHeapPointCloud
+ */
+class OffHeapPointCloudTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testDirectCloudMatchesHeapCloud() {
+        PointCloud heap = new PointCloud();
+        try (OffHeapPointCloud offHeap = OffHeapPointCloud.allocate(0)) {
+            assertFalse(offHeap.isFileBacked());
+            for (long id = 1; id <= 1000; id++) {
+                Point3D point = new Point3D(id * 0.5f, id % 7, id % 13);
+                assertTrue(heap.addPoint(id, point));
+                assertTrue(offHeap.addPoint(id, point));
+            }
+            assertFalse(offHeap.addPoint(1L, new Point3D(0, 0, 0)));
+            for (long id = 2; id <= 1000; id += 3) {
+                assertTrue(offHeap.removePoint(id));
+                heap.removePoint(id);
+            }
+
+            assertEquals(heap.size(), offHeap.size());
+            for (long id = 1; id <= 1000; id++) {
+                assertEquals(heap.getPoint(id), offHeap.getPoint(id));
+                assertEquals(heap.distance(1L, id), offHeap.distance(1L, id));
+                assertEquals(heap.bearing(1L, id), offHeap.bearing(1L, id));
+            }
+        }
+    }
+
+    @Test
+    void testFileBackedCloudSurvivesReopen() throws IOException {
+        Path file = tempDir.resolve("points.pcl");
+        try (OffHeapPointCloud cloud = OffHeapPointCloud.open(file)) {
+            assertTrue(cloud.isFileBacked());
+            long first = cloud.addAll(new float[100], new float[100], new float[100]);
+            assertEquals(1L, first);
+            cloud.addPoint(500L, new Point3D(3.0f, 4.0f, 5.0f));
+            cloud.removePoint(50L);
+        }
+
+        try (OffHeapPointCloud cloud = OffHeapPointCloud.open(file)) {
+            assertEquals(100, cloud.size());
+            assertEquals(new Point3D(3.0f, 4.0f, 5.0f), cloud.getPoint(500L).orElse(null));
+            assertTrue(cloud.getPoint(50L).isEmpty());
+            assertEquals(501L, cloud.addAll(new float[1], new float[1], new float[1]));
+        }
+    }
+
+    @Test
+    void testRejectsForeignFile() throws IOException {
+        Path file = tempDir.resolve("other.bin");
+        Files.write(file, new byte[128]);
+        assertThrows(IOException.class, () -> OffHeapPointCloud.open(file));
+        assertEquals(128, Files.size(file));
+
+        // A file shorter than the header is left as it is
+        Path shortFile = tempDir.resolve("short.txt");
+        Files.writeString(shortFile, "not a point cloud");
+        assertThrows(IOException.class, () -> OffHeapPointCloud.open(shortFile));
+        assertEquals("not a point cloud", Files.readString(shortFile));
+    }
+
+    @Test
+    void testClosedCloudRejectsUse() {
+        OffHeapPointCloud cloud = OffHeapPointCloud.allocate(4);
+        cloud.addPoint(1L, new Point3D(1.0f, 2.0f, 3.0f));
+        cloud.close();
+        assertThrows(IllegalStateException.class, () -> cloud.getPoint(1L));
+        assertThrows(IllegalStateException.class, () -> cloud.addPoint(2L, new Point3D(0, 0, 0)));
+        assertThrows(IllegalStateException.class, () -> cloud.xAt(0));
+        assertThrows(IllegalStateException.class, () -> cloud.idAt(0));
+        cloud.close();
+    }
+}
@@ -0,0 +1,90 @@
+package com.crunchydevops;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for PointCloudStatistics
+ */
+class PointCloudStatisticsTest {
+
+    @Test
+    void testEmptyCloud() {
+        assertTrue(new PointCloud().statistics().isEmpty());
+        assertTrue(new PointCloud().parallelStatistics().isEmpty());
+    }
+
+    @Test
+    void testNegativeElevations() {
+        PointCloud cloud = new PointCloud();
+        cloud.addPoint(1L, new Point3D(1.0f, 5.0f, -3.0f));
+        cloud.addPoint(2L, new Point3D(-2.0f, 0.0f, -1.0f));
+        cloud.addPoint(3L, new Point3D(4.0f, -1.0f, -2.0f));
+
+        PointCloudStatistics stats = cloud.statistics().orElseThrow();
+        assertEquals(3, stats.count());
+        assertEquals(-2.0f, stats.minX());
+        assertEquals(-1.0f, stats.minY());
+        assertEquals(-3.0f, stats.minZ());
+        assertEquals(4.0f, stats.maxX());
+        assertEquals(5.0f, stats.maxY());
+        assertEquals(-1.0f, stats.maxZ());
+        assertEquals(-2.0, stats.meanZ(), 1e-9);
+        assertEquals(Math.sqrt(2.0 / 3.0), stats.stdDevZ(), 1e-9);
+        assertEquals(1L, stats.lowestId());
+        assertEquals(2L, stats.highestId());
+    }
+
+    @Test
+    void testTiesResolveToFirstPoint() {
+        PointCloud cloud = new PointCloud();
+        for (long id = 1; id <= 5; id++) {
+            cloud.addPoint(id, new Point3D(id, id, 10.0f));
+        }
+        PointCloudStatistics stats = cloud.statistics().orElseThrow();
+        assertEquals(1L, stats.lowestId());
+        assertEquals(1L, stats.highestId());
+        assertEquals(0.0, stats.stdDevZ(), 0.0);
+    }
+
+    @Test
+    void testParallelMatchesSequential() {
+        Random random = new Random(42);
+        int n = 300_001;
+        float[] x = new float[n];
+        float[] y = new float[n];
+        float[] z = new float[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextFloat() * 1000;
+            y[i] = random.nextFloat() * 1000;
+            z[i] = 1200 + random.nextFloat() * 50;
+        }
+        PointCloud cloud = new PointCloud();
+        cloud.addAll(x, y, z);
+
+        PointCloudStatistics sequential = cloud.statistics().orElseThrow();
+        PointCloudStatistics parallel = cloud.parallelStatistics().orElseThrow();
+        assertEquals(sequential.count(), parallel.count());
+        assertEquals(sequential.minX(), parallel.minX());
+        assertEquals(sequential.maxY(), parallel.maxY());
+        assertEquals(sequential.lowestId(), parallel.lowestId());
+        assertEquals(sequential.highestId(), parallel.highestId());
+        assertEquals(sequential.meanZ(), parallel.meanZ(), 1e-6);
+        assertEquals(sequential.stdDevZ(), parallel.stdDevZ(), 1e-6);
+
+        double mean = 0;
+        for (float v : z) {
+            mean += v;
+        }
+        mean /= n;
+        double m2 = 0;
+        for (float v : z) {
+            m2 += (v - mean) * (v - mean);
+        }
+        assertEquals(mean, sequential.meanZ(), 1e-6);
+        assertEquals(Math.sqrt(m2 / n), sequential.stdDevZ(), 1e-6);
+    }
+}
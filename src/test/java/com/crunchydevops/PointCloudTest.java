@@ -124,4 +124,101 @@ import static org.junit.jupiter.api.Assertions.*;
         // Test with non-existent point
         assertTrue(cloud.bearing(1L, 4L).isEmpty());
     }
+
+    @Test
+    void testAddAll() {
+        cloud.addPoint(10L, p1);
+        long firstId = cloud.addAll(new float[] {1, 2, 3}, new float[] {4, 5, 6}, new float[] {7, 8, 9});
+
+        assertEquals(11L, firstId);
+        assertEquals(4, cloud.size());
+        assertEquals(new Point3D(2, 5, 8), cloud.getPoint(12L).orElseThrow());
+        assertEquals(1L, new PointCloud().addAll(new float[0], new float[0], new float[0]));
+        assertThrows(IllegalArgumentException.class,
+            () -> cloud.addAll(new float[2], new float[1], new float[2]));
+    }
+
+    @Test
+    void testIndexAccessors() {
+        cloud.addPoint(7L, p1);
+        cloud.addPoint(8L, p2);
+        cloud.addPoint(9L, p3);
+
+        assertEquals(1, cloud.indexOf(8L));
+        assertEquals(-1, cloud.indexOf(42L));
+        assertEquals(8L, cloud.idAt(1));
+        assertEquals(3.0f, cloud.xAt(1));
+        assertEquals(4.0f, cloud.yAt(1));
+        assertEquals(3.0f, cloud.zAt(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> cloud.xAt(3));
+
+        // Removing a point moves the last one into its index
+        assertTrue(cloud.removePoint(7L));
+        assertEquals(0, cloud.indexOf(9L));
+        assertEquals(9L, cloud.idAt(0));
+        assertEquals(p3, cloud.getPoint(9L).orElseThrow());
+        assertThrows(IndexOutOfBoundsException.class, () -> cloud.idAt(2));
+    }
+
+    @Test
+    void testBatchGeometryById() {
+        cloud.addPoint(1L, p1);
+        cloud.addPoint(2L, p2);
+        cloud.addPoint(3L, p3);
+        long[] from = {1L, 2L, 1L, 1L};
+        long[] to = {2L, 3L, 9L, 1L};
+        double[] out = new double[4];
+
+        cloud.distances(from, to, out);
+        assertArrayEquals(new double[] {5.0, 3.0, Double.NaN, 0.0}, out, 0.0001);
+
+        cloud.slopes(from, to, out);
+        assertArrayEquals(new double[] {0.0, Double.POSITIVE_INFINITY, Double.NaN, 0.0}, out, 0.0001);
+
+        cloud.bearings(from, to, out);
+        assertEquals(36.87, out[0], 0.01);
+        assertTrue(Double.isNaN(out[1])); // Coincident in plan
+        assertTrue(Double.isNaN(out[2])); // Missing point
+        assertTrue(Double.isNaN(out[3]));
+
+        assertThrows(IllegalArgumentException.class, () -> cloud.distances(from, new long[3], out));
+        assertThrows(IllegalArgumentException.class, () -> cloud.slopes(from, to, new double[3]));
+    }
+
+    @Test
+    void testBatchGeometryByIndex() {
+        cloud.addPoint(1L, p1);
+        cloud.addPoint(2L, p2);
+        cloud.addPoint(3L, p3);
+        int[] from = {0, 1};
+        int[] to = {1, 2};
+        double[] out = new double[2];
+
+        cloud.distancesAt(from, to, out);
+        assertArrayEquals(new double[] {5.0, 3.0}, out, 0.0001);
+        cloud.slopesAt(from, to, out);
+        assertArrayEquals(new double[] {0.0, Double.POSITIVE_INFINITY}, out, 0.0001);
+        cloud.bearingsAt(from, to, out);
+        assertEquals(cloud.bearing(1L, 2L).orElseThrow(), out[0], 0.0);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> cloud.distancesAt(new int[] {3}, new int[] {0}, out));
+    }
+
+    @Test
+    void testManyPoints() {
+        PointCloud large = new PointCloud(0);
+        for (long id = 0; id < 100_000; id++) {
+            assertTrue(large.addPoint(id * 31, new Point3D(id, -id, id % 7)));
+        }
+        for (long id = 0; id < 100_000; id += 2) {
+            assertTrue(large.removePoint(id * 31));
+        }
+
+        assertEquals(50_000, large.size());
+        for (long id = 0; id < 100_000; id++) {
+            assertEquals(id % 2 == 1, large.getPoint(id * 31).isPresent());
+        }
+        assertEquals(new Point3D(99_999, -99_999, 99_999 % 7), large.getPoint(99_999L * 31).orElseThrow());
+        assertThrows(IllegalArgumentException.class, () -> new PointCloud(-1));
+    }
 }
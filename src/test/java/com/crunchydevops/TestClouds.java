@@ -0,0 +1,38 @@
+package com.crunchydevops;
+
+import java.util.Random;
+
+/**
+ * Point cloud fixtures shared by the tests of several packages.
+ */
+public final class TestClouds {
+
+    private TestClouds() {
+    }
+
+    /**
+     * Builds a cloud of random points with ids 1..n over a square. The x coordinates are
+     * snapped to quarter units so that many points tie on x.
+     *
+     * @param originX The smallest x coordinate
+     * @param originY The smallest y coordinate
+     * @param size The side of the square
+     * @param minZ The smallest z coordinate
+     * @param zRange The range of the z coordinates above minZ
+     */
+    public static PointCloud randomCloud(int n, long seed, float originX, float originY, float size,
+                                         float minZ, float zRange) {
+        Random random = new Random(seed);
+        float[] x = new float[n];
+        float[] y = new float[n];
+        float[] z = new float[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = originX + random.nextInt((int) (size * 4)) / 4.0f;
+            y[i] = originY + random.nextFloat() * size;
+            z[i] = minZ + random.nextFloat() * zRange;
+        }
+        PointCloud cloud = new PointCloud(n);
+        cloud.addAll(x, y, z);
+        return cloud;
+    }
+}
@@ -0,0 +1,133 @@
+package com.crunchydevops;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for VersionedPointCloud
+ */
+class VersionedPointCloudTest {
+
+    @Test
+    void testSnapshotIsIsolatedFromUpdates() {
+        VersionedPointCloud cloud = new VersionedPointCloud();
+        cloud.addPoint(1L, new Point3D(1, 1, 1));
+        cloud.addPoint(2L, new Point3D(2, 2, 2));
+        cloud.addPoint(3L, new Point3D(3, 3, 3));
+        PointCloudSnapshot before = cloud.snapshot();
+        assertSame(before, cloud.snapshot());
+        assertEquals(3, before.version());
+
+        // Removing moves point 3 into index 0 of the live cloud only
+        assertTrue(cloud.removePoint(1L));
+        assertTrue(cloud.addPoint(4L, new Point3D(4, 4, 4)));
+        assertFalse(cloud.addPoint(2L, new Point3D(0, 0, 0)));
+        assertEquals(5, cloud.version());
+
+        assertEquals(3, before.size());
+        assertEquals(1L, before.idAt(0));
+        assertEquals(new Point3D(1, 1, 1), before.getPoint(1L).orElseThrow());
+        assertTrue(before.getPoint(4L).isEmpty());
+
+        PointCloudSnapshot after = cloud.snapshot();
+        assertEquals(5, after.version());
+        assertEquals(3, after.size());
+        assertEquals(3L, after.idAt(0));
+        assertTrue(after.getPoint(1L).isEmpty());
+        assertEquals(new Point3D(4, 4, 4), after.getPoint(4L).orElseThrow());
+    }
+
+    @Test
+    void testSnapshotsAreReadOnly() {
+        VersionedPointCloud cloud = new VersionedPointCloud();
+        cloud.addPoint(1L, new Point3D(0, 0, 0));
+        PointCloudSnapshot snapshot = cloud.snapshot();
+
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.addPoint(2L, new Point3D(0, 0, 0)));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.removePoint(1L));
+        assertThrows(UnsupportedOperationException.class,
+            () -> snapshot.addAll(new float[1], new float[1], new float[1]));
+        assertEquals(1, snapshot.size());
+    }
+
+    @Test
+    void testCapacityIsBounded() {
+        assertThrows(IllegalArgumentException.class, () -> new VersionedPointCloud(-1));
+        assertThrows(IllegalArgumentException.class, () -> new VersionedPointCloud(1 << 30));
+        assertThrows(IllegalArgumentException.class, () -> new VersionedPointCloud(Integer.MAX_VALUE));
+        CopyOnWritePointStore store = new CopyOnWritePointStore(0);
+        assertThrows(IllegalArgumentException.class,
+            () -> store.ensureCapacity(CopyOnWritePointStore.MAX_SIZE + 1));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void testManySnapshotsAcrossPagesAndRehashes() {
+        VersionedPointCloud cloud = new VersionedPointCloud();
+        Random random = new Random(7);
+        Map<Long, Point3D> expected = new HashMap<>();
+        Map<PointCloudSnapshot, Map<Long, Point3D>> snapshots = new HashMap<>();
+
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 5_000; i++) {
+                long id = random.nextInt(60_000);
+                if (random.nextInt(4) == 0) {
+                    assertEquals(expected.remove(id) != null, cloud.removePoint(id));
+                } else {
+                    Point3D point = new Point3D(id, round, i);
+                    assertEquals(expected.putIfAbsent(id, point) == null, cloud.addPoint(id, point));
+                }
+            }
+            snapshots.put(cloud.snapshot(), new HashMap<>(expected));
+        }
+
+        snapshots.forEach((snapshot, points) -> {
+            assertEquals(points.size(), snapshot.size());
+            points.forEach((id, point) -> assertEquals(point, snapshot.getPoint(id).orElseThrow()));
+            for (int index = 0; index < snapshot.size(); index++) {
+                assertEquals(index, snapshot.indexOf(snapshot.idAt(index)));
+            }
+        });
+        PointCloudSnapshot last = cloud.snapshot();
+        long anyId = last.idAt(0);
+        assertEquals(anyId, KdTree.build(last, KdTree.Dimensions.XYZ)
+            .nearest(last.xAt(0), last.yAt(0), last.zAt(0)).orElseThrow());
+    }
+
+    @Test
+    void testReaderSeesWholeUpdates() throws Exception {
+        VersionedPointCloud cloud = new VersionedPointCloud();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            try {
+                while (!done.get()) {
+                    // Every update adds one point, so a consistent view holds exactly version points
+                    PointCloudSnapshot snapshot = cloud.snapshot();
+                    assertEquals(snapshot.version(), snapshot.size());
+                    for (int index = 0; index < snapshot.size(); index += 101) {
+                        long id = snapshot.idAt(index);
+                        assertEquals(new Point3D(id, -id, index), snapshot.getPoint(id).orElseThrow());
+                    }
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        reader.start();
+        for (long id = 0; id < 100_000; id++) {
+            cloud.addPoint(id, new Point3D(id, -id, id));
+        }
+        done.set(true);
+        reader.join();
+        assertNull(failure.get());
+    }
+}
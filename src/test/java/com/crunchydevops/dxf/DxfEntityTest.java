@@ -1,7 +1,10 @@
 package com.crunchydevops.dxf;
 
 import org.junit.jupiter.api.Test;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -69,4 +72,92 @@ class DxfEntityTest {
         assertEquals(entity1.hashCode(), entity2.hashCode());
         assertNotEquals(entity1.hashCode(), entity3.hashCode());
     }
+
+    @Test
+    void testRepeatedCodesKeepFileOrder() {
+        DxfEntity polyline = DxfEntity.builder()
+            .add(90, "3")
+            .add(10, "0.0").add(20, "0.0")
+            .add(10, "5.0").add(20, "0.0")
+            .add(10, "5.0").add(20, "2.5")
+            .build("LWPOLYLINE");
+
+        assertEquals(7, polyline.size());
+        assertEquals(List.of("0.0", "5.0", "5.0"), polyline.all(10));
+        assertEquals(List.of("0.0", "0.0", "2.5"), polyline.all(20));
+        assertEquals("0.0", polyline.first(10).orElseThrow());
+        assertTrue(polyline.first(30).isEmpty());
+        assertEquals(20, polyline.codeAt(6));
+        assertEquals(2.5, polyline.doubleAt(6));
+        assertEquals(3, polyline.indexOf(10, 2));
+        assertEquals(-1, polyline.indexOf(42));
+
+        // The map view keeps the last value of repeated codes
+        assertEquals("5.0", polyline.groupCodes().get(10));
+        assertTrue(polyline.toString().contains("10=0.0, 20=0.0, 10=5.0"));
+    }
+
+    @Test
+    void testBuilderValidation() {
+        DxfEntity.Builder builder = DxfEntity.builder()
+            .add(-1, "ignored")
+            .add(2000, "ignored")
+            .add(1, null)
+            .add(1, "x".repeat(300));
+
+        assertEquals(1, builder.size());
+        DxfEntity entity = builder.build("TEXT");
+        assertEquals(255, entity.valueAt(0).length());
+
+        builder.clear().add(1, "reused");
+        assertEquals("reused", builder.build("TEXT").valueAt(0));
+        assertEquals(255, entity.valueAt(0).length(), "Built entities are not affected by reuse");
+        assertThrows(IndexOutOfBoundsException.class, () -> entity.valueAt(1));
+    }
+
+    @Test
+    void testBuilderAddsByteSlices() {
+        ByteBuffer buffer = ByteBuffer.wrap("xx1.5|Caf\u00e9|".getBytes(StandardCharsets.UTF_8));
+        ByteBuffer longValue = ByteBuffer.wrap("y".repeat(300).getBytes(StandardCharsets.US_ASCII));
+        DxfEntity entity = DxfEntity.builder()
+            .add(10, buffer, 2, 3)
+            .add(1, buffer, 6, 5)
+            .add(2000, buffer, 0, 2)
+            .add(3, longValue, 0, 300)
+            .build("TEXT");
+
+        assertEquals(3, entity.size());
+        assertEquals(1.5, entity.doubleAt(0));
+        assertEquals("Caf\u00e9", entity.valueAt(1));
+        assertEquals(255, entity.valueAt(2).length());
+    }
+
+    @Test
+    void testFloatAtRoundsOnce() {
+        // Rounding to a double first lands exactly between two floats
+        String value = "1.00000017881393432617187499";
+        DxfEntity entity = DxfEntity.builder().add(10, value).build("POINT");
+
+        assertEquals(Float.parseFloat(value), entity.floatAt(0));
+        assertNotEquals((float) Double.parseDouble(value), entity.floatAt(0));
+    }
+
+    @Test
+    void testRestoreChecksColumns() {
+        DxfEntity entity = DxfEntity.restore("TEXT", new int[] {8, 1}, new int[] {5, 10}, "layeralpha");
+        assertEquals("alpha", entity.valueAt(1));
+        assertThrows(IllegalArgumentException.class,
+            () -> DxfEntity.restore("TEXT", new int[] {8, 1}, new int[] {5}, "layeralpha"));
+        assertThrows(IllegalArgumentException.class,
+            () -> DxfEntity.restore("TEXT", new int[] {8, 1}, new int[] {5, 3}, "layeralpha"));
+        assertThrows(IllegalArgumentException.class,
+            () -> DxfEntity.restore("TEXT", new int[] {8, 1}, new int[] {5, 20}, "layeralpha"));
+    }
+
+    @Test
+    void testInvalidType() {
+        assertThrows(NullPointerException.class, () -> new DxfEntity(null, new HashMap<>()));
+        assertThrows(IllegalArgumentException.class, () -> DxfEntity.builder().build(""));
+        assertEquals("MY_TYPE", DxfEntity.builder().build("MY TYPE").type());
+    }
 }
@@ -0,0 +1,79 @@
+package com.crunchydevops.dxf;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DxfGeometryTest {
+
+    @Test
+    void testText() {
+        DxfEntity entity = DxfEntity.builder()
+            .add(10, "1015.25").add(20, "2985.5").add(30, "0.0")
+            .add(40, "0.2").add(1, "104.22").add(50, "90")
+            .build("TEXT");
+
+        assertEquals(new DxfText(1015.25, 2985.5, 0.0, 0.2, 90.0, "104.22"), entity.geometry().orElseThrow());
+    }
+
+    @Test
+    void testLine() {
+        DxfEntity entity = DxfEntity.builder()
+            .add(10, "0.0").add(20, "0.0").add(30, "0.0")
+            .add(11, "3.0").add(21, "4.0").add(31, "0.0")
+            .build("LINE");
+
+        DxfLine line = (DxfLine) entity.geometry().orElseThrow();
+        assertEquals(new DxfLine(0, 0, 0, 3, 4, 0), line);
+        assertEquals(5.0, line.length(), 1e-12);
+    }
+
+    @Test
+    void testCircleAndArc() {
+        DxfEntity circle = DxfEntity.builder()
+            .add(10, "1").add(20, "2").add(30, "3").add(40, "4.5")
+            .build("CIRCLE");
+        DxfEntity arc = DxfEntity.builder()
+            .add(10, "1").add(20, "2").add(40, "4.5").add(50, "0").add(51, "90")
+            .build("ARC");
+
+        assertEquals(new DxfCircle(1, 2, 3, 4.5), circle.geometry().orElseThrow());
+        assertEquals(new DxfArc(1, 2, 0, 4.5, 0, 90), arc.geometry().orElseThrow());
+    }
+
+    @Test
+    void testLwPolyline() {
+        DxfEntity entity = DxfEntity.builder()
+            .add(90, "3").add(70, "1").add(38, "12.5")
+            .add(10, "0.0").add(20, "0.0")
+            .add(10, "5.0").add(20, "0.0").add(42, "0.5")
+            .add(10, "5.0").add(20, "2.5")
+            .build("LWPOLYLINE");
+
+        DxfLwPolyline polyline = (DxfLwPolyline) entity.geometry().orElseThrow();
+        assertEquals(3, polyline.vertexCount());
+        assertArrayEquals(new double[] {0, 0, 5, 0, 5, 2.5}, polyline.vertices());
+        assertArrayEquals(new double[] {0, 0.5, 0}, polyline.bulges());
+        assertEquals(5.0, polyline.x(2));
+        assertEquals(2.5, polyline.y(2));
+        assertEquals(12.5, polyline.elevation());
+        assertTrue(polyline.closed());
+        assertEquals(polyline, new DxfLwPolyline(new double[] {0, 0, 5, 0, 5, 2.5}, new double[] {0, 0.5, 0}, 12.5, true));
+        assertThrows(IllegalArgumentException.class, () -> new DxfLwPolyline(new double[3], new double[1], 0, false));
+
+        polyline.vertices()[0] = 99;
+        polyline.bulges()[1] = 99;
+        assertEquals(0.0, polyline.x(0));
+        assertEquals(0.5, polyline.bulge(1));
+        double[] vertices = {1, 2};
+        DxfLwPolyline point = new DxfLwPolyline(vertices, new double[1], 0, false);
+        vertices[0] = 99;
+        assertEquals(1.0, point.x(0));
+    }
+
+    @Test
+    void testUnsupportedOrInvalid() {
+        assertTrue(DxfEntity.builder().add(10, "1").build("POINT").geometry().isEmpty());
+        assertTrue(DxfEntity.builder().add(10, "abc").build("LINE").geometry().isEmpty());
+    }
+}
@@ -86,4 +86,46 @@ class DxfLayerTest {
         assertFalse(layer.isVisible());
         assertEquals(-7, layer.colorNumber());
     }
+
+    @Test
+    void testBuilder() {
+        DxfEntity text = DxfEntity.builder().add(1, "12.5").build("TEXT");
+        DxfEntity line = DxfEntity.builder().add(10, "0.0").build("LINE");
+
+        DxfLayer.Builder builder = DxfLayer.builder("walls")
+            .colorNumber(-3)
+            .lineType("DASHED")
+            .visible(false)
+            .addEntity(text)
+            .addEntity(line);
+        assertEquals(2, builder.entityCount());
+
+        DxfLayer layer = builder.build();
+        assertEquals(new DxfLayer("walls", -3, "DASHED", false, List.of(text, line)), layer);
+        assertThrows(UnsupportedOperationException.class, () -> layer.entities().add(text));
+
+        // Entities added after freezing do not leak into the built layer
+        builder.addEntity(text);
+        assertEquals(2, layer.entities().size());
+        assertEquals(3, layer.toBuilder().addEntity(line).build().entities().size());
+    }
+
+    @Test
+    void testBuilderProperties() {
+        DxfLayer definition = new DxfLayer("z value TN", -18, "Continuous", false, new ArrayList<>());
+        DxfLayer layer = DxfLayer.builder("z value TN").properties(definition).build();
+
+        assertEquals(definition, layer);
+        assertEquals(DxfLayer.create("z value TN"), DxfLayer.builder("z value TN").build());
+    }
+
+    @Test
+    void testFormatting() {
+        DxfLayer layer = new DxfLayer("walls", 3, "DASHED", false, new ArrayList<>());
+        String properties = "Layer: walls\nColor Number: 3\nLine Type: DASHED\nVisible: false\n";
+
+        assertEquals(properties, layer.describeProperties());
+        assertEquals(properties + "Entity Count: 0\n", layer.toString());
+        assertEquals(properties + "Entity Count: 42\n", layer.toString(42));
+    }
 }
@@ -0,0 +1,65 @@
+package com.crunchydevops.dxf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DxfNumberParserTest {
+
+    private static final String[] EDGE_CASES = {
+        "0", "-0", "+0", "0.0", "-0.0", ".5", "5.", "1", "-1", "+1.25", "  42.5  ", "\t7\t",
+        "1043.7912", "-2.5E-3", "6.02214076e23", "1e22", "1e23", "9007199254740993",
+        "123456789012345678901234567890", "0.000000000000000000000000000001234",
+        "2.2250738585072014E-308", "2.2250738585072011E-308", "4.9e-324", "2.4e-324", "1e-400",
+        "1.7976931348623157E308", "1.7976931348623159E308", "1e400", "-1e400",
+        "9999999999999999999", "18446744073709551615", "0.1", "0.3", "3.4028235E38", "1.4E-45",
+        "16777217", "33554431", "1.00000017881393432617187499", "7.038531e-26",
+        "NaN", "-Infinity", "1.5d", "0x1.8p1"
+    };
+
+    @Test
+    void testEdgeCasesMatchJdk() {
+        for (String text : EDGE_CASES) {
+            assertEquals(Double.doubleToRawLongBits(Double.parseDouble(text)),
+                Double.doubleToRawLongBits(DxfNumberParser.parseDouble(text)), text);
+            assertEquals(Float.floatToRawIntBits(Float.parseFloat(text)),
+                Float.floatToRawIntBits(DxfNumberParser.parseFloat(text)), text);
+        }
+    }
+
+    @Test
+    void testRandomValuesMatchJdk() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            String text = switch (i % 4) {
+                case 0 -> Double.toString(Double.longBitsToDouble(random.nextLong()));
+                case 1 -> Float.toString(Float.intBitsToFloat(random.nextInt()));
+                case 2 -> String.format(Locale.ROOT, "%.4f", (random.nextDouble() - 0.5) * 2e6);
+                default -> random.nextInt(100_000_000) + "." + random.nextInt(1000)
+                    + "e" + (random.nextInt(80) - 40);
+            };
+            assertEquals(Double.parseDouble(text), DxfNumberParser.parseDouble(text), text);
+            assertEquals(Float.parseFloat(text), DxfNumberParser.parseFloat(text), text);
+        }
+    }
+
+    @Test
+    void testRanges() {
+        String values = "1.5-2.25e1abc";
+        assertEquals(1.5, DxfNumberParser.parseDouble(values, 0, 3));
+        assertEquals(-22.5, DxfNumberParser.parseDouble(values, 3, 10));
+        assertThrows(IndexOutOfBoundsException.class, () -> DxfNumberParser.parseDouble(values, 5, 20));
+        assertEquals(-22.5f, DxfNumberParser.parseFloat(values, 3, 10));
+    }
+
+    @Test
+    void testRejectsInvalidValues() {
+        for (String text : new String[] {"", " ", ".", "-", "+.", "1e", "1e+", "1.2.3", "--1", "1 2", "abc", "1,5"}) {
+            assertThrows(NumberFormatException.class, () -> DxfNumberParser.parseDouble(text), text);
+            assertThrows(NumberFormatException.class, () -> DxfNumberParser.parseFloat(text), text);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.crunchydevops.dxf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for DxfOffsetIndex
+ */
+class DxfOffsetIndexTest {
+    private static final Path PROJECT_DXF = Path.of("data/project.dxf");
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Records the callbacks it receives.
+     */
+    private static class RecordingVisitor implements DxfVisitor {
+        final List<String> layerDefinitions = new ArrayList<>();
+        final List<String> layerNames = new ArrayList<>();
+        final List<DxfEntity> entities = new ArrayList<>();
+
+        @Override
+        public void onLayerDefinition(String name, DxfLayer layer) {
+            layerDefinitions.add(name + "/" + layer.colorNumber());
+        }
+
+        @Override
+        public void onEntity(String layerName, DxfEntity entity) {
+            layerNames.add(layerName);
+            entities.add(entity);
+        }
+    }
+
+    private static RecordingVisitor read(Path file, DxfOffsetIndex index, DxfFilter filter) throws IOException {
+        DxfReader reader = new DxfReader(file);
+        reader.setOffsetIndex(index);
+        RecordingVisitor visitor = new RecordingVisitor();
+        reader.accept(visitor, filter);
+        return visitor;
+    }
+
+    private static void assertSameVisit(RecordingVisitor expected, RecordingVisitor actual) {
+        assertEquals(expected.layerDefinitions, actual.layerDefinitions);
+        assertEquals(expected.layerNames, actual.layerNames);
+        assertEquals(expected.entities, actual.entities);
+    }
+
+    @Test
+    void testIndexedReadsMatchFullReads() throws IOException {
+        Path file = Files.copy(PROJECT_DXF, tempDir.resolve("project.dxf"));
+        DxfOffsetIndex index = DxfOffsetIndex.build(file);
+
+        assertTrue(index.layers().containsAll(Set.of("z value TN", "terrain naturel", "croix")));
+        assertTrue(index.sections().stream().anyMatch(section -> section.name().equals("ENTITIES")));
+        for (DxfFilter filter : List.of(
+                DxfFilter.all().withLayers("z value TN"),
+                DxfFilter.all().withLayers("z value TN").withEntityTypes("TEXT"),
+                DxfFilter.all().withLayers("croix", "terrain naturel", "no such layer"))) {
+            RecordingVisitor indexed = read(file, index, filter);
+            assertSameVisit(read(file, null, filter), indexed);
+            assertFalse(indexed.entities.isEmpty());
+        }
+        assertEquals(66, read(file, index, DxfFilter.all().withLayers("z value TN").withEntityTypes("TEXT"))
+            .entities.size());
+    }
+
+    @Test
+    void testRunsFollowInheritedLayers() throws IOException {
+        StringBuilder content = new StringBuilder("0\nSECTION\n2\nHEADER\n9\n$ACADVER\n1\nAC1015\n0\nENDSEC\n");
+        content.append("0\nSECTION\n2\nENTITIES\n");
+        for (int i = 0; i < 40; i++) {
+            content.append("0\nPOINT\n");
+            if (i % 7 == 0) {
+                content.append("8\nlayer").append(i % 3).append('\n');
+            }
+            content.append("10\n").append(i).append(".0\n");
+        }
+        content.append("0\nENDSEC\n0\nEOF\n");
+        Path file = tempDir.resolve("inherit.dxf");
+        Files.writeString(file, content);
+        DxfOffsetIndex index = DxfOffsetIndex.build(file);
+
+        assertEquals(List.of("HEADER", "ENTITIES"), index.sections().stream().map(DxfOffsetIndex.Section::name).toList());
+        assertEquals(Set.of("layer0", "layer1", "layer2"), index.layers());
+        for (String layer : index.layers()) {
+            DxfFilter filter = DxfFilter.all().withLayers(layer);
+            assertSameVisit(read(file, null, filter), read(file, index, filter));
+        }
+        DxfOffsetIndex.Run first = index.runs().get(0);
+        assertEquals("layer0", first.layer());
+        assertEquals(content.indexOf("0\nPOINT"), first.start());
+    }
+
+    @Test
+    void testSidecarIsReusedUntilTheFileChanges() throws IOException {
+        Path file = Files.copy(PROJECT_DXF, tempDir.resolve("project.dxf"));
+        Path sidecar = DxfOffsetIndex.sidecarOf(file);
+        assertTrue(DxfOffsetIndex.load(file).isCurrent());
+        assertFalse(Files.exists(sidecar));
+        assertTrue(DxfOffsetIndex.loadSaved(file).isEmpty());
+
+        DxfOffsetIndex built = DxfOffsetIndex.load(file, true);
+        assertTrue(Files.exists(sidecar));
+        assertEquals(built.runs(), DxfOffsetIndex.loadSaved(file).orElseThrow().runs());
+        FileTime saved = Files.getLastModifiedTime(sidecar);
+        Files.setLastModifiedTime(sidecar, FileTime.fromMillis(saved.toMillis() - 60_000));
+
+        DxfOffsetIndex loaded = DxfOffsetIndex.load(file, true);
+        assertEquals(built.sections(), loaded.sections());
+        assertEquals(built.runs(), loaded.runs());
+        assertEquals(saved.toMillis() - 60_000, Files.getLastModifiedTime(sidecar).toMillis());
+
+        // Touching the file without changing it keeps the index current and refreshes the sidecar
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() - 120_000));
+        assertTrue(loaded.isCurrent());
+        assertEquals(built.runs(), DxfOffsetIndex.load(file, true).runs());
+        assertNotEquals(saved.toMillis() - 60_000, Files.getLastModifiedTime(sidecar).toMillis());
+
+        // A stale index is ignored by the reader and rebuilt by load
+        Files.writeString(file, Files.readString(file).replace("z value TN", "z value XX"));
+        assertFalse(loaded.isCurrent());
+        assertTrue(DxfOffsetIndex.loadSaved(file).isEmpty());
+        RecordingVisitor stale = read(file, loaded, DxfFilter.all().withLayers("z value XX"));
+        assertEquals(66, stale.entities.stream().filter(entity -> entity.type().equals("TEXT")).count());
+        assertTrue(DxfOffsetIndex.load(file, true).layers().contains("z value XX"));
+
+        Files.writeString(sidecar, "garbage");
+        assertEquals(built.runs().size(), DxfOffsetIndex.load(file, true).runs().size());
+        DxfReader reader = new DxfReader(file);
+        assertThrows(IllegalArgumentException.class,
+            () -> reader.setOffsetIndex(DxfOffsetIndex.build(Files.copy(file, tempDir.resolve("other.dxf")))));
+    }
+
+    @Test
+    void testSidecarWithBadCountsIsUnreadable() throws IOException {
+        Path file = Files.copy(PROJECT_DXF, tempDir.resolve("project.dxf"));
+        Path sidecar = DxfOffsetIndex.sidecarOf(file);
+        DxfOffsetIndex built = DxfOffsetIndex.load(file, true);
+
+        // Find the layer name count, which follows the header and the sections
+        byte[] bytes = Files.readAllBytes(sidecar);
+        int position;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            in.skipNBytes(4 + 4 + 8 + 8 + 32);
+            int sectionCount = in.readInt();
+            for (int i = 0; i < sectionCount; i++) {
+                in.readUTF();
+                in.skipNBytes(3 * 8);
+            }
+            position = bytes.length - in.available();
+        }
+        ByteBuffer.wrap(bytes).putInt(position, Integer.MAX_VALUE);
+        Files.write(sidecar, bytes);
+
+        assertTrue(DxfOffsetIndex.loadSaved(file).isEmpty());
+        assertEquals(built.runs(), DxfOffsetIndex.load(file, true).runs());
+        assertTrue(DxfOffsetIndex.loadSaved(file).isPresent());
+    }
+}
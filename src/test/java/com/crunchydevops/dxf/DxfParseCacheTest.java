@@ -0,0 +1,221 @@
+package com.crunchydevops.dxf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for DxfParseCache
+ */
+class DxfParseCacheTest {
+    private static final Path PROJECT_DXF = Path.of("data/project.dxf");
+    private static final String SMALL_DXF = """
+        0
+        SECTION
+        2
+        TABLES
+        0
+        TABLE
+        2
+        LAYER
+        0
+        LAYER
+        2
+        points
+        62
+        3
+        0
+        ENDTAB
+        0
+        ENDSEC
+        0
+        SECTION
+        2
+        ENTITIES
+        0
+        TEXT
+        8
+        points
+        10
+        1.0
+        20
+        2.0
+        1
+        alpha
+        0
+        ENDSEC
+        0
+        EOF
+        """;
+
+    @TempDir
+    Path tempDir;
+
+    private Path copyOfProject(String name) throws IOException {
+        return Files.copy(PROJECT_DXF, tempDir.resolve(name));
+    }
+
+    private List<Path> entries(DxfParseCache cache) throws IOException {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cache.directory(), "*.dxfc")) {
+            stream.forEach(entries::add);
+        }
+        return entries;
+    }
+
+    private static void age(Path path, long minutes) throws IOException {
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - minutes * 60_000));
+    }
+
+    @Test
+    void testCachedReadMatchesParse() throws IOException {
+        Path file = copyOfProject("project.dxf");
+        DxfParseCache cache = new DxfParseCache(tempDir.resolve("cache"));
+        Map<String, DxfLayer> parsed = new DxfReader(file).readLayers();
+
+        assertEquals(parsed, new DxfReader(file, false, cache).readLayers());
+        assertEquals(0, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(parsed, new DxfReader(file, true, cache).readLayers());
+        assertEquals(1, cache.hits());
+        assertEquals(1, entries(cache).size());
+    }
+
+    @Test
+    void testFiltersApplyToMissesAndHits() throws IOException {
+        Path file = copyOfProject("project.dxf");
+        DxfParseCache cache = new DxfParseCache(tempDir.resolve("cache"));
+        DxfFilter filter = DxfFilter.all().withLayers("z value TN").withEntityTypes("TEXT");
+
+        for (int run = 0; run < 2; run++) {
+            List<String> layers = new ArrayList<>();
+            List<DxfEntity> entities = new ArrayList<>();
+            new DxfReader(file, false, cache).accept(new DxfVisitor() {
+                @Override
+                public void onLayerDefinition(String name, DxfLayer layer) {
+                    layers.add(name);
+                }
+
+                @Override
+                public void onEntity(String layerName, DxfEntity entity) {
+                    assertEquals("z value TN", layerName);
+                    entities.add(entity);
+                }
+            }, filter);
+            assertEquals(List.of("z value TN"), layers);
+            assertEquals(66, entities.size());
+            assertTrue(entities.stream().allMatch(entity -> entity.geometry().orElse(null) instanceof DxfText));
+        }
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    void testEntriesAreValidatedAgainstTheFile() throws IOException {
+        Path file = tempDir.resolve("small.dxf");
+        Files.writeString(file, SMALL_DXF);
+        DxfParseCache cache = new DxfParseCache(tempDir.resolve("cache"));
+        Map<String, DxfLayer> original = new DxfReader(file, false, cache).readLayers();
+
+        // A touched file whose content did not change is hashed and still hits
+        age(file, 10);
+        assertEquals(original, new DxfReader(file, false, cache).readLayers());
+        assertEquals(1, cache.hits());
+        assertEquals(original, new DxfReader(file, false, cache).readLayers());
+        assertEquals(2, cache.hits());
+
+        // Same size, different content
+        FileTime modified = Files.getLastModifiedTime(file);
+        Files.writeString(file, SMALL_DXF.replace("alpha", "omega"));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified.toMillis() + 1000));
+        Map<String, DxfLayer> rewritten = new DxfReader(file, false, cache).readLayers();
+        assertEquals(new DxfReader(file).readLayers(), rewritten);
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.misses());
+
+        // A corrupt entry is a miss and gets replaced
+        Files.write(entries(cache).get(0), new byte[10]);
+        assertEquals(rewritten, new DxfReader(file, false, cache).readLayers());
+        assertEquals(3, cache.misses());
+        assertEquals(rewritten, new DxfReader(file, false, cache).readLayers());
+        assertEquals(3, cache.hits());
+    }
+
+    @Test
+    void testEntryCorruptMidReplayFallsBackToParse() throws IOException {
+        Path file = tempDir.resolve("small.dxf");
+        Files.writeString(file, SMALL_DXF);
+        DxfParseCache cache = new DxfParseCache(tempDir.resolve("cache"));
+        new DxfReader(file, false, cache).readLayers();
+
+        // Point the first value end of the TEXT entity past its values; the header still matches the file
+        Path entry = entries(cache).get(0);
+        byte[] bytes = Files.readAllBytes(entry);
+        int type = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("TEXT") + 4;
+        int size = ByteBuffer.wrap(bytes, type, 4).getInt();
+        ByteBuffer.wrap(bytes).putInt(type + 8 + 2 * size, 1_000);
+        Files.write(entry, bytes);
+
+        List<String> layers = new ArrayList<>();
+        List<DxfEntity> entities = new ArrayList<>();
+        new DxfReader(file, false, cache).accept(new DxfVisitor() {
+            @Override
+            public void onLayerDefinition(String name, DxfLayer layer) {
+                layers.add(name);
+            }
+
+            @Override
+            public void onEntity(String layerName, DxfEntity entity) {
+                entities.add(entity);
+            }
+        });
+        // The layer replayed before the corrupt entity is not delivered again
+        assertEquals(List.of("points"), layers);
+        assertEquals(1, entities.size());
+        assertEquals("alpha", entities.get(0).first(1).orElseThrow());
+        assertEquals(0, cache.hits());
+        assertEquals(2, cache.misses());
+
+        assertEquals(new DxfReader(file).readLayers(), new DxfReader(file, false, cache).readLayers());
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntriesAreEvicted() throws IOException {
+        Path first = copyOfProject("first.dxf");
+        Path second = copyOfProject("second.dxf");
+        Path third = copyOfProject("third.dxf");
+        Path directory = tempDir.resolve("cache");
+        new DxfReader(first, false, new DxfParseCache(directory)).readLayers();
+        long entrySize = Files.size(entries(new DxfParseCache(directory)).get(0));
+
+        // Room for two entries but not three
+        DxfParseCache cache = new DxfParseCache(directory, entrySize * 5 / 2);
+        new DxfReader(second, false, cache).readLayers();
+        for (Path entry : entries(cache)) {
+            age(entry, 60);
+        }
+        new DxfReader(first, false, cache).readLayers();
+        assertEquals(1, cache.hits());
+        new DxfReader(third, false, cache).readLayers();
+        assertEquals(2, entries(cache).size());
+
+        new DxfReader(first, false, cache).readLayers();
+        new DxfReader(third, false, cache).readLayers();
+        assertEquals(3, cache.hits());
+        new DxfReader(second, false, cache).readLayers();
+        assertEquals(3, cache.hits());
+        assertThrows(IllegalArgumentException.class, () -> new DxfParseCache(directory, 0));
+    }
+}
@@ -5,11 +5,16 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -33,10 +38,11 @@ class DxfReaderTest {
         return dxfFile;
     }
     
-    @Test
+    @ParameterizedTest(name = "parallel={0}")
+    @ValueSource(booleans = {false, true})
     @DisplayName("Project DXF file should be correctly read")
-    void testProjectDxf() throws IOException {
-        DxfReader reader = new DxfReader(Path.of(PROJECT_DXF));
+    void testProjectDxf(boolean parallel) throws IOException {
+        DxfReader reader = new DxfReader(Path.of(PROJECT_DXF), parallel);
         Map<String, DxfLayer> layers = reader.readLayers();
         
         // Verify all layers exist
@@ -68,6 +74,10 @@ class DxfReaderTest {
             () -> assertFalse(layerZValue.isVisible(), "Layer should be invisible")
         );
         
+        // Verify entities reach their layers
+        assertEquals(66, layerZValue.entities().stream().filter(e -> e.type().equals("TEXT")).count(),
+            "z value TN should hold its TEXT entities");
+        
         // Verify croix layer (colored layer)
         DxfLayer layerCroix = layers.get(LAYER_CROIX);
         assertAll("croix layer properties",
@@ -78,12 +88,318 @@ class DxfReaderTest {
         );
     }
     
+    @Test
+    @DisplayName("Parallel parsing should match sequential parsing")
+    void testParallelMatchesSequential() throws IOException {
+        Map<String, DxfLayer> sequential = new DxfReader(Path.of(PROJECT_DXF)).readLayers();
+
+        DxfReader parallelReader = new DxfReader(Path.of(PROJECT_DXF), true);
+        parallelReader.setChunkSize(4096);
+        Map<String, DxfLayer> parallel = parallelReader.readLayers();
+
+        assertTrue(parallelReader.isParallel());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    @DisplayName("Entities without a layer should inherit it across chunk boundaries")
+    void testParallelLayerInheritance() throws IOException {
+        StringBuilder content = new StringBuilder("0\nSECTION\n2\nENTITIES\n");
+        for (int i = 0; i < 200; i++) {
+            content.append("0\nPOINT\n");
+            if (i % 50 == 0) {
+                content.append("8\nlayer").append(i).append('\n');
+            }
+            content.append("10\n").append(i).append(".0\n");
+        }
+        content.append("0\nENDSEC\n0\nEOF\n");
+        Path dxfFile = createDxfFile("inherit.dxf", content.toString());
+
+        Map<String, DxfLayer> sequential = new DxfReader(dxfFile).readLayers();
+        DxfReader parallelReader = new DxfReader(dxfFile, true);
+        parallelReader.setChunkSize(64);
+
+        assertEquals(Set.of("layer0", "layer50", "layer100", "layer150"), sequential.keySet());
+        assertEquals(sequential, parallelReader.readLayers());
+    }
+
+    @Test
+    @DisplayName("Parallel chunks should resync on entity boundaries wherever the ranges split")
+    void testParallelChunksResyncAtEntities() throws IOException {
+        StringBuilder content = new StringBuilder("  0\r\nSECTION\r\n  2\r\nENTITIES\r\n");
+        for (int i = 0; i < 40; i++) {
+            content.append("  0\r\nTEXT\r\n  8\r\n").append(i % 3 == 0 ? "0" : "notes").append("\r\n")
+                .append(" 10\r\n").append(i).append(".5\r\n 20\r\n0\r\n  1\r\n0\r\n");
+        }
+        content.append("  0\r\nENDSEC\r\n  0\r\nSECTION\r\n  2\r\nOBJECTS\r\n  0\r\nDICTIONARY\r\n  8\r\nobjects\r\n")
+            .append("  0\r\nENDSEC\r\n  0\r\nEOF\r\n");
+        Path dxfFile = createDxfFile("resync.dxf", content.toString());
+
+        Map<String, DxfLayer> sequential = new DxfReader(dxfFile).readLayers();
+        assertEquals(Set.of("0", "notes"), sequential.keySet());
+        for (int chunkSize = 1; chunkSize <= 120; chunkSize += 7) {
+            DxfReader parallelReader = new DxfReader(dxfFile, true);
+            parallelReader.setChunkSize(chunkSize);
+            assertEquals(sequential, parallelReader.readLayers(), "chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    @DisplayName("Errors after a parallel ENTITIES section should report the same line as sequential reads")
+    void testParallelErrorLines() throws IOException {
+        StringBuilder content = new StringBuilder("  0\r\nSECTION\r\n  2\r\nENTITIES\r\n");
+        for (int i = 0; i < 40; i++) {
+            content.append("  0\r\nPOINT\r\n  8\r\nlayer").append(i % 4).append("\r\n")
+                .append(" 10\r\n").append(i).append(".5\r\n");
+        }
+        content.append("  0\r\nENDSEC\r\n  0\r\nINVALID\r\n");
+        Path dxfFile = createDxfFile("lines.dxf", content.toString());
+
+        String expected = assertThrows(IllegalArgumentException.class, () -> new DxfReader(dxfFile).readLayers())
+            .getMessage();
+        assertTrue(expected.contains("line 248"), expected);
+        for (int chunkSize = 1; chunkSize <= 400; chunkSize += 37) {
+            DxfReader parallelReader = new DxfReader(dxfFile, true);
+            parallelReader.setChunkSize(chunkSize);
+            assertEquals(expected, assertThrows(IllegalArgumentException.class, parallelReader::readLayers)
+                .getMessage(), "chunk size " + chunkSize);
+        }
+    }
+
+    @Nested
+    @DisplayName("Layer Table Tests")
+    class LayerTableTests {
+
+        @Test
+        @DisplayName("The layer table should match the layer properties of a full read")
+        void testLayerTableMatchesFullRead() throws IOException {
+            DxfReader reader = new DxfReader(Path.of(PROJECT_DXF));
+            Map<String, DxfLayer> full = reader.readLayers();
+            Map<String, DxfLayer> table = reader.readLayerTable();
+
+            assertTrue(table.containsKey(LAYER_Z_VALUE));
+            table.forEach((name, layer) -> {
+                DxfLayer expected = full.get(name);
+                assertEquals(expected.name(), layer.name());
+                assertEquals(expected.colorNumber(), layer.colorNumber());
+                assertEquals(expected.lineType(), layer.lineType());
+                assertEquals(expected.isVisible(), layer.isVisible());
+                assertTrue(layer.entities().isEmpty());
+            });
+        }
+
+        @Test
+        @DisplayName("Reading the layer table should stop at the end of the TABLES section")
+        void testLayerTableStopsAfterTables() throws IOException {
+            String dxf = """
+                0
+                SECTION
+                2
+                HEADER
+                9
+                $ACADVER
+                1
+                AC1015
+                0
+                ENDSEC
+                0
+                SECTION
+                2
+                TABLES
+                0
+                TABLE
+                2
+                LAYER
+                0
+                LAYER
+                2
+                walls
+                62
+                5
+                0
+                ENDTAB
+                0
+                ENDSEC
+                0
+                SECTION
+                2
+                ENTITIES
+                not a group code
+                """;
+            DxfReader reader = new DxfReader(createDxfFile("tables.dxf", dxf));
+
+            Map<String, DxfLayer> table = reader.readLayerTable();
+            assertEquals(Set.of("walls"), table.keySet());
+            assertEquals(5, table.get("walls").colorNumber());
+            assertThrows(IllegalArgumentException.class, reader::readLayers);
+        }
+
+        @Test
+        @DisplayName("Entity counts should match the entities of a full read")
+        void testEntityCountsMatchFullRead() throws IOException {
+            StringBuilder content = new StringBuilder("0\nSECTION\n2\nENTITIES\n");
+            for (int i = 0; i < 200; i++) {
+                content.append("0\nPOINT\n");
+                if (i % 30 == 0) {
+                    content.append("8\nlayer").append(i % 4).append('\n');
+                }
+                content.append("10\n").append(i).append(".0\n");
+            }
+            content.append("0\nENDSEC\n0\nEOF\n");
+
+            for (Path file : List.of(Path.of(PROJECT_DXF), createDxfFile("counts.dxf", content.toString()))) {
+                DxfReader reader = new DxfReader(file);
+                Map<String, Long> counts = reader.countEntitiesByLayer();
+                reader.readLayers().forEach((name, layer) ->
+                    assertEquals(layer.entities().size(), counts.getOrDefault(name, 0L), name));
+                assertEquals(reader.readLayers().values().stream().mapToLong(layer -> layer.entities().size()).sum(),
+                    counts.values().stream().mapToLong(Long::longValue).sum());
+            }
+        }
+
+        @Test
+        @DisplayName("Counting entities should reject a malformed file")
+        void testEntityCountsRejectInvalidStructure() throws IOException {
+            String[] invalidDxfContents = {
+                "0\nPOINT\n0\nSECTION\n2\nENTITIES\n0\nENDSEC\n0\nEOF\n",
+                "0\nSECTION\n2\nENTITIES\n0\nPOINT\n0\nENDSEC\n",
+                "0\nEOF\n"
+            };
+            for (String content : invalidDxfContents) {
+                DxfReader reader = new DxfReader(createDxfFile("invalid-counts.dxf", content));
+                assertThrows(IllegalArgumentException.class, reader::countEntitiesByLayer, content);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Visitor Tests")
+    class VisitorTests {
+        /**
+         * Records the callbacks it receives as "layer/type" strings.
+         */
+        private static class RecordingVisitor implements DxfVisitor {
+            final List<String> layerDefinitions = new ArrayList<>();
+            final List<String> entities = new ArrayList<>();
+
+            @Override
+            public void onLayerDefinition(String name, DxfLayer layer) {
+                layerDefinitions.add(name);
+            }
+
+            @Override
+            public void onEntity(String layerName, DxfEntity entity) {
+                entities.add(layerName + "/" + entity.type());
+            }
+        }
+
+        @ParameterizedTest(name = "parallel={0}")
+        @ValueSource(booleans = {false, true})
+        @DisplayName("Filters should be applied by the parser")
+        void testFilteredVisit(boolean parallel) throws IOException {
+            RecordingVisitor all = new RecordingVisitor();
+            new DxfReader(Path.of(PROJECT_DXF)).accept(all);
+
+            DxfReader reader = new DxfReader(Path.of(PROJECT_DXF), parallel);
+            reader.setChunkSize(4096);
+            RecordingVisitor filtered = new RecordingVisitor();
+            reader.accept(filtered, DxfFilter.all().withLayers(LAYER_Z_VALUE).withEntityTypes("TEXT"));
+
+            List<String> expected = all.entities.stream()
+                .filter(entity -> entity.equals(LAYER_Z_VALUE + "/TEXT"))
+                .toList();
+            assertFalse(expected.isEmpty(), "Project should contain TEXT entities on z value TN");
+            assertEquals(expected, filtered.entities);
+            assertEquals(List.of(LAYER_Z_VALUE), filtered.layerDefinitions);
+            assertTrue(all.layerDefinitions.contains(LAYER_CONSTRUCTION));
+        }
+
+        @Test
+        @DisplayName("Entity type filter should keep file order across layers")
+        void testEntityTypeFilter() throws IOException {
+            String dxf = """
+                0
+                SECTION
+                2
+                ENTITIES
+                0
+                LINE
+                8
+                a
+                0
+                TEXT
+                8
+                b
+                1
+                12.5
+                0
+                TEXT
+                10
+                1.0
+                0
+                CIRCLE
+                8
+                a
+                0
+                TEXT
+                8
+                a
+                0
+                ENDSEC
+                0
+                EOF
+                """;
+            Path dxfFile = createDxfFile("types.dxf", dxf);
+
+            RecordingVisitor texts = new RecordingVisitor();
+            new DxfReader(dxfFile).accept(texts, DxfFilter.all().withEntityTypes("TEXT"));
+            assertEquals(List.of("b/TEXT", "b/TEXT", "a/TEXT"), texts.entities);
+
+            RecordingVisitor layerB = new RecordingVisitor();
+            new DxfReader(dxfFile).accept(layerB, DxfFilter.all().withLayers("b"));
+            assertEquals(List.of("b/TEXT", "b/TEXT"), layerB.entities);
+        }
+
+        @Test
+        @DisplayName("Polyline entities should keep every vertex")
+        void testPolylineVertices() throws IOException {
+            List<DxfEntity> polylines = new ArrayList<>();
+            new DxfReader(Path.of(PROJECT_DXF)).accept(new DxfVisitor() {
+                @Override
+                public void onEntity(String layerName, DxfEntity entity) {
+                    polylines.add(entity);
+                }
+            }, DxfFilter.all().withEntityTypes("LWPOLYLINE"));
+
+            assertEquals(4, polylines.size());
+            for (DxfEntity polyline : polylines) {
+                int vertexCount = Integer.parseInt(polyline.first(90).orElseThrow());
+                assertEquals(vertexCount, polyline.all(10).size());
+                assertEquals(vertexCount, polyline.all(20).size());
+            }
+        }
+
+        @Test
+        @DisplayName("Filter should report what it accepts")
+        void testFilterAccepts() {
+            DxfFilter filter = DxfFilter.all().withLayers("a").withEntityTypes("TEXT", "LINE");
+
+            assertTrue(DxfFilter.all().acceptsLayer("anything"));
+            assertTrue(filter.acceptsLayer("a"));
+            assertFalse(filter.acceptsLayer("b"));
+            assertTrue(filter.acceptsEntityType("LINE"));
+            assertFalse(filter.acceptsEntityType("ARC"));
+            assertThrows(NullPointerException.class, () -> DxfFilter.all().withLayers((String) null));
+        }
+    }
+
     @Nested
     @DisplayName("Basic DXF File Tests")
     class BasicDxfTests {
-        @Test
+        @ParameterizedTest(name = "parallel={0}")
+        @ValueSource(booleans = {false, true})
         @DisplayName("Empty but valid DXF file should have no layers")
-        void testEmptyDxf() throws IOException {
+        void testEmptyDxf(boolean parallel) throws IOException {
             String minimalDxf = """
                 0
                 SECTION
@@ -114,15 +430,16 @@ class DxfReaderTest {
                 """;
             Path dxfFile = createDxfFile("empty.dxf", minimalDxf);
 
-            DxfReader reader = new DxfReader(dxfFile);
+            DxfReader reader = new DxfReader(dxfFile, parallel);
             Map<String, DxfLayer> layers = reader.readLayers();
             
             assertTrue(layers.isEmpty(), "Empty DXF should have no layers");
         }
 
-        @Test
+        @ParameterizedTest(name = "parallel={0}")
+        @ValueSource(booleans = {false, true})
         @DisplayName("Invalid DXF file should throw IllegalArgumentException")
-        void testInvalidDxf() throws IOException {
+        void testInvalidDxf(boolean parallel) throws IOException {
             // Test cases for invalid DXF files
             String[] invalidDxfContents = {
                 "This is not a DXF file",
@@ -163,7 +480,7 @@ class DxfReaderTest {
             for (String content : invalidDxfContents) {
                 Path dxfFile = createDxfFile("invalid.dxf", content);
                 IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
-                    DxfReader reader = new DxfReader(dxfFile);
+                    DxfReader reader = new DxfReader(dxfFile, parallel);
                     reader.readLayers();
                 }, "Should throw IllegalArgumentException for invalid DXF content: " + content.substring(0, Math.min(20, content.length())));
                 
@@ -0,0 +1,208 @@
+package com.crunchydevops.dxf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DxfTokenizerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DxfTokenizer open(String content) throws IOException {
+        Path file = tempDir.resolve("tokens.dxf");
+        Files.writeString(file, content);
+        return new DxfTokenizer(file);
+    }
+
+    @Test
+    void testReadsTrimmedPairs() throws IOException {
+        try (DxfTokenizer tokenizer = open("  0\r\nSECTION\r\n  2\r\nHEADER  \r\n 10\r\n1.5\r\n")) {
+            assertTrue(tokenizer.next());
+            assertEquals(0, tokenizer.code());
+            assertEquals("SECTION", tokenizer.value());
+
+            assertTrue(tokenizer.next());
+            assertEquals(2, tokenizer.code());
+            assertEquals("HEADER", tokenizer.value());
+
+            assertTrue(tokenizer.next());
+            assertEquals(10, tokenizer.code());
+            assertEquals("1.5", tokenizer.value());
+
+            assertFalse(tokenizer.next());
+        }
+    }
+
+    @Test
+    void testPushBack() throws IOException {
+        try (DxfTokenizer tokenizer = open("0\nLINE\n8\nwalls\n")) {
+            assertTrue(tokenizer.next());
+            tokenizer.pushBack();
+            assertTrue(tokenizer.next());
+            assertEquals("LINE", tokenizer.value());
+            assertTrue(tokenizer.next());
+            assertEquals(8, tokenizer.code());
+            assertEquals("walls", tokenizer.value());
+        }
+    }
+
+    @Test
+    void testMissingValueIsEmpty() throws IOException {
+        try (DxfTokenizer tokenizer = open("0\n")) {
+            assertTrue(tokenizer.next());
+            assertEquals("", tokenizer.value());
+            assertFalse(tokenizer.next());
+        }
+    }
+
+    @Test
+    void testInvalidGroupCode() throws IOException {
+        try (DxfTokenizer tokenizer = open("not a code\nvalue\n")) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, tokenizer::next);
+            assertTrue(e.getMessage().contains("line 1"));
+        }
+    }
+
+    @Test
+    void testBlankLinesAreCounted() throws IOException {
+        try (DxfTokenizer tokenizer = open("0\nLINE\n\n\r\n\r8\nwalls\nbad\nvalue\n")) {
+            assertTrue(tokenizer.next());
+            assertTrue(tokenizer.next());
+            assertEquals(8, tokenizer.code());
+            assertEquals(7, tokenizer.lineNumber(), "The pair follows three blank lines");
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, tokenizer::next);
+            assertTrue(e.getMessage().contains("line 8"), e.getMessage());
+        }
+    }
+
+    @Test
+    void testValueSlices() throws IOException {
+        try (DxfTokenizer tokenizer = open("  0\nSECTION\n 62\n   -18\n")) {
+            assertTrue(tokenizer.next());
+            assertTrue(tokenizer.valueEquals("SECTION"));
+            assertFalse(tokenizer.valueEquals("SECTIONS"));
+            assertFalse(tokenizer.valueEquals("ENDSEC"));
+            assertEquals(7, tokenizer.valueLength());
+            assertEquals('S', tokenizer.buffer().get(tokenizer.valueOffset()));
+
+            assertTrue(tokenizer.next());
+            assertEquals(62, tokenizer.code());
+            assertEquals(-18, tokenizer.intValue());
+            assertEquals(12, tokenizer.pairPosition());
+        }
+    }
+
+    @Test
+    void testIntValueRejectsText() throws IOException {
+        try (DxfTokenizer tokenizer = open("62\nred\n")) {
+            assertTrue(tokenizer.next());
+            assertThrows(NumberFormatException.class, tokenizer::intValue);
+        }
+    }
+
+    @Test
+    void testSyncToEntity() throws IOException {
+        String content = "  0\nPOINT\n  8\n0\n 10\n1.0\n  0\nLINE\n";
+        try (DxfTokenizer tokenizer = open(content)) {
+            // Starting inside the value "0" of the layer, which is not followed by a type
+            assertTrue(tokenizer.syncToEntity(content.indexOf("0\n 10")));
+            assertEquals(3, tokenizer.lineNumber(), "The skipped lines are counted");
+            assertTrue(tokenizer.next());
+            assertEquals(0, tokenizer.code());
+            assertEquals("LINE", tokenizer.value());
+            assertEquals(content.indexOf("0\nLINE"), tokenizer.codePosition());
+
+            assertTrue(tokenizer.syncToEntity(3));
+            assertTrue(tokenizer.next());
+            assertEquals("LINE", tokenizer.value(), "The code of the first record starts before the offset");
+
+            assertTrue(tokenizer.syncToEntity(0));
+            assertTrue(tokenizer.next());
+            assertEquals("POINT", tokenizer.value());
+
+            assertFalse(tokenizer.syncToEntity(content.length() - 2));
+            assertFalse(tokenizer.next());
+        }
+    }
+
+    @Test
+    void testPairsAcrossWindowBoundaries() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            content.append(" 10\n").append(i).append(".25\n");
+        }
+        Path file = tempDir.resolve("large.dxf");
+        Files.writeString(file, content);
+
+        try (DxfTokenizer tokenizer = new DxfTokenizer(file, 4096)) {
+            for (int i = 0; i < 2000; i++) {
+                assertTrue(tokenizer.next());
+                assertEquals(10, tokenizer.code());
+                assertEquals(i + ".25", tokenizer.value());
+            }
+            assertFalse(tokenizer.next());
+            assertEquals(4000, tokenizer.lineNumber());
+        }
+    }
+
+    @Test
+    void testForkReadsPastItsFirstWindow() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            content.append(" 10\n").append(i).append(".25\n");
+        }
+        Path file = tempDir.resolve("fork.dxf");
+        Files.writeString(file, content);
+
+        try (DxfTokenizer tokenizer = new DxfTokenizer(file)) {
+            long start = content.indexOf(" 10\n500.25");
+            try (DxfTokenizer fork = tokenizer.fork(start, 4096)) {
+                for (int i = 500; i < 2000; i++) {
+                    assertTrue(fork.next());
+                    assertEquals(i + ".25", fork.value());
+                }
+                assertFalse(fork.next());
+                assertEquals(content.length(), fork.position());
+            }
+            // Closing the fork leaves the shared file open
+            assertTrue(tokenizer.next());
+            assertEquals("0.25", tokenizer.value());
+        }
+    }
+
+    @Test
+    void testSeekAcrossWindows() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            content.append(" 10\n").append(i).append(".25\n");
+        }
+        Path file = tempDir.resolve("seek.dxf");
+        Files.writeString(file, content);
+
+        try (DxfTokenizer tokenizer = new DxfTokenizer(file, 4096)) {
+            long[] positions = new long[2000];
+            long[] lines = new long[2000];
+            for (int i = 0; i < 2000; i++) {
+                tokenizer.next();
+                positions[i] = tokenizer.pairPosition();
+                lines[i] = tokenizer.pairLine();
+            }
+            for (int i : new int[] {1500, 3, 1999, 0, 700}) {
+                tokenizer.seek(positions[i], lines[i]);
+                assertTrue(tokenizer.next());
+                assertEquals(i + ".25", tokenizer.value());
+                assertEquals(positions[i], tokenizer.pairPosition());
+                assertEquals(2L * i + 2, tokenizer.lineNumber());
+            }
+            tokenizer.seek(tokenizer.size(), 4000);
+            assertFalse(tokenizer.next());
+            assertThrows(IllegalArgumentException.class, () -> tokenizer.seek(-1, 0));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.crunchydevops.dxf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DxfWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRoundTrip() throws IOException {
+        DxfEntity text = DxfEntity.builder()
+            .add(10, "1.5").add(20, "2.5").add(30, "0").add(40, "0.2").add(1, "A-12")
+            .build("TEXT");
+        DxfEntity line = DxfEntity.builder()
+            .add(10, "0").add(20, "0").add(11, "3").add(21, "4")
+            .build("LINE");
+        DxfLayer points = DxfLayer.builder("Points").colorNumber(3).addEntity(text).build();
+        DxfLayer hidden = DxfLayer.builder("Hidden").colorNumber(5).lineType("DASHED").visible(false)
+            .addEntity(line).build();
+        Path file = tempDir.resolve("out.dxf");
+        DxfWriter.write(file, List.of(points, hidden));
+
+        Map<String, DxfLayer> layers = new DxfReader(file).readLayers();
+        assertEquals(2, layers.size());
+        assertEquals(List.of(text), layers.get("Points").entities());
+        assertEquals(3, layers.get("Points").colorNumber());
+        DxfLayer read = layers.get("Hidden");
+        assertEquals(List.of(line), read.entities());
+        assertFalse(read.isVisible());
+        assertEquals("DASHED", read.lineType());
+        assertEquals(new DxfLine(0, 0, 0, 3, 4, 0), read.entities().get(0).geometry().orElseThrow());
+    }
+
+    @Test
+    void testGroupCodeLayout() throws IOException {
+        StringWriter out = new StringWriter();
+        DxfWriter.write(out, List.of());
+        assertTrue(out.toString().startsWith("  0\nSECTION\n  2\nTABLES\n"));
+        assertTrue(out.toString().contains(" 70\n0\n"));
+        assertTrue(out.toString().endsWith("  0\nEOF\n"));
+    }
+}
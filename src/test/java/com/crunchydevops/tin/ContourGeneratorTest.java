@@ -0,0 +1,111 @@
+package com.crunchydevops.tin;
+
+import com.crunchydevops.dxf.DxfLayer;
+import com.crunchydevops.dxf.DxfLwPolyline;
+import com.crunchydevops.dxf.DxfReader;
+import com.crunchydevops.dxf.DxfWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContourGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static double signedArea(Contour contour) {
+        double sum = 0;
+        for (int i = 0, j = contour.vertexCount() - 1; i < contour.vertexCount(); j = i++) {
+            sum += contour.x(j) * contour.y(i) - contour.x(i) * contour.y(j);
+        }
+        return sum / 2;
+    }
+
+    @Test
+    void testInclinedPlane() {
+        Tin tin = TinFixtures.surface(0, 0, 10, 10, 40, 300, 1, (x, y) -> x + 0.5);
+        List<Contour> contours = ContourGenerator.generate(tin, 1);
+
+        assertEquals(10, contours.size());
+        for (int i = 0; i < contours.size(); i++) {
+            Contour contour = contours.get(i);
+            assertEquals(i + 1, contour.elevation(), 1e-9);
+            assertFalse(contour.closed());
+            for (int v = 0; v < contour.vertexCount(); v++) {
+                assertEquals(contour.elevation() - 0.5, contour.x(v), 1e-4);
+            }
+            // Higher ground, towards +x, is on the left when walking towards -y
+            assertEquals(10, contour.y(0), 1e-6);
+            assertEquals(0, contour.y(contour.vertexCount() - 1), 1e-6);
+        }
+    }
+
+    @Test
+    void testClosedLoopsAroundPeak() {
+        Tin tin = TinFixtures.surface(-10, -10, 10, 10, 40, 4_000, 2, (x, y) -> 20 - Math.hypot(x, y));
+        List<Contour> contours = ContourGenerator.generate(tin, 0.5);
+
+        // Rings up to radius 9 stay inside the square, wider ones are cut by its edges
+        List<Contour> rings = contours.stream().filter(c -> c.elevation() >= 11).toList();
+        assertEquals(18, rings.size());
+        for (Contour ring : rings) {
+            assertTrue(ring.closed());
+            assertTrue(signedArea(ring) > 0, "Higher ground must be on the left");
+            double radius = 20 - ring.elevation();
+            for (int v = 0; v < ring.vertexCount(); v++) {
+                assertEquals(radius, Math.hypot(ring.x(v), ring.y(v)), 0.25);
+            }
+        }
+        assertTrue(contours.stream().filter(c -> c.elevation() < 5.85).findAny().isEmpty());
+        assertTrue(contours.stream().filter(c -> c.elevation() < 10).noneMatch(Contour::closed));
+    }
+
+    @Test
+    void testSmoothing() {
+        Contour open = new Contour(5, new double[] {0, 0, 4, 0, 4, 4}, false);
+        Contour smoothed = open.smoothed(1);
+        assertArrayEquals(new double[] {0, 0, 1, 0, 3, 0, 4, 1, 4, 3, 4, 4}, smoothed.vertices(), 1e-12);
+        assertEquals(5, smoothed.elevation());
+
+        Contour square = new Contour(1, new double[] {0, 0, 4, 0, 4, 4, 0, 4}, true);
+        Contour rounded = square.smoothed(3);
+        assertTrue(rounded.closed());
+        assertEquals(4 * 8, rounded.vertexCount());
+        assertEquals(square, square.smoothed(0));
+        assertThrows(IllegalArgumentException.class, () -> square.smoothed(-1));
+    }
+
+    @Test
+    void testWriteAsDxfLayer() throws IOException {
+        Tin tin = TinFixtures.surface(0, 0, 10, 10, 40, 200, 3, (x, y) -> x + y / 2);
+        List<Contour> contours = ContourGenerator.generate(tin, 2);
+        Path file = tempDir.resolve("contours.dxf");
+        DxfWriter.write(file, List.of(ContourGenerator.toLayer("CONTOURS", contours)));
+
+        Map<String, DxfLayer> layers = new DxfReader(file).readLayers();
+        DxfLayer layer = layers.get("CONTOURS");
+        assertNotNull(layer);
+        assertEquals(contours.size(), layer.entities().size());
+        for (int i = 0; i < contours.size(); i++) {
+            DxfLwPolyline polyline = (DxfLwPolyline) layer.entities().get(i).geometry().orElseThrow();
+            assertArrayEquals(contours.get(i).vertices(), polyline.vertices());
+            assertEquals(contours.get(i).elevation(), polyline.elevation());
+            assertEquals(contours.get(i).closed(), polyline.closed());
+        }
+    }
+
+    @Test
+    void testInvalidInterval() {
+        Tin tin = TinFixtures.surface(0, 0, 10, 10, 40, 20, 4, (x, y) -> x);
+        assertThrows(IllegalArgumentException.class, () -> ContourGenerator.generate(tin, 0));
+        assertThrows(IllegalArgumentException.class, () -> ContourGenerator.generate(tin, -1));
+        assertThrows(IllegalArgumentException.class, () -> ContourGenerator.generate(tin, 1e-9));
+        assertTrue(ContourGenerator.generate(TinFixtures.surface(0, 0, 10, 10, 40, 20, 5, (x, y) -> 0.5), 1).isEmpty());
+    }
+}
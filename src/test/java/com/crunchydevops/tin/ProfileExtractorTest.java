@@ -0,0 +1,101 @@
+package com.crunchydevops.tin;
+
+import com.crunchydevops.Point3D;
+import com.crunchydevops.PointCloud;
+import com.crunchydevops.dxf.DxfLwPolyline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileExtractorTest {
+    private Tin tin;
+
+    private static double plane(double x, double y) {
+        return 10 + x / 10 + y / 20;
+    }
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(1);
+        PointCloud cloud = new PointCloud();
+        long id = 1;
+        for (double[] corner : new double[][] {{0, 0}, {100, 0}, {100, 100}, {0, 100}}) {
+            cloud.addPoint(id++, new Point3D((float) corner[0], (float) corner[1], (float) plane(corner[0], corner[1])));
+        }
+        for (int i = 0; i < 500; i++) {
+            float x = random.nextFloat() * 100, y = random.nextFloat() * 100;
+            cloud.addPoint(id++, new Point3D(x, y, (float) plane(x, y)));
+        }
+        tin = Tin.build(cloud);
+    }
+
+    @Test
+    void testLongitudinalProfile() {
+        Profile profile = ProfileExtractor.longitudinal(tin, new double[] {10, 10, 90, 10, 90, 90}, 7);
+
+        // 0, 7, ..., 154 and the end at 160
+        assertEquals(24, profile.size());
+        assertEquals(154, profile.stations()[22]);
+        assertEquals(160, profile.stations()[23]);
+        assertEquals(90, profile.xs()[23], 1e-9);
+        assertEquals(90, profile.ys()[23], 1e-9);
+        for (int i = 0; i < profile.size(); i++) {
+            assertEquals(plane(profile.xs()[i], profile.ys()[i]), profile.elevations()[i], 1e-4);
+        }
+
+        double[] grades = profile.grades();
+        assertEquals(23, grades.length);
+        assertEquals(10, grades[0], 1e-3); // Heading east
+        assertEquals(5, grades[22], 1e-3); // Heading north
+        assertEquals(profile.grade(22), grades[22]);
+        assertThrows(IndexOutOfBoundsException.class, () -> profile.grade(23));
+    }
+
+    @Test
+    void testCrossSections() {
+        double[] offsets = {-5, 0, 5};
+        CrossSections sections = ProfileExtractor.crossSections(tin, new double[] {10, 10, 90, 10, 90, 90}, 20, offsets);
+
+        assertEquals(9, sections.sectionCount());
+        assertEquals(27, sections.elevations().length);
+
+        // Heading east the right-hand side is south
+        Profile first = sections.section(0);
+        assertArrayEquals(offsets, first.stations());
+        assertArrayEquals(new double[] {15, 10, 5}, first.ys(), 1e-9);
+        assertEquals(plane(10, 5), sections.elevation(0, 2), 1e-4);
+        assertEquals(-5, first.grade(0), 1e-3);
+
+        // Station 80 is on the corner: the section follows the northbound segment, right is east
+        Profile corner = sections.section(4);
+        assertArrayEquals(new double[] {85, 90, 95}, corner.xs(), 1e-9);
+        assertEquals(10, corner.grade(1), 1e-3);
+    }
+
+    @Test
+    void testPolylineAndOutsideSamples() {
+        DxfLwPolyline square = new DxfLwPolyline(new double[] {50, 50, 150, 50, 150, 150, 50, 150},
+            new double[4], 0, true);
+        Profile profile = ProfileExtractor.longitudinal(tin, square, 25);
+
+        assertEquals(400, profile.stations()[profile.size() - 1]);
+        assertEquals(17, profile.size());
+        assertEquals(plane(75, 50), profile.elevations()[1], 1e-4);
+        assertTrue(Double.isNaN(profile.elevations()[5])); // (150, 50) is outside the TIN
+        assertTrue(Double.isNaN(profile.grade(4)));
+        assertEquals(plane(50, 75), profile.elevations()[15], 1e-4);
+    }
+
+    @Test
+    void testInvalidInput() {
+        double[] line = {0, 0, 10, 0};
+        assertThrows(IllegalArgumentException.class, () -> ProfileExtractor.longitudinal(tin, line, 0));
+        assertThrows(IllegalArgumentException.class, () -> ProfileExtractor.longitudinal(tin, new double[] {1, 1, 1, 1}, 1));
+        assertThrows(IllegalArgumentException.class, () -> ProfileExtractor.longitudinal(tin, new double[] {1, 1, 2}, 1));
+        assertThrows(IllegalArgumentException.class,
+            () -> ProfileExtractor.crossSections(tin, line, 1, new double[] {1, 0}));
+    }
+}
@@ -0,0 +1,47 @@
+package com.crunchydevops.tin;
+
+import com.crunchydevops.Point3D;
+import com.crunchydevops.PointCloud;
+
+import java.util.Random;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * TIN fixtures shared by the tests of this package.
+ */
+final class TinFixtures {
+
+    private TinFixtures() {
+    }
+
+    /**
+     * Builds a TIN of a surface over a rectangle from points spaced evenly along its edges,
+     * starting at the corners, and random interior points. Points along the edges keep the
+     * long hull edges from flattening the surface; one per edge gives just the corners.
+     *
+     * @param edgePoints The number of points along each edge, at least 1
+     * @param points The number of random interior points
+     * @param z The elevation of the surface at a point
+     */
+    static Tin surface(double minX, double minY, double maxX, double maxY, int edgePoints, int points, long seed,
+                       DoubleBinaryOperator z) {
+        Random random = new Random(seed);
+        PointCloud cloud = new PointCloud(points + 4 * edgePoints);
+        long id = 1;
+        for (int i = 0; i < edgePoints; i++) {
+            double alongX = minX + (maxX - minX) * i / edgePoints;
+            double alongY = minY + (maxY - minY) * i / edgePoints;
+            double backX = maxX - (maxX - minX) * i / edgePoints;
+            double backY = maxY - (maxY - minY) * i / edgePoints;
+            for (double[] xy : new double[][] {{alongX, minY}, {maxX, alongY}, {backX, maxY}, {minX, backY}}) {
+                cloud.addPoint(id++, new Point3D((float) xy[0], (float) xy[1], (float) z.applyAsDouble(xy[0], xy[1])));
+            }
+        }
+        for (int i = 0; i < points; i++) {
+            float x = (float) (minX + random.nextDouble() * (maxX - minX));
+            float y = (float) (minY + random.nextDouble() * (maxY - minY));
+            cloud.addPoint(id++, new Point3D(x, y, (float) z.applyAsDouble(x, y)));
+        }
+        return Tin.build(cloud);
+    }
+}
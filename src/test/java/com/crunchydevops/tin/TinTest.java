@@ -0,0 +1,230 @@
+package com.crunchydevops.tin;
+
+import com.crunchydevops.Point3D;
+import com.crunchydevops.PointCloud;
+import com.crunchydevops.TestClouds;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TinTest {
+
+    private static PointCloud randomCloud(int n, long seed) {
+        return TestClouds.randomCloud(n, seed, 1000, 3000, 100, 90, 10);
+    }
+
+    /**
+     * Checks adjacency symmetry, orientation, the empty-circumcircle property and Euler's formula.
+     */
+    private static void assertValidDelaunay(Tin tin, int vertices) {
+        int triangles = tin.triangleCount();
+        for (int t = 0; t < triangles; t++) {
+            int a = tin.vertex(t, 0), b = tin.vertex(t, 1), c = tin.vertex(t, 2);
+            assertTrue(Tin.cross(tin.x(a), tin.y(a), tin.x(b), tin.y(b), tin.x(c), tin.y(c)) > 0,
+                "Triangle " + t + " is not counter-clockwise");
+            for (int edge = 0; edge < 3; edge++) {
+                int n = tin.neighbour(t, edge);
+                if (n < 0) {
+                    continue;
+                }
+                // The neighbour shares the edge in the opposite direction
+                int from = tin.vertex(t, edge), to = tin.vertex(t, (edge + 1) % 3);
+                int shared = -1;
+                for (int k = 0; k < 3; k++) {
+                    if (tin.vertex(n, k) == to && tin.vertex(n, (k + 1) % 3) == from) {
+                        shared = k;
+                    }
+                }
+                assertTrue(shared >= 0, "Triangles " + t + " and " + n + " are not mutual neighbours");
+                assertEquals(t, tin.neighbour(n, shared));
+
+                // The opposite vertex is not inside the circumcircle
+                int p = tin.vertex(n, (shared + 2) % 3);
+                assertFalse(inCircle(tin, a, b, c, p), "Edge " + t + "/" + edge + " is not Delaunay");
+            }
+        }
+        // The hull list runs along the edges without a neighbour
+        int[] hull = tin.hull();
+        Set<Long> hullEdges = new HashSet<>();
+        for (int t = 0; t < triangles; t++) {
+            for (int edge = 0; edge < 3; edge++) {
+                if (tin.neighbour(t, edge) < 0) {
+                    hullEdges.add(edgeKey(tin.vertex(t, edge), tin.vertex(t, (edge + 1) % 3)));
+                }
+            }
+        }
+        assertEquals(hull.length, hullEdges.size());
+        for (int k = 0; k < hull.length; k++) {
+            assertTrue(hullEdges.contains(edgeKey(hull[k], hull[(k + 1) % hull.length])),
+                "Hull edge " + hull[k] + " -> " + hull[(k + 1) % hull.length] + " is not on the mesh boundary");
+        }
+        assertEquals(2 * vertices - 2 - hull.length, triangles);
+    }
+
+    private static long edgeKey(int from, int to) {
+        return (long) from << 32 | to;
+    }
+
+    private static Tin grid(int size) {
+        PointCloud cloud = new PointCloud();
+        long id = 1;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                cloud.addPoint(id++, new Point3D(x, y, 0));
+            }
+        }
+        return Tin.build(cloud);
+    }
+
+    /**
+     * Inserts points one at a time into a grid TIN, checking the mesh after each one.
+     */
+    private static void assertInsertsStayValid(int size, float[][] points) {
+        Tin tin = grid(size);
+        int vertices = size * size;
+        long id = 1_000;
+        for (float[] xy : points) {
+            assertTrue(tin.insert(id++, new Point3D(xy[0], xy[1], 0)));
+            assertValidDelaunay(tin, ++vertices);
+        }
+    }
+
+    private static boolean inCircle(Tin tin, int a, int b, int c, int p) {
+        double dx = tin.x(a) - tin.x(p), dy = tin.y(a) - tin.y(p);
+        double ex = tin.x(b) - tin.x(p), ey = tin.y(b) - tin.y(p);
+        double fx = tin.x(c) - tin.x(p), fy = tin.y(c) - tin.y(p);
+        double det = (dx * dx + dy * dy) * (ex * fy - ey * fx)
+            - (ex * ex + ey * ey) * (dx * fy - dy * fx)
+            + (fx * fx + fy * fy) * (dx * ey - dy * ex);
+        return det > 1e-6;
+    }
+
+    @Test
+    void testBuildIsDelaunay() {
+        PointCloud cloud = randomCloud(20_000, 1);
+        Tin tin = Tin.build(cloud);
+        assertEquals(20_000, tin.vertexCount());
+        assertValidDelaunay(tin, 20_000);
+    }
+
+    @Test
+    void testIncrementalInsertion() {
+        PointCloud cloud = randomCloud(2_000, 2);
+        Tin tin = Tin.build(cloud);
+        Random random = new Random(3);
+        for (long id = 10_000; id < 11_000; id++) {
+            // Mostly inside the hull, some well outside it
+            float spread = id % 10 == 0 ? 400 : 100;
+            float offset = id % 10 == 0 ? -150 : 0;
+            assertTrue(tin.insert(id, new Point3D(1000 + offset + random.nextFloat() * spread,
+                3000 + offset + random.nextFloat() * spread, 95)));
+        }
+        assertEquals(3_000, tin.vertexCount());
+        assertValidDelaunay(tin, 3_000);
+    }
+
+    @Test
+    void testGridPointsAndDuplicates() {
+        // Co-circular grid points and points on edges stress the degenerate cases
+        PointCloud cloud = new PointCloud();
+        long id = 1;
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < 10; y++) {
+                cloud.addPoint(id++, new Point3D(x, y, x + y));
+            }
+        }
+        Tin tin = Tin.build(cloud);
+        assertEquals(2 * 100 - 2 - 36, tin.triangleCount());
+
+        assertFalse(tin.insert(500L, new Point3D(3, 3, 0))); // Existing vertex
+        assertTrue(tin.insert(501L, new Point3D(3.5f, 3, 0))); // Interior edge
+        assertTrue(tin.insert(502L, new Point3D(4.5f, 0, 0))); // Hull edge
+        assertTrue(tin.insert(503L, new Point3D(20, 20, 0))); // Outside
+        assertEquals(2 * 103 - 2 - tin.hull().length, tin.triangleCount());
+        assertValidDelaunay(tin, 103);
+    }
+
+    @Test
+    void testInsertionsOutsideAndAlongTheHull() {
+        // Flips and hull edge splits move the half-edges of the hull
+        assertInsertsStayValid(2, new float[][] {{3, 4}, {2, 2}, {4, 2}});
+        assertInsertsStayValid(4, new float[][] {{8, 0}, {7, 0}, {-2, -1}});
+        assertInsertsStayValid(3, new float[][] {{-2, 6}, {-1, 5}, {7, 7}});
+        assertInsertsStayValid(3, new float[][] {{1.5f, 0}, {0.5f, 0}, {2, 1.5f}, {-1, 1}, {3, 1}, {1, 3}});
+
+        Random random = new Random(5);
+        for (int run = 0; run < 50; run++) {
+            float[][] points = new float[20][];
+            for (int k = 0; k < points.length; k++) {
+                // Integer positions land on hull edges and their extensions
+                points[k] = new float[] {random.nextInt(13) - 4, random.nextInt(13) - 4};
+            }
+            Tin tin = grid(2 + run % 4);
+            int vertices = tin.vertexCount();
+            long id = 1_000;
+            for (float[] xy : points) {
+                if (tin.insert(id++, new Point3D(xy[0], xy[1], 0))) {
+                    vertices++;
+                }
+                assertValidDelaunay(tin, vertices);
+            }
+        }
+    }
+
+    @Test
+    void testInterpolationReproducesPlanes() {
+        Random random = new Random(4);
+        PointCloud cloud = new PointCloud();
+        for (long id = 1; id <= 5_000; id++) {
+            float x = random.nextFloat() * 100;
+            float y = random.nextFloat() * 100;
+            cloud.addPoint(id, new Point3D(x, y, 2 * x + 3 * y + 5));
+        }
+        Tin tin = Tin.build(cloud);
+
+        // A 200 x 200 design grid, row by row, is large enough to run in parallel
+        int n = 200 * 200;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = (i % 200) * 0.5 + 0.1;
+            ys[i] = (i / 200) * 0.5 + 0.1;
+        }
+        double[] z = tin.elevations(xs, ys);
+        int inside = 0;
+        for (int i = 0; i < n; i++) {
+            if (!Double.isNaN(z[i])) {
+                inside++;
+                assertEquals(2 * xs[i] + 3 * ys[i] + 5, z[i], 1e-3);
+            }
+            assertEquals(tin.elevation(xs[i], ys[i]), z[i], 1e-9);
+        }
+        assertTrue(inside > n * 0.95);
+
+        assertTrue(Double.isNaN(tin.elevation(-10, 50)));
+        assertEquals(2 * 50 + 3 * 50 + 5, tin.elevation(50, 50), 1e-3);
+        assertThrows(IllegalArgumentException.class, () -> tin.elevations(new double[2], new double[1]));
+        assertThrows(IllegalArgumentException.class, () -> tin.elevations(new double[2], new double[2], new double[1]));
+    }
+
+    @Test
+    void testDegenerateInputs() {
+        PointCloud cloud = new PointCloud();
+        cloud.addPoint(1L, new Point3D(0, 0, 0));
+        cloud.addPoint(2L, new Point3D(1, 1, 0));
+        Tin tin = Tin.build(cloud);
+        assertEquals(0, tin.triangleCount());
+
+        assertTrue(tin.insert(3L, new Point3D(2, 2, 0))); // Still collinear
+        assertEquals(0, tin.triangleCount());
+        assertTrue(tin.insert(4L, new Point3D(2, 0, 0)));
+        assertEquals(2, tin.triangleCount());
+        assertEquals(4, tin.hull().length);
+        assertFalse(tin.insert(5L, new Point3D(2, 0, 0)));
+        assertThrows(IllegalArgumentException.class, () -> tin.insert(6L, null));
+    }
+}
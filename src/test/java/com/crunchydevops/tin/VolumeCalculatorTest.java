@@ -0,0 +1,75 @@
+package com.crunchydevops.tin;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VolumeCalculatorTest {
+
+    @Test
+    void testPlaneAgainstReferenceElevation() {
+        // z = 10 + x / 10 crosses the reference 12 at x = 20
+        Tin existing = TinFixtures.surface(0, 0, 100, 100, 1, 500, 1, (x, y) -> 10 + x / 10);
+        VolumeReport report = VolumeCalculator.compare(existing, 12.0, 7.5);
+
+        assertEquals(32_000, report.cut(), 0.5);
+        assertEquals(2_000, report.fill(), 0.5);
+        assertEquals(30_000, report.net(), 0.5);
+        assertEquals(10_000, report.area(), 1e-6);
+        assertEquals(14, report.columns());
+        assertEquals(14, report.rows());
+
+        // The cells sum to the totals and a cell left of x = 20 is pure fill
+        double cut = 0;
+        for (int row = 0; row < report.rows(); row++) {
+            for (int column = 0; column < report.columns(); column++) {
+                cut += report.cut(column, row);
+            }
+        }
+        assertEquals(report.cut(), cut, 1e-6);
+        assertEquals(0, report.cut(0, 3), 1e-9);
+        assertEquals(7.5 * 7.5 * (2 - 0.375), report.fill(0, 3), 1e-3);
+    }
+
+    @Test
+    void testTwoTins() {
+        Tin existing = TinFixtures.surface(0, 0, 100, 100, 1, 2_000, 2, (x, y) -> 10 + x / 10);
+        Tin design = TinFixtures.surface(0, 0, 100, 100, 1, 300, 3, (x, y) -> 12);
+        VolumeReport report = VolumeCalculator.compare(existing, design, 10);
+
+        assertEquals(32_000, report.cut(), 0.5);
+        assertEquals(2_000, report.fill(), 0.5);
+        assertEquals(10_000, report.area(), 1e-3);
+
+        // Swapping the surfaces swaps cut and fill
+        VolumeReport swapped = VolumeCalculator.compare(design, existing, 10);
+        assertEquals(report.cut(), swapped.fill(), 0.5);
+        assertEquals(report.fill(), swapped.cut(), 0.5);
+    }
+
+    @Test
+    void testPartialOverlap() {
+        Tin existing = TinFixtures.surface(0, 0, 100, 100, 1, 400, 4, (x, y) -> 10 + x / 10);
+        Tin design = TinFixtures.surface(50, 0, 150, 100, 1, 400, 5, (x, y) -> 12 + y / 50);
+        VolumeReport report = VolumeCalculator.compare(existing, design, 5);
+
+        // Only 50 <= x <= 100 is covered by both; the difference x / 10 - 2 - y / 50 is positive there
+        assertEquals(50, report.originX(), 1e-6);
+        assertEquals(5_000, report.area(), 1e-3);
+        assertEquals(27_500 - 5_000, report.cut(), 0.5);
+        assertEquals(0, report.fill(), 1e-6);
+
+        Tin apart = TinFixtures.surface(500, 500, 600, 600, 1, 10, 6, (x, y) -> 0);
+        VolumeReport none = VolumeCalculator.compare(existing, apart, 5);
+        assertEquals(0, none.area());
+        assertEquals(0, none.columns());
+    }
+
+    @Test
+    void testInvalidCellSize() {
+        Tin existing = TinFixtures.surface(0, 0, 100, 100, 1, 10, 7, (x, y) -> 0);
+        assertThrows(IllegalArgumentException.class, () -> VolumeCalculator.compare(existing, 0.0, 0));
+        assertThrows(IllegalArgumentException.class, () -> VolumeCalculator.compare(existing, 0.0, Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> VolumeCalculator.compare(existing, 0.0, 1e-4));
+    }
+}